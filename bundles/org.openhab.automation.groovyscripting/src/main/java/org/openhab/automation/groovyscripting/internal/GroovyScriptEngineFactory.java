@@ -14,6 +14,7 @@ package org.openhab.automation.groovyscripting.internal;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -24,20 +25,28 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.OpenHAB;
 import org.openhab.core.automation.module.script.AbstractScriptEngineFactory;
 import org.openhab.core.automation.module.script.ScriptEngineFactory;
+import org.openhab.core.config.core.ConfigurableService;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 
 import groovy.lang.GroovyClassLoader;
 
 /**
  * This is an implementation of a {@link ScriptEngineFactory} for Groovy.
  *
+ * A number of script engines can be created in advance by a {@link ScriptEnginePool}.
+ *
  * @author Wouter Born - Initial contribution
  */
-@Component(service = ScriptEngineFactory.class)
+@Component(service = ScriptEngineFactory.class, configurationPid = "org.openhab.automation.groovyscripting")
+@ConfigurableService(category = "automation", label = "Groovy Scripting", description_uri = "automation:groovy")
 @NonNullByDefault
 public class GroovyScriptEngineFactory extends AbstractScriptEngineFactory {
 
     private static final String FILE_DIRECTORY = "automation" + File.separator + "groovy";
+    private static final String CFG_ENGINE_POOL_SIZE = "enginePoolSize";
     private final org.codehaus.groovy.jsr223.GroovyScriptEngineFactory factory = new org.codehaus.groovy.jsr223.GroovyScriptEngineFactory();
 
     private final List<String> scriptTypes = (List<String>) Stream.of(factory.getExtensions(), factory.getMimeTypes())
@@ -46,12 +55,38 @@ public class GroovyScriptEngineFactory extends AbstractScriptEngineFactory {
 
     private final GroovyClassLoader gcl = new GroovyClassLoader();
 
+    private final ScriptEnginePool enginePool = new ScriptEnginePool(
+            () -> new org.codehaus.groovy.jsr223.GroovyScriptEngineImpl(gcl));
+
     public GroovyScriptEngineFactory() {
         String scriptDir = OpenHAB.getConfigFolder() + File.separator + FILE_DIRECTORY;
         logger.debug("Adding script directory {} to the GroovyScriptEngine class path.", scriptDir);
         gcl.addClasspath(scriptDir);
     }
 
+    @Activate
+    protected void activate(Map<String, Object> config) {
+        modified(config);
+    }
+
+    @Modified
+    protected void modified(Map<String, Object> config) {
+        Object enginePoolSize = config.get(CFG_ENGINE_POOL_SIZE);
+        enginePool.setSize(enginePoolSize instanceof Number ? ((Number) enginePoolSize).intValue() : 0);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        enginePool.shutdown();
+    }
+
+    /**
+     * @return the pool of the script engines created in advance, which provides the engine creation times
+     */
+    public ScriptEnginePool getEnginePool() {
+        return enginePool;
+    }
+
     @Override
     public List<String> getScriptTypes() {
         return scriptTypes;
@@ -60,7 +95,7 @@ public class GroovyScriptEngineFactory extends AbstractScriptEngineFactory {
     @Override
     public @Nullable ScriptEngine createScriptEngine(String scriptType) {
         if (scriptTypes.contains(scriptType)) {
-            return new org.codehaus.groovy.jsr223.GroovyScriptEngineImpl(gcl);
+            return enginePool.take();
         }
         return null;
     }
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.automation.groovyscripting.internal;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.script.ScriptEngine;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ScriptEnginePool} keeps a number of Groovy script engines which are created in advance in the background.
+ *
+ * Every engine is only handed out once and the pool is filled up again after an engine has been taken. If the pool is
+ * empty, the engine is created by the caller. The engines don't depend on the configuration, so they are kept when
+ * the size of the pool changes.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class ScriptEnginePool {
+    private final Logger logger = LoggerFactory.getLogger(ScriptEnginePool.class);
+
+    private final Supplier<ScriptEngine> engineSupplier;
+    private final ExecutorService executor = Executors
+            .newSingleThreadExecutor(new NamedThreadFactory("groovy-engine-pool"));
+
+    private final BlockingQueue<ScriptEngine> engines = new LinkedBlockingQueue<>();
+    private final AtomicBoolean fillRequested = new AtomicBoolean();
+    private volatile int size;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong totalCreationTime = new AtomicLong();
+    private volatile long lastCreationTime;
+    private volatile long maxCreationTime;
+
+    /**
+     * @param engineSupplier creates an engine
+     */
+    public ScriptEnginePool(Supplier<ScriptEngine> engineSupplier) {
+        this.engineSupplier = engineSupplier;
+    }
+
+    /**
+     * Takes an engine from the pool, or creates one if the pool is empty
+     *
+     * @return an engine which hasn't been used before
+     */
+    public ScriptEngine take() {
+        ScriptEngine engine = engines.poll();
+        if (engine == null) {
+            engine = create();
+        }
+        fill();
+        logger.debug("Script engine pool: {}", this);
+        return engine;
+    }
+
+    /**
+     * Sets the number of engines created in advance and fills the pool
+     *
+     * @param size the number of engines, no engines are created in advance if it is not positive
+     */
+    public void setSize(int size) {
+        this.size = Math.max(0, size);
+        while (engines.size() > this.size && engines.poll() != null) {
+            // the surplus engines are released
+        }
+        fill();
+    }
+
+    /**
+     * Stops creating engines and releases the engines of the pool
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        engines.clear();
+    }
+
+    private void fill() {
+        if (engines.size() < size && fillRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::doFill);
+            } catch (RejectedExecutionException e) {
+                // the pool has been shut down
+                fillRequested.set(false);
+            }
+        }
+    }
+
+    private void doFill() {
+        fillRequested.set(false);
+        while (engines.size() < size && !Thread.currentThread().isInterrupted()) {
+            try {
+                engines.offer(create());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to create a script engine in advance: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private ScriptEngine create() {
+        long start = System.currentTimeMillis();
+        ScriptEngine engine = engineSupplier.get();
+        long creationTime = System.currentTimeMillis() - start;
+        created.incrementAndGet();
+        totalCreationTime.addAndGet(creationTime);
+        lastCreationTime = creationTime;
+        maxCreationTime = Math.max(maxCreationTime, creationTime);
+        return engine;
+    }
+
+    /**
+     * @return the time in milliseconds the creation of the last engine took
+     */
+    public long getLastCreationTime() {
+        return lastCreationTime;
+    }
+
+    public long getMaxCreationTime() {
+        return maxCreationTime;
+    }
+
+    public long getAverageCreationTime() {
+        long count = created.get();
+        return count == 0 ? 0 : totalCreationTime.get() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptEnginePool [size=" + size + ", available=" + engines.size() + ", created=" + created
+                + ", lastCreationTime=" + lastCreationTime + " ms, averageCreationTime=" + getAverageCreationTime()
+                + " ms, maxCreationTime=" + maxCreationTime + " ms]";
+    }
+}
@@ -13,6 +13,7 @@
 package org.openhab.automation.jrubyscripting.internal;
 
 import java.io.File;
+import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
@@ -52,12 +53,17 @@ public class JRubyScriptEngineConfiguration {
     private static final String RUBYLIB = "rubylib";
     private static final String GEMS = "gems";
     private static final String REQUIRE = "require";
+    private static final String ENGINE_POOL_SIZE = "engine_pool_size";
+    private static final String LOCAL_CONTEXT = "local_context";
+    // the only local context in which each engine has its own runtime
+    private static final String SINGLETHREAD_LOCAL_CONTEXT = "singlethread";
 
     // Map of configuration parameters
     private static final Map<String, OptionalConfigurationElement> CONFIGURATION_PARAMETERS = Map.ofEntries(
-            Map.entry("local_context",
+            Map.entry(LOCAL_CONTEXT,
                     new OptionalConfigurationElement.Builder(OptionalConfigurationElement.Type.SYSTEM_PROPERTY)
-                            .mappedTo("org.jruby.embed.localcontext.scope").defaultValue("singlethread").build()),
+                            .mappedTo("org.jruby.embed.localcontext.scope").defaultValue(SINGLETHREAD_LOCAL_CONTEXT)
+                            .build()),
 
             Map.entry("local_variable",
                     new OptionalConfigurationElement.Builder(OptionalConfigurationElement.Type.SYSTEM_PROPERTY)
@@ -74,7 +80,11 @@ public class JRubyScriptEngineConfiguration {
             Map.entry(GEMS, new OptionalConfigurationElement.Builder(OptionalConfigurationElement.Type.GEM).build()),
 
             Map.entry(REQUIRE,
-                    new OptionalConfigurationElement.Builder(OptionalConfigurationElement.Type.REQUIRE).build()));
+                    new OptionalConfigurationElement.Builder(OptionalConfigurationElement.Type.REQUIRE).build()),
+
+            Map.entry(ENGINE_POOL_SIZE,
+                    new OptionalConfigurationElement.Builder(OptionalConfigurationElement.Type.ENGINE_POOL)
+                            .defaultValue("0").build()));
 
     private static final Map<OptionalConfigurationElement.Type, List<OptionalConfigurationElement>> CONFIGURATION_TYPE_MAP = CONFIGURATION_PARAMETERS
             .values().stream().collect(Collectors.groupingBy(v -> v.type));
@@ -210,6 +220,40 @@ public class JRubyScriptEngineConfiguration {
                 });
     }
 
+    /**
+     * Get the number of script engines to create in advance
+     * 
+     * Engines are only created in advance for the singlethread local context, in the other contexts all engines share
+     * one Ruby runtime and creating an engine is cheap.
+     * 
+     * @return the size of the engine pool, 0 if no engines are created in advance
+     */
+    int getEnginePoolSize() {
+        OptionalConfigurationElement enginePoolSizeConfigElement = CONFIGURATION_PARAMETERS.get(ENGINE_POOL_SIZE);
+        if (enginePoolSizeConfigElement == null || !enginePoolSizeConfigElement.getValue().isPresent()) {
+            return 0;
+        }
+
+        String enginePoolSize = enginePoolSizeConfigElement.getValue().get().trim();
+        int size;
+        try {
+            size = Math.max(0, new BigDecimal(enginePoolSize).intValue());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid engine pool size '{}', no script engines are created in advance", enginePoolSize);
+            return 0;
+        }
+
+        OptionalConfigurationElement localContextConfigElement = CONFIGURATION_PARAMETERS.get(LOCAL_CONTEXT);
+        String localContext = localContextConfigElement == null ? SINGLETHREAD_LOCAL_CONTEXT
+                : localContextConfigElement.getValue().orElse(SINGLETHREAD_LOCAL_CONTEXT).trim();
+        if (size > 0 && !SINGLETHREAD_LOCAL_CONTEXT.equalsIgnoreCase(localContext)) {
+            logger.info("The script engines share the Ruby runtime of the local context '{}', "
+                    + "no script engines are created in advance", localContext);
+            return 0;
+        }
+        return size;
+    }
+
     /**
      * Configure the optional elements of the Ruby Environment
      * 
@@ -310,7 +354,8 @@ public class JRubyScriptEngineConfiguration {
             SYSTEM_PROPERTY,
             RUBY_ENVIRONMENT,
             GEM,
-            REQUIRE
+            REQUIRE,
+            ENGINE_POOL
         }
 
         private static class Builder {
@@ -29,11 +29,15 @@ import org.openhab.core.automation.module.script.ScriptEngineFactory;
 import org.openhab.core.config.core.ConfigurableService;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 
 /**
  * This is an implementation of a {@link ScriptEngineFactory} for Ruby.
  *
+ * Creating a JRuby runtime takes a long time, so a number of configured script engines can be created in advance by
+ * a {@link ScriptEnginePool}.
+ *
  * @author Brian O'Connell - Initial contribution
  * @author Jimmy Tanagra - Add require injection
  */
@@ -58,6 +62,9 @@ public class JRubyScriptEngineFactory extends AbstractScriptEngineFactory {
             .concat(factory.getExtensions().stream(), factory.getMimeTypes().stream())
             .collect(Collectors.toUnmodifiableList());
 
+    private final ScriptEnginePool enginePool = new ScriptEnginePool("jruby-engine-pool",
+            () -> configuration.configureRubyEnvironment(factory.getScriptEngine()));
+
     // Adds @ in front of a set of variables so that Ruby recognizes them as instance variables
     private static Map.Entry<String, Object> mapInstancePresets(Map.Entry<String, Object> entry) {
         if (INSTANCE_PRESETS.contains(entry.getKey())) {
@@ -80,12 +87,26 @@ public class JRubyScriptEngineFactory extends AbstractScriptEngineFactory {
     @Activate
     protected void activate(Map<String, Object> config) {
         configuration.update(config, factory);
+        enginePool.configure(configuration.getEnginePoolSize());
     }
 
     // The modified call updates configuration for the automation
     @Modified
     protected void modified(Map<String, Object> config) {
         configuration.update(config, factory);
+        enginePool.configure(configuration.getEnginePoolSize());
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        enginePool.shutdown();
+    }
+
+    /**
+     * @return the pool of the script engines created in advance, which provides the engine creation times
+     */
+    public ScriptEnginePool getEnginePool() {
+        return enginePool;
     }
 
     @Override
@@ -136,7 +157,6 @@ public class JRubyScriptEngineFactory extends AbstractScriptEngineFactory {
 
     @Override
     public @Nullable ScriptEngine createScriptEngine(String scriptType) {
-        return scriptTypes.contains(scriptType) ? configuration.configureRubyEnvironment(factory.getScriptEngine())
-                : null;
+        return scriptTypes.contains(scriptType) ? enginePool.take() : null;
     }
 }
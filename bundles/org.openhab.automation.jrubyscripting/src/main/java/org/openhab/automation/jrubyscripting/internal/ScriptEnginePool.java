@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.automation.jrubyscripting.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.script.ScriptEngine;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ScriptEnginePool} keeps a number of script engines which are created in advance in the background.
+ *
+ * Every engine is only handed out once, as each script needs an engine of its own. The pool is filled up again after
+ * an engine has been taken. If the pool is empty, the engine is created by the caller. Engines are only created in
+ * advance if the size of the pool is positive.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class ScriptEnginePool {
+    private final Logger logger = LoggerFactory.getLogger(ScriptEnginePool.class);
+
+    private final Supplier<ScriptEngine> engineSupplier;
+    private final ExecutorService executor;
+
+    private final BlockingQueue<ScriptEngine> engines = new LinkedBlockingQueue<>();
+    private final AtomicBoolean fillRequested = new AtomicBoolean();
+    // incremented when the engines of the pool must not be used anymore, e.g. after a configuration change
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile int size;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong totalCreationTime = new AtomicLong();
+    private volatile long lastCreationTime;
+    private volatile long maxCreationTime;
+
+    /**
+     * @param name the name of the thread creating the engines
+     * @param engineSupplier creates and initializes an engine
+     */
+    public ScriptEnginePool(String name, Supplier<ScriptEngine> engineSupplier) {
+        this.engineSupplier = engineSupplier;
+        this.executor = Executors.newSingleThreadExecutor(new NamedThreadFactory(name));
+    }
+
+    /**
+     * Takes an engine from the pool, or creates one if the pool is empty
+     *
+     * @return an engine which hasn't been used before
+     */
+    public ScriptEngine take() {
+        ScriptEngine engine = engines.poll();
+        if (engine != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            engine = create();
+        }
+        fill();
+        logger.debug("Script engine pool: {}", this);
+        return engine;
+    }
+
+    /**
+     * Sets the number of engines created in advance and fills the pool. The engines created before are discarded, as
+     * they may have been created with another configuration.
+     *
+     * @param size the number of engines, no engines are created in advance if it is not positive
+     */
+    public void configure(int size) {
+        this.size = Math.max(0, size);
+        discardEngines();
+        fill();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Stops creating engines and discards the engines of the pool
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        discardEngines();
+        logger.debug("Script engine pool stopped: {}", this);
+    }
+
+    private void fill() {
+        if (engines.size() < size && fillRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::doFill);
+            } catch (RejectedExecutionException e) {
+                // the pool has been shut down
+                fillRequested.set(false);
+            }
+        }
+    }
+
+    private void doFill() {
+        fillRequested.set(false);
+        while (engines.size() < size && !Thread.currentThread().isInterrupted()) {
+            int generation = this.generation.get();
+            ScriptEngine engine;
+            try {
+                engine = create();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to create a script engine in advance: {}", e.getMessage());
+                return;
+            }
+            synchronized (engines) {
+                if (generation == this.generation.get() && !executor.isShutdown()) {
+                    engines.offer(engine);
+                    continue;
+                }
+            }
+            // created with an outdated configuration
+            dispose(engine);
+        }
+    }
+
+    private ScriptEngine create() {
+        long start = System.currentTimeMillis();
+        ScriptEngine engine = engineSupplier.get();
+        long creationTime = System.currentTimeMillis() - start;
+        created.incrementAndGet();
+        totalCreationTime.addAndGet(creationTime);
+        lastCreationTime = creationTime;
+        maxCreationTime = Math.max(maxCreationTime, creationTime);
+        return engine;
+    }
+
+    private void discardEngines() {
+        List<ScriptEngine> discarded = new ArrayList<>();
+        synchronized (engines) {
+            // engines being created are discarded as well
+            generation.incrementAndGet();
+            engines.drainTo(discarded);
+        }
+        discarded.forEach(this::dispose);
+    }
+
+    private void dispose(ScriptEngine engine) {
+        if (engine instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) engine).close();
+            } catch (Exception e) {
+                logger.debug("Failed to close a script engine: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the number of engines ready to be taken
+     */
+    public int getAvailable() {
+        return engines.size();
+    }
+
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * @return the number of engines taken from the pool
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of engines created by the caller, because the pool was empty
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the time in milliseconds the creation of the last engine took
+     */
+    public long getLastCreationTime() {
+        return lastCreationTime;
+    }
+
+    public long getMaxCreationTime() {
+        return maxCreationTime;
+    }
+
+    public long getAverageCreationTime() {
+        long count = created.get();
+        return count == 0 ? 0 : totalCreationTime.get() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptEnginePool [size=" + size + ", available=" + engines.size() + ", created=" + created
+                + ", hits=" + hits + ", misses=" + misses + ", lastCreationTime=" + lastCreationTime
+                + " ms, averageCreationTime=" + getAverageCreationTime() + " ms, maxCreationTime=" + maxCreationTime
+                + " ms]";
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.automation.jrubyscripting.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import javax.script.ScriptEngine;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests taking engines from the {@link ScriptEnginePool}, filling it up again and shutting it down.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class ScriptEnginePoolTest {
+
+    private final List<ScriptEngine> createdEngines = new CopyOnWriteArrayList<>();
+    private final ScriptEnginePool pool = new ScriptEnginePool("test-engine-pool", () -> {
+        ScriptEngine engine = mock(ScriptEngine.class, withSettings().extraInterfaces(AutoCloseable.class));
+        createdEngines.add(engine);
+        return engine;
+    });
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void takeCreatesTheEngineIfThePoolIsEmpty() throws InterruptedException {
+        ScriptEngine engine = pool.take();
+
+        assertEquals(List.of(engine), createdEngines);
+        assertEquals(1, pool.getMisses());
+        assertEquals(0, pool.getHits());
+        // no engines are created in advance without a size
+        Thread.sleep(100);
+        assertEquals(1, pool.getCreated());
+        assertEquals(0, pool.getAvailable());
+    }
+
+    @Test
+    public void takeHandsOutEachEngineCreatedInAdvanceOnce() throws InterruptedException {
+        pool.configure(2);
+        waitFor(() -> pool.getAvailable() == 2);
+
+        ScriptEngine first = pool.take();
+        ScriptEngine second = pool.take();
+
+        assertNotSame(first, second);
+        assertTrue(createdEngines.subList(0, 2).containsAll(List.of(first, second)));
+        assertEquals(2, pool.getHits());
+        assertEquals(0, pool.getMisses());
+
+        // the pool is filled up again after the engines have been taken
+        waitFor(() -> pool.getAvailable() == 2);
+        assertEquals(4, pool.getCreated());
+        assertFalse(createdEngines.subList(2, 4).contains(first));
+    }
+
+    @Test
+    public void configureDiscardsTheEnginesCreatedBefore() throws Exception {
+        pool.configure(2);
+        waitFor(() -> pool.getAvailable() == 2);
+        List<ScriptEngine> discarded = List.copyOf(createdEngines);
+
+        pool.configure(1);
+
+        for (ScriptEngine engine : discarded) {
+            verify((AutoCloseable) engine).close();
+        }
+        waitFor(() -> pool.getAvailable() == 1);
+        ScriptEngine engine = pool.take();
+        assertFalse(discarded.contains(engine));
+    }
+
+    @Test
+    public void shutdownClosesThePooledEnginesAndStopsCreatingEngines() throws Exception {
+        pool.configure(2);
+        waitFor(() -> pool.getAvailable() == 2);
+
+        pool.shutdown();
+
+        assertEquals(0, pool.getAvailable());
+        for (ScriptEngine engine : createdEngines) {
+            verify((AutoCloseable) engine).close();
+        }
+
+        // the caller still gets an engine, but the pool isn't filled up again
+        ScriptEngine engine = pool.take();
+        assertEquals(3, createdEngines.size());
+        assertSame(createdEngines.get(2), engine);
+        Thread.sleep(100);
+        assertEquals(3, pool.getCreated());
+        assertEquals(0, pool.getAvailable());
+        verify((AutoCloseable) engine, never()).close();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < end, "Timeout waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -19,17 +19,24 @@ import java.util.Map;
 
 import javax.script.ScriptEngine;
 
+import org.graalvm.polyglot.Engine;
 import org.openhab.core.automation.module.script.ScriptEngineFactory;
 import org.openhab.core.config.core.ConfigurableService;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * An implementation of {@link ScriptEngineFactory} with customizations for GraalJS ScriptEngines.
  *
+ * The script engines share one polyglot {@link Engine}, which is created with the first script engine and closed when
+ * the factory is deactivated.
+ *
  * @author Jonathan Gilbert - Initial contribution
  * @author Dan Cunningham - Script injections
  */
@@ -37,10 +44,15 @@ import org.osgi.service.component.annotations.Modified;
         + "=org.openhab.jsscripting")
 @ConfigurableService(category = "automation", label = "JS Scripting", description_uri = "automation:jsscripting")
 public final class GraalJSScriptEngineFactory implements ScriptEngineFactory {
+    private final Logger logger = LoggerFactory.getLogger(GraalJSScriptEngineFactory.class);
+
     private static final String CFG_INJECTION_ENABLED = "injectionEnabled";
     private static final String INJECTION_CODE = "Object.assign(this, require('openhab'));";
     private boolean injectionEnabled = true;
 
+    private final JSRuntimeMetrics metrics = new JSRuntimeMetrics();
+    private Engine engine;
+
     public static final String MIME_TYPE = "application/javascript;version=ECMAScript-2021";
 
     @Override
@@ -71,7 +83,26 @@ public final class GraalJSScriptEngineFactory implements ScriptEngineFactory {
     @Override
     public ScriptEngine createScriptEngine(String scriptType) {
         return new DebuggingGraalScriptEngine<>(
-                new OpenhabGraalJSScriptEngine(injectionEnabled ? INJECTION_CODE : null));
+                new OpenhabGraalJSScriptEngine(injectionEnabled ? INJECTION_CODE : null, getEngine(), metrics));
+    }
+
+    /**
+     * @return the metrics of the script contexts created by this factory
+     */
+    public JSRuntimeMetrics getMetrics() {
+        return metrics;
+    }
+
+    private synchronized Engine getEngine() {
+        Engine engine = this.engine;
+        if (engine == null) {
+            long start = System.currentTimeMillis();
+            engine = Engine.newBuilder().allowExperimentalOptions(true).option("engine.WarnInterpreterOnly", "false")
+                    .build();
+            this.engine = engine;
+            logger.debug("Created shared GraalJS engine in {} ms", System.currentTimeMillis() - start);
+        }
+        return engine;
     }
 
     @Activate
@@ -79,6 +110,21 @@ public final class GraalJSScriptEngineFactory implements ScriptEngineFactory {
         modified(config);
     }
 
+    @Deactivate
+    protected synchronized void deactivate() {
+        Engine engine = this.engine;
+        if (engine != null) {
+            logger.debug("Closing shared GraalJS engine: {}", metrics);
+            try {
+                // the script engines have been removed before, cancel anything they left behind
+                engine.close(true);
+            } catch (IllegalStateException e) {
+                logger.debug("Failed to close the shared GraalJS engine: {}", e.getMessage());
+            }
+            this.engine = null;
+        }
+    }
+
     @Modified
     protected void modified(Map<String, ?> config) {
         Object injectionEnabled = config.get(CFG_INJECTION_ENABLED);
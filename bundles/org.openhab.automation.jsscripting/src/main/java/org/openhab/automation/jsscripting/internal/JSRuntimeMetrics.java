@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.automation.jsscripting.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.automation.jsscripting.internal.threading.ScriptEventLoop;
+
+/**
+ * Metrics of the script contexts created on the shared GraalJS engine.
+ *
+ * The initialization of a context is the injection of the global script, which loads the helper library on first
+ * use of the script. The allocated bytes of the initializing thread are an approximation of the heap a script needs
+ * on its own; they are only available if the JVM supports measuring thread allocations.
+ *
+ * The {@link ScriptEventLoop}s of the open contexts provide the queue depth and the rule latency per script.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class JSRuntimeMetrics {
+
+    private final AtomicLong contextsCreated = new AtomicLong();
+    private final AtomicLong contextsInitialized = new AtomicLong();
+    private final AtomicLong totalInitTime = new AtomicLong();
+    private final AtomicLong totalInitAllocation = new AtomicLong();
+    private volatile long lastInitTime;
+    private volatile long maxInitTime;
+    private volatile long lastInitAllocation;
+    private final Set<ScriptEventLoop> eventLoops = ConcurrentHashMap.newKeySet();
+
+    void contextCreated(ScriptEventLoop eventLoop) {
+        contextsCreated.incrementAndGet();
+        eventLoops.add(eventLoop);
+    }
+
+    void contextClosed(ScriptEventLoop eventLoop) {
+        eventLoops.remove(eventLoop);
+    }
+
+    /**
+     * @return a measurement of the initialization of a context on the current thread
+     */
+    Measurement startInitialization() {
+        return new Measurement();
+    }
+
+    public long getContextsCreated() {
+        return contextsCreated.get();
+    }
+
+    /**
+     * @return the event loops of the contexts which haven't been closed yet
+     */
+    public Collection<ScriptEventLoop> getEventLoops() {
+        return Collections.unmodifiableSet(eventLoops);
+    }
+
+    public long getContextsInitialized() {
+        return contextsInitialized.get();
+    }
+
+    /**
+     * @return the time in milliseconds the last initialization took
+     */
+    public long getLastInitTime() {
+        return lastInitTime;
+    }
+
+    public long getMaxInitTime() {
+        return maxInitTime;
+    }
+
+    public long getAverageInitTime() {
+        long count = contextsInitialized.get();
+        return count == 0 ? 0 : totalInitTime.get() / count;
+    }
+
+    /**
+     * @return the bytes allocated by the last initialization, -1 if they can't be measured
+     */
+    public long getLastInitAllocation() {
+        return lastInitAllocation;
+    }
+
+    public long getAverageInitAllocation() {
+        long count = contextsInitialized.get();
+        return count == 0 || lastInitAllocation < 0 ? -1 : totalInitAllocation.get() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "JSRuntimeMetrics [contextsCreated=" + contextsCreated + ", contextsInitialized=" + contextsInitialized
+                + ", openContexts=" + eventLoops.size()
+                + ", lastInitTime=" + lastInitTime + " ms, averageInitTime=" + getAverageInitTime()
+                + " ms, maxInitTime=" + maxInitTime + " ms, lastInitAllocation=" + lastInitAllocation
+                + " bytes, averageInitAllocation=" + getAverageInitAllocation() + " bytes]";
+    }
+
+    /**
+     * The measurement of one initialization, to be finished on the thread it was started on
+     */
+    class Measurement {
+        private final long start = System.nanoTime();
+        private final long startAllocation = getAllocatedBytes();
+
+        void finish() {
+            long time = (System.nanoTime() - start) / 1_000_000;
+            long endAllocation = getAllocatedBytes();
+            long allocation = startAllocation < 0 || endAllocation < 0 ? -1 : endAllocation - startAllocation;
+
+            contextsInitialized.incrementAndGet();
+            totalInitTime.addAndGet(time);
+            lastInitTime = time;
+            maxInitTime = Math.max(maxInitTime, time);
+            if (allocation >= 0) {
+                totalInitAllocation.addAndGet(allocation);
+            }
+            lastInitAllocation = allocation;
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        try {
+            ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            if (threadBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+                if (allocationBean.isThreadAllocatedMemorySupported()
+                        && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                    return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                }
+            }
+        } catch (LinkageError e) {
+            // the com.sun.management package is not available on this JVM
+        }
+        return -1;
+    }
+}
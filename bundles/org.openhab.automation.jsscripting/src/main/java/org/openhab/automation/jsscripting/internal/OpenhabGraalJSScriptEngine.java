@@ -16,6 +16,7 @@ import static org.openhab.core.automation.module.script.ScriptEngineFactory.*;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.AccessMode;
 import java.nio.file.FileSystems;
@@ -30,9 +31,12 @@ import java.time.ZonedDateTime;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import javax.script.Bindings;
 import javax.script.ScriptContext;
 import javax.script.ScriptException;
 
@@ -47,6 +51,7 @@ import org.openhab.automation.jsscripting.internal.fs.PrefixedSeekableByteChanne
 import org.openhab.automation.jsscripting.internal.fs.ReadOnlySeekableByteArrayChannel;
 import org.openhab.automation.jsscripting.internal.fs.watch.JSDependencyTracker;
 import org.openhab.automation.jsscripting.internal.scriptengine.InvocationInterceptingScriptEngineWithInvocableAndAutoCloseable;
+import org.openhab.automation.jsscripting.internal.threading.ScriptEventLoop;
 import org.openhab.core.automation.module.script.ScriptExtensionAccessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +61,13 @@ import com.oracle.truffle.js.scriptengine.GraalJSScriptEngine;
 /**
  * GraalJS Script Engine implementation
  *
+ * All script engines create their isolated context on one shared polyglot {@link Engine}, so that the parsed and
+ * compiled code of the injected globals and of the library modules is shared between them. The module files of the
+ * bundled <code>node_modules</code> are read from the bundle once.
+ *
+ * The context is only used on the {@link ScriptEventLoop} of the script engine: the calls of the script engine and
+ * rule executions are run on it and wait for their result, the timers of the script fire on it.
+ *
  * @author Jonathan Gilbert - Initial contribution
  * @author Dan Cunningham - Script injections
  */
@@ -65,8 +77,29 @@ public class OpenhabGraalJSScriptEngine
     private static final Logger LOGGER = LoggerFactory.getLogger(OpenhabGraalJSScriptEngine.class);
     private static final String GLOBAL_REQUIRE = "require(\"@jsscripting-globals\");";
     private static final String REQUIRE_WRAPPER_NAME = "__wraprequire__";
+    private static final String EVENT_LOOP_NAME = "__eventloop__";
     // final CommonJS search path for our library
     private static final Path NODE_DIR = Paths.get("node_modules");
+    // the content of the bundled library files, which don't change while the bundle is active
+    private static final Map<String, byte[]> NODE_MODULE_RESOURCES = new ConcurrentHashMap<>();
+
+    // Custom translate JS Objects - > Java Objects
+    private static final HostAccess HOST_ACCESS = HostAccess.newBuilder(HostAccess.ALL)
+            // Translate JS-Joda ZonedDateTime to java.time.ZonedDateTime
+            .targetTypeMapping(Value.class, ZonedDateTime.class, (v) -> v.hasMember("withFixedOffsetZone"), v -> {
+                return ZonedDateTime.parse(v.invokeMember("withFixedOffsetZone").invokeMember("toString").asString());
+            }, HostAccess.TargetMappingPrecedence.LOW)
+
+            // Translate JS-Joda Duration to java.time.Duration
+            .targetTypeMapping(Value.class, Duration.class,
+                    // picking two members to check as Duration has many common function names
+                    (v) -> v.hasMember("minusDuration") && v.hasMember("toNanos"), v -> {
+                        return Duration.ofNanos(v.invokeMember("toNanos").asLong());
+                    }, HostAccess.TargetMappingPrecedence.LOW)
+            .build();
+
+    private final JSRuntimeMetrics metrics;
+    private final ScriptEventLoop eventLoop = new ScriptEventLoop();
 
     // these fields start as null because they are populated on first use
     private @NonNullByDefault({}) String engineIdentifier;
@@ -78,31 +111,19 @@ public class OpenhabGraalJSScriptEngine
     /**
      * Creates an implementation of ScriptEngine (& Invocable), wrapping the contained engine, that tracks the script
      * lifecycle and provides hooks for scripts to do so too.
+     *
+     * @param injectionCode the code to inject into the global scope, <code>null</code> if nothing is injected
+     * @param engine the polyglot engine shared by all script engines
+     * @param metrics the metrics of the shared engine
      */
-    public OpenhabGraalJSScriptEngine(@Nullable String injectionCode) {
+    public OpenhabGraalJSScriptEngine(@Nullable String injectionCode, Engine engine, JSRuntimeMetrics metrics) {
         super(null); // delegate depends on fields not yet initialised, so we cannot set it immediately
         this.globalScript = GLOBAL_REQUIRE + (injectionCode != null ? injectionCode : "");
+        this.metrics = metrics;
 
-        // Custom translate JS Objects - > Java Objects
-        HostAccess hostAccess = HostAccess.newBuilder(HostAccess.ALL)
-                // Translate JS-Joda ZonedDateTime to java.time.ZonedDateTime
-                .targetTypeMapping(Value.class, ZonedDateTime.class, (v) -> v.hasMember("withFixedOffsetZone"), v -> {
-                    return ZonedDateTime
-                            .parse(v.invokeMember("withFixedOffsetZone").invokeMember("toString").asString());
-                }, HostAccess.TargetMappingPrecedence.LOW)
-
-                // Translate JS-Joda Duration to java.time.Duration
-                .targetTypeMapping(Value.class, Duration.class,
-                        // picking two members to check as Duration has many common function names
-                        (v) -> v.hasMember("minusDuration") && v.hasMember("toNanos"), v -> {
-                            return Duration.ofNanos(v.invokeMember("toNanos").asLong());
-                        }, HostAccess.TargetMappingPrecedence.LOW)
-                .build();
-
-        delegate = GraalJSScriptEngine.create(
-                Engine.newBuilder().allowExperimentalOptions(true).option("engine.WarnInterpreterOnly", "false")
-                        .build(),
-                Context.newBuilder("js").allowExperimentalOptions(true).allowAllAccess(true).allowHostAccess(hostAccess)
+        delegate = GraalJSScriptEngine.create(engine,
+                Context.newBuilder("js").allowExperimentalOptions(true).allowAllAccess(true)
+                        .allowHostAccess(HOST_ACCESS)
                         .option("js.commonjs-require-cwd", JSDependencyTracker.LIB_PATH)
                         .option("js.nashorn-compat", "true") // to ease migration
                         .option("js.ecmascript-version", "2021") // nashorn compat will enforce es5 compatibility, we
@@ -120,11 +141,7 @@ public class OpenhabGraalJSScriptEngine
                                 if (path.toString().endsWith(".js")) {
                                     SeekableByteChannel sbc = null;
                                     if (isRootNodePath(path)) {
-                                        InputStream is = getClass().getResourceAsStream(nodeFileToResource(path));
-                                        if (is == null) {
-                                            throw new IOException("Could not read " + path.toString());
-                                        }
-                                        sbc = new ReadOnlySeekableByteArrayChannel(is.readAllBytes());
+                                        sbc = new ReadOnlySeekableByteArrayChannel(readNodeModule(path));
                                     } else {
                                         sbc = super.newByteChannel(path, options, attrs);
                                     }
@@ -164,6 +181,7 @@ public class OpenhabGraalJSScriptEngine
                                 return super.toRealPath(path, linkOptions);
                             }
                         }));
+        metrics.contextCreated(eventLoop);
     }
 
     @Override
@@ -179,6 +197,7 @@ public class OpenhabGraalJSScriptEngine
         if (this.engineIdentifier == null) {
             throw new IllegalStateException("Failed to retrieve engine identifier from engine bindings");
         }
+        eventLoop.setName(engineIdentifier);
 
         ScriptExtensionAccessor scriptExtensionAccessor = (ScriptExtensionAccessor) ctx
                 .getAttribute(CONTEXT_KEY_EXTENSION_ACCESSOR);
@@ -194,22 +213,130 @@ public class OpenhabGraalJSScriptEngine
         }
 
         ScriptExtensionModuleProvider scriptExtensionModuleProvider = new ScriptExtensionModuleProvider(
-                scriptExtensionAccessor);
+                scriptExtensionAccessor, eventLoop);
 
         Function<Function<Object[], Object>, Function<String, Object>> wrapRequireFn = originalRequireFn -> moduleName -> scriptExtensionModuleProvider
                 .locatorFor(delegate.getPolyglotContext(), engineIdentifier).locateModule(moduleName)
                 .map(m -> (Object) m).orElseGet(() -> originalRequireFn.apply(new Object[] { moduleName }));
 
         delegate.getBindings(ScriptContext.ENGINE_SCOPE).put(REQUIRE_WRAPPER_NAME, wrapRequireFn);
+        // used by the global setTimeout() and setInterval() functions and by the @jsscripting-timers module
+        delegate.getBindings(ScriptContext.ENGINE_SCOPE).put(EVENT_LOOP_NAME, eventLoop);
         delegate.put("require", wrapRequireFn.apply((Function<Object[], Object>) delegate.get("require")));
 
         initialized = true;
 
+        JSRuntimeMetrics.Measurement measurement = metrics.startInitialization();
         try {
             eval(globalScript);
         } catch (ScriptException e) {
             LOGGER.error("Could not inject global script", e);
         }
+        measurement.finish();
+        LOGGER.debug("Initialized script engine {}: {}", engineIdentifier, metrics);
+    }
+
+    @Override
+    public Object eval(String s, ScriptContext scriptContext) throws ScriptException {
+        return onEventLoop(() -> super.eval(s, scriptContext));
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext scriptContext) throws ScriptException {
+        return onEventLoop(() -> super.eval(reader, scriptContext));
+    }
+
+    @Override
+    public Object eval(String s) throws ScriptException {
+        return onEventLoop(() -> super.eval(s));
+    }
+
+    @Override
+    public Object eval(Reader reader) throws ScriptException {
+        return onEventLoop(() -> super.eval(reader));
+    }
+
+    @Override
+    public Object eval(String s, Bindings bindings) throws ScriptException {
+        return onEventLoop(() -> super.eval(s, bindings));
+    }
+
+    @Override
+    public Object eval(Reader reader, Bindings bindings) throws ScriptException {
+        return onEventLoop(() -> super.eval(reader, bindings));
+    }
+
+    @Override
+    public Object invokeMethod(Object o, String s, Object... objects) throws ScriptException, NoSuchMethodException {
+        return invokeOnEventLoop(() -> super.invokeMethod(o, s, objects));
+    }
+
+    @Override
+    public Object invokeFunction(String s, Object... objects) throws ScriptException, NoSuchMethodException {
+        return invokeOnEventLoop(() -> super.invokeFunction(s, objects));
+    }
+
+    @Override
+    public void close() throws Exception {
+        // the running task is waited for, so the context isn't used by the event loop when it is closed
+        eventLoop.shutdown();
+        metrics.contextClosed(eventLoop);
+        super.close();
+    }
+
+    /**
+     * @return the event loop the context of this script engine is used on
+     */
+    public ScriptEventLoop getEventLoop() {
+        return eventLoop;
+    }
+
+    private Object onEventLoop(Callable<Object> call) throws ScriptException {
+        try {
+            return eventLoop.call(call);
+        } catch (ScriptException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScriptException(e);
+        } catch (Exception e) {
+            throw new ScriptException(e);
+        }
+    }
+
+    private Object invokeOnEventLoop(Callable<Object> call) throws ScriptException, NoSuchMethodException {
+        try {
+            return eventLoop.call(call);
+        } catch (ScriptException | NoSuchMethodException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScriptException(e);
+        } catch (Exception e) {
+            throw new ScriptException(e);
+        }
+    }
+
+    /**
+     * Reads a file of the bundled library, the content is only read once from the bundle
+     *
+     * @param path the root node path of the file
+     * @return the content of the file
+     * @throws IOException if the file can't be read
+     */
+    private byte[] readNodeModule(Path path) throws IOException {
+        String resource = nodeFileToResource(path);
+        byte[] content = NODE_MODULE_RESOURCES.get(resource);
+        if (content == null) {
+            try (InputStream is = getClass().getResourceAsStream(resource)) {
+                if (is == null) {
+                    throw new IOException("Could not read " + path.toString());
+                }
+                content = is.readAllBytes();
+            }
+            NODE_MODULE_RESOURCES.put(resource, content);
+        }
+        return content;
     }
 
     /**
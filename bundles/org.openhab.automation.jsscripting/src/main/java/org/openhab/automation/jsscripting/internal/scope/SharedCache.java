@@ -14,15 +14,23 @@ package org.openhab.automation.jsscripting.internal.scope;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.automation.module.script.ScriptExtensionProvider;
 import org.osgi.service.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Shared Cache implementation for JS scripting.
@@ -36,7 +44,7 @@ public class SharedCache implements ScriptExtensionProvider {
     private static final String PRESET_NAME = "cache";
     private static final String OBJECT_NAME = "sharedcache";
 
-    private JSCache cache = new JSCache();
+    private final JSCache cache = new JSCache();
 
     @Override
     public Collection<String> getDefaultPresets() {
@@ -79,23 +87,336 @@ public class SharedCache implements ScriptExtensionProvider {
         // ignore for now
     }
 
+    /**
+     * @return the cache shared by all scripts
+     */
+    public JSCache getCache() {
+        return cache;
+    }
+
+    /**
+     * The cache shared by all scripts.
+     *
+     * The cache is bounded by the number of entries and by the estimated size of the values, the least recently used
+     * entries are evicted first, whether they have a time to live or not. Evicting an entry without a time to live is
+     * logged as a warning. Entries can be put with a time to live, expired entries are removed when they are accessed
+     * and periodically while entries are put.
+     *
+     * If several threads get the same missing key with a supplier, only the first one calls the supplier, the others
+     * wait for its value.
+     */
     public static class JSCache {
-        private Map<String, Object> backingMap = new HashMap<>();
+        static final int MAX_ENTRIES = 10000;
+        static final long MAX_ESTIMATED_BYTES = 64L * 1024 * 1024;
+        private static final long PURGE_INTERVAL = 60000;
+        private static final int MAX_ESTIMATE_DEPTH = 4;
+        private static final int MAX_ESTIMATE_ELEMENTS = 100;
+
+        private final Logger logger = LoggerFactory.getLogger(JSCache.class);
+
+        private final int maxEntries;
+        private final long maxEstimatedBytes;
+
+        // access ordered, only used while holding the lock of the map
+        private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long estimatedBytes;
+        private long lastPurge = System.currentTimeMillis();
+
+        private final Map<String, Load> loads = new ConcurrentHashMap<>();
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        private final AtomicLong expirations = new AtomicLong();
+
+        public JSCache() {
+            this(MAX_ENTRIES, MAX_ESTIMATED_BYTES);
+        }
+
+        /**
+         * @param maxEntries the maximum number of entries
+         * @param maxEstimatedBytes the maximum estimated size of all values in bytes
+         */
+        public JSCache(int maxEntries, long maxEstimatedBytes) {
+            this.maxEntries = Math.max(1, maxEntries);
+            this.maxEstimatedBytes = maxEstimatedBytes;
+        }
+
+        /**
+         * Puts a value, which doesn't expire
+         *
+         * @param k the key
+         * @param v the value
+         * @return the previous value, <code>null</code> if there was none
+         */
+        public @Nullable Object put(String k, Object v) {
+            return put(k, v, 0);
+        }
 
-        public void put(String k, Object v) {
-            backingMap.put(k, v);
+        /**
+         * Puts a value with a time to live
+         *
+         * @param k the key
+         * @param v the value
+         * @param ttl the time to live in milliseconds, the value doesn't expire if it is not positive
+         * @return the previous value, <code>null</code> if there was none
+         */
+        public @Nullable Object put(String k, Object v, long ttl) {
+            long now = System.currentTimeMillis();
+            CacheEntry entry = new CacheEntry(v, estimateSize(v, 0), ttl > 0 ? now + ttl : Long.MAX_VALUE);
+            synchronized (entries) {
+                CacheEntry previous = entries.put(k, entry);
+                estimatedBytes += entry.size;
+                if (previous != null) {
+                    estimatedBytes -= previous.size;
+                }
+                if (now - lastPurge >= PURGE_INTERVAL) {
+                    purgeExpired(now);
+                }
+                evict();
+                return previous == null || previous.isExpired(now) ? null : previous.value;
+            }
         }
 
         public @Nullable Object remove(String k) {
-            return backingMap.remove(k);
+            synchronized (entries) {
+                CacheEntry entry = entries.remove(k);
+                if (entry == null) {
+                    return null;
+                }
+                estimatedBytes -= entry.size;
+                return entry.isExpired(System.currentTimeMillis()) ? null : entry.value;
+            }
         }
 
         public @Nullable Object get(String k) {
-            return backingMap.get(k);
+            return lookup(k, true);
         }
 
+        /**
+         * Gets a value, the supplier is called if there is no value for the key. Its value is put, if it isn't
+         * <code>null</code>.
+         *
+         * @param k the key
+         * @param supplier supplies the missing value
+         * @return the value
+         */
         public @Nullable Object get(String k, Supplier<Object> supplier) {
-            return backingMap.computeIfAbsent(k, (unused_key) -> supplier.get());
+            return get(k, supplier, 0);
+        }
+
+        /**
+         * Gets a value, the supplier is called if there is no value for the key. Its value is put with the time to
+         * live, if it isn't <code>null</code>.
+         *
+         * @param k the key
+         * @param supplier supplies the missing value
+         * @param ttl the time to live of the supplied value in milliseconds, it doesn't expire if it is not positive
+         * @return the value
+         */
+        public @Nullable Object get(String k, Supplier<Object> supplier, long ttl) {
+            Object value = lookup(k, true);
+            if (value != null) {
+                return value;
+            }
+
+            Load load = new Load();
+            Load running = loads.putIfAbsent(k, load);
+            if (running != null) {
+                return running.await(k);
+            }
+            try {
+                // another thread may have put the value in the meantime
+                value = lookup(k, false);
+                if (value == null) {
+                    value = supplier.get();
+                    if (value != null) {
+                        put(k, value, ttl);
+                    }
+                }
+                load.future.complete(value);
+                return value;
+            } catch (RuntimeException e) {
+                load.future.completeExceptionally(e);
+                throw e;
+            } finally {
+                loads.remove(k, load);
+            }
+        }
+
+        public int size() {
+            synchronized (entries) {
+                return entries.size();
+            }
+        }
+
+        /**
+         * @return the estimated size of all values in bytes
+         */
+        public long getEstimatedBytes() {
+            synchronized (entries) {
+                return estimatedBytes;
+            }
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        /**
+         * @return the number of entries removed because the cache was full
+         */
+        public long getEvictions() {
+            return evictions.get();
+        }
+
+        public long getExpirations() {
+            return expirations.get();
+        }
+
+        @Override
+        public String toString() {
+            return "JSCache [size=" + size() + ", estimatedBytes=" + getEstimatedBytes() + ", hits=" + hits
+                    + ", misses=" + misses + ", evictions=" + evictions + ", expirations=" + expirations + "]";
+        }
+
+        private @Nullable Object lookup(String k, boolean count) {
+            synchronized (entries) {
+                CacheEntry entry = entries.get(k);
+                if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+                    entries.remove(k);
+                    estimatedBytes -= entry.size;
+                    expirations.incrementAndGet();
+                    entry = null;
+                }
+                if (count) {
+                    (entry == null ? misses : hits).incrementAndGet();
+                }
+                return entry == null ? null : entry.value;
+            }
+        }
+
+        // must be called while holding the lock of the entries
+        private void purgeExpired(long now) {
+            lastPurge = now;
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                CacheEntry entry = iterator.next();
+                if (entry.isExpired(now)) {
+                    iterator.remove();
+                    estimatedBytes -= entry.size;
+                    expirations.incrementAndGet();
+                }
+            }
+        }
+
+        // must be called while holding the lock of the entries
+        private void evict() {
+            Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+            // the most recently put entry is kept, even if it is larger than the cache
+            while ((entries.size() > maxEntries || estimatedBytes > maxEstimatedBytes) && entries.size() > 1) {
+                String limit = entries.size() > maxEntries ? maxEntries + " entries"
+                        : "an estimated " + maxEstimatedBytes + " bytes";
+                Map.Entry<String, CacheEntry> eldest = iterator.next();
+                iterator.remove();
+                estimatedBytes -= eldest.getValue().size;
+                evictions.incrementAndGet();
+                if (eldest.getValue().expiresAt == Long.MAX_VALUE) {
+                    // an entry without time to live is usually expected to stay, e.g. state kept across reloads
+                    logger.warn("Evicted '{}' from the shared cache, it has reached its limit of {}",
+                            eldest.getKey(), limit);
+                } else {
+                    logger.debug("Evicted '{}' from the shared cache, it has reached its limit of {}",
+                            eldest.getKey(), limit);
+                }
+            }
+        }
+
+        /**
+         * Estimates the heap size of a value. Nested collections and maps, which includes JS objects and arrays, are
+         * sampled up to a limited depth and number of elements.
+         *
+         * @param value the value
+         * @param depth the depth of the value in the value put
+         * @return the estimated size in bytes
+         */
+        static long estimateSize(@Nullable Object value, int depth) {
+            if (value == null) {
+                return 0;
+            } else if (value instanceof CharSequence) {
+                return 40 + 2L * ((CharSequence) value).length();
+            } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+                return 16;
+            } else if (value instanceof byte[]) {
+                return 16 + ((byte[]) value).length;
+            } else if (depth < MAX_ESTIMATE_DEPTH) {
+                if (value instanceof Map) {
+                    Map<?, ?> map = (Map<?, ?>) value;
+                    return 48 + sample(map.entrySet(), map.size(),
+                            e -> 32 + estimateSize(e.getKey(), depth + 1) + estimateSize(e.getValue(), depth + 1));
+                } else if (value instanceof Collection) {
+                    Collection<?> collection = (Collection<?>) value;
+                    return 32 + sample(collection, collection.size(), e -> 8 + estimateSize(e, depth + 1));
+                }
+            }
+            return 64;
+        }
+
+        private static <T> long sample(Iterable<T> elements, int size, ToLongFunction<T> estimator) {
+            long sampled = 0;
+            int count = 0;
+            for (T element : elements) {
+                if (count == MAX_ESTIMATE_ELEMENTS) {
+                    // extrapolate from the sampled elements
+                    return sampled * size / count;
+                }
+                sampled += estimator.applyAsLong(element);
+                count++;
+            }
+            return sampled;
+        }
+    }
+
+    private static class CacheEntry {
+        private final Object value;
+        private final long size;
+        private final long expiresAt;
+
+        private CacheEntry(Object value, long size, long expiresAt) {
+            this.value = value;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    /**
+     * A running call of a supplier, which other threads getting the same key wait for
+     */
+    private static class Load {
+        private final Thread thread = Thread.currentThread();
+        private final CompletableFuture<@Nullable Object> future = new CompletableFuture<>();
+
+        private @Nullable Object await(String k) {
+            if (thread == Thread.currentThread()) {
+                throw new IllegalStateException("The supplier of '" + k + "' gets its own key");
+            }
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw e;
+            }
         }
     }
 }
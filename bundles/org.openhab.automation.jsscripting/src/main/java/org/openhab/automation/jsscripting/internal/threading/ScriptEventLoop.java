@@ -0,0 +1,385 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.automation.jsscripting.internal.threading;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ScriptEventLoop} is the single thread on which a GraalJS context is used.
+ *
+ * GraalJS contexts must not be entered by more than one thread at a time, so everything that runs script code is run
+ * on the event loop of its context: rule executions and calls of the script engine are queued to it and wait for their
+ * result, the timers of the script fire on it. Promises are resolved on the thread that entered the context, so they
+ * run on the event loop as well. Calls from the event loop thread itself, e.g. a rule running another rule of the same
+ * script, are run immediately.
+ *
+ * The script code still runs one task at a time: a long running rule delays the other rules and the timers of the same
+ * script, as it did with a lock. The event loop makes the thread that uses the context explicit and measures the
+ * queue depth and latency per script, so such delays are visible.
+ *
+ * The timers are cancelled when the event loop is shut down, i.e. when the script is unloaded.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class ScriptEventLoop {
+    private final Logger logger = LoggerFactory.getLogger(ScriptEventLoop.class);
+
+    private static final long SHUTDOWN_TIMEOUT = 5;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private volatile @Nullable Thread thread;
+    private volatile String name = "<unknown>";
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timersFired = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private volatile int maxQueueDepth;
+    private volatile long lastLatency;
+    private volatile long maxLatency;
+    private volatile long maxQueueTime;
+
+    public ScriptEventLoop() {
+        NamedThreadFactory threadFactory = new NamedThreadFactory("jsscripting");
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = threadFactory.newThread(runnable);
+            this.thread = thread;
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Sets the name of the script used in log messages, it is only known once the script is evaluated
+     *
+     * @param name the identifier of the script
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Runs a task on the event loop and waits for its result
+     *
+     * @param task the task
+     * @return the result of the task
+     * @throws Exception the exception thrown by the task
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        if (Thread.currentThread() == thread) {
+            return task.call();
+        }
+        long queuedAt = System.currentTimeMillis();
+        enqueued();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                dequeued(queuedAt);
+                try {
+                    return task.call();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    throw e;
+                } finally {
+                    completed(queuedAt);
+                }
+            });
+        } catch (RuntimeException e) {
+            queueDepth.decrementAndGet();
+            throw e;
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a task on the event loop once after a delay
+     *
+     * @param task the task
+     * @param delay the delay in milliseconds
+     * @return the timer, which can be cancelled and rescheduled
+     */
+    public Timer setTimeout(Runnable task, long delay) {
+        return new Timer(task, delay, 0);
+    }
+
+    /**
+     * Runs a task on the event loop repeatedly, with a fixed delay between the runs
+     *
+     * @param task the task
+     * @param delay the delay in milliseconds
+     * @return the timer, which can be cancelled and rescheduled
+     */
+    public Timer setInterval(Runnable task, long delay) {
+        long period = Math.max(1, delay);
+        return new Timer(task, period, period);
+    }
+
+    /**
+     * Runs a task on the event loop once at the given time, used by <code>createTimer()</code> of the
+     * <code>@jsscripting-timers</code> module
+     *
+     * @param time the time to run the task at
+     * @param task the task
+     * @return the timer, which can be cancelled and rescheduled
+     */
+    public Timer createTimer(ZonedDateTime time, Runnable task) {
+        return new Timer(task, delayUntil(time), 0);
+    }
+
+    /**
+     * Stops the event loop. Queued tasks and timers are dropped, a running task is waited for but not interrupted.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        List<Runnable> dropped = new ArrayList<>();
+        executor.getQueue().drainTo(dropped);
+        queueDepth.set(0);
+        // callers waiting for a dropped task must not wait forever
+        dropped.forEach(task -> ((Future<?>) task).cancel(false));
+        if (!dropped.isEmpty()) {
+            logger.debug("Dropped {} tasks and timers of script '{}'", dropped.size(), name);
+        }
+        if (Thread.currentThread() != thread) {
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                    logger.warn("Timeout waiting for the running task of script '{}' to finish", name);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.debug("Event loop of script '{}' stopped: {}", name, this);
+    }
+
+    private static long delayUntil(ZonedDateTime time) {
+        return Duration.between(ZonedDateTime.now(), time).toMillis();
+    }
+
+    private void enqueued() {
+        int depth = queueDepth.incrementAndGet();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+    }
+
+    private void dequeued(long queuedAt) {
+        queueDepth.decrementAndGet();
+        maxQueueTime = Math.max(maxQueueTime, System.currentTimeMillis() - queuedAt);
+    }
+
+    private void completed(long queuedAt) {
+        long latency = System.currentTimeMillis() - queuedAt;
+        executed.incrementAndGet();
+        totalLatency.addAndGet(latency);
+        lastLatency = latency;
+        maxLatency = Math.max(maxLatency, latency);
+    }
+
+    /**
+     * @return the number of tasks waiting to be run, the timers are not included
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getTimersFired() {
+        return timersFired.get();
+    }
+
+    /**
+     * @return the time in milliseconds from queuing the last task until it was finished
+     */
+    public long getLastLatency() {
+        return lastLatency;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    public long getAverageLatency() {
+        long count = executed.get();
+        return count == 0 ? 0 : totalLatency.get() / count;
+    }
+
+    /**
+     * @return the longest time in milliseconds a task has been waiting in the queue
+     */
+    public long getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptEventLoop [name=" + name + ", queueDepth=" + queueDepth + ", maxQueueDepth=" + maxQueueDepth
+                + ", executed=" + executed + ", failed=" + failed + ", timersFired=" + timersFired + ", lastLatency="
+                + lastLatency + " ms, averageLatency=" + getAverageLatency() + " ms, maxLatency=" + maxLatency
+                + " ms, maxQueueTime=" + maxQueueTime + " ms]";
+    }
+
+    /**
+     * A timer of the event loop, which is returned to the script by <code>setTimeout()</code>,
+     * <code>setInterval()</code> and <code>createTimer()</code> of <code>@jsscripting-timers</code>. It has the
+     * methods of an openHAB <code>Timer</code>, so scripts can use it the same way.
+     *
+     * A timer that fires is not counted in the queue depth of the event loop.
+     */
+    public class Timer {
+        private final Runnable task;
+        private final long period;
+        private @NonNullByDefault({}) ScheduledFuture<?> future;
+        private @Nullable ZonedDateTime executionTime;
+        private long generation;
+        private boolean cancelled;
+        private volatile boolean running;
+
+        private Timer(Runnable task, long delay, long period) {
+            this.task = task;
+            this.period = period;
+            schedule(delay);
+        }
+
+        private synchronized void schedule(long delay) {
+            long generation = ++this.generation;
+            executionTime = ZonedDateTime.now().plus(Duration.ofMillis(Math.max(0, delay)));
+            future = executor.schedule(() -> fire(generation), Math.max(0, delay), TimeUnit.MILLISECONDS);
+        }
+
+        private void fire(long generation) {
+            synchronized (this) {
+                if (generation != this.generation || cancelled) {
+                    return;
+                }
+                running = true;
+            }
+            timersFired.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                logger.error("Failed to execute timer of script '{}': {}", name, e.getMessage(), e);
+            } finally {
+                synchronized (this) {
+                    running = false;
+                    // an interval continues unless the task has cancelled or rescheduled it
+                    if (period > 0 && generation == this.generation && !cancelled) {
+                        try {
+                            schedule(period);
+                        } catch (RejectedExecutionException e) {
+                            logger.debug("Interval of script '{}' stopped, the script has been unloaded", name);
+                        }
+                    }
+                }
+            }
+        }
+
+        public synchronized boolean cancel() {
+            boolean active = isActive();
+            cancelled = true;
+            future.cancel(false);
+            return active;
+        }
+
+        /**
+         * Reschedules the timer, also after it has fired or has been cancelled. An interval continues with its
+         * delay after the rescheduled run.
+         *
+         * @param newTime the new time to run the timer at
+         * @return <code>false</code> if the script has been unloaded
+         */
+        public synchronized boolean reschedule(ZonedDateTime newTime) {
+            future.cancel(false);
+            try {
+                schedule(delayUntil(newTime));
+                cancelled = false;
+                return true;
+            } catch (RejectedExecutionException e) {
+                cancelled = true;
+                return false;
+            }
+        }
+
+        public synchronized @Nullable ZonedDateTime getExecutionTime() {
+            return isActive() ? executionTime : null;
+        }
+
+        /**
+         * @return <code>true</code> while the timer is scheduled or running
+         */
+        public synchronized boolean isActive() {
+            return !future.isDone() || running;
+        }
+
+        /**
+         * @return <code>true</code> if the timer has been cancelled by the script or by unloading the script
+         */
+        public synchronized boolean isCancelled() {
+            return cancelled || future.isCancelled();
+        }
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        public synchronized boolean hasTerminated() {
+            return !isActive();
+        }
+    }
+}
@@ -33,30 +33,41 @@ import org.openhab.core.config.core.Configuration;
  * An version of {@link SimpleRule} which controls multithreaded execution access to this specific rule. This is useful
  * for rules which wrap GraalJS Contexts, which are not multithreaded.
  *
+ * The executions run on the {@link ScriptEventLoop} of the context, the thread triggering the rule waits for the
+ * result, so that the rule engine gets the result and the RUNNING status of the rule. The rule engine runs each
+ * triggered rule on a thread of its own, which is the one that waits.
+ *
  * @author Jonathan Gilbert - Initial contribution
  */
 @NonNullByDefault
 class ThreadsafeSimpleRuleDelegate implements Rule, SimpleRuleActionHandler {
 
-    private final Object lock;
+    private final ScriptEventLoop eventLoop;
     private final SimpleRule delegate;
 
     /**
-     * Constructor requires a lock object and delegate to forward invocations to.
+     * Constructor requires an event loop and delegate to forward invocations to.
      *
-     * @param lock rule executions will synchronize on this object
+     * @param eventLoop rule executions will run on this event loop
      * @param delegate the delegate to forward invocations to
      */
-    ThreadsafeSimpleRuleDelegate(Object lock, SimpleRule delegate) {
-        this.lock = lock;
+    ThreadsafeSimpleRuleDelegate(ScriptEventLoop eventLoop, SimpleRule delegate) {
+        this.eventLoop = eventLoop;
         this.delegate = delegate;
     }
 
     @Override
     @NonNullByDefault({})
     public Object execute(Action module, Map<String, ?> inputs) {
-        synchronized (lock) {
-            return delegate.execute(module, inputs);
+        try {
+            return eventLoop.call(() -> delegate.execute(module, inputs));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for rule '" + delegate.getUID() + "'", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to execute rule '" + delegate.getUID() + "'", e);
         }
     }
 
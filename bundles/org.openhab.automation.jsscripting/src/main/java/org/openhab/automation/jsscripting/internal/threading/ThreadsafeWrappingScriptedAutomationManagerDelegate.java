@@ -27,8 +27,8 @@ import org.openhab.core.automation.type.TriggerType;
 
 /**
  * A replacement for {@link ScriptedAutomationManager} which wraps all rule registrations in a
- * {@link ThreadsafeSimpleRuleDelegate}. This means that all rules registered via this class with be run in serial per
- * instance of this class that they are registered with.
+ * {@link ThreadsafeSimpleRuleDelegate}. This means that all rules registered via this class with be run in serial on
+ * the {@link ScriptEventLoop} of the script they are registered by.
  *
  * @author Jonathan Gilbert - Initial contribution
  */
@@ -36,10 +36,12 @@ import org.openhab.core.automation.type.TriggerType;
 public class ThreadsafeWrappingScriptedAutomationManagerDelegate {
 
     private ScriptedAutomationManager delegate;
-    private Object lock = new Object();
+    private ScriptEventLoop eventLoop;
 
-    public ThreadsafeWrappingScriptedAutomationManagerDelegate(ScriptedAutomationManager delegate) {
+    public ThreadsafeWrappingScriptedAutomationManagerDelegate(ScriptedAutomationManager delegate,
+            ScriptEventLoop eventLoop) {
         this.delegate = delegate;
+        this.eventLoop = eventLoop;
     }
 
     public void removeModuleType(String UID) {
@@ -61,7 +63,7 @@ public class ThreadsafeWrappingScriptedAutomationManagerDelegate {
     public Rule addRule(Rule element) {
         // wrap in a threadsafe version, safe per context
         if (element instanceof SimpleRule) {
-            element = new ThreadsafeSimpleRuleDelegate(lock, (SimpleRule) element);
+            element = new ThreadsafeSimpleRuleDelegate(eventLoop, (SimpleRule) element);
         }
 
         return delegate.addRule(element);
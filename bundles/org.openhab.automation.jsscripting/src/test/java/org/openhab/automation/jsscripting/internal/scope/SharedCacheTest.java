@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.automation.jsscripting.internal.scope;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.automation.jsscripting.internal.scope.SharedCache.JSCache;
+
+/**
+ * Tests the eviction, the expiry and the supplier of the {@link JSCache}.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class SharedCacheTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvictedAtTheEntryLimit() {
+        JSCache cache = new JSCache(2, Long.MAX_VALUE);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void entriesAreEvictedAtTheSizeLimit() {
+        long size = JSCache.estimateSize("value1", 0);
+        JSCache cache = new JSCache(100, 2 * size);
+        cache.put("a", "value1");
+        cache.put("b", "value2");
+        assertEquals(2 * size, cache.getEstimatedBytes());
+
+        cache.put("c", "value3");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("a"));
+        assertEquals(2 * size, cache.getEstimatedBytes());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void entriesWithoutTimeToLiveAreEvictedToo() {
+        JSCache cache = new JSCache(1, Long.MAX_VALUE);
+        cache.put("timer", "kept across reloads");
+        cache.put("other", "value", 60000);
+
+        assertNull(cache.get("timer"));
+        assertEquals("value", cache.get("other"));
+    }
+
+    @Test
+    public void valueLargerThanTheCacheIsKept() {
+        JSCache cache = new JSCache(100, 10);
+        cache.put("large", "larger than the cache");
+
+        assertEquals("larger than the cache", cache.get("large"));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void expiredEntryIsRemoved() throws InterruptedException {
+        JSCache cache = new JSCache();
+        assertNull(cache.put("short", "value", 50));
+        cache.put("long", "value", 60000);
+        cache.put("forever", "value");
+        assertEquals("value", cache.get("short"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("short"));
+        assertEquals("value", cache.get("long"));
+        assertEquals("value", cache.get("forever"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getExpirations());
+        // an expired entry is not returned as the previous value
+        cache.put("short", "value", 50);
+        Thread.sleep(100);
+        assertNull(cache.put("short", "new value"));
+    }
+
+    @Test
+    public void suppliedValueExpires() throws InterruptedException {
+        JSCache cache = new JSCache();
+        assertEquals("value", cache.get("key", () -> "value", 50));
+        assertEquals("value", cache.get("key", () -> "other value", 50));
+
+        Thread.sleep(100);
+
+        assertEquals("new value", cache.get("key", () -> "new value", 50));
+    }
+
+    @Test
+    public void supplierIsOnlyCalledOnceForConcurrentGets() throws Exception {
+        JSCache cache = new JSCache();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch supplying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> cache.get("key", () -> {
+            calls.incrementAndGet();
+            supplying.countDown();
+            await(release);
+            return "value";
+        }, 60000));
+        assertTrue(supplying.await(5, TimeUnit.SECONDS));
+        Future<?> second = executor.submit(() -> cache.get("key", () -> {
+            calls.incrementAndGet();
+            return "other value";
+        }, 60000));
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+
+        release.countDown();
+
+        assertEquals("value", first.get(5, TimeUnit.SECONDS));
+        assertEquals("value", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void failedSupplierFailsTheWaitingGets() throws Exception {
+        JSCache cache = new JSCache();
+        CountDownLatch supplying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> cache.get("key", () -> {
+            supplying.countDown();
+            await(release);
+            throw new IllegalArgumentException("failed");
+        }));
+        assertTrue(supplying.await(5, TimeUnit.SECONDS));
+        Future<?> second = executor.submit(() -> cache.get("key", () -> "other value"));
+        Thread.sleep(100);
+
+        release.countDown();
+
+        assertInstanceOf(IllegalArgumentException.class,
+                assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(IllegalArgumentException.class,
+                assertThrows(Exception.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+        // the failure is not cached
+        assertEquals("value", cache.get("key", () -> "value"));
+    }
+
+    @Test
+    public void supplierGettingItsOwnKeyFails() {
+        JSCache cache = new JSCache();
+
+        assertThrows(IllegalStateException.class, () -> cache.get("key", () -> cache.get("key", () -> "value")));
+        assertNull(cache.get("key"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.automation.jsscripting.internal.threading;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link ScriptEventLoop}.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class ScriptEventLoopTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final ScriptEventLoop eventLoop = new ScriptEventLoop();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void tearDown() {
+        eventLoop.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void callsRunOnTheEventLoopThread() throws Exception {
+        Thread first = eventLoop.call(Thread::currentThread);
+        Thread second = executor.submit(() -> eventLoop.call(Thread::currentThread)).get(5, TimeUnit.SECONDS);
+
+        assertNotSame(Thread.currentThread(), first);
+        assertSame(first, second);
+        assertEquals(2, eventLoop.getExecuted());
+        assertEquals(0, eventLoop.getQueueDepth());
+    }
+
+    @Test
+    public void callFromTheEventLoopThreadRunsImmediately() {
+        Integer result = assertTimeoutPreemptively(TIMEOUT, () -> eventLoop.call(() -> eventLoop.call(() -> 42)));
+
+        assertEquals(42, result);
+        // the nested call is not queued
+        assertEquals(1, eventLoop.getExecuted());
+    }
+
+    @Test
+    public void callRethrowsTheExceptionOfTheTask() {
+        assertThrows(IOException.class, () -> eventLoop.call(() -> {
+            throw new IOException("failed");
+        }));
+        assertEquals(1, eventLoop.getFailed());
+    }
+
+    @Test
+    public void timeoutFiresOnTheEventLoopThread() throws Exception {
+        Thread eventLoopThread = eventLoop.call(Thread::currentThread);
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        ScriptEventLoop.Timer timer = eventLoop.setTimeout(() -> {
+            assertSame(eventLoopThread, Thread.currentThread());
+            calls.incrementAndGet();
+            fired.countDown();
+        }, 10);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        waitFor(timer::hasTerminated);
+        assertEquals(1, calls.get());
+        assertFalse(timer.isActive());
+        assertFalse(timer.isCancelled());
+        assertEquals(1, eventLoop.getTimersFired());
+    }
+
+    @Test
+    public void cancelledTimeoutDoesNotFire() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ScriptEventLoop.Timer timer = eventLoop.setTimeout(calls::incrementAndGet, 100);
+
+        assertTrue(timer.isActive());
+        assertNotNull(timer.getExecutionTime());
+        assertTrue(timer.cancel());
+
+        Thread.sleep(200);
+        assertEquals(0, calls.get());
+        assertTrue(timer.isCancelled());
+        assertTrue(timer.hasTerminated());
+        assertNull(timer.getExecutionTime());
+        assertFalse(timer.cancel());
+    }
+
+    @Test
+    public void rescheduledTimerFiresAgain() throws Exception {
+        CountDownLatch fired = new CountDownLatch(2);
+        ScriptEventLoop.Timer timer = eventLoop.createTimer(ZonedDateTime.now(), fired::countDown);
+        waitFor(timer::hasTerminated);
+
+        assertTrue(timer.reschedule(ZonedDateTime.now().plusNanos(10_000_000)));
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        waitFor(timer::hasTerminated);
+    }
+
+    @Test
+    public void timerIsRunningWhileItsTaskRuns() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ScriptEventLoop.Timer timer = eventLoop.setTimeout(() -> {
+            running.countDown();
+            await(release);
+        }, 0);
+
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        assertTrue(timer.isRunning());
+        assertTrue(timer.isActive());
+        assertFalse(timer.hasTerminated());
+
+        release.countDown();
+        waitFor(timer::hasTerminated);
+        assertFalse(timer.isRunning());
+    }
+
+    @Test
+    public void intervalRepeatsUntilCancelled() throws Exception {
+        CountDownLatch fired = new CountDownLatch(3);
+        ScriptEventLoop.Timer timer = eventLoop.setInterval(fired::countDown, 10);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(timer.isActive());
+        timer.cancel();
+        // the cancellation is only seen by a run that hasn't started yet
+        waitFor(timer::hasTerminated);
+        long timersFired = eventLoop.getTimersFired();
+
+        Thread.sleep(100);
+        assertEquals(timersFired, eventLoop.getTimersFired());
+        assertTrue(timer.isCancelled());
+    }
+
+    @Test
+    public void intervalCancelledByItsTaskStops() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ScriptEventLoop.Timer[] timer = new ScriptEventLoop.Timer[1];
+        timer[0] = eventLoop.setInterval(() -> {
+            calls.incrementAndGet();
+            timer[0].cancel();
+        }, 10);
+
+        waitFor(() -> timer[0].hasTerminated());
+        Thread.sleep(100);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void shutdownDropsQueuedTasksAndTimers() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> blocking = executor.submit(() -> eventLoop.call(() -> {
+            running.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        Future<Integer> queued = executor.submit(() -> eventLoop.call(() -> 42));
+        waitFor(() -> eventLoop.getQueueDepth() == 1);
+        AtomicInteger calls = new AtomicInteger();
+        ScriptEventLoop.Timer timer = eventLoop.setTimeout(calls::incrementAndGet, 0);
+
+        Thread shutdown = new Thread(eventLoop::shutdown);
+        shutdown.start();
+        // the waiting caller of the dropped task is released
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, e.getCause());
+        waitFor(timer::isCancelled);
+
+        // the running task is waited for
+        release.countDown();
+        shutdown.join(5000);
+        assertFalse(shutdown.isAlive());
+        assertTrue(blocking.get(5, TimeUnit.SECONDS));
+        assertEquals(0, calls.get());
+        assertEquals(0, eventLoop.getQueueDepth());
+
+        assertThrows(RejectedExecutionException.class, () -> eventLoop.call(() -> 42));
+        assertThrows(RejectedExecutionException.class, () -> eventLoop.setTimeout(calls::incrementAndGet, 0));
+        assertFalse(timer.reschedule(ZonedDateTime.now()));
+    }
+
+    private static void waitFor(BooleanCondition condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT.toMillis();
+        while (!condition.isMet()) {
+            assertTrue(System.currentTimeMillis() < end, "Timeout waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface BooleanCondition {
+        boolean isMet();
+    }
+}
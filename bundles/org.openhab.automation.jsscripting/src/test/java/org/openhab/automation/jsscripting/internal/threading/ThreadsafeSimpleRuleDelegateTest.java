@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.automation.jsscripting.internal.threading;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.automation.Action;
+import org.openhab.core.automation.module.script.rulesupport.shared.simple.SimpleRule;
+
+/**
+ * Tests that the {@link ThreadsafeSimpleRuleDelegate} executes the rule on the event loop and returns its result.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class ThreadsafeSimpleRuleDelegateTest {
+
+    private final ScriptEventLoop eventLoop = new ScriptEventLoop();
+    private final SimpleRule rule = mock(SimpleRule.class);
+    private final ThreadsafeSimpleRuleDelegate delegate = new ThreadsafeSimpleRuleDelegate(eventLoop, rule);
+
+    @AfterEach
+    public void tearDown() {
+        eventLoop.shutdown();
+    }
+
+    @Test
+    public void executeReturnsTheResultOfTheRule() throws Exception {
+        Thread eventLoopThread = eventLoop.call(Thread::currentThread);
+        when(rule.execute(any(), any())).thenAnswer(invocation -> Thread.currentThread());
+
+        assertSame(eventLoopThread, delegate.execute(mock(Action.class), Map.of()));
+    }
+
+    @Test
+    public void executeRethrowsTheFailureOfTheRule() {
+        when(rule.execute(any(), any())).thenThrow(new IllegalArgumentException("failed"));
+
+        assertThrows(IllegalArgumentException.class, () -> delegate.execute(mock(Action.class), Map.of()));
+        assertEquals(1, eventLoop.getFailed());
+    }
+
+    @Test
+    public void executeFailsAfterTheScriptIsUnloaded() {
+        eventLoop.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> delegate.execute(mock(Action.class), Map.of()));
+        verify(rule, never()).execute(any(), any());
+    }
+}
@@ -17,6 +17,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -24,20 +25,27 @@ import javax.script.ScriptEngine;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.automation.jythonscripting.internal.ScriptEnginePool;
 import org.openhab.core.OpenHAB;
 import org.openhab.core.automation.module.script.AbstractScriptEngineFactory;
 import org.openhab.core.automation.module.script.ScriptEngineFactory;
+import org.openhab.core.config.core.ConfigurableService;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 
 /**
  * This is an implementation of {@link ScriptEngineFactory} for Jython.
  *
+ * A number of script engines can be created in advance by a {@link ScriptEnginePool}, so that loading many scripts
+ * doesn't wait for the initialization of each interpreter.
+ *
  * @author Scott Rushworth - Initial contribution
  * @author Wouter Born - Initial contribution
  */
-@Component(service = ScriptEngineFactory.class)
+@Component(service = ScriptEngineFactory.class, configurationPid = "org.openhab.automation.jythonscripting")
+@ConfigurableService(category = "automation", label = "Jython Scripting", description_uri = "automation:jython")
 @NonNullByDefault
 public class JythonScriptEngineFactory extends AbstractScriptEngineFactory {
 
@@ -45,14 +53,24 @@ public class JythonScriptEngineFactory extends AbstractScriptEngineFactory {
     private static final String PYTHON_HOME = "python.home";
     private static final String PYTHON_PATH = "python.path";
 
+    private static final String CFG_ENGINE_POOL_SIZE = "enginePoolSize";
+
     private static final String DEFAULT_PYTHON_PATH = Paths
             .get(OpenHAB.getConfigFolder(), "automation", "lib", "python").toString();
 
     private static final String SCRIPT_TYPE = "py";
     private static final javax.script.ScriptEngineManager ENGINE_MANAGER = new javax.script.ScriptEngineManager();
 
+    private final ScriptEnginePool enginePool = new ScriptEnginePool(() -> {
+        ScriptEngine scriptEngine = ENGINE_MANAGER.getEngineByExtension(SCRIPT_TYPE);
+        if (scriptEngine == null) {
+            throw new IllegalStateException("No Jython script engine available");
+        }
+        return scriptEngine;
+    });
+
     @Activate
-    public JythonScriptEngineFactory() {
+    public JythonScriptEngineFactory(Map<String, Object> config) {
         logger.debug("Loading JythonScriptEngineFactory");
 
         String pythonHome = JythonScriptEngineFactory.class.getProtectionDomain().getCodeSource().getLocation()
@@ -73,6 +91,21 @@ public class JythonScriptEngineFactory extends AbstractScriptEngineFactory {
                 .toString());
 
         logPythonPaths();
+
+        modified(config);
+    }
+
+    @Modified
+    protected void modified(Map<String, Object> config) {
+        Object enginePoolSize = config.get(CFG_ENGINE_POOL_SIZE);
+        enginePool.setSize(enginePoolSize instanceof Number ? ((Number) enginePoolSize).intValue() : 0);
+    }
+
+    /**
+     * @return the pool of the script engines created in advance, which provides the engine creation times
+     */
+    public ScriptEnginePool getEnginePool() {
+        return enginePool;
     }
 
     private void logPythonPaths() {
@@ -99,6 +132,10 @@ public class JythonScriptEngineFactory extends AbstractScriptEngineFactory {
 
     @Override
     public @Nullable ScriptEngine createScriptEngine(String scriptType) {
+        if (getScriptTypes().contains(scriptType)) {
+            return enginePool.take();
+        }
+
         ScriptEngine scriptEngine = ENGINE_MANAGER.getEngineByExtension(scriptType);
         if (scriptEngine == null) {
             scriptEngine = ENGINE_MANAGER.getEngineByMimeType(scriptType);
@@ -113,6 +150,8 @@ public class JythonScriptEngineFactory extends AbstractScriptEngineFactory {
     public void removePythonPath() {
         logger.debug("Unloading JythonScriptEngineFactory");
 
+        enginePool.shutdown();
+
         String existingPythonPath = System.getProperty(PYTHON_PATH);
         if (existingPythonPath != null && existingPythonPath.contains(DEFAULT_PYTHON_PATH)) {
             Set<String> newPythonPathList = new TreeSet<>(Arrays.asList(existingPythonPath.split(File.pathSeparator)));
@@ -69,6 +69,10 @@ import org.slf4j.LoggerFactory;
  * While setting up your {@link ChannelState} you would set the callback to your thing handler,
  * because this base class implements {@link ChannelStateUpdateListener}.
  *
+ * <p>
+ * Channel states which share a state topic should subscribe through the {@link TopicDispatcher} of this handler
+ * ({@link ChannelState#setTopicDispatcher(TopicDispatcher)}), so that each message is decoded and parsed only once.
+ *
  * @author David Graeff - Initial contribution
  */
 @NonNullByDefault
@@ -82,6 +86,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
 
     private AtomicBoolean messageReceived = new AtomicBoolean(false);
     private Map<String, @Nullable ChannelState> availabilityStates = new ConcurrentHashMap<>();
+    protected final TopicDispatcher topicDispatcher = new TopicDispatcher();
 
     public AbstractMQTTThingHandler(Thing thing, int subscribeTimeout) {
         super(thing);
@@ -276,6 +281,13 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
         return connection;
     }
 
+    /**
+     * Return the dispatcher of the state topics of this handler
+     */
+    public TopicDispatcher getTopicDispatcher() {
+        return topicDispatcher;
+    }
+
     /**
      * This is for tests only to inject a broker connection.
      *
@@ -316,6 +328,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
             if (transformation_pattern != null && transformationServiceProvider != null) {
                 state.addTransformation(transformation_pattern, transformationServiceProvider);
             }
+            state.setTopicDispatcher(topicDispatcher);
             MqttBrokerConnection connection = getConnection();
             if (connection != null) {
                 state.start(connection, scheduler, 0);
@@ -12,7 +12,6 @@
  */
 package org.openhab.binding.mqtt.generic;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.IllegalFormatException;
 import java.util.List;
@@ -55,6 +54,7 @@ public class ChannelState implements MqttMessageSubscriber {
 
     // Runtime variables
     private @Nullable MqttBrokerConnection connection;
+    private @Nullable TopicDispatcher topicDispatcher;
     protected final List<ChannelStateTransformation> transformationsIn = new ArrayList<>();
     protected final List<ChannelStateTransformation> transformationsOut = new ArrayList<>();
     private @Nullable ChannelStateUpdateListener channelStateUpdateListener;
@@ -156,23 +156,35 @@ public class ChannelState implements MqttMessageSubscriber {
      */
     @Override
     public void processMessage(String topic, byte[] payload) {
+        processMessage(new ReceivedMessage(topic, payload));
+    }
+
+    /**
+     * Incoming message from the {@link TopicDispatcher}, which is shared by all channels of the topic
+     *
+     * @param message The message
+     */
+    public void processMessage(ReceivedMessage message) {
         final ChannelStateUpdateListener channelStateUpdateListener = this.channelStateUpdateListener;
         if (channelStateUpdateListener == null) {
-            logger.warn("MQTT message received for topic {}, but MessageSubscriber object hasn't been started!", topic);
+            logger.warn("MQTT message received for topic {}, but MessageSubscriber object hasn't been started!",
+                    message.getTopic());
             return;
         }
 
         if (cachedValue.isBinary()) {
-            cachedValue.update(payload);
+            cachedValue.update(message.getPayload());
             channelStateUpdateListener.updateChannelState(channelUID, cachedValue.getChannelState());
             receivedOrTimeout();
             return;
         }
 
         // String value: Apply transformations
-        String strValue = new String(payload, StandardCharsets.UTF_8);
-        for (ChannelStateTransformation t : transformationsIn) {
-            String transformedValue = t.processValue(strValue);
+        String strValue = message.getText();
+        for (int i = 0; i < transformationsIn.size(); i++) {
+            ChannelStateTransformation t = transformationsIn.get(i);
+            // the first transformation may use the JSON document parsed once for all channels of the topic
+            String transformedValue = i == 0 ? t.processValue(message) : t.processValue(strValue);
             if (transformedValue != null) {
                 strValue = transformedValue;
             } else {
@@ -259,6 +271,10 @@ public class ChannelState implements MqttMessageSubscriber {
     public CompletableFuture<@Nullable Void> stop() {
         final MqttBrokerConnection connection = this.connection;
         if (connection != null && !config.stateTopic.isBlank()) {
+            final TopicDispatcher topicDispatcher = this.topicDispatcher;
+            if (topicDispatcher != null) {
+                return topicDispatcher.unsubscribe(connection, config.stateTopic, this).thenRun(this::internalStop);
+            }
             return connection.unsubscribe(config.stateTopic, this).thenRun(this::internalStop);
         } else {
             internalStop();
@@ -319,7 +335,11 @@ public class ChannelState implements MqttMessageSubscriber {
 
             this.future = new CompletableFuture<>();
         }
-        connection.subscribe(config.stateTopic, this).thenRun(() -> {
+        final TopicDispatcher topicDispatcher = this.topicDispatcher;
+        CompletableFuture<Boolean> subscribed = topicDispatcher != null
+                ? topicDispatcher.subscribe(connection, config.stateTopic, this)
+                : connection.subscribe(config.stateTopic, this);
+        subscribed.thenRun(() -> {
             hasSubscribed = true;
             logger.debug("Subscribed channel {} to topic: {}", this.channelUID, config.stateTopic);
             if (timeout > 0 && !future.isDone()) {
@@ -420,6 +440,17 @@ public class ChannelState implements MqttMessageSubscriber {
         return connection;
     }
 
+    /**
+     * Sets the dispatcher that subscribes to the state topic on behalf of all channels sharing it. Without a
+     * dispatcher the channel subscribes to the state topic itself. Must be set before
+     * {@link #start(MqttBrokerConnection, ScheduledExecutorService, int)} is called.
+     *
+     * @param topicDispatcher The topic dispatcher of the thing handler
+     */
+    public void setTopicDispatcher(@Nullable TopicDispatcher topicDispatcher) {
+        this.topicDispatcher = topicDispatcher;
+    }
+
     /**
      * This is for tests only to inject a broker connection. Use
      * {@link #start(MqttBrokerConnection, ScheduledExecutorService, int)} instead.
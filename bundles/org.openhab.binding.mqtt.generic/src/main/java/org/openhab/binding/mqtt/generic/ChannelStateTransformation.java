@@ -16,14 +16,21 @@ import java.lang.ref.WeakReference;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.mqtt.generic.tools.JsonPathExtractor;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.JsonElement;
+
 /**
  * A transformation for a {@link ChannelState}. It is applied for each received value on an MQTT topic.
  *
+ * Simple <code>JSONPATH</code> transformations are evaluated by the binding itself on the document which is parsed
+ * once for all channels of a topic, see {@link JsonPathExtractor}. All other transformations are executed by the
+ * transformation service.
+ *
  * @author David Graeff - Initial contribution
  */
 @NonNullByDefault
@@ -33,6 +40,7 @@ public class ChannelStateTransformation {
     private WeakReference<@Nullable TransformationService> transformationService = new WeakReference<>(null);
     final String pattern;
     final String serviceName;
+    private final @Nullable JsonPathExtractor jsonPath;
 
     /**
      * Creates a new channel state transformer.
@@ -53,6 +61,7 @@ public class ChannelStateTransformation {
         String type = pattern.substring(0, index).toUpperCase();
         this.pattern = pattern.substring(index + 1);
         this.serviceName = type;
+        this.jsonPath = compileJsonPath(type, this.pattern);
     }
 
     /**
@@ -68,6 +77,37 @@ public class ChannelStateTransformation {
         this.serviceName = serviceName;
         this.pattern = pattern;
         this.provider = provider;
+        this.jsonPath = compileJsonPath(serviceName, pattern);
+    }
+
+    private static @Nullable JsonPathExtractor compileJsonPath(String serviceName, String pattern) {
+        return "JSONPATH".equals(serviceName) ? JsonPathExtractor.compile(pattern) : null;
+    }
+
+    /**
+     * Will be called by the {@link ChannelState} for an incoming MQTT message, if this is the first transformation.
+     *
+     * @param message The incoming message
+     * @return The transformed value
+     */
+    protected @Nullable String processValue(ReceivedMessage message) {
+        final JsonPathExtractor jsonPath = this.jsonPath;
+        if (jsonPath != null) {
+            JsonElement document = message.getJson();
+            if (document != null) {
+                JsonElement value = jsonPath.select(document);
+                if (value == null) {
+                    logger.warn("Executing the {}-transformation failed: Invalid path '{}' in '{}'", serviceName,
+                            pattern, message.getText());
+                    return null;
+                }
+                // lists are flattened and objects are formatted by the transformation service
+                if (JsonPathExtractor.isFormattable(value)) {
+                    return JsonPathExtractor.format(value);
+                }
+            }
+        }
+        return processValue(message.getText());
     }
 
     /**
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * A message received on an MQTT topic. The payload is decoded as UTF-8 text and parsed as JSON at most once, no matter
+ * how many {@link ChannelState}s process the message.
+ *
+ * The message is not thread-safe. The {@link TopicDispatcher} hands it to the channel states of a topic one after the
+ * other.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class ReceivedMessage {
+    private final String topic;
+    private final byte[] payload;
+
+    private @Nullable String text;
+    private @Nullable JsonElement json;
+    private boolean jsonParsed;
+
+    /**
+     * @param topic The topic the message was received on
+     * @param payload The byte payload. Must be UTF8 encoded text or binary data.
+     */
+    public ReceivedMessage(String topic, byte[] payload) {
+        this.topic = topic;
+        this.payload = payload;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return The payload decoded as UTF-8 text
+     */
+    public String getText() {
+        String text = this.text;
+        if (text == null) {
+            text = new String(payload, StandardCharsets.UTF_8);
+            this.text = text;
+        }
+        return text;
+    }
+
+    /**
+     * @return The payload parsed as JSON document or null if the payload is not valid JSON
+     */
+    public @Nullable JsonElement getJson() {
+        if (!jsonParsed) {
+            jsonParsed = true;
+            try {
+                json = JsonParser.parseString(getText());
+            } catch (JsonParseException e) {
+                json = null;
+            }
+        }
+        return json;
+    }
+}
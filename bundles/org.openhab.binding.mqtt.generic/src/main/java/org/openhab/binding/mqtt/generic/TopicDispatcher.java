@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.io.transport.mqtt.MqttBrokerConnection;
+import org.openhab.core.io.transport.mqtt.MqttMessageSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link TopicDispatcher} subscribes once per state topic for all {@link ChannelState}s of a thing handler and
+ * fans the received messages out to them.
+ *
+ * Each message is wrapped into one {@link ReceivedMessage}, so that the payload is decoded and parsed as JSON only
+ * once, even if many channels share a topic (e.g. a Zigbee2MQTT device publishing all values in one JSON document).
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class TopicDispatcher {
+    private final Logger logger = LoggerFactory.getLogger(TopicDispatcher.class);
+
+    // guarded by this
+    private final Map<String, TopicSubscription> subscriptions = new HashMap<>();
+
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong deliveries = new AtomicLong();
+
+    /**
+     * Adds a channel state to the subscribers of a topic. The topic is subscribed on the connection for the first
+     * channel state only.
+     *
+     * @param connection A broker connection
+     * @param topic The state topic
+     * @param channelState The channel state processing the messages of the topic
+     * @return A future that completes with true if subscribing to the topic worked and exceptionally otherwise.
+     */
+    public synchronized CompletableFuture<Boolean> subscribe(MqttBrokerConnection connection, String topic,
+            ChannelState channelState) {
+        TopicSubscription subscription = subscriptions.get(topic);
+        if (subscription == null || !subscription.connection.equals(connection)
+                || subscription.future.isCompletedExceptionally()) {
+            // the subscriptions of a previous connection are gone together with the connection
+            subscription = new TopicSubscription(connection, topic);
+            subscriptions.put(topic, subscription);
+            subscription.channelStates.add(channelState);
+            subscription.future = connection.subscribe(topic, subscription);
+        } else if (!subscription.channelStates.contains(channelState)) {
+            subscription.channelStates.add(channelState);
+        }
+        return subscription.future;
+    }
+
+    /**
+     * Removes a channel state from the subscribers of a topic. The topic is unsubscribed on the connection after the
+     * last channel state has been removed.
+     *
+     * @param connection A broker connection
+     * @param topic The state topic
+     * @param channelState The channel state processing the messages of the topic
+     * @return A future that completes with true if unsubscribing from the topic worked and exceptionally otherwise.
+     */
+    public synchronized CompletableFuture<Boolean> unsubscribe(MqttBrokerConnection connection, String topic,
+            ChannelState channelState) {
+        TopicSubscription subscription = subscriptions.get(topic);
+        if (subscription == null || !subscription.connection.equals(connection)
+                || !subscription.channelStates.remove(channelState) || !subscription.channelStates.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        subscriptions.remove(topic);
+        return connection.unsubscribe(topic, subscription);
+    }
+
+    /**
+     * @return The channel states subscribed to a topic
+     */
+    public synchronized List<ChannelState> getChannelStates(String topic) {
+        TopicSubscription subscription = subscriptions.get(topic);
+        return subscription != null ? List.copyOf(subscription.channelStates) : List.of();
+    }
+
+    /**
+     * @return The number of received messages
+     */
+    public long getMessages() {
+        return messages.get();
+    }
+
+    /**
+     * @return The number of messages handed to channel states, which is larger than the number of received messages if
+     *         channels share a topic
+     */
+    public long getDeliveries() {
+        return deliveries.get();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TopicDispatcher [topics=" + subscriptions.size() + ", messages=" + messages + ", deliveries="
+                + deliveries + "]";
+    }
+
+    /**
+     * The subscription of a topic (which may contain wildcards) on a connection
+     */
+    private class TopicSubscription implements MqttMessageSubscriber {
+        private final MqttBrokerConnection connection;
+        private final String topic;
+        private final List<ChannelState> channelStates = new CopyOnWriteArrayList<>();
+        private CompletableFuture<Boolean> future = CompletableFuture.completedFuture(true);
+
+        TopicSubscription(MqttBrokerConnection connection, String topic) {
+            this.connection = connection;
+            this.topic = topic;
+        }
+
+        @Override
+        public void processMessage(String topic, byte[] payload) {
+            messages.incrementAndGet();
+            ReceivedMessage message = new ReceivedMessage(topic, payload);
+            for (ChannelState channelState : channelStates) {
+                deliveries.incrementAndGet();
+                try {
+                    channelState.processMessage(message);
+                } catch (RuntimeException e) {
+                    // the other channels of the topic must still get the message
+                    logger.warn("Channel {} failed to process the message of topic {}: {}", channelState.channelUID(),
+                            this.topic, e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
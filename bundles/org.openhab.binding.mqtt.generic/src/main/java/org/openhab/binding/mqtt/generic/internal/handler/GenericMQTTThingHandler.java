@@ -123,6 +123,8 @@ public class GenericMQTTThingHandler extends AbstractMQTTThingHandler implements
      */
     protected ChannelState createChannelState(ChannelConfig channelConfig, ChannelUID channelUID, Value valueState) {
         ChannelState state = new ChannelState(channelConfig, channelUID, valueState, this);
+        // channels sharing a state topic get each message decoded and parsed only once
+        state.setTopicDispatcher(topicDispatcher);
 
         // Incoming value transformations
         state.addTransformation(channelConfig.transformationPattern, transformationServiceProvider);
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.tools;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Evaluates simple JSONPath expressions on an already parsed JSON document.
+ *
+ * Only definite paths consisting of member names and array indices are supported, e.g.
+ * <code>$.device.status.temperature</code>, <code>$['device']['status']</code> or <code>$.values[0]</code>.
+ * {@link #compile(String)} returns null for all other expressions (wildcards, deep scans, filters, slices and
+ * functions), which are left to the JSONPath transformation service. Only primitive values and null are converted by
+ * {@link #format(JsonElement)}, objects and arrays are also left to the service, which formats them differently from
+ * JSON.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class JsonPathExtractor {
+    private final String path;
+    // member names (String) and array indices (Integer)
+    private final List<Object> segments;
+
+    private JsonPathExtractor(String path, List<Object> segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * Compiles a JSONPath expression
+     *
+     * @param path The JSONPath expression
+     * @return The extractor or null if the expression is not supported
+     */
+    public static @Nullable JsonPathExtractor compile(String path) {
+        String p = path.trim();
+        if (!p.startsWith("$")) {
+            return null;
+        }
+        List<Object> segments = new ArrayList<>();
+        int i = 1;
+        while (i < p.length()) {
+            char c = p.charAt(i);
+            if (c == '.') {
+                int start = ++i;
+                while (i < p.length() && p.charAt(i) != '.' && p.charAt(i) != '[') {
+                    i++;
+                }
+                String name = p.substring(start, i);
+                // an empty name is a deep scan
+                if (name.isEmpty() || name.equals("*") || name.contains("(")) {
+                    return null;
+                }
+                segments.add(name);
+            } else if (c == '[') {
+                int end = p.indexOf(']', i);
+                if (end == -1) {
+                    return null;
+                }
+                Object segment = parseBracket(p.substring(i + 1, end).trim());
+                if (segment == null) {
+                    return null;
+                }
+                segments.add(segment);
+                i = end + 1;
+            } else {
+                return null;
+            }
+        }
+        return new JsonPathExtractor(p, segments);
+    }
+
+    private static @Nullable Object parseBracket(String content) {
+        if (content.length() >= 2) {
+            char quote = content.charAt(0);
+            if ((quote == '\'' || quote == '"') && content.charAt(content.length() - 1) == quote) {
+                String name = content.substring(1, content.length() - 1);
+                // a list of names selects several members
+                return name.indexOf(quote) == -1 ? name : null;
+            }
+        }
+        if (content.isEmpty() || !content.chars().allMatch(Character::isDigit)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(content);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Selects the element of a document
+     *
+     * @param document The JSON document
+     * @return The element or null if the path doesn't exist in the document
+     */
+    public @Nullable JsonElement select(JsonElement document) {
+        JsonElement current = document;
+        for (Object segment : segments) {
+            if (segment instanceof Integer && current.isJsonArray()) {
+                JsonArray array = current.getAsJsonArray();
+                int index = (Integer) segment;
+                if (index >= array.size()) {
+                    return null;
+                }
+                current = array.get(index);
+            } else if (segment instanceof String && current.isJsonObject()) {
+                JsonObject object = current.getAsJsonObject();
+                if (!object.has((String) segment)) {
+                    return null;
+                }
+                current = object.get((String) segment);
+            } else {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @param element A selected element
+     * @return true if {@link #format(JsonElement)} converts the element like the JSONPath transformation service
+     */
+    public static boolean isFormattable(JsonElement element) {
+        return element.isJsonPrimitive() || element.isJsonNull();
+    }
+
+    /**
+     * Converts a selected primitive value to the string the JSONPath transformation service returns for it. Numbers
+     * with a fraction or an exponent are formatted as double values, or as decimals if they have more than 18
+     * characters, like the parser of the service does.
+     *
+     * @param element The selected element, see {@link #isFormattable(JsonElement)}
+     * @return The string value or null for JSON null
+     * @throws IllegalArgumentException if the element is an object or an array
+     */
+    public static @Nullable String format(JsonElement element) {
+        if (element.isJsonNull()) {
+            return null;
+        }
+        if (!element.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Only primitive values can be formatted: " + element);
+        }
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isNumber()) {
+            String number = primitive.getAsString();
+            if (number.indexOf('.') != -1 || number.indexOf('e') != -1 || number.indexOf('E') != -1) {
+                return number.length() > 18 ? new BigDecimal(number).toString()
+                        : String.valueOf(primitive.getAsDouble());
+            }
+            return primitive.getAsBigInteger().toString();
+        }
+        return primitive.getAsString();
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
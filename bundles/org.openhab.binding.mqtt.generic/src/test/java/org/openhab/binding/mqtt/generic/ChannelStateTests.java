@@ -23,6 +23,7 @@ import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -34,6 +35,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -48,6 +50,7 @@ import org.openhab.binding.mqtt.generic.values.NumberValue;
 import org.openhab.binding.mqtt.generic.values.PercentageValue;
 import org.openhab.binding.mqtt.generic.values.TextValue;
 import org.openhab.core.io.transport.mqtt.MqttBrokerConnection;
+import org.openhab.core.io.transport.mqtt.MqttMessageSubscriber;
 import org.openhab.core.library.types.HSBType;
 import org.openhab.core.library.types.RawType;
 import org.openhab.core.library.types.StringType;
@@ -155,6 +158,37 @@ public class ChannelStateTests {
         verify(channelStateUpdateListenerMock).updateChannelState(eq(channelUIDMock), any());
     }
 
+    @Test
+    public void receiveSharedTopicTest() throws Exception {
+        TopicDispatcher dispatcher = new TopicDispatcher();
+        NumberValue value = new NumberValue(null, null, null, null);
+        ChannelUID numberChannelUID = new ChannelUID("mqtt:topic:broker:thing:number");
+        ChannelState c1 = new ChannelState(config, channelUIDMock, textValue, channelStateUpdateListenerMock);
+        ChannelState c2 = new ChannelState(config, numberChannelUID, value, channelStateUpdateListenerMock);
+        c1.setTopicDispatcher(dispatcher);
+        c2.setTopicDispatcher(dispatcher);
+
+        c1.start(connectionMock, scheduler, 0).get(50, TimeUnit.MILLISECONDS);
+        c2.start(connectionMock, scheduler, 0).get(50, TimeUnit.MILLISECONDS);
+
+        // the topic is subscribed once for both channels
+        ArgumentCaptor<MqttMessageSubscriber> subscriber = ArgumentCaptor.forClass(MqttMessageSubscriber.class);
+        verify(connectionMock).subscribe(eq("state"), subscriber.capture());
+        assertThat(dispatcher.getChannelStates("state"), is(List.of(c1, c2)));
+
+        subscriber.getValue().processMessage("state", "15".getBytes());
+        assertThat(textValue.getChannelState().toString(), is("15"));
+        assertThat(value.getChannelState().toString(), is("15"));
+        assertThat(dispatcher.getMessages(), is(1L));
+        assertThat(dispatcher.getDeliveries(), is(2L));
+
+        // the topic is unsubscribed with the last channel
+        c1.stop().get();
+        verify(connectionMock, never()).unsubscribe(any(), any());
+        c2.stop().get();
+        verify(connectionMock).unsubscribe(eq("state"), eq(subscriber.getValue()));
+    }
+
     @Test
     public void receiveDecimalTest() {
         NumberValue value = new NumberValue(null, null, new BigDecimal(10), null);
@@ -30,6 +30,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.openhab.binding.mqtt.generic.internal.handler.GenericMQTTThingHandler;
+import org.openhab.binding.mqtt.generic.values.TextValue;
 import org.openhab.binding.mqtt.handler.AbstractBrokerHandler;
 import org.openhab.core.config.core.Configuration;
 import org.openhab.core.io.transport.mqtt.MqttBrokerConnection;
@@ -120,4 +121,33 @@ public class ChannelStateTransformationTests {
         verify(callbackMock).stateUpdated(eq(TEXT_CHANNEL_UID), argThat(arg -> "23.2".equals(arg.toString())));
         assertThat(channelConfig.getCache().getChannelState().toString(), is("23.2"));
     }
+
+    @SuppressWarnings("null")
+    @Test
+    public void processMessageWithBuiltinJSONPath() throws Exception {
+        thingHandler.initialize();
+        ChannelState channelConfig = thingHandler.getChannelState(TEXT_CHANNEL_UID);
+        channelConfig.setChannelStateUpdateListener(thingHandler);
+
+        // The path is evaluated on the parsed document without the transformation service
+        channelConfig.processMessage(new ReceivedMessage(channelConfig.getStateTopic(), JSON_PATH_JSON.getBytes()));
+
+        verify(jsonPathServiceMock, never()).transform(any(), any());
+        assertThat(channelConfig.getCache().getChannelState().toString(), is("23.2"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    public void processMessageWithUnsupportedJSONPath() throws Exception {
+        ChannelState channelConfig = new ChannelState(ChannelConfigBuilder.create("test/state", "").build(),
+                TEXT_CHANNEL_UID, new TextValue(), thingHandler);
+        channelConfig.addTransformation("JSONPATH:$..temperature", transformationServiceProviderMock);
+        when(jsonPathServiceMock.transform("$..temperature", JSON_PATH_JSON)).thenReturn("23.2");
+
+        // Expressions which aren't supported by the binding are executed by the transformation service
+        channelConfig.processMessage(new ReceivedMessage("test/state", JSON_PATH_JSON.getBytes()));
+
+        verify(jsonPathServiceMock).transform("$..temperature", JSON_PATH_JSON);
+        assertThat(channelConfig.getCache().getChannelState().toString(), is("23.2"));
+    }
 }
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openhab.binding.mqtt.generic.tools.JsonPathExtractor;
+import org.openhab.core.transform.TransformationException;
+import org.openhab.transform.jsonpath.internal.JSonPathTransformationService;
+
+/**
+ * Tests that the JSONPath expressions evaluated by the binding itself, see {@link JsonPathExtractor}, return the same
+ * values as the JSONPath transformation service.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class JsonPathParityTests {
+    private static final String JSON = "{" //
+            + "\"integer\": 42, \"negative\": -7, \"long\": 12345678901, \"big\": 123456789012345678901234, " //
+            + "\"decimal\": 23.20, \"fraction\": 0.5, \"negativeDecimal\": -1.25, " //
+            + "\"longDecimal\": 1.23456789012345678901, " //
+            + "\"exponent\": 1e3, \"upperExponent\": 2.5E-4, \"decimalExponent\": 1.5e2, " //
+            + "\"on\": true, \"off\": false, \"none\": null, " //
+            + "\"string\": \"text\", \"numericString\": \"23.2\", \"empty\": \"\", " //
+            + "\"object\": {\"a\": 1, \"b\": \"x\", \"c\": 1.5}, \"emptyObject\": {}, " //
+            + "\"array\": [1, 2, 3], \"single\": [4], \"strings\": [\"a\", \"b\"], \"objects\": [{\"a\": 1}], " //
+            + "\"nested\": {\"values\": [{\"v\": 1.5, \"w\": {\"x\": true}}]}" //
+            + "}";
+
+    private final JSonPathTransformationService service = spy(new JSonPathTransformationService());
+
+    @ParameterizedTest
+    @ValueSource(strings = { "$.integer", "$.negative", "$.long", "$.big", "$.decimal", "$.fraction",
+            "$.negativeDecimal", "$.longDecimal", "$.exponent", "$.upperExponent", "$.decimalExponent", "$.on",
+            "$.off", "$.none", "$.string", "$.numericString", "$.empty", "$.object.a", "$['object']['c']",
+            "$.array[1]", "$.nested.values[0].v", "$.nested.values[0].w.x" })
+    public void primitiveValuesAreReturnedLikeTheService(String path) throws TransformationException {
+        String expected = transformByService(path);
+
+        assertThat(processValue(path), is(expected));
+        verify(service, never()).transform(any(), any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "$.object", "$.emptyObject", "$.nested", "$.nested.values[0]", "$.nested.values[0].w",
+            "$.array", "$.single", "$.strings", "$.objects" })
+    public void objectsAndArraysAreReturnedByTheService(String path) throws TransformationException {
+        String expected = transformByService(path);
+
+        assertThat(processValue(path), is(expected));
+        verify(service).transform(path, JSON);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "$.missing", "$.object.missing", "$.array[5]", "$.integer.child", "$.array.a" })
+    public void missingPathsAreNullLikeInTheService(String path) throws TransformationException {
+        assertThat(transformByService(path), is(nullValue()));
+
+        assertThat(processValue(path), is(nullValue()));
+        verify(service, never()).transform(any(), any());
+    }
+
+    private @Nullable String processValue(String path) {
+        // make sure the expression is evaluated by the binding
+        assertThat(JsonPathExtractor.compile(path), is(notNullValue()));
+        ChannelStateTransformation transformation = new ChannelStateTransformation("JSONPATH", path,
+                type -> service);
+        return transformation.processValue(new ReceivedMessage("test/state", JSON.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private @Nullable String transformByService(String path) {
+        try {
+            // a separate instance, so that only the calls by the binding are counted
+            return new JSonPathTransformationService().transform(path, JSON);
+        } catch (TransformationException e) {
+            // the transformation of the binding logs the error and returns null
+            return null;
+        }
+    }
+}
@@ -12,6 +12,7 @@
  */
 package org.openhab.binding.mqtt.generic.internal.handler;
 
+import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -120,7 +121,10 @@ public class GenericThingHandlerTests {
         assertThat(channelConfig.getStateTopic(), is("test/state"));
         assertThat(channelConfig.getCommandTopic(), is("test/command"));
 
-        verify(connectionMock).subscribe(eq(channelConfig.getStateTopic()), eq(channelConfig));
+        // the channel states subscribe through the topic dispatcher of the handler
+        verify(connectionMock).subscribe(eq(channelConfig.getStateTopic()), any());
+        assertThat(thingHandler.getTopicDispatcher().getChannelStates(channelConfig.getStateTopic()),
+                hasItem(channelConfig));
 
         verify(callbackMock).statusUpdated(eq(thingMock), argThat(arg -> ThingStatus.ONLINE.equals(arg.getStatus())
                 && ThingStatusDetail.NONE.equals(arg.getStatusDetail())));
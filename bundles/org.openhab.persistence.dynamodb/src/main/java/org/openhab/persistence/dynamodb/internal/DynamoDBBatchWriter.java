@@ -0,0 +1,462 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.dynamodb.internal;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Collects DynamoDB items and writes them with BatchWriteItem requests of up to 25 items.
+ *
+ * The queued items are written when the flush interval has elapsed or as soon as a full batch is queued. Items
+ * with the same table, name and timestamp are coalesced, only the last value is written (a batch must not contain
+ * the same key twice).
+ *
+ * Unprocessed items and throttled batches are retried with exponential backoff and full jitter. The number of
+ * concurrent requests adapts to throttling: it is halved whenever a request is throttled and increased by one after
+ * a series of requests without throttling, up to the configured maximum.
+ *
+ * Batches failing because the table does not exist yet are written item by item with {@link TableCreatingPutItem},
+ * which creates the table.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class DynamoDBBatchWriter {
+    /**
+     * Maximum number of items in a BatchWriteItem request, limited by DynamoDB
+     */
+    public static final int MAX_BATCH_ITEMS = 25;
+
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long BACKOFF_BASE_MILLIS = 50;
+    private static final long BACKOFF_MAX_MILLIS = 20_000;
+
+    private final Logger logger = LoggerFactory.getLogger(DynamoDBBatchWriter.class);
+
+    private final DynamoDBPersistenceService service;
+    private final int maxConcurrency;
+    private final int capacity;
+
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("dynamodb-writer"));
+    private @Nullable ScheduledFuture<?> flushJob;
+    private volatile boolean stopped;
+
+    private final Queue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // items that have been taken from the queue but are not yet written or given up
+    private final AtomicInteger inProgress = new AtomicInteger();
+
+    // batches ready to be sent, the concurrency fields are guarded by this deque
+    private final Deque<Batch> ready = new ArrayDeque<>();
+    private int inFlight;
+    private int concurrencyLimit;
+    private int successStreak;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final DoubleAdder consumedCapacity = new DoubleAdder();
+    private volatile long lastRequestTime;
+    private volatile long maxRequestTime;
+
+    /**
+     * @param service the service providing the client and the executor for completing the requests
+     * @param flushInterval interval in milliseconds in which the queued items are written
+     * @param maxConcurrency maximum number of concurrent BatchWriteItem requests
+     * @param capacity maximum number of queued items
+     */
+    public DynamoDBBatchWriter(DynamoDBPersistenceService service, long flushInterval, int maxConcurrency,
+            int capacity) {
+        this.service = service;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.concurrencyLimit = this.maxConcurrency;
+        this.capacity = Math.max(MAX_BATCH_ITEMS, capacity);
+        long interval = Math.max(10, flushInterval);
+        flushJob = scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        logger.debug("Batch writer: flushInterval={} ms maxConcurrency={} capacity={}", interval,
+                this.maxConcurrency, this.capacity);
+    }
+
+    /**
+     * Add an item to the write queue
+     *
+     * @param tableName the table of the item
+     * @param dto the item, used for coalescing values with the same key
+     * @param item the attributes of the item as written to the table
+     * @param putItem writes the item on its own, creating the table if needed
+     * @return <code>true</code> if the item was queued, <code>false</code> if the queue is full or the writer has been
+     *         stopped
+     */
+    public boolean offer(String tableName, DynamoDBItem<?> dto, Map<String, AttributeValue> item,
+            Supplier<CompletableFuture<Void>> putItem) {
+        if (queueSize.get() >= capacity || stopped) {
+            return false;
+        }
+        String key = tableName + '\u0000' + dto.getName() + '\u0000' + dto.getTime().toInstant().toEpochMilli();
+        queue.add(new PendingWrite(tableName, key, item, putItem));
+        queued.incrementAndGet();
+        if (queueSize.incrementAndGet() >= MAX_BATCH_ITEMS && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flush);
+        }
+        return true;
+    }
+
+    /**
+     * Send all queued items, the requests complete asynchronously
+     */
+    public void flush() {
+        flushRequested.set(false);
+        Map<String, PendingWrite> coalesced = new LinkedHashMap<>();
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            if (coalesced.put(write.key, write) != null) {
+                merged.incrementAndGet();
+            }
+        }
+        if (coalesced.isEmpty()) {
+            return;
+        }
+        inProgress.addAndGet(coalesced.size());
+
+        List<PendingWrite> writes = new ArrayList<>(coalesced.values());
+        for (int from = 0; from < writes.size(); from += MAX_BATCH_ITEMS) {
+            int to = Math.min(writes.size(), from + MAX_BATCH_ITEMS);
+            List<PendingWrite> chunk = List.copyOf(writes.subList(from, to));
+            Map<String, List<WriteRequest>> requestItems = new HashMap<>();
+            for (PendingWrite pending : chunk) {
+                requestItems.computeIfAbsent(pending.tableName, k -> new ArrayList<>()).add(
+                        WriteRequest.builder().putRequest(PutRequest.builder().item(pending.item).build()).build());
+            }
+            synchronized (ready) {
+                ready.addLast(new Batch(requestItems, chunk, 0));
+            }
+        }
+        logger.trace("Batch writer: flushed {} items, queue depth {}", writes.size(), queueSize.get());
+        dispatch();
+    }
+
+    /**
+     * Stop the writer, writing the queued items
+     *
+     * @param timeout the maximum time to wait for pending requests and retries
+     */
+    public void shutdown(Duration timeout) {
+        stopped = true;
+        ScheduledFuture<?> flushJob = this.flushJob;
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            this.flushJob = null;
+        }
+        flush();
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        try {
+            while (inProgress.get() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (inProgress.get() > 0) {
+            logger.warn("Batch writer: {} items were not written before shutdown", inProgress.get());
+        }
+        scheduler.shutdownNow();
+        logger.debug("Batch writer stopped: {}", this);
+    }
+
+    private void dispatch() {
+        while (true) {
+            Batch batch;
+            synchronized (ready) {
+                if (inFlight >= concurrencyLimit || ready.isEmpty()) {
+                    return;
+                }
+                batch = ready.removeFirst();
+                inFlight++;
+            }
+            send(batch);
+        }
+    }
+
+    private void send(Batch batch) {
+        DynamoDbAsyncClient client = service.getLowLevelClient();
+        if (client == null) {
+            logger.warn("Batch writer: client not available, {} items are lost", batch.size);
+            complete(batch, 0);
+            return;
+        }
+        BatchWriteItemRequest request = BatchWriteItemRequest.builder().requestItems(batch.requestItems)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).overrideConfiguration(service::overrideConfig)
+                .build();
+        long start = System.currentTimeMillis();
+        client.batchWriteItem(request).whenCompleteAsync((response, exception) -> {
+            long requestTime = System.currentTimeMillis() - start;
+            lastRequestTime = requestTime;
+            maxRequestTime = Math.max(maxRequestTime, requestTime);
+            try {
+                if (exception == null) {
+                    handleResponse(batch, response);
+                } else {
+                    handleFailure(batch, exception);
+                }
+            } finally {
+                synchronized (ready) {
+                    inFlight--;
+                }
+                dispatch();
+            }
+        }, service.getExecutor());
+    }
+
+    private void handleResponse(Batch batch, BatchWriteItemResponse response) {
+        batches.incrementAndGet();
+        for (ConsumedCapacity capacity : response.consumedCapacity()) {
+            Double units = capacity.capacityUnits();
+            if (units != null) {
+                consumedCapacity.add(units);
+            }
+        }
+        Map<String, List<WriteRequest>> unprocessed = response.unprocessedItems();
+        int unprocessedCount = unprocessed.values().stream().mapToInt(List::size).sum();
+        if (unprocessedCount == 0) {
+            onSuccess();
+            complete(batch, batch.size);
+            return;
+        }
+        // unprocessed items are the way DynamoDB reports throttling of a part of the batch
+        logger.debug("Batch writer: {} of {} items unprocessed, retrying", unprocessedCount, batch.size);
+        onThrottled();
+        written.addAndGet(batch.size - unprocessedCount);
+        inProgress.addAndGet(-(batch.size - unprocessedCount));
+        retry(new Batch(unprocessed, List.of(), batch.attempt + 1));
+    }
+
+    private void handleFailure(Batch batch, Throwable exception) {
+        Throwable cause = exception.getCause();
+        if (!(exception instanceof CompletionException) || cause == null) {
+            cause = exception;
+        }
+        if (cause instanceof ResourceNotFoundException && !batch.writes.isEmpty()) {
+            // most likely the table does not exist yet
+            logger.trace("Batch writer: table not found, writing {} items one by one", batch.size);
+            for (PendingWrite write : batch.writes) {
+                CompletableFuture<Void> future;
+                try {
+                    future = write.putItem.get();
+                } catch (IllegalStateException e) {
+                    // service has been stopped in between
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((result, putException) -> {
+                    if (putException == null) {
+                        written.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                    inProgress.decrementAndGet();
+                });
+            }
+        } else if (cause instanceof ProvisionedThroughputExceededException
+                || cause instanceof RequestLimitExceededException) {
+            logger.debug("Batch writer: request throttled, retrying {} items", batch.size);
+            onThrottled();
+            retry(new Batch(batch.requestItems, batch.writes, batch.attempt + 1));
+        } else {
+            logger.warn("Batch writer: failed to write {} items: {} {}", batch.size, cause.getClass().getSimpleName(),
+                    cause.getMessage());
+            complete(batch, 0);
+        }
+    }
+
+    private void retry(Batch batch) {
+        if (batch.attempt >= MAX_ATTEMPTS || scheduler.isShutdown()) {
+            logger.warn("Batch writer: giving up {} items after {} attempts", batch.size, batch.attempt);
+            complete(batch, 0);
+            return;
+        }
+        retried.addAndGet(batch.size);
+        // exponential backoff with full jitter, spreading the retries of concurrent batches
+        long maxDelay = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(batch.attempt, 20));
+        long delay = ThreadLocalRandom.current().nextLong(maxDelay + 1);
+        scheduler.schedule(() -> {
+            synchronized (ready) {
+                ready.addLast(batch);
+            }
+            dispatch();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void complete(Batch batch, int writtenCount) {
+        written.addAndGet(writtenCount);
+        failed.addAndGet(batch.size - writtenCount);
+        inProgress.addAndGet(-batch.size);
+    }
+
+    private void onSuccess() {
+        synchronized (ready) {
+            if (++successStreak >= concurrencyLimit && concurrencyLimit < maxConcurrency) {
+                concurrencyLimit++;
+                successStreak = 0;
+            }
+        }
+    }
+
+    private void onThrottled() {
+        throttled.incrementAndGet();
+        synchronized (ready) {
+            concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+            successStreak = 0;
+        }
+    }
+
+    public int getQueueDepth() {
+        return queueSize.get();
+    }
+
+    public int getInProgress() {
+        return inProgress.get();
+    }
+
+    public int getConcurrencyLimit() {
+        synchronized (ready) {
+            return concurrencyLimit;
+        }
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getMerged() {
+        return merged.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getRetried() {
+        return retried.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return the write capacity units consumed by the BatchWriteItem requests, as reported by DynamoDB
+     */
+    public double getConsumedCapacity() {
+        return consumedCapacity.sum();
+    }
+
+    public long getLastRequestTime() {
+        return lastRequestTime;
+    }
+
+    public long getMaxRequestTime() {
+        return maxRequestTime;
+    }
+
+    @Override
+    public String toString() {
+        return "DynamoDBBatchWriter [queueDepth=" + queueSize + ", inProgress=" + inProgress + ", concurrencyLimit="
+                + getConcurrencyLimit() + ", queued=" + queued + ", merged=" + merged + ", written=" + written
+                + ", batches=" + batches + ", retried=" + retried + ", throttled=" + throttled + ", failed=" + failed
+                + ", consumedCapacity=" + getConsumedCapacity() + ", lastRequestTime=" + lastRequestTime
+                + " ms, maxRequestTime=" + maxRequestTime + " ms]";
+    }
+
+    private static class PendingWrite {
+        private final String tableName;
+        private final String key;
+        private final Map<String, AttributeValue> item;
+        private final Supplier<CompletableFuture<Void>> putItem;
+
+        private PendingWrite(String tableName, String key, Map<String, AttributeValue> item,
+                Supplier<CompletableFuture<Void>> putItem) {
+            this.tableName = tableName;
+            this.key = key;
+            this.item = item;
+            this.putItem = putItem;
+        }
+    }
+
+    private static class Batch {
+        private final Map<String, List<WriteRequest>> requestItems;
+        // the original items, only known for the first attempt
+        private final List<PendingWrite> writes;
+        private final int attempt;
+        private final int size;
+
+        private Batch(Map<String, List<WriteRequest>> requestItems, List<PendingWrite> writes, int attempt) {
+            this.requestItems = requestItems;
+            this.writes = writes;
+            this.attempt = attempt;
+            this.size = requestItems.values().stream().mapToInt(List::size).sum();
+        }
+    }
+}
@@ -49,6 +49,8 @@ public class DynamoDBConfig {
     public static final String DEFAULT_TABLE_NAME = "openhab";
     public static final long DEFAULT_READ_CAPACITY_UNITS = 1;
     public static final long DEFAULT_WRITE_CAPACITY_UNITS = 1;
+    public static final long DEFAULT_BATCH_FLUSH_INTERVAL = 1000;
+    public static final int DEFAULT_BATCH_MAX_CONCURRENCY = 8;
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBConfig.class);
 
     private long readCapacityUnits;
@@ -60,6 +62,9 @@ public class DynamoDBConfig {
     private String table;
     private String tablePrefixLegacy;
     private @Nullable Integer expireDays;
+    private boolean batchWrite;
+    private long batchFlushInterval = DEFAULT_BATCH_FLUSH_INTERVAL;
+    private int batchMaxConcurrency = DEFAULT_BATCH_MAX_CONCURRENCY;
 
     /**
      *
@@ -166,25 +171,58 @@ public class DynamoDBConfig {
                 }
             }
 
+            Object batchWriteParam = config.get("batchWrite");
+            boolean batchWrite = batchWriteParam != null && Boolean.parseBoolean(batchWriteParam.toString());
+
+            final long batchFlushInterval;
+            Object batchFlushIntervalParam = config.get("batchFlushInterval");
+            if (batchFlushIntervalParam == null || batchFlushIntervalParam.toString().isBlank()) {
+                batchFlushInterval = DEFAULT_BATCH_FLUSH_INTERVAL;
+            } else {
+                batchFlushInterval = Long.parseLong(batchFlushIntervalParam.toString());
+            }
+
+            final int batchMaxConcurrency;
+            Object batchMaxConcurrencyParam = config.get("batchMaxConcurrency");
+            if (batchMaxConcurrencyParam == null || batchMaxConcurrencyParam.toString().isBlank()) {
+                batchMaxConcurrency = DEFAULT_BATCH_MAX_CONCURRENCY;
+            } else {
+                batchMaxConcurrency = Integer.parseInt(batchMaxConcurrencyParam.toString());
+                if (batchMaxConcurrency <= 0) {
+                    LOGGER.error("batchMaxConcurrency should be positive integer");
+                    return null;
+                }
+            }
+
+            final DynamoDBConfig dbConfig;
             switch (tableRevision) {
                 case NEW:
                     LOGGER.debug("Using new DynamoDB table schema");
-                    return DynamoDBConfig.newSchema(region, credentials, retryMode.map(AwsRetryPolicy::forRetryMode),
-                            table, readCapacityUnits, writeCapacityUnits, expireDays);
+                    dbConfig = DynamoDBConfig.newSchema(region, credentials,
+                            retryMode.map(AwsRetryPolicy::forRetryMode), table, readCapacityUnits, writeCapacityUnits,
+                            expireDays);
+                    break;
                 case LEGACY:
                     LOGGER.warn(
                             "Using legacy DynamoDB table schema. It is recommended to transition to new schema by defining 'table' parameter and not configuring 'tablePrefix'");
-                    return DynamoDBConfig.legacySchema(region, credentials, retryMode.map(AwsRetryPolicy::forRetryMode),
-                            tablePrefixLegacy, readCapacityUnits, writeCapacityUnits);
+                    dbConfig = DynamoDBConfig.legacySchema(region, credentials,
+                            retryMode.map(AwsRetryPolicy::forRetryMode), tablePrefixLegacy, readCapacityUnits,
+                            writeCapacityUnits);
+                    break;
                 case MAYBE_LEGACY:
                     LOGGER.debug(
                             "Unclear whether we should use new legacy DynamoDB table schema. It is recommended to explicitly define new 'table' parameter. The correct table schema will be detected at runtime.");
-                    return DynamoDBConfig.maybeLegacySchema(region, credentials,
+                    dbConfig = DynamoDBConfig.maybeLegacySchema(region, credentials,
                             retryMode.map(AwsRetryPolicy::forRetryMode), table, tablePrefixLegacy, readCapacityUnits,
                             writeCapacityUnits, expireDays);
+                    break;
                 default:
                     throw new IllegalStateException("Unhandled enum. Bug");
             }
+            dbConfig.batchWrite = batchWrite;
+            dbConfig.batchFlushInterval = batchFlushInterval;
+            dbConfig.batchMaxConcurrency = batchMaxConcurrency;
+            return dbConfig;
         } catch (Exception e) {
             LOGGER.error("Error with configuration: {} {}", e.getClass().getSimpleName(), e.getMessage());
             return null;
@@ -261,4 +299,16 @@ public class DynamoDBConfig {
     public @Nullable Integer getExpireDays() {
         return expireDays;
     }
+
+    public boolean isBatchWrite() {
+        return batchWrite;
+    }
+
+    public long getBatchFlushInterval() {
+        return batchFlushInterval;
+    }
+
+    public int getBatchMaxConcurrency() {
+        return batchMaxConcurrency;
+    }
 }
@@ -28,6 +28,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.measure.Unit;
@@ -113,6 +114,9 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
     private final ExecutorService executor = ThreadPoolManager.getPool(DYNAMODB_THREADPOOL_NAME);
     private static final Duration TIMEOUT_API_CALL = Duration.ofSeconds(60);
     private static final Duration TIMEOUT_API_CALL_ATTEMPT = Duration.ofSeconds(5);
+    private static final int BATCH_QUEUE_CAPACITY = 10_000;
+    private static final Duration BATCH_SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+    private @Nullable DynamoDBBatchWriter batchWriter;
     private Map<Class<? extends DynamoDBItem<?>>, DynamoDbAsyncTable<? extends DynamoDBItem<?>>> tableCache = new ConcurrentHashMap<>(
             2);
 
@@ -170,6 +174,14 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
         return dbConfig;
     }
 
+    /**
+     * For tests
+     */
+    @Nullable
+    DynamoDBBatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+
     @Activate
     public void activate(final @Nullable BundleContext bundleContext, final Map<String, Object> config) {
         disconnect();
@@ -191,6 +203,11 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
             return;
         }
 
+        if (localDbConfig.isBatchWrite()) {
+            batchWriter = new DynamoDBBatchWriter(this, localDbConfig.getBatchFlushInterval(),
+                    localDbConfig.getBatchMaxConcurrency(), BATCH_QUEUE_CAPACITY);
+        }
+
         isProperlyConfigured = true;
         logger.debug("dynamodb persistence service activated");
     }
@@ -311,6 +328,12 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
     }
 
     private void disconnect() {
+        DynamoDBBatchWriter localBatchWriter = batchWriter;
+        if (localBatchWriter != null) {
+            // write the queued items while the client is still open
+            localBatchWriter.shutdown(BATCH_SHUTDOWN_TIMEOUT);
+            batchWriter = null;
+        }
         DynamoDbAsyncClient localLowLevelClient = lowLevelClient;
         if (client == null || localLowLevelClient == null) {
             return;
@@ -552,27 +575,39 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
             }
             logger.trace("store() called with item {} {} '{}', which was converted to DTO {}",
                     copiedItem.getClass().getSimpleName(), effectiveName, copiedItem.getState(), dto);
-            dto.accept(new DynamoDBItemVisitor<TableCreatingPutItem<? extends DynamoDBItem<?>>>() {
+            DynamoDBBatchWriter localBatchWriter = batchWriter;
+            dto.accept(new DynamoDBItemVisitor<CompletableFuture<Void>>() {
 
                 @Override
-                public TableCreatingPutItem<? extends DynamoDBItem<?>> visit(
-                        DynamoDBBigDecimalItem dynamoBigDecimalItem) {
-                    return new TableCreatingPutItem<DynamoDBBigDecimalItem>(DynamoDBPersistenceService.this,
-                            dynamoBigDecimalItem, getTable(DynamoDBBigDecimalItem.class));
+                public CompletableFuture<Void> visit(DynamoDBBigDecimalItem dynamoBigDecimalItem) {
+                    return putItem(localBatchWriter, dynamoBigDecimalItem, getTable(DynamoDBBigDecimalItem.class));
                 }
 
                 @Override
-                public TableCreatingPutItem<? extends DynamoDBItem<?>> visit(DynamoDBStringItem dynamoStringItem) {
-                    return new TableCreatingPutItem<DynamoDBStringItem>(DynamoDBPersistenceService.this,
-                            dynamoStringItem, getTable(DynamoDBStringItem.class));
+                public CompletableFuture<Void> visit(DynamoDBStringItem dynamoStringItem) {
+                    return putItem(localBatchWriter, dynamoStringItem, getTable(DynamoDBStringItem.class));
                 }
-            }).putItemAsync();
+            });
         }, executor).exceptionally(e -> {
             logger.error("Unexcepted error", e);
             return null;
         });
     }
 
+    /**
+     * Writes the item, either with the batch writer or with its own PutItem request
+     *
+     * The item is written directly if batch writes are disabled or if the write queue is full.
+     */
+    private <T extends DynamoDBItem<?>> CompletableFuture<Void> putItem(@Nullable DynamoDBBatchWriter writer, T dto,
+            DynamoDbAsyncTable<T> table) {
+        Supplier<CompletableFuture<Void>> putItem = () -> new TableCreatingPutItem<T>(this, dto, table).putItemAsync();
+        if (writer != null && writer.offer(table.tableName(), dto, table.tableSchema().itemToMap(dto, true), putItem)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return putItem.get();
+    }
+
     private Item getEffectiveItem(Item item) {
         final Item effectiveItem;
         if (item instanceof GroupItem) {
@@ -194,8 +194,22 @@ public class BaseIntegrationTest extends JavaTest {
      */
     protected synchronized static DynamoDBPersistenceService newService(@Nullable Boolean legacy, boolean cleanLocal,
             @Nullable URI overrideLocalURI, @Nullable String table, @Nullable String tablePrefix) {
+        return newService(legacy, cleanLocal, overrideLocalURI, table, tablePrefix, Map.of());
+    }
+
+    /**
+     * Create new persistence service with additional configuration
+     *
+     * @see #newService(Boolean, boolean, URI, String, String)
+     * @param additionalConfig configuration parameters added to the generated configuration
+     * @return new persistence service
+     */
+    protected synchronized static DynamoDBPersistenceService newService(@Nullable Boolean legacy, boolean cleanLocal,
+            @Nullable URI overrideLocalURI, @Nullable String table, @Nullable String tablePrefix,
+            Map<String, Object> additionalConfig) {
         final DynamoDBPersistenceService service;
         Map<String, Object> config = getConfig(legacy, table, tablePrefix);
+        config.putAll(additionalConfig);
         if (cleanLocal && overrideLocalURI != null) {
             throw new IllegalArgumentException("cannot specify both cleanLocal=true and overrideLocalURI");
         }
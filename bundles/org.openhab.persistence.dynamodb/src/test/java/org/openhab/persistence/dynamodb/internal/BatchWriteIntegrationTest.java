@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.dynamodb.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+
+/**
+ * Tests writing with BatchWriteItem requests
+ *
+ * @author openHAB Team - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class BatchWriteIntegrationTest extends BaseIntegrationTest {
+
+    public static final boolean LEGACY_MODE = false;
+    private static final String NAME = "number";
+    // more than two full batches
+    private static final int STATE_COUNT = 60;
+
+    private static @Nullable ZonedDateTime storeStart;
+
+    @SuppressWarnings("null")
+    @BeforeAll
+    public static void populateData() throws InterruptedException {
+        // replace the service of the base class with one writing in batches
+        DynamoDBPersistenceService unbatchedService = service;
+        service = newService(LEGACY_MODE, false, null, null, null,
+                Map.of("batchWrite", "true", "batchFlushInterval", "100"));
+        unbatchedService.deactivate();
+
+        NumberItem item = (NumberItem) ITEMS.get(NAME);
+
+        // the first value creates the table
+        item.setState(new DecimalType(-1));
+        service.store(item);
+        ZonedDateTime tableCreationStart = ZonedDateTime.now().minusMinutes(1);
+        for (int i = 0; i < 100 && queryAll(tableCreationStart).isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+
+        storeStart = ZonedDateTime.now();
+        for (int i = 0; i < STATE_COUNT; i++) {
+            item.setState(new DecimalType(i));
+            // Add some delay to enforce different timestamps in ms accuracy
+            Thread.sleep(2);
+            service.store(item);
+        }
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testAllStatesAreWritten() {
+        waitForAssert(() -> {
+            List<HistoricItem> results = queryAll(storeStart);
+            assertEquals(STATE_COUNT, results.size());
+            for (int i = 0; i < STATE_COUNT; i++) {
+                assertEquals(new DecimalType(i), results.get(i).getState());
+            }
+        });
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testStatesAreWrittenInBatches() {
+        DynamoDBBatchWriter writer = service.getBatchWriter();
+        assertNotNull(writer);
+        waitForAssert(() -> {
+            assertEquals(STATE_COUNT + 1, writer.getWritten());
+            assertEquals(0, writer.getQueueDepth());
+            assertEquals(0, writer.getInProgress());
+        });
+        assertEquals(0, writer.getFailed());
+        assertTrue(writer.getBatches() > 0);
+        // 25 items per request at most
+        assertTrue(writer.getBatches() < STATE_COUNT);
+    }
+
+    @SuppressWarnings("null")
+    private static List<HistoricItem> queryAll(ZonedDateTime begin) {
+        FilterCriteria criteria = new FilterCriteria();
+        criteria.setItemName(NAME);
+        criteria.setBeginDate(begin);
+        criteria.setOrdering(Ordering.ASCENDING);
+        criteria.setPageSize(1000);
+        List<HistoricItem> results = new ArrayList<>();
+        service.query(criteria).forEach(results::add);
+        return results;
+    }
+}
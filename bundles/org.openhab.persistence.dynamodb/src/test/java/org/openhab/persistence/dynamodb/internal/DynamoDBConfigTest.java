@@ -246,4 +246,32 @@ public class DynamoDBConfigTest {
         assertEquals(Optional.empty(), fromConfig.getRetryPolicy().map(RetryPolicy::retryMode));
         assertEquals(ExpectedTableSchema.MAYBE_LEGACY, fromConfig.getTableRevision());
     }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testBatchWriteDisabledByDefault() throws Exception {
+        DynamoDBConfig fromConfig = DynamoDBConfig
+                .fromConfig(mapFrom("region", "eu-west-1", "accessKey", "access1", "secretKey", "secret1"));
+        assertFalse(fromConfig.isBatchWrite());
+        assertEquals(DynamoDBConfig.DEFAULT_BATCH_FLUSH_INTERVAL, fromConfig.getBatchFlushInterval());
+        assertEquals(DynamoDBConfig.DEFAULT_BATCH_MAX_CONCURRENCY, fromConfig.getBatchMaxConcurrency());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testBatchWriteSettings() throws Exception {
+        DynamoDBConfig fromConfig = DynamoDBConfig.fromConfig(mapFrom("region", "eu-west-1", "accessKey", "access1",
+                "secretKey", "secret1", "table", "mytable", "batchWrite", "true", "batchFlushInterval", "250",
+                "batchMaxConcurrency", "4"));
+        assertTrue(fromConfig.isBatchWrite());
+        assertEquals(250, fromConfig.getBatchFlushInterval());
+        assertEquals(4, fromConfig.getBatchMaxConcurrency());
+        assertEquals(ExpectedTableSchema.NEW, fromConfig.getTableRevision());
+    }
+
+    @Test
+    public void testInvalidBatchMaxConcurrency() throws Exception {
+        assertNull(DynamoDBConfig.fromConfig(mapFrom("region", "eu-west-1", "accessKey", "access1", "secretKey",
+                "secret1", "batchWrite", "true", "batchMaxConcurrency", "0")));
+    }
 }
@@ -12,17 +12,29 @@
  */
 package org.openhab.persistence.influxdb;
 
+import java.nio.file.Path;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.OpenHAB;
+import org.openhab.core.common.NamedThreadFactory;
 import org.openhab.core.config.core.ConfigurableService;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemRegistry;
@@ -35,6 +47,8 @@ import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.strategy.PersistenceStrategy;
 import org.openhab.core.types.State;
 import org.openhab.persistence.influxdb.internal.FilterCriteriaQueryCreator;
+import org.openhab.persistence.influxdb.internal.InfluxDBAggregationWindow;
+import org.openhab.persistence.influxdb.internal.InfluxDBBatchWriter;
 import org.openhab.persistence.influxdb.internal.InfluxDBConfiguration;
 import org.openhab.persistence.influxdb.internal.InfluxDBHistoricItem;
 import org.openhab.persistence.influxdb.internal.InfluxDBPersistentItemInfo;
@@ -84,6 +98,9 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
 
     protected static final String CONFIG_URI = "persistence:influxdb";
 
+    // bulk queries that don't fit into the queue are executed by the calling thread
+    private static final int QUERY_QUEUE_SIZE = 100;
+
     // External dependencies
     private final ItemRegistry itemRegistry;
     private final MetadataRegistry metadataRegistry;
@@ -94,6 +111,8 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
     // Relax rules because can only be null if component is not active
     private @NonNullByDefault({}) ItemToStorePointCreator itemToStorePointCreator;
     private @NonNullByDefault({}) InfluxDBRepository influxDBRepository;
+    private @Nullable InfluxDBBatchWriter batchWriter;
+    private @Nullable ExecutorService queryExecutor;
 
     @Activate
     public InfluxDBPersistenceService(final @Reference ItemRegistry itemRegistry,
@@ -113,6 +132,17 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
             itemToStorePointCreator = new ItemToStorePointCreator(configuration, metadataRegistry);
             influxDBRepository = createInfluxDBRepository();
             influxDBRepository.connect();
+            if (configuration.getBatchSize() > 0) {
+                batchWriter = new InfluxDBBatchWriter(influxDBRepository, configuration.getBatchSize(),
+                        configuration.getFlushInterval(), configuration.getRetryBufferSize(), getSpillFile(),
+                        configuration.getSpillMaxSize() * 1024L * 1024L);
+            }
+            int queryConcurrency = Math.max(1, configuration.getQueryConcurrency());
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(queryConcurrency, queryConcurrency, 60,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUERY_QUEUE_SIZE),
+                    new NamedThreadFactory("influxdb-query"));
+            executor.allowCoreThreadTimeOut(true);
+            queryExecutor = executor;
         } else {
             logger.error("Cannot load configuration, persistence service wont work");
         }
@@ -125,12 +155,37 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
         return RepositoryFactory.createRepository(configuration);
     }
 
+    // Visible for testing
+    protected Path getSpillFile() {
+        return Path.of(OpenHAB.getUserDataFolder(), "persistence", SERVICE_NAME, "spill.lp");
+    }
+
+    /**
+     * Get the batch writer, e.g. to read its metrics
+     *
+     * @return the batch writer or <code>null</code> if batched writes are disabled
+     */
+    public @Nullable InfluxDBBatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+
     /**
      * Disconnect from database when service is deactivated
      */
     @Deactivate
     public void deactivate() {
         logger.debug("InfluxDB persistence service deactivated");
+        InfluxDBBatchWriter batchWriter = this.batchWriter;
+        if (batchWriter != null) {
+            // write or spill the pending points while the repository is still connected
+            batchWriter.shutdown();
+            this.batchWriter = null;
+        }
+        ExecutorService queryExecutor = this.queryExecutor;
+        if (queryExecutor != null) {
+            queryExecutor.shutdown();
+            this.queryExecutor = null;
+        }
         if (influxDBRepository != null) {
             influxDBRepository.disconnect();
             influxDBRepository = null;
@@ -206,7 +261,12 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
             InfluxPoint point = itemToStorePointCreator.convert(item, alias);
             if (point != null) {
                 logger.trace("Storing item {} in InfluxDB point {}", item, point);
-                influxDBRepository.write(point);
+                InfluxDBBatchWriter batchWriter = this.batchWriter;
+                if (batchWriter == null) {
+                    influxDBRepository.write(point);
+                } else if (!batchWriter.offer(point)) {
+                    logger.debug("Point {} of item {} has not been queued for writing", point, item);
+                }
             } else {
                 logger.trace("Ignoring item {} as is cannot be converted to a InfluxDB point", item);
             }
@@ -217,18 +277,43 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
+        return query(filter, null);
+    }
+
+    /**
+     * Query historic points, optionally aggregated into time windows by the database
+     *
+     * For InfluxDB 1.X, the aggregation is only applied if the filter has an item name and a begin date.
+     *
+     * @param filter the filter of the query
+     * @param aggregationWindow the aggregation or <code>null</code> to return the raw points
+     * @return the historic points
+     */
+    public List<HistoricItem> query(FilterCriteria filter, @Nullable InfluxDBAggregationWindow aggregationWindow) {
         logger.debug("Got a query for historic points!");
 
         if (influxDBRepository != null && influxDBRepository.isConnected()) {
             logger.trace(
-                    "Filter: itemname: {}, ordering: {}, state: {},  operator: {}, getBeginDate: {}, getEndDate: {}, getPageSize: {}, getPageNumber: {}",
+                    "Filter: itemname: {}, ordering: {}, state: {},  operator: {}, getBeginDate: {}, getEndDate: {}, getPageSize: {}, getPageNumber: {}, aggregation: {}",
                     filter.getItemName(), filter.getOrdering().toString(), filter.getState(), filter.getOperator(),
-                    filter.getBeginDate(), filter.getEndDate(), filter.getPageSize(), filter.getPageNumber());
+                    filter.getBeginDate(), filter.getEndDate(), filter.getPageSize(), filter.getPageNumber(),
+                    aggregationWindow);
+
+            InfluxDBBatchWriter batchWriter = this.batchWriter;
+            if (batchWriter != null) {
+                // make sure the query sees the points that have been stored before
+                batchWriter.flushBeforeQuery();
+            }
 
             String query = RepositoryFactory.createQueryCreator(configuration, metadataRegistry).createQuery(filter,
-                    configuration.getRetentionPolicy());
+                    configuration.getRetentionPolicy(), aggregationWindow);
             logger.trace("Query {}", query);
             List<InfluxRow> results = influxDBRepository.query(query);
+            String itemName = filter.getItemName();
+            if (aggregationWindow != null && itemName != null) {
+                // aggregated rows don't contain the item tag, they belong to the queried item
+                return mapRows2HistoricItems(itemName, results);
+            }
             return results.stream().map(this::mapRow2HistoricItem).collect(Collectors.toList());
         } else {
             logger.debug("query ignored, InfluxDB is not yet connected");
@@ -236,9 +321,59 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    /**
+     * Run several queries concurrently
+     *
+     * The number of queries that are executed at the same time is limited by the queryConcurrency configuration.
+     *
+     * @param filters the filters of the queries
+     * @param aggregationWindow the aggregation or <code>null</code> to return the raw points
+     * @return the historic points of each filter, in the order of the filters. A failed query returns an empty list.
+     */
+    public List<List<HistoricItem>> query(List<FilterCriteria> filters,
+            @Nullable InfluxDBAggregationWindow aggregationWindow) {
+        ExecutorService queryExecutor = this.queryExecutor;
+        if (queryExecutor == null || influxDBRepository == null || !influxDBRepository.isConnected()) {
+            logger.debug("query ignored, InfluxDB is not yet connected");
+            return filters.stream().map(filter -> List.<HistoricItem> of()).collect(Collectors.toList());
+        }
+
+        // the results are collected by position, several filters may query the same item
+        List<CompletableFuture<List<HistoricItem>>> futures = new ArrayList<>(filters.size());
+        for (FilterCriteria filter : filters) {
+            CompletableFuture<List<HistoricItem>> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> query(filter, aggregationWindow), queryExecutor);
+            } catch (RejectedExecutionException e) {
+                // the queue is full, run the query in the calling thread
+                future = CompletableFuture.completedFuture(query(filter, aggregationWindow));
+            }
+            futures.add(future);
+        }
+
+        List<List<HistoricItem>> results = new ArrayList<>(filters.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).join());
+            } catch (CompletionException | CancellationException e) {
+                logger.warn("Query for item {} failed: {}", filters.get(i).getItemName(), e.getMessage());
+                results.add(List.of());
+            }
+        }
+        return results;
+    }
+
+    private List<HistoricItem> mapRows2HistoricItems(String itemName, List<InfluxRow> rows) {
+        return rows.stream().map(row -> mapRow2HistoricItem(itemName, row)).collect(Collectors.toList());
+    }
+
     private HistoricItem mapRow2HistoricItem(InfluxRow row) {
-        State state = InfluxDBStateConvertUtils.objectToState(row.getValue(), row.getItemName(), itemRegistry);
-        return new InfluxDBHistoricItem(row.getItemName(), state,
+        return mapRow2HistoricItem(row.getItemName(), row);
+    }
+
+    private HistoricItem mapRow2HistoricItem(String itemName, InfluxRow row) {
+        State state = InfluxDBStateConvertUtils.objectToState(row.getValue(), itemName, itemRegistry);
+        return new InfluxDBHistoricItem(itemName, state,
                 ZonedDateTime.ofInstant(row.getTime(), ZoneId.systemDefault()));
     }
 
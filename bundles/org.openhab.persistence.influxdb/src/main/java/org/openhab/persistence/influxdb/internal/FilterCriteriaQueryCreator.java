@@ -13,6 +13,7 @@
 package org.openhab.persistence.influxdb.internal;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.persistence.FilterCriteria;
 
 /**
@@ -29,7 +30,20 @@ public interface FilterCriteriaQueryCreator {
      * @param retentionPolicy Name of the retentionPolicy/bucket to use in query
      * @return Created query as an String
      */
-    String createQuery(FilterCriteria criteria, String retentionPolicy);
+    default String createQuery(FilterCriteria criteria, String retentionPolicy) {
+        return createQuery(criteria, retentionPolicy, null);
+    }
+
+    /**
+     * Create query from {@link FilterCriteria} that aggregates the points into time windows
+     *
+     * @param criteria Criteria to create query from
+     * @param retentionPolicy Name of the retentionPolicy/bucket to use in query
+     * @param aggregationWindow Aggregation to apply, or <code>null</code> to return the raw points
+     * @return Created query as an String
+     */
+    String createQuery(FilterCriteria criteria, String retentionPolicy,
+            @Nullable InfluxDBAggregationWindow aggregationWindow);
 
     default String getOperationSymbol(FilterCriteria.Operator operator, InfluxDBVersion version) {
         switch (operator) {
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import java.time.Duration;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Aggregation of the points of a query into fixed time windows, which is executed by the database so that only one
+ * point per window is transferred.
+ *
+ * Aggregations are only meaningful for numeric values.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxDBAggregationWindow {
+
+    /**
+     * The function that is applied to the points of a window, the names are the same in InfluxQL and Flux
+     */
+    public enum Function {
+        MEAN("mean"),
+        MIN("min"),
+        MAX("max"),
+        LAST("last");
+
+        private final String name;
+
+        Function(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Function function;
+    private final long seconds;
+
+    /**
+     * @param function the function applied to the points of a window
+     * @param window the length of a window, at least one second
+     */
+    public InfluxDBAggregationWindow(Function function, Duration window) {
+        if (window.getSeconds() < 1) {
+            throw new IllegalArgumentException("Aggregation window must be at least one second: " + window);
+        }
+        this.function = function;
+        this.seconds = window.getSeconds();
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public long getSeconds() {
+        return seconds;
+    }
+
+    @Override
+    public String toString() {
+        return "InfluxDBAggregationWindow{" + "function=" + function + ", seconds=" + seconds + '}';
+    }
+}
@@ -0,0 +1,391 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
+import org.openhab.persistence.influxdb.internal.InfluxDBRepository.WriteResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link InfluxDBBatchWriter} collects points as line protocol records and writes them asynchronously in batches.
+ *
+ * Records are written when the configured interval has elapsed or as soon as the number of queued records reaches the
+ * batch size. Records that could not be written are kept in a bounded retry buffer. If the retry buffer is full, the
+ * oldest records are appended to a local spill file. Both are replayed before new records as soon as the database
+ * accepts writes again, the spill file is also replayed after a restart. Records are dropped only if the queue, the
+ * retry buffer and the spill file are all full.
+ *
+ * If the server rejects a batch, e.g. because one record has a field type conflict, the records are written one by one
+ * and the ones the server rejects again are dropped, so that a single bad record doesn't block all later writes.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxDBBatchWriter {
+    private final Logger logger = LoggerFactory.getLogger(InfluxDBBatchWriter.class);
+
+    private final InfluxDBRepository repository;
+    private final int batchSize;
+    private final int retryBufferSize;
+    private final @Nullable Path spillFile;
+    private final long spillMaxSize;
+
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("influxdb-writer"));
+    private @Nullable ScheduledFuture<?> flushJob;
+
+    private final BlockingQueue<String> pendingRecords;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // guarded by "this", oldest records first
+    private final ArrayDeque<String> retryBuffer = new ArrayDeque<>();
+    private final AtomicInteger retryBufferDepth = new AtomicInteger();
+    // set when the last write failed because the database was not available
+    private volatile boolean unavailable;
+
+    private final AtomicLong batched = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Create and start a writer
+     *
+     * @param repository the repository the records are written to
+     * @param batchSize the maximum number of records per write
+     * @param flushInterval the interval in milliseconds in which queued records are written
+     * @param retryBufferSize the maximum number of records kept in memory when the database is not available
+     * @param spillFile the file records are spilled to if the retry buffer is full, <code>null</code> to drop them
+     * @param spillMaxSize the maximum size of the spill file in bytes
+     */
+    public InfluxDBBatchWriter(InfluxDBRepository repository, int batchSize, int flushInterval, int retryBufferSize,
+            @Nullable Path spillFile, long spillMaxSize) {
+        this.repository = repository;
+        this.batchSize = Math.max(1, batchSize);
+        this.retryBufferSize = Math.max(this.batchSize, retryBufferSize);
+        this.spillFile = spillMaxSize > 0 ? spillFile : null;
+        this.spillMaxSize = spillMaxSize;
+        pendingRecords = new LinkedBlockingQueue<>(this.retryBufferSize);
+        int interval = Math.max(10, flushInterval);
+        flushJob = scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        logger.debug("InfluxDB batch writer started: batchSize={} flushInterval={} ms retryBufferSize={} spillFile={}",
+                this.batchSize, interval, this.retryBufferSize, this.spillFile);
+    }
+
+    /**
+     * Add a point to the write queue
+     *
+     * @param point the point to write
+     * @return <code>true</code> if the point was queued, <code>false</code> if it can't be converted, the queue is
+     *         full or the writer has been stopped
+     */
+    public boolean offer(InfluxPoint point) {
+        String record = InfluxDBLineProtocolUtils.toLineProtocol(point);
+        if (record == null) {
+            logger.debug("Point {} can't be converted to line protocol", point);
+            return false;
+        }
+        if (scheduler.isShutdown() || !pendingRecords.offer(record)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        batched.incrementAndGet();
+        if (pendingRecords.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // the writer is being stopped, the record is written or spilled by the final flush
+                flushRequested.set(false);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the records that have to be retried and all queued records
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        // once a write failed, the remaining records go directly to the retry buffer to not wait for every batch
+        boolean available = replay();
+        List<String> batch = new ArrayList<>(batchSize);
+        while (pendingRecords.drainTo(batch, batchSize) > 0) {
+            int done = available ? write(batch) : 0;
+            if (done < batch.size()) {
+                available = false;
+                retry(batch.subList(done, batch.size()));
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Write the queued records before a query, so that it sees the points stored before.
+     *
+     * Nothing is written while the database is known to be unavailable, the query then doesn't wait for the retries
+     * and the spill file.
+     */
+    public void flushBeforeQuery() {
+        if (!unavailable) {
+            flush();
+        }
+    }
+
+    /**
+     * Stop the writer, write all queued records and spill the ones that could not be written
+     */
+    public void shutdown() {
+        ScheduledFuture<?> flushJob = this.flushJob;
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            this.flushJob = null;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Timeout waiting for the InfluxDB batch writer to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (this) {
+            if (!retryBuffer.isEmpty()) {
+                spill(new ArrayList<>(retryBuffer));
+                retryBuffer.clear();
+                retryBufferDepth.set(0);
+            }
+        }
+        logger.debug("InfluxDB batch writer stopped {}", this);
+    }
+
+    /**
+     * Write records, one by one if the server rejects the batch
+     *
+     * Must be called while holding the monitor.
+     *
+     * @return the number of records from the start of the list that have been written or dropped because the server
+     *         rejected them, the other records have to be retried
+     */
+    private int write(List<String> records) {
+        WriteResult result = writeRecords(records);
+        if (result == WriteResult.WRITTEN) {
+            batches.incrementAndGet();
+            written.addAndGet(records.size());
+            return records.size();
+        } else if (result == WriteResult.FAILED) {
+            return 0;
+        }
+        if (records.size() > 1) {
+            logger.debug("Batch of {} records rejected, writing them one by one", records.size());
+        }
+        for (int i = 0; i < records.size(); i++) {
+            result = records.size() == 1 ? WriteResult.REJECTED : writeRecords(records.subList(i, i + 1));
+            if (result == WriteResult.WRITTEN) {
+                written.incrementAndGet();
+            } else if (result == WriteResult.REJECTED) {
+                rejected.incrementAndGet();
+                logger.warn("InfluxDB rejected record, dropping it: {}", records.get(i));
+            } else {
+                return i;
+            }
+        }
+        return records.size();
+    }
+
+    // must be called while holding the monitor
+    private WriteResult writeRecords(List<String> records) {
+        WriteResult result;
+        try {
+            result = repository.writeRecords(records);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to write {} records: {}", records.size(), e.getMessage());
+            result = WriteResult.FAILED;
+        }
+        unavailable = result == WriteResult.FAILED;
+        return result;
+    }
+
+    // must be called while holding the monitor
+    private void retry(List<String> records) {
+        retryBuffer.addAll(records);
+        int overflow = retryBuffer.size() - retryBufferSize;
+        if (overflow > 0) {
+            List<String> oldest = new ArrayList<>(overflow);
+            for (int i = 0; i < overflow; i++) {
+                oldest.add(retryBuffer.removeFirst());
+            }
+            spill(oldest);
+        }
+        retryBufferDepth.set(retryBuffer.size());
+    }
+
+    // must be called while holding the monitor
+    private boolean replay() {
+        while (!retryBuffer.isEmpty()) {
+            List<String> batch = new ArrayList<>(Math.min(batchSize, retryBuffer.size()));
+            Iterator<String> iterator = retryBuffer.iterator();
+            while (batch.size() < batchSize && iterator.hasNext()) {
+                batch.add(iterator.next());
+            }
+            int done = write(batch);
+            for (int i = 0; i < done; i++) {
+                retryBuffer.removeFirst();
+            }
+            retryBufferDepth.set(retryBuffer.size());
+            replayed.addAndGet(done);
+            if (done < batch.size()) {
+                return false;
+            }
+        }
+        return replaySpillFile();
+    }
+
+    // must be called while holding the monitor
+    private boolean replaySpillFile() {
+        Path spillFile = this.spillFile;
+        if (spillFile == null || !Files.exists(spillFile)) {
+            return true;
+        }
+        try {
+            List<String> records = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+            for (int from = 0; from < records.size(); from += batchSize) {
+                List<String> batch = records.subList(from, Math.min(records.size(), from + batchSize));
+                int done = write(batch);
+                replayed.addAndGet(done);
+                if (done < batch.size()) {
+                    // keep the records that have not been written yet
+                    Path tmpFile = spillFile.resolveSibling(spillFile.getFileName() + ".tmp");
+                    Files.write(tmpFile, records.subList(from + done, records.size()), StandardCharsets.UTF_8);
+                    Files.move(tmpFile, spillFile, StandardCopyOption.REPLACE_EXISTING);
+                    return false;
+                }
+            }
+            Files.delete(spillFile);
+            logger.info("Replayed {} records from spill file {}", records.size(), spillFile);
+        } catch (IOException e) {
+            logger.warn("Failed to replay spill file {}: {}", spillFile, e.getMessage());
+        }
+        return true;
+    }
+
+    // must be called while holding the monitor
+    private void spill(List<String> records) {
+        Path spillFile = this.spillFile;
+        if (spillFile == null) {
+            dropped.addAndGet(records.size());
+            return;
+        }
+        List<String> lines = new ArrayList<>(records.size());
+        long size = 0;
+        for (String record : records) {
+            // string values may contain line breaks, such records can't be stored one per line
+            if (record.indexOf('\n') < 0 && record.indexOf('\r') < 0) {
+                lines.add(record);
+                size += record.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        }
+        dropped.addAndGet(records.size() - lines.size());
+        try {
+            long currentSize = Files.exists(spillFile) ? Files.size(spillFile) : 0;
+            if (currentSize + size > spillMaxSize) {
+                logger.warn("Spill file {} is full, dropping {} records", spillFile, lines.size());
+                dropped.addAndGet(lines.size());
+                return;
+            }
+            Path folder = spillFile.getParent();
+            if (folder != null) {
+                Files.createDirectories(folder);
+            }
+            Files.write(spillFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            spilled.addAndGet(lines.size());
+        } catch (IOException e) {
+            logger.warn("Failed to write spill file {}, dropping {} records: {}", spillFile, lines.size(),
+                    e.getMessage());
+            dropped.addAndGet(lines.size());
+        }
+    }
+
+    public int getQueueDepth() {
+        return pendingRecords.size();
+    }
+
+    public int getRetryBufferDepth() {
+        return retryBufferDepth.get();
+    }
+
+    public long getBatched() {
+        return batched.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of records dropped because the server rejected them
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return "InfluxDBBatchWriter [queueDepth=" + pendingRecords.size() + ", retryBufferDepth=" + retryBufferDepth
+                + ", batched=" + batched + ", batches=" + batches + ", written=" + written + ", replayed=" + replayed
+                + ", spilled=" + spilled + ", rejected=" + rejected + ", dropped=" + dropped + "]";
+    }
+}
@@ -40,6 +40,11 @@ public class InfluxDBConfiguration {
     public static final String ADD_CATEGORY_TAG_PARAM = "addCategoryTag";
     public static final String ADD_LABEL_TAG_PARAM = "addLabelTag";
     public static final String ADD_TYPE_TAG_PARAM = "addTypeTag";
+    public static final String BATCH_SIZE_PARAM = "batchSize";
+    public static final String FLUSH_INTERVAL_PARAM = "flushInterval";
+    public static final String RETRY_BUFFER_SIZE_PARAM = "retryBufferSize";
+    public static final String SPILL_MAX_SIZE_PARAM = "spillMaxSize";
+    public static final String QUERY_CONCURRENCY_PARAM = "queryConcurrency";
     public static InfluxDBConfiguration NO_CONFIGURATION = new InfluxDBConfiguration(Collections.emptyMap());
     private final Logger logger = LoggerFactory.getLogger(InfluxDBConfiguration.class);
     private final String url;
@@ -55,6 +60,12 @@ public class InfluxDBConfiguration {
     private final boolean addTypeTag;
     private final boolean addLabelTag;
 
+    private final int batchSize;
+    private final int flushInterval;
+    private final int retryBufferSize;
+    private final int spillMaxSize;
+    private final int queryConcurrency;
+
     public InfluxDBConfiguration(Map<String, Object> config) {
         url = (String) config.getOrDefault(URL_PARAM, "http://127.0.0.1:8086");
         user = (String) config.getOrDefault(USER_PARAM, "openhab");
@@ -68,6 +79,12 @@ public class InfluxDBConfiguration {
         addCategoryTag = getConfigBooleanValue(config, ADD_CATEGORY_TAG_PARAM, false);
         addLabelTag = getConfigBooleanValue(config, ADD_LABEL_TAG_PARAM, false);
         addTypeTag = getConfigBooleanValue(config, ADD_TYPE_TAG_PARAM, false);
+
+        batchSize = getConfigIntValue(config, BATCH_SIZE_PARAM, 0);
+        flushInterval = getConfigIntValue(config, FLUSH_INTERVAL_PARAM, 1000);
+        retryBufferSize = getConfigIntValue(config, RETRY_BUFFER_SIZE_PARAM, 10000);
+        spillMaxSize = getConfigIntValue(config, SPILL_MAX_SIZE_PARAM, 10);
+        queryConcurrency = getConfigIntValue(config, QUERY_CONCURRENCY_PARAM, 4);
     }
 
     private static boolean getConfigBooleanValue(Map<String, Object> config, String key, boolean defaultValue) {
@@ -81,6 +98,20 @@ public class InfluxDBConfiguration {
         }
     }
 
+    private int getConfigIntValue(Map<String, Object> config, String key, int defaultValue) {
+        Object object = config.get(key);
+        if (object instanceof Number) {
+            return ((Number) object).intValue();
+        } else if (object instanceof String && !((String) object).isBlank()) {
+            try {
+                return Integer.parseInt(((String) object).trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid value '{}' for {}, using {}", object, key, defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
     private InfluxDBVersion parseInfluxVersion(@Nullable String value) {
         try {
             return Optional.ofNullable(value).map(InfluxDBVersion::valueOf).orElse(InfluxDBVersion.UNKNOWN);
@@ -157,6 +188,41 @@ public class InfluxDBConfiguration {
         return addLabelTag;
     }
 
+    /**
+     * @return the maximum number of points per write, 0 if points are written one by one
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the interval in milliseconds in which batched points are written
+     */
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * @return the maximum number of points kept in memory while the database is not available
+     */
+    public int getRetryBufferSize() {
+        return retryBufferSize;
+    }
+
+    /**
+     * @return the maximum size of the spill file in megabytes, 0 if points are not spilled to disk
+     */
+    public int getSpillMaxSize() {
+        return spillMaxSize;
+    }
+
+    /**
+     * @return the maximum number of queries of a bulk query that are executed at the same time
+     */
+    public int getQueryConcurrency() {
+        return queryConcurrency;
+    }
+
     public String getUser() {
         return user;
     }
@@ -175,7 +241,9 @@ public class InfluxDBConfiguration {
                 + password.length() + " chars" + '\'' + ", token='" + token.length() + " chars" + '\''
                 + ", databaseName='" + databaseName + '\'' + ", retentionPolicy='" + retentionPolicy + '\''
                 + ", version=" + version + ", replaceUnderscore=" + replaceUnderscore + ", addCategoryTag="
-                + addCategoryTag + ", addTypeTag=" + addTypeTag + ", addLabelTag=" + addLabelTag + '}';
+                + addCategoryTag + ", addTypeTag=" + addTypeTag + ", addLabelTag=" + addLabelTag + ", batchSize=" + batchSize
+                + ", flushInterval=" + flushInterval + ", retryBufferSize=" + retryBufferSize + ", spillMaxSize="
+                + spillMaxSize + ", queryConcurrency=" + queryConcurrency + '}';
         return sb;
     }
 
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.FIELD_VALUE_NAME;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Converts {@link InfluxPoint}s to the InfluxDB line protocol with millisecond precision, which is understood by
+ * InfluxDB 1.X and 2.X.
+ *
+ * Number types are mapped in the same way as the client libraries do it: integral numbers are written as integer
+ * fields, all others as float fields.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxDBLineProtocolUtils {
+
+    private InfluxDBLineProtocolUtils() {
+    }
+
+    /**
+     * Convert a point to a line protocol record
+     *
+     * @param point the point to convert
+     * @return the record or <code>null</code> if the point value can't be written to InfluxDB
+     */
+    public static @Nullable String toLineProtocol(InfluxPoint point) {
+        String fieldValue = fieldValue(point.getValue());
+        if (fieldValue == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        escape(sb, point.getMeasurementName(), false);
+        // sorted tags are recommended by InfluxDB for best write performance
+        for (Map.Entry<String, String> tag : new TreeMap<>(point.getTags()).entrySet()) {
+            String key = tag.getKey();
+            String value = tag.getValue();
+            if (key.isEmpty() || value.isEmpty()) {
+                continue;
+            }
+            sb.append(',');
+            escape(sb, key, true);
+            sb.append('=');
+            escape(sb, value, true);
+        }
+        sb.append(' ').append(FIELD_VALUE_NAME).append('=').append(fieldValue);
+        sb.append(' ').append(point.getTime().toEpochMilli());
+        return sb.toString();
+    }
+
+    private static @Nullable String fieldValue(@Nullable Object value) {
+        if (value instanceof String) {
+            String string = (String) value;
+            StringBuilder sb = new StringBuilder(string.length() + 2).append('"');
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+            return sb.append('"').toString();
+        } else if (value instanceof Boolean) {
+            return value.toString();
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return Double.isFinite(d) ? new BigDecimal(value.toString()).toPlainString() : null;
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte || value instanceof BigInteger) {
+            return value.toString() + 'i';
+        } else if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            return Double.isFinite(d) ? BigDecimal.valueOf(d).toPlainString() : null;
+        }
+        return null;
+    }
+
+    private static void escape(StringBuilder sb, String name, boolean escapeEquals) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == ',' || c == ' ' || (escapeEquals && c == '=')) {
+                sb.append('\\');
+            } else if (c == '\n') {
+                sb.append("\\n");
+                continue;
+            }
+            sb.append(c);
+        }
+    }
+}
@@ -71,4 +71,24 @@ public interface InfluxDBRepository {
      * @param influxPoint Point to write
      */
     void write(InfluxPoint influxPoint);
+
+    /**
+     * Write points in line protocol format to database, blocking until the server has accepted or rejected them
+     *
+     * @param records Points in line protocol format with millisecond precision
+     * @return the result of the write
+     */
+    WriteResult writeRecords(List<String> records);
+
+    /**
+     * Result of {@link #writeRecords(List)}
+     */
+    enum WriteResult {
+        /** the points have been written */
+        WRITTEN,
+        /** the server rejected the points, e.g. because of a field type conflict, writing them again fails again */
+        REJECTED,
+        /** the server is not available, the points can be written later */
+        FAILED
+    }
 }
@@ -27,6 +27,7 @@ import org.influxdb.querybuilder.clauses.SimpleClause;
 import org.openhab.core.items.MetadataRegistry;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.persistence.influxdb.internal.FilterCriteriaQueryCreator;
+import org.openhab.persistence.influxdb.internal.InfluxDBAggregationWindow;
 import org.openhab.persistence.influxdb.internal.InfluxDBConfiguration;
 import org.openhab.persistence.influxdb.internal.InfluxDBMetadataUtils;
 import org.openhab.persistence.influxdb.internal.InfluxDBVersion;
@@ -49,11 +50,17 @@ public class Influx1FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
     }
 
     @Override
-    public String createQuery(FilterCriteria criteria, String retentionPolicy) {
+    public String createQuery(FilterCriteria criteria, String retentionPolicy,
+            @Nullable InfluxDBAggregationWindow aggregationWindow) {
         final String tableName;
         final String itemName = criteria.getItemName();
         boolean hasCriteriaName = itemName != null;
 
+        // GROUP BY time() needs a lower time bound, otherwise all windows since 1970 would be calculated
+        if (aggregationWindow != null && itemName != null && criteria.getBeginDate() != null) {
+            return createAggregatedQuery(criteria, retentionPolicy, itemName, aggregationWindow);
+        }
+
         tableName = calculateTableName(itemName);
 
         Select select = select().column("\"" + COLUMN_VALUE_NAME_V1 + "\"::field")
@@ -99,6 +106,58 @@ public class Influx1FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
         return query.getCommand();
     }
 
+    private String createAggregatedQuery(FilterCriteria criteria, String retentionPolicy, String itemName,
+            InfluxDBAggregationWindow aggregationWindow) {
+        String tableName = calculateTableName(itemName);
+
+        StringBuilder sb = new StringBuilder("SELECT ");
+        sb.append(aggregationWindow.getFunction().getName()).append("(\"").append(COLUMN_VALUE_NAME_V1)
+                .append("\") AS \"").append(COLUMN_VALUE_NAME_V1).append("\" FROM ")
+                .append(fullQualifiedTableName(retentionPolicy, tableName, true));
+
+        String separator = " WHERE ";
+        if (!tableName.equals(itemName)) {
+            sb.append(separator);
+            Appender.appendName(TAG_ITEM_NAME, sb);
+            sb.append(" = ");
+            Appender.appendValue(itemName, sb);
+            separator = " AND ";
+        }
+        if (criteria.getBeginDate() != null) {
+            sb.append(separator).append(COLUMN_TIME_NAME_V1).append(" >= '")
+                    .append(criteria.getBeginDate().toInstant()).append('\'');
+            separator = " AND ";
+        }
+        if (criteria.getEndDate() != null) {
+            sb.append(separator).append(COLUMN_TIME_NAME_V1).append(" <= '").append(criteria.getEndDate().toInstant())
+                    .append('\'');
+            separator = " AND ";
+        }
+        if (criteria.getState() != null && criteria.getOperator() != null) {
+            sb.append(separator).append(COLUMN_VALUE_NAME_V1).append(' ')
+                    .append(getOperationSymbol(criteria.getOperator(), InfluxDBVersion.V1)).append(' ');
+            Appender.appendValue(stateToObject(criteria.getState()), sb);
+        }
+
+        // empty windows are skipped instead of returning null values
+        sb.append(" GROUP BY ").append(COLUMN_TIME_NAME_V1).append('(').append(aggregationWindow.getSeconds())
+                .append("s) fill(none)");
+
+        if (criteria.getOrdering() == FilterCriteria.Ordering.DESCENDING) {
+            sb.append(" ORDER BY ").append(COLUMN_TIME_NAME_V1).append(" DESC");
+        } else if (criteria.getOrdering() == FilterCriteria.Ordering.ASCENDING) {
+            sb.append(" ORDER BY ").append(COLUMN_TIME_NAME_V1).append(" ASC");
+        }
+
+        if (criteria.getPageSize() != Integer.MAX_VALUE) {
+            sb.append(" LIMIT ").append(criteria.getPageSize());
+            if (criteria.getPageNumber() != 0) {
+                sb.append(" OFFSET ").append(criteria.getPageSize() * criteria.getPageNumber());
+            }
+        }
+        return sb.append(';').toString();
+    }
+
     private String calculateTableName(@Nullable String itemName) {
         if (itemName == null) {
             return "/.*/";
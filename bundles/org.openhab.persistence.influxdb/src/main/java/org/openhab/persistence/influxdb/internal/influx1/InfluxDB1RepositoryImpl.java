@@ -29,6 +29,8 @@ import java.util.concurrent.TimeUnit;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.influxdb.InfluxDB;
+import org.influxdb.InfluxDB.ConsistencyLevel;
+import org.influxdb.InfluxDBException;
 import org.influxdb.InfluxDBFactory;
 import org.influxdb.dto.Point;
 import org.influxdb.dto.Pong;
@@ -125,6 +127,33 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
         }
     }
 
+    @Override
+    public WriteResult writeRecords(List<String> records) {
+        final InfluxDB currentClient = this.client;
+        if (currentClient != null) {
+            try {
+                // records are sent synchronously, they are not part of the client batch
+                currentClient.write(configuration.getDatabaseName(), configuration.getRetentionPolicy(),
+                        ConsistencyLevel.ONE, TimeUnit.MILLISECONDS, records);
+                return WriteResult.WRITTEN;
+            } catch (InfluxDBException e) {
+                // e.g. a field type conflict or a point outside of the retention policy
+                if (!e.isRetryWorth()) {
+                    logger.debug("database rejected {} records: {}", records.size(), e.getMessage());
+                    return WriteResult.REJECTED;
+                }
+                logger.warn("database error: {}", e.getMessage());
+                return WriteResult.FAILED;
+            } catch (RuntimeException e) {
+                logger.warn("database error: {}", e.getMessage());
+                return WriteResult.FAILED;
+            }
+        } else {
+            logger.debug("Write of {} records ignored due to client isn't connected", records.size());
+            return WriteResult.FAILED;
+        }
+    }
+
     private Point convertPointToClientFormat(InfluxPoint point) {
         Point.Builder clientPoint = Point.measurement(point.getMeasurementName()).time(point.getTime().toEpochMilli(),
                 TimeUnit.MILLISECONDS);
@@ -20,9 +20,11 @@ import static org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtil
 import java.time.temporal.ChronoUnit;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.items.MetadataRegistry;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.persistence.influxdb.internal.FilterCriteriaQueryCreator;
+import org.openhab.persistence.influxdb.internal.InfluxDBAggregationWindow;
 import org.openhab.persistence.influxdb.internal.InfluxDBConfiguration;
 import org.openhab.persistence.influxdb.internal.InfluxDBMetadataUtils;
 import org.openhab.persistence.influxdb.internal.InfluxDBVersion;
@@ -49,7 +51,8 @@ public class Influx2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
     }
 
     @Override
-    public String createQuery(FilterCriteria criteria, String retentionPolicy) {
+    public String createQuery(FilterCriteria criteria, String retentionPolicy,
+            @Nullable InfluxDBAggregationWindow aggregationWindow) {
         Flux flux = Flux.from(retentionPolicy);
 
         RangeFlux range = flux.range();
@@ -64,20 +67,20 @@ public class Influx2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
         flux = range;
 
         String itemName = criteria.getItemName();
+        boolean needsToUseItemTagName = false;
         if (itemName != null) {
             String measurementName = calculateMeasurementName(itemName);
-            boolean needsToUseItemTagName = !measurementName.equals(itemName);
+            needsToUseItemTagName = !measurementName.equals(itemName);
 
             flux = flux.filter(measurement().equal(measurementName));
             if (needsToUseItemTagName) {
                 flux = flux.filter(tag(TAG_ITEM_NAME).equal(itemName));
             }
 
-            if (needsToUseItemTagName)
-                flux = flux.keep(new String[] { FIELD_MEASUREMENT_NAME, COLUMN_TIME_NAME_V2, COLUMN_VALUE_NAME_V2,
-                        TAG_ITEM_NAME });
-            else
-                flux = flux.keep(new String[] { FIELD_MEASUREMENT_NAME, COLUMN_TIME_NAME_V2, COLUMN_VALUE_NAME_V2 });
+            // aggregateWindow needs the _start and _stop columns, so they are removed afterwards
+            if (aggregationWindow == null) {
+                flux = keepColumns(flux, needsToUseItemTagName);
+            }
         }
 
         if (criteria.getState() != null && criteria.getOperator() != null) {
@@ -87,11 +90,29 @@ public class Influx2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
             flux = flux.filter(restrictions);
         }
 
+        if (aggregationWindow != null) {
+            // empty windows are skipped instead of returning null values
+            flux = flux.expression("aggregateWindow(every: " + aggregationWindow.getSeconds() + "s, fn: "
+                    + aggregationWindow.getFunction().getName() + ", createEmpty: false)");
+            if (itemName != null) {
+                flux = keepColumns(flux, needsToUseItemTagName);
+            }
+        }
+
         flux = applyOrderingAndPageSize(criteria, flux);
 
         return flux.toString();
     }
 
+    private Flux keepColumns(Flux flux, boolean needsToUseItemTagName) {
+        if (needsToUseItemTagName) {
+            return flux.keep(new String[] { FIELD_MEASUREMENT_NAME, COLUMN_TIME_NAME_V2, COLUMN_VALUE_NAME_V2,
+                    TAG_ITEM_NAME });
+        } else {
+            return flux.keep(new String[] { FIELD_MEASUREMENT_NAME, COLUMN_TIME_NAME_V2, COLUMN_VALUE_NAME_V2 });
+        }
+    }
+
     private Flux applyOrderingAndPageSize(FilterCriteria criteria, Flux flux) {
         var lastOptimization = criteria.getOrdering() == FilterCriteria.Ordering.DESCENDING
                 && criteria.getPageSize() == 1;
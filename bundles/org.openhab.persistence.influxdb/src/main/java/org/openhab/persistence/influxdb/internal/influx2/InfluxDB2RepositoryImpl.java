@@ -38,9 +38,11 @@ import com.influxdb.client.InfluxDBClientFactory;
 import com.influxdb.client.InfluxDBClientOptions;
 import com.influxdb.client.QueryApi;
 import com.influxdb.client.WriteApi;
+import com.influxdb.client.WriteApiBlocking;
 import com.influxdb.client.domain.Ready;
 import com.influxdb.client.domain.WritePrecision;
 import com.influxdb.client.write.Point;
+import com.influxdb.exceptions.InfluxException;
 import com.influxdb.query.FluxTable;
 
 /**
@@ -58,6 +60,8 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
     private QueryApi queryAPI;
     @Nullable
     private WriteApi writeAPI;
+    @Nullable
+    private WriteApiBlocking writeBlockingAPI;
 
     public InfluxDB2RepositoryImpl(InfluxDBConfiguration configuration) {
         this.configuration = configuration;
@@ -95,6 +99,7 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
         logger.debug("Succesfully connected to InfluxDB. Instance ready={}", createdClient.ready());
         queryAPI = createdClient.getQueryApi();
         writeAPI = createdClient.getWriteApi();
+        writeBlockingAPI = createdClient.getWriteApiBlocking();
         return checkConnectionStatus();
     }
 
@@ -108,6 +113,8 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
             currentClient.close();
         }
         this.client = null;
+        this.writeAPI = null;
+        this.writeBlockingAPI = null;
     }
 
     /**
@@ -148,6 +155,41 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
         }
     }
 
+    /**
+     * Write points in line protocol format to database
+     *
+     * @param records
+     * @return the result of the write
+     */
+    @Override
+    public WriteResult writeRecords(List<String> records) {
+        final WriteApiBlocking currentWriteAPI = writeBlockingAPI;
+        if (currentWriteAPI != null) {
+            try {
+                currentWriteAPI.writeRecords(WritePrecision.MS, records);
+                return WriteResult.WRITTEN;
+            } catch (InfluxException e) {
+                if (isRejected(e.status())) {
+                    logger.debug("database rejected {} records: {}", records.size(), e.getMessage());
+                    return WriteResult.REJECTED;
+                }
+                logger.warn("database error: {}", e.getMessage());
+                return WriteResult.FAILED;
+            } catch (RuntimeException e) {
+                logger.warn("database error: {}", e.getMessage());
+                return WriteResult.FAILED;
+            }
+        } else {
+            logger.debug("Write of {} records ignored due to writeAPI isn't present", records.size());
+            return WriteResult.FAILED;
+        }
+    }
+
+    // bad request, request too large or unprocessable entity, other errors may go away when the write is repeated
+    private static boolean isRejected(int status) {
+        return status == 400 || status == 413 || status == 422;
+    }
+
     private Point convertPointToClientFormat(InfluxPoint point) {
         Point clientPoint = Point.measurement(point.getMeasurementName()).time(point.getTime(), WritePrecision.MS);
         setPointValue(point.getValue(), clientPoint);
@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openhab.persistence.influxdb.internal.InfluxDBRepository.WriteResult;
+
+/**
+ * Tests the {@link InfluxDBBatchWriter} against a local stand-in for the InfluxDB server
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxDBBatchWriterTest {
+    // long enough that only explicit flushes write in these tests
+    private static final int FLUSH_INTERVAL = 60000;
+
+    private @TempDir @NonNullByDefault({}) Path tempDir;
+
+    private final LocalInfluxDB influxDB = new LocalInfluxDB();
+    private final List<InfluxDBBatchWriter> writers = new ArrayList<>();
+
+    @AfterEach
+    public void after() {
+        writers.forEach(InfluxDBBatchWriter::shutdown);
+    }
+
+    @Test
+    public void pointsAreWrittenInBatches() {
+        InfluxDBBatchWriter writer = createWriter(3, 100, 0);
+        offer(writer, 0, 7);
+        writer.flush();
+
+        assertThat(influxDB.getRecords(), hasSize(7));
+        assertThat(influxDB.getMaxBatchSize(), is(lessThanOrEqualTo(3)));
+        assertThat(writer.getBatched(), is(7L));
+        assertThat(writer.getWritten(), is(7L));
+        assertThat(writer.getQueueDepth(), is(0));
+    }
+
+    @Test
+    public void failedPointsAreRetriedWhenTheDatabaseIsAvailableAgain() {
+        InfluxDBBatchWriter writer = createWriter(10, 100, 0);
+        influxDB.available = false;
+        offer(writer, 0, 5);
+        writer.flush();
+
+        assertThat(influxDB.getRecords(), is(empty()));
+        assertThat(writer.getRetryBufferDepth(), is(5));
+
+        influxDB.available = true;
+        offer(writer, 5, 2);
+        writer.flush();
+
+        assertThat(influxDB.getRecords(), hasSize(7));
+        // the retried points are written before the new ones
+        assertThat(influxDB.getRecords().get(0), is(record(0)));
+        assertThat(writer.getReplayed(), is(5L));
+        assertThat(writer.getRetryBufferDepth(), is(0));
+        assertThat(writer.getDropped(), is(0L));
+    }
+
+    @Test
+    public void pointsAreSpilledToDiskAndReplayed() throws IOException {
+        InfluxDBBatchWriter writer = createWriter(2, 2, 1024 * 1024);
+        influxDB.available = false;
+        offer(writer, 0, 2);
+        writer.flush();
+        offer(writer, 2, 2);
+        writer.flush();
+        offer(writer, 4, 2);
+        writer.flush();
+
+        assertThat(writer.getRetryBufferDepth(), is(2));
+        assertThat(writer.getSpilled(), is(4L));
+        assertThat(Files.readAllLines(spillFile(), StandardCharsets.UTF_8), contains(record(0), record(1), record(2),
+                record(3)));
+
+        influxDB.available = true;
+        writer.flush();
+
+        assertThat(influxDB.getRecords(), hasSize(6));
+        assertThat(Files.exists(spillFile()), is(false));
+        assertThat(writer.getDropped(), is(0L));
+    }
+
+    @Test
+    public void spillFileIsReplayedAfterRestart() {
+        InfluxDBBatchWriter writer = createWriter(10, 100, 1024 * 1024);
+        influxDB.available = false;
+        offer(writer, 0, 3);
+        writer.shutdown();
+        writers.remove(writer);
+
+        assertThat(writer.getSpilled(), is(3L));
+        assertThat(Files.exists(spillFile()), is(true));
+
+        influxDB.available = true;
+        InfluxDBBatchWriter restartedWriter = createWriter(10, 100, 1024 * 1024);
+        restartedWriter.flush();
+
+        assertThat(influxDB.getRecords(), contains(record(0), record(1), record(2)));
+        assertThat(restartedWriter.getReplayed(), is(3L));
+        assertThat(Files.exists(spillFile()), is(false));
+    }
+
+    @Test
+    public void pointsAreDroppedIfTheSpillFileIsFull() {
+        InfluxDBBatchWriter writer = createWriter(1, 1, 1);
+        influxDB.available = false;
+        offer(writer, 0, 1);
+        writer.flush();
+        offer(writer, 1, 1);
+        writer.flush();
+
+        assertThat(writer.getRetryBufferDepth(), is(1));
+        assertThat(writer.getSpilled(), is(0L));
+        assertThat(writer.getDropped(), is(1L));
+    }
+
+    @Test
+    public void rejectedRecordsAreDroppedAndTheOthersWritten() {
+        InfluxDBBatchWriter writer = createWriter(10, 100, 0);
+        influxDB.rejectedRecord = record(2);
+        offer(writer, 0, 5);
+        writer.flush();
+
+        assertThat(influxDB.getRecords(), contains(record(0), record(1), record(3), record(4)));
+        assertThat(writer.getRejected(), is(1L));
+        assertThat(writer.getRetryBufferDepth(), is(0));
+
+        // later writes are not affected by the rejected record
+        offer(writer, 5, 2);
+        writer.flush();
+
+        assertThat(influxDB.getRecords(), hasSize(6));
+        assertThat(writer.getRejected(), is(1L));
+    }
+
+    @Test
+    public void rejectedRecordInTheRetryBufferDoesNotBlockTheReplay() {
+        InfluxDBBatchWriter writer = createWriter(10, 100, 0);
+        influxDB.available = false;
+        influxDB.rejectedRecord = record(1);
+        offer(writer, 0, 3);
+        writer.flush();
+
+        assertThat(writer.getRetryBufferDepth(), is(3));
+
+        influxDB.available = true;
+        offer(writer, 3, 1);
+        writer.flush();
+
+        assertThat(influxDB.getRecords(), contains(record(0), record(2), record(3)));
+        assertThat(writer.getRetryBufferDepth(), is(0));
+        assertThat(writer.getRejected(), is(1L));
+    }
+
+    @Test
+    public void queriesDoNotRetryWhileTheDatabaseIsUnavailable() {
+        InfluxDBBatchWriter writer = createWriter(10, 100, 0);
+        influxDB.available = false;
+        offer(writer, 0, 2);
+        writer.flushBeforeQuery();
+        int attempts = influxDB.getAttempts();
+
+        offer(writer, 2, 1);
+        writer.flushBeforeQuery();
+
+        assertThat(influxDB.getAttempts(), is(attempts));
+        assertThat(writer.getQueueDepth(), is(1));
+
+        influxDB.available = true;
+        writer.flush();
+        writer.flushBeforeQuery();
+
+        assertThat(influxDB.getRecords(), hasSize(3));
+    }
+
+    @Test
+    public void offerAfterShutdownIsRejected() {
+        InfluxDBBatchWriter writer = createWriter(1, 100, 0);
+        writer.shutdown();
+
+        assertThat(writer.offer(point(0)), is(false));
+    }
+
+    private InfluxDBBatchWriter createWriter(int batchSize, int retryBufferSize, long spillMaxSize) {
+        InfluxDBBatchWriter writer = new InfluxDBBatchWriter(influxDB, batchSize, FLUSH_INTERVAL, retryBufferSize,
+                spillFile(), spillMaxSize);
+        writers.add(writer);
+        return writer;
+    }
+
+    private Path spillFile() {
+        return tempDir.resolve("influxdb").resolve("spill.lp");
+    }
+
+    private static void offer(InfluxDBBatchWriter writer, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            assertThat(writer.offer(point(i)), is(true));
+        }
+    }
+
+    private static InfluxPoint point(int i) {
+        return InfluxPoint.newBuilder("sensor").withTime(Instant.ofEpochMilli(1000L * i)).withValue(i)
+                .withTag(InfluxDBConstants.TAG_ITEM_NAME, "sensor").build();
+    }
+
+    private static String record(int i) {
+        return "sensor,item=sensor value=" + i + "i " + (1000L * i);
+    }
+
+    /**
+     * Stand-in for an InfluxDB server that accepts line protocol records while it is available
+     */
+    private static class LocalInfluxDB implements InfluxDBRepository {
+        private final List<String> records = Collections.synchronizedList(new ArrayList<>());
+        private volatile int maxBatchSize;
+        private volatile int attempts;
+        volatile boolean available = true;
+        // a record the server refuses, like a point with a field type conflict
+        volatile @Nullable String rejectedRecord;
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public boolean connect() {
+            return true;
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean checkConnectionStatus() {
+            return available;
+        }
+
+        @Override
+        public Map<String, Integer> getStoredItemsCount() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public List<InfluxRow> query(String query) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void write(InfluxPoint influxPoint) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WriteResult writeRecords(List<String> batch) {
+            attempts++;
+            if (!available) {
+                throw new IllegalStateException("connection refused");
+            }
+            String rejectedRecord = this.rejectedRecord;
+            if (rejectedRecord != null && batch.contains(rejectedRecord)) {
+                return WriteResult.REJECTED;
+            }
+            maxBatchSize = Math.max(maxBatchSize, batch.size());
+            records.addAll(batch);
+            return WriteResult.WRITTEN;
+        }
+
+        List<String> getRecords() {
+            return List.copyOf(records);
+        }
+
+        int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        int getAttempts() {
+            return attempts;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxDBLineProtocolUtilsTest {
+    private static final Instant TIME = Instant.ofEpochMilli(1600000000123L);
+
+    @Test
+    public void decimalValueIsWrittenAsFloat() {
+        InfluxPoint point = InfluxPoint.newBuilder("temperature").withTime(TIME).withValue(new BigDecimal("21.50"))
+                .withTag("item", "temperature").build();
+        assertThat(InfluxDBLineProtocolUtils.toLineProtocol(point),
+                is("temperature,item=temperature value=21.50 1600000000123"));
+    }
+
+    @Test
+    public void integralValueIsWrittenAsInteger() {
+        InfluxPoint point = InfluxPoint.newBuilder("switch").withTime(TIME).withValue(1).build();
+        assertThat(InfluxDBLineProtocolUtils.toLineProtocol(point), is("switch value=1i 1600000000123"));
+    }
+
+    @Test
+    public void doubleValueIsNotWrittenInScientificNotation() {
+        InfluxPoint point = InfluxPoint.newBuilder("energy").withTime(TIME).withValue(1.5e10).build();
+        assertThat(InfluxDBLineProtocolUtils.toLineProtocol(point), is("energy value=15000000000 1600000000123"));
+    }
+
+    @Test
+    public void stringValueIsQuotedAndEscaped() {
+        InfluxPoint point = InfluxPoint.newBuilder("text").withTime(TIME).withValue("say \"hi\" \\o/").build();
+        assertThat(InfluxDBLineProtocolUtils.toLineProtocol(point),
+                is("text value=\"say \\\"hi\\\" \\\\o/\" 1600000000123"));
+    }
+
+    @Test
+    public void namesAreEscapedAndTagsAreSorted() {
+        InfluxPoint point = InfluxPoint.newBuilder("living room,temp").withTime(TIME).withValue(1)
+                .withTag("label", "Living Room=1").withTag("floor", "ground").withTag("empty", "").build();
+        assertThat(InfluxDBLineProtocolUtils.toLineProtocol(point),
+                is("living\\ room\\,temp,floor=ground,label=Living\\ Room\\=1 value=1i 1600000000123"));
+    }
+
+    @Test
+    public void unsupportedValuesAreNotConverted() {
+        assertThat(InfluxDBLineProtocolUtils
+                .toLineProtocol(InfluxPoint.newBuilder("nan").withTime(TIME).withValue(Double.NaN).build()),
+                is(nullValue()));
+        assertThat(InfluxDBLineProtocolUtils
+                .toLineProtocol(InfluxPoint.newBuilder("object").withTime(TIME).withValue(new Object()).build()),
+                is(nullValue()));
+    }
+}
@@ -12,9 +12,17 @@
  */
 package org.openhab.persistence.influxdb.internal;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.DefaultLocation;
@@ -27,6 +35,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.MetadataRegistry;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
 import org.openhab.persistence.influxdb.InfluxDBPersistenceService;
 
 /**
@@ -103,4 +113,48 @@ public class InfluxDBPersistenceServiceTest {
         instance.store(ItemTestHelper.createNumberItem("number", 5));
         verify(influxDBRepository, never()).write(any());
     }
+
+    @Test
+    public void bulkQueryReturnsTheResultsInTheOrderOfTheFilters() {
+        instance.activate(validConfig);
+        when(influxDBRepository.isConnected()).thenReturn(true);
+        when(influxDBRepository.query(anyString()))
+                .thenAnswer(invocation -> List.of(new InfluxRow(Instant.now(), "measurement", 5)));
+
+        List<FilterCriteria> filters = List.of(createFilter("item1"), createFilter("item2"), createFilter("item3"));
+        List<List<HistoricItem>> results = instance.query(filters,
+                new InfluxDBAggregationWindow(InfluxDBAggregationWindow.Function.MEAN, Duration.ofMinutes(1)));
+
+        assertThat(results, hasSize(3));
+        for (int i = 0; i < filters.size(); i++) {
+            assertThat(results.get(i), hasSize(1));
+            assertThat(results.get(i).get(0).getName(), is(filters.get(i).getItemName()));
+        }
+        verify(influxDBRepository, times(3)).query(anyString());
+        instance.deactivate();
+    }
+
+    @Test
+    public void bulkQueryKeepsTheResultsOfFiltersForTheSameItem() {
+        instance.activate(validConfig);
+        when(influxDBRepository.isConnected()).thenReturn(true);
+        when(influxDBRepository.query(anyString())).thenReturn(List.of(new InfluxRow(Instant.now(), "item1", 5)),
+                List.of(new InfluxRow(Instant.now(), "item1", 6), new InfluxRow(Instant.now(), "item1", 7)));
+
+        FilterCriteria lastDay = createFilter("item1");
+        FilterCriteria lastWeek = createFilter("item1");
+        lastWeek.setBeginDate(ZonedDateTime.now().minusDays(7));
+        List<List<HistoricItem>> results = instance.query(List.of(lastDay, lastWeek), null);
+
+        assertThat(results, hasSize(2));
+        assertThat(results.get(0).size() + results.get(1).size(), is(3));
+        instance.deactivate();
+    }
+
+    private FilterCriteria createFilter(String itemName) {
+        FilterCriteria filter = new FilterCriteria();
+        filter.setItemName(itemName);
+        filter.setBeginDate(ZonedDateTime.now().minusDays(1));
+        return filter;
+    }
 }
@@ -16,6 +16,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -180,6 +181,60 @@ public class InfluxFilterCriteriaQueryCreatorImplTest {
                         + "|> keep(columns:[\"_measurement\", \"_time\", \"_value\"])\n\t" + "|> last()"));
     }
 
+    @Test
+    public void testAggregationWindow() {
+        FilterCriteria criteria = createBaseCriteria();
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime tomorrow = now.plus(1, ChronoUnit.DAYS);
+        criteria.setBeginDate(now);
+        criteria.setEndDate(tomorrow);
+        InfluxDBAggregationWindow window = new InfluxDBAggregationWindow(InfluxDBAggregationWindow.Function.MEAN,
+                Duration.ofMinutes(1));
+
+        String queryV1 = instanceV1.createQuery(criteria, RETENTION_POLICY, window);
+        String expectedQueryV1 = String.format(
+                "SELECT mean(\"value\") AS \"value\" FROM origin.sampleItem WHERE time >= '%s' AND time <= '%s' GROUP BY time(60s) fill(none);",
+                now.toInstant(), tomorrow.toInstant());
+        assertThat(queryV1, equalTo(expectedQueryV1));
+
+        String queryV2 = instanceV2.createQuery(criteria, RETENTION_POLICY, window);
+        String expectedQueryV2 = String.format("from(bucket:\"origin\")\n\t" + "|> range(start:%s, stop:%s)\n\t"
+                + "|> filter(fn: (r) => r[\"_measurement\"] == \"sampleItem\")\n\t"
+                + "|> aggregateWindow(every: 60s, fn: mean, createEmpty: false)\n\t"
+                + "|> keep(columns:[\"_measurement\", \"_time\", \"_value\"])",
+                INFLUX2_DATE_FORMATTER.format(now.toInstant()), INFLUX2_DATE_FORMATTER.format(tomorrow.toInstant()));
+        assertThat(queryV2, equalTo(expectedQueryV2));
+    }
+
+    @Test
+    public void testAggregationWindowWithMeasurementNameFromMetadata() {
+        FilterCriteria criteria = createBaseCriteria();
+        ZonedDateTime now = ZonedDateTime.now();
+        criteria.setBeginDate(now);
+        criteria.setOrdering(FilterCriteria.Ordering.DESCENDING);
+        criteria.setPageSize(10);
+        MetadataKey metadataKey = new MetadataKey(InfluxDBPersistenceService.SERVICE_NAME, "sampleItem");
+        when(metadataRegistry.get(metadataKey)).thenReturn(new Metadata(metadataKey, "measurementName", Map.of()));
+        InfluxDBAggregationWindow window = new InfluxDBAggregationWindow(InfluxDBAggregationWindow.Function.MAX,
+                Duration.ofHours(1));
+
+        String queryV1 = instanceV1.createQuery(criteria, RETENTION_POLICY, window);
+        String expectedQueryV1 = String.format(
+                "SELECT max(\"value\") AS \"value\" FROM origin.measurementName WHERE item = 'sampleItem' AND time >= '%s' GROUP BY time(3600s) fill(none) ORDER BY time DESC LIMIT 10;",
+                now.toInstant());
+        assertThat(queryV1, equalTo(expectedQueryV1));
+    }
+
+    @Test
+    public void testAggregationWindowWithoutBeginDateV1ReturnsRawPoints() {
+        FilterCriteria criteria = createBaseCriteria();
+        InfluxDBAggregationWindow window = new InfluxDBAggregationWindow(InfluxDBAggregationWindow.Function.LAST,
+                Duration.ofMinutes(5));
+
+        String queryV1 = instanceV1.createQuery(criteria, RETENTION_POLICY, window);
+        assertThat(queryV1, equalTo("SELECT \"value\"::field,\"item\"::tag FROM origin.sampleItem;"));
+    }
+
     private FilterCriteria createBaseCriteria() {
         return createBaseCriteria(ITEM_NAME);
     }
@@ -13,18 +13,26 @@
 package org.openhab.persistence.jdbc.db;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.measure.Quantity;
 import javax.measure.Unit;
+import javax.sql.DataSource;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.knowm.yank.Yank;
@@ -81,10 +89,17 @@ public class JdbcBaseDAO {
     protected String sqlCreateItemsTableIfNot;
     protected String sqlDeleteItemsEntry;
     protected String sqlGetItemIDTableNames;
+    protected String sqlGetItemIDTableName;
     protected String sqlGetItemTables;
     protected String sqlCreateItemTable;
     protected String sqlInsertItemValue;
 
+    // number of rows fetched per round trip by streaming queries
+    protected int queryFetchSize = 1000;
+
+    // insert statements with a placeholder for the time column, by table name and data type
+    private final Map<String, String> sqlInsertItemValueCache = new ConcurrentHashMap<>();
+
     /********
      * INIT *
      ********/
@@ -140,6 +155,7 @@ public class JdbcBaseDAO {
         sqlCreateItemsTableIfNot = "CREATE TABLE IF NOT EXISTS #itemsManageTable# (ItemId INT NOT NULL AUTO_INCREMENT,#colname# #coltype# NOT NULL,PRIMARY KEY (ItemId))";
         sqlDeleteItemsEntry = "DELETE FROM items WHERE ItemName=#itemname#";
         sqlGetItemIDTableNames = "SELECT itemid, itemname FROM #itemsManageTable#";
+        sqlGetItemIDTableName = "SELECT itemid, itemname FROM #itemsManageTable# WHERE itemname='#itemname#'";
         sqlGetItemTables = "SELECT table_name FROM information_schema.tables WHERE table_type='BASE TABLE' AND table_schema='#jdbcUriDatabaseName#' AND NOT table_name='#itemsManageTable#'";
         sqlCreateItemTable = "CREATE TABLE IF NOT EXISTS #tableName# (time #tablePrimaryKey# NOT NULL, value #dbType#, PRIMARY KEY(time))";
         sqlInsertItemValue = "INSERT INTO #tableName# (TIME, VALUE) VALUES( #tablePrimaryValue#, ? ) ON DUPLICATE KEY UPDATE VALUE= ?";
@@ -302,6 +318,14 @@ public class JdbcBaseDAO {
         return Yank.queryBeanList(sql, ItemsVO.class, null);
     }
 
+    public List<ItemsVO> doGetItemIDTableName(ItemsVO vo) {
+        String sql = StringUtilsExt.replaceArrayMerge(sqlGetItemIDTableName,
+                new String[] { "#itemsManageTable#", "#itemname#" },
+                new String[] { vo.getItemsManageTable(), vo.getItemname() });
+        logger.debug("JDBC::doGetItemIDTableName sql={}", sql);
+        return Yank.queryBeanList(sql, ItemsVO.class, null);
+    }
+
     public List<ItemsVO> doGetItemTables(ItemsVO vo) {
         String sql = StringUtilsExt.replaceArrayMerge(sqlGetItemTables,
                 new String[] { "#jdbcUriDatabaseName#", "#itemsManageTable#" },
@@ -340,14 +364,67 @@ public class JdbcBaseDAO {
 
     public void doStoreItemValue(Item item, State itemState, ItemVO vo, ZonedDateTime date) {
         ItemVO storedVO = storeItemValueProvider(item, itemState, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
-                new String[] { "#tableName#", "#tablePrimaryValue#" }, new String[] { storedVO.getTableName(), "?" });
+        String sql = getInsertItemValueSql(storedVO.getTableName(), storedVO.getDbType());
         java.sql.Timestamp timestamp = new java.sql.Timestamp(date.toInstant().toEpochMilli());
-        Object[] params = new Object[] { timestamp, storedVO.getValue(), storedVO.getValue() };
+        Object[] params = insertItemValueParams(timestamp, storedVO.getValue());
         logger.debug("JDBC::doStoreItemValue sql={} timestamp={} value='{}'", sql, timestamp, storedVO.getValue());
         Yank.execute(sql, params);
     }
 
+    /**
+     * Opens a session for {@link #doStoreItemValues(WriteSession, List)}, which takes a connection from the pool on
+     * first use and keeps it, together with the prepared insert statement of each table, until it is closed.
+     */
+    public WriteSession openWriteSession() {
+        return new WriteSession(Yank.getDefaultConnectionPool());
+    }
+
+    /**
+     * Stores several values of one item table in a single batch.
+     *
+     * All values must belong to the same table and must have been prepared by {@link #storeItemValueProvider}, with
+     * the time of the value set. The insert statement of the table is prepared once per session and reused.
+     *
+     * @param session the session of the calling writer
+     * @param vos the values to store
+     * @return <code>false</code> if the batch could not be executed
+     */
+    public boolean doStoreItemValues(WriteSession session, List<ItemVO> vos) {
+        if (vos.isEmpty()) {
+            return true;
+        }
+        ItemVO first = vos.get(0);
+        String sql = getInsertItemValueSql(first.getTableName(), first.getDbType());
+        logger.debug("JDBC::doStoreItemValues sql={} rows={}", sql, vos.size());
+        try {
+            PreparedStatement statement = session.prepareStatement(sql);
+            for (ItemVO vo : vos) {
+                Object[] params = insertItemValueParams(new java.sql.Timestamp(vo.getTime().getTime()), vo.getValue());
+                for (int i = 0; i < params.length; i++) {
+                    statement.setObject(i + 1, params[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            return true;
+        } catch (SQLException e) {
+            logger.debug("JDBC::doStoreItemValues: batch failed: {}", e.getMessage());
+            session.discard(sql);
+            return false;
+        }
+    }
+
+    /**
+     * Converts a state for {@link #doStoreItemValues(WriteSession, List)}.
+     *
+     * @return the value object with value type, value and time set
+     */
+    public ItemVO doPrepareItemValue(Item item, State itemState, ItemVO vo, ZonedDateTime date) {
+        ItemVO storedVO = storeItemValueProvider(item, itemState, vo);
+        storedVO.setTime(Date.from(date.toInstant()));
+        return storedVO;
+    }
+
     public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
             String table, String name, ZoneId timeZone) {
         String sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name, timeZone);
@@ -370,6 +447,65 @@ public class JdbcBaseDAO {
         Yank.execute(sql, null);
     }
 
+    /**
+     * Streams the result of a history query row by row through a forward-only cursor.
+     *
+     * If <code>resolution</code> is greater than 0 and the item has a numeric type, the values are averaged in the
+     * database over buckets of <code>resolution</code> seconds, so that only one row per bucket is transferred. Paging
+     * of the filter is ignored for such queries. Databases without support for time buckets return all rows.
+     *
+     * @param resolution the bucket size in seconds, 0 for no downsampling
+     * @param consumer receives the historic items in the order of the filter
+     * @return the number of rows, or -1 if the query failed
+     */
+    public int doStreamHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount, String table,
+            String name, ZoneId timeZone, long resolution, Consumer<HistoricItem> consumer) {
+        String sql = null;
+        if (resolution > 0 && isAggregatable(item)) {
+            sql = histItemFilterDownsampleQueryProvider(filter, numberDecimalcount, table, name, timeZone, resolution);
+        }
+        boolean downsampled = sql != null;
+        if (sql == null) {
+            sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name, timeZone);
+        }
+        logger.debug("JDBC::doStreamHistItemFilterQuery sql={} fetchSize={}", sql, queryFetchSize);
+        // we already retrieve the unit here once as it is a very costly operation
+        String itemName = item.getName();
+        Unit<? extends Quantity<?>> unit = item instanceof NumberItem ? ((NumberItem) item).getUnit() : null;
+        int count = 0;
+        try (Connection connection = Yank.getDefaultConnectionPool().getConnection()) {
+            // some drivers (e.g. PostgreSQL) only use a cursor inside a transaction
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(queryFetchSize);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        Object time = resultSet.getObject(1);
+                        Object value = resultSet.getObject(2);
+                        if (time == null || value == null) {
+                            continue;
+                        }
+                        if (downsampled) {
+                            value = aggregatedValue(item, value);
+                        }
+                        consumer.accept(new JdbcHistoricItem(itemName, objectAsState(item, unit, value),
+                                objectAsDate(time)));
+                        count++;
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            logger.warn("JDBC::doStreamHistItemFilterQuery: query failed: {}", e.getMessage());
+            return -1;
+        }
+        return count;
+    }
+
     /*************
      * Providers *
      *************/
@@ -398,6 +534,47 @@ public class JdbcBaseDAO {
         return queryString;
     }
 
+    /**
+     * Returns a query that averages the values over time buckets, or <code>null</code> if the database does not
+     * support it.
+     */
+    protected @Nullable String histItemFilterDownsampleQueryProvider(FilterCriteria filter, int numberDecimalcount,
+            String table, String simpleName, ZoneId timeZone, long resolution) {
+        String bucket = timeBucketProvider(resolution);
+        if (bucket == null) {
+            return null;
+        }
+        String value = "NUMBERITEM".equalsIgnoreCase(simpleName) && numberDecimalcount > -1
+                ? roundProvider("AVG(value)", numberDecimalcount)
+                : "AVG(value)";
+        // SELECT MIN(time), ROUND(AVG(value),3) FROM number_item_0114 GROUP BY FLOOR(UNIX_TIMESTAMP(time) / 60)
+        // ORDER BY 1 DESC
+        String queryString = "SELECT " + timeBucketTimeProvider(resolution) + ", " + value + " FROM " + table
+                + resolveTimeFilter(filter, timeZone) + " GROUP BY " + bucket
+                + (filter.getOrdering() == Ordering.ASCENDING ? " ORDER BY 1 ASC" : " ORDER BY 1 DESC");
+        logger.debug("JDBC::query queryString = {}", queryString);
+        return queryString;
+    }
+
+    /**
+     * Returns the expression that maps the time column to its bucket of <code>resolution</code> seconds, or
+     * <code>null</code> if the database does not support it.
+     */
+    protected @Nullable String timeBucketProvider(long resolution) {
+        return "FLOOR(UNIX_TIMESTAMP(time) / " + resolution + ")";
+    }
+
+    /**
+     * Returns the expression for the time of a bucket, by default the time of its first row.
+     */
+    protected String timeBucketTimeProvider(long resolution) {
+        return "MIN(time)";
+    }
+
+    protected String roundProvider(String expression, int numberDecimalcount) {
+        return "ROUND(" + expression + "," + numberDecimalcount + ")";
+    }
+
     protected String histItemFilterDeleteProvider(FilterCriteria filter, String table, ZoneId timeZone) {
         logger.debug("JDBC::histItemFilterDeleteProvider filter = {}, table = {}", filter, table);
 
@@ -423,6 +600,27 @@ public class JdbcBaseDAO {
         return filterString;
     }
 
+    /**
+     * Returns the insert statement for an item table with a placeholder for the time column. The statement only
+     * depends on table name and data type, so it is built once and cached.
+     */
+    protected String getInsertItemValueSql(String tableName, String dbType) {
+        return sqlInsertItemValueCache.computeIfAbsent(tableName + "#" + dbType,
+                k -> insertItemValueSqlProvider(tableName, dbType));
+    }
+
+    protected String insertItemValueSqlProvider(String tableName, String dbType) {
+        return sqlInsertItemValue.replace("#tableName#", tableName).replace("#dbType#", dbType)
+                .replace("#tablePrimaryValue#", "?");
+    }
+
+    /**
+     * Returns the parameters for the statement returned by {@link #getInsertItemValueSql(String, String)}.
+     */
+    protected Object[] insertItemValueParams(java.sql.Timestamp timestamp, Object value) {
+        return new Object[] { timestamp, value, value };
+    }
+
     private String updateItemTableNamesProvider(List<ItemVO> namesList) {
         logger.debug("JDBC::updateItemTableNamesProvider namesList.size = {}", namesList.size());
         String queryString = "";
@@ -563,6 +761,37 @@ public class JdbcBaseDAO {
         }
     }
 
+    private boolean isAggregatable(Item item) {
+        String itemType = getItemType(item);
+        if ("DIMMERITEM".equals(itemType) || "ROLLERSHUTTERITEM".equals(itemType)) {
+            return true;
+        }
+        if ("NUMBERITEM".equals(itemType)) {
+            String it = getSqlTypes().get(itemType).toUpperCase();
+            return it.contains("DOUBLE") || it.contains("DECIMAL") || it.contains("NUMERIC") || it.contains("INT");
+        }
+        return false;
+    }
+
+    /**
+     * Converts an average back to the java type {@link #objectAsState} expects for the item.
+     */
+    private Object aggregatedValue(Item item, Object v) {
+        if (!(v instanceof Number)) {
+            return v;
+        }
+        double value = ((Number) v).doubleValue();
+        if (item instanceof NumberItem) {
+            String it = getSqlTypes().get("NUMBERITEM").toUpperCase();
+            if (it.contains("DOUBLE")) {
+                return value;
+            } else if (it.contains("DECIMAL") || it.contains("NUMERIC")) {
+                return v instanceof BigDecimal ? v : BigDecimal.valueOf(value);
+            }
+        }
+        return (int) Math.round(value);
+    }
+
     protected ZonedDateTime objectAsDate(Object v) {
         if (v instanceof java.lang.String) {
             return ZonedDateTime.ofInstant(java.sql.Timestamp.valueOf(v.toString()).toInstant(),
@@ -634,4 +863,73 @@ public class JdbcBaseDAO {
     public String getDataType(Item item) {
         return sqlTypes.get(getItemType(item));
     }
+
+    /**
+     * A pooled connection with the insert statements prepared on it, used by a single writer thread.
+     */
+    public static class WriteSession implements AutoCloseable {
+        private final Logger logger = LoggerFactory.getLogger(WriteSession.class);
+
+        private final DataSource dataSource;
+        private @Nullable Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        public WriteSession(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                Connection connection = this.connection;
+                if (connection == null) {
+                    connection = dataSource.getConnection();
+                    this.connection = connection;
+                }
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearBatch();
+            }
+            return statement;
+        }
+
+        /**
+         * Closes the statement after a failure, and the connection too if it has been lost, so that the next batch
+         * starts over.
+         */
+        void discard(String sql) {
+            PreparedStatement statement = statements.remove(sql);
+            if (statement != null) {
+                closeQuietly(statement);
+            }
+            Connection connection = this.connection;
+            try {
+                if (connection != null && !connection.isValid(1)) {
+                    close();
+                }
+            } catch (SQLException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            statements.values().forEach(this::closeQuietly);
+            statements.clear();
+            Connection connection = this.connection;
+            this.connection = null;
+            if (connection != null) {
+                closeQuietly(connection);
+            }
+        }
+
+        private void closeQuietly(AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.debug("JDBC::WriteSession: failed to close {}: {}", closeable, e.getMessage());
+            }
+        }
+    }
 }
@@ -19,6 +19,7 @@ import java.util.stream.Collectors;
 import javax.measure.Quantity;
 import javax.measure.Unit;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.knowm.yank.Yank;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.items.NumberItem;
@@ -160,6 +161,16 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
+    @Override
+    protected String insertItemValueSqlProvider(String tableName, String dbType) {
+        return super.insertItemValueSqlProvider(tableName.toUpperCase(), dbType);
+    }
+
+    @Override
+    protected Object[] insertItemValueParams(java.sql.Timestamp timestamp, Object value) {
+        return new Object[] { timestamp, value };
+    }
+
     @Override
     public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
             String table, String name, ZoneId timeZone) {
@@ -179,6 +190,12 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
      * SQL generation Providers *
      ****************************/
 
+    @Override
+    protected @Nullable String timeBucketProvider(long resolution) {
+        // downsampling is not supported
+        return null;
+    }
+
     @Override
     protected String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
             String simpleName, ZoneId timeZone) {
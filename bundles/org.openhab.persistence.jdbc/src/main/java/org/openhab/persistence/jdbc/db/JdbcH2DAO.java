@@ -82,10 +82,20 @@ public class JdbcH2DAO extends JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
+    @Override
+    protected Object[] insertItemValueParams(java.sql.Timestamp timestamp, Object value) {
+        return new Object[] { timestamp, value };
+    }
+
     /****************************
      * SQL generation Providers *
      ****************************/
 
+    @Override
+    protected String timeBucketProvider(long resolution) {
+        return "DATEDIFF('SECOND', TIMESTAMP '1970-01-01 00:00:00', time) / " + resolution;
+    }
+
     /*****************
      * H E L P E R S *
      *****************/
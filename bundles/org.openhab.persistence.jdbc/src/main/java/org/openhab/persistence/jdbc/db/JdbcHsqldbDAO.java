@@ -12,6 +12,7 @@
  */
 package org.openhab.persistence.jdbc.db;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.knowm.yank.Yank;
 import org.openhab.core.items.Item;
 import org.openhab.core.types.State;
@@ -113,10 +114,28 @@ public class JdbcHsqldbDAO extends JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
+    @Override
+    protected String insertItemValueSqlProvider(String tableName, String dbType) {
+        // the type of the time column cannot be derived from the USING clause
+        return sqlInsertItemValue.replace("#tableName#", tableName).replace("#dbType#", dbType)
+                .replace("#tablePrimaryValue#", "CAST( ? as TIMESTAMP)");
+    }
+
+    @Override
+    protected Object[] insertItemValueParams(java.sql.Timestamp timestamp, Object value) {
+        return new Object[] { timestamp, value };
+    }
+
     /****************************
      * SQL generation Providers *
      ****************************/
 
+    @Override
+    protected @Nullable String timeBucketProvider(long resolution) {
+        // downsampling is not supported
+        return null;
+    }
+
     /*****************
      * H E L P E R S *
      *****************/
@@ -73,6 +73,9 @@ public class JdbcMysqlDAO extends JdbcBaseDAO {
         // databaseProps.setProperty("dataSourceClassName", "com.mysql.jdbc.jdbc2.optional.MysqlDataSource");
         databaseProps.setProperty("maximumPoolSize", "3");
         databaseProps.setProperty("minimumIdle", "2");
+
+        // Connector/J only streams results row by row with this fetch size, otherwise it reads the whole result
+        queryFetchSize = Integer.MIN_VALUE;
     }
 
     @Override
@@ -144,10 +144,25 @@ public class JdbcPostgresqlDAO extends JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
+    @Override
+    protected Object[] insertItemValueParams(java.sql.Timestamp timestamp, Object value) {
+        return new Object[] { timestamp, value };
+    }
+
     /****************************
      * SQL generation Providers *
      ****************************/
 
+    @Override
+    protected String timeBucketProvider(long resolution) {
+        return "FLOOR(EXTRACT(EPOCH FROM time) / " + resolution + ")";
+    }
+
+    @Override
+    protected String roundProvider(String expression, int numberDecimalcount) {
+        return "ROUND(CAST (" + expression + " AS numeric)," + numberDecimalcount + ")";
+    }
+
     @Override
     protected String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
             String simpleName, ZoneId timeZone) {
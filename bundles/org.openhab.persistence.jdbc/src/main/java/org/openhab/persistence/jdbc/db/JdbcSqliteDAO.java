@@ -12,6 +12,8 @@
  */
 package org.openhab.persistence.jdbc.db;
 
+import java.time.format.DateTimeFormatter;
+
 import org.knowm.yank.Yank;
 import org.openhab.core.items.Item;
 import org.openhab.core.types.State;
@@ -31,6 +33,8 @@ import org.slf4j.LoggerFactory;
 public class JdbcSqliteDAO extends JdbcBaseDAO {
     private final Logger logger = LoggerFactory.getLogger(JdbcSqliteDAO.class);
 
+    private static final DateTimeFormatter SQLITE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
     /********
      * INIT *
      ********/
@@ -101,10 +105,21 @@ public class JdbcSqliteDAO extends JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
+    @Override
+    protected Object[] insertItemValueParams(java.sql.Timestamp timestamp, Object value) {
+        // the driver would store a timestamp as milliseconds, keep the text format of tablePrimaryValue instead
+        return new Object[] { SQLITE_DATE_FORMAT.format(timestamp.toLocalDateTime()), value };
+    }
+
     /****************************
      * SQL generation Providers *
      ****************************/
 
+    @Override
+    protected String timeBucketProvider(long resolution) {
+        return "CAST(strftime('%s', time) AS INTEGER) / " + resolution;
+    }
+
     /*****************
      * H E L P E R S *
      *****************/
@@ -63,6 +63,16 @@ public class JdbcTimescaledbDAO extends JdbcPostgresqlDAO {
         Yank.execute(sql, null);
     }
 
+    @Override
+    protected String timeBucketProvider(long resolution) {
+        return "time_bucket(INTERVAL '" + resolution + " seconds', time)";
+    }
+
+    @Override
+    protected String timeBucketTimeProvider(long resolution) {
+        return timeBucketProvider(resolution);
+    }
+
     private void initSqlQueries() {
         this.logger.debug("JDBC::initSqlQueries: '{}'", this.getClass().getSimpleName());
 
@@ -0,0 +1,338 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO.WriteSession;
+import org.openhab.persistence.jdbc.dto.ItemVO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link JdbcBatchWriter} collects item values and writes them asynchronously in batches, one batch per item
+ * table.
+ *
+ * Values are written when the configured interval has elapsed or as soon as the number of queued values reaches the
+ * batch size. Values for the same table and the same timestamp are coalesced, so that only the last one is written.
+ * The queue is bounded, {@link #offer(String, ItemVO)} returns <code>false</code> if it is full and the caller has to
+ * apply the overflow policy.
+ *
+ * Each flush takes a single connection from the pool and prepares the insert statement of a table only once, the
+ * statement is reused for all batches of the table and for the values written one by one.
+ *
+ * If a batch fails, its values are written one by one, so that a single bad value doesn't discard the whole batch.
+ * Values which still cannot be written are queued again and retried with the next flushes, they are only counted as
+ * failed after {@link #MAX_ATTEMPTS} attempts.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class JdbcBatchWriter {
+    private final Logger logger = LoggerFactory.getLogger(JdbcBatchWriter.class);
+
+    /**
+     * What to do with a value if the write queue is full
+     */
+    public enum OverflowPolicy {
+        /** write the value synchronously in the calling thread */
+        SYNC,
+        /** discard the value */
+        DROP
+    }
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final JdbcMapper mapper;
+    private final int batchSize;
+    private final int capacity;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("jdbc-writer"));
+    private @Nullable ScheduledFuture<?> flushJob;
+
+    // pending values by table name, each ordered by time, also after failed values have been queued again
+    private final Map<String, TreeMap<Long, ItemVO>> pendingValues = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // serializes the flushes, so that a query never misses values that are currently being written
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // failed attempts of the values queued again, only used while holding the flush lock
+    private final Map<ItemVO, Integer> attempts = new IdentityHashMap<>();
+
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalWriteTime = new AtomicLong();
+    private volatile long lastWriteTime;
+    private volatile long maxWriteTime;
+
+    public JdbcBatchWriter(JdbcMapper mapper, int batchSize, int flushInterval, int capacity) {
+        this.mapper = mapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.capacity = Math.max(this.batchSize, capacity);
+        int interval = Math.max(10, flushInterval);
+        flushJob = scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        logger.debug("JDBC::JdbcBatchWriter: batchSize={} flushInterval={} ms capacity={}", this.batchSize, interval,
+                this.capacity);
+    }
+
+    /**
+     * Add a value to the write queue
+     *
+     * @param tableName the table of the item
+     * @param vo the value, with value type and time set
+     * @return <code>true</code> if the value was queued, <code>false</code> if the queue is full or the writer has been
+     *         stopped
+     */
+    public boolean offer(String tableName, ItemVO vo) {
+        if (size.get() >= capacity || scheduler.isShutdown()) {
+            return false;
+        }
+        pendingValues.compute(tableName, (k, values) -> {
+            TreeMap<Long, ItemVO> map = values == null ? new TreeMap<>() : values;
+            if (map.put(vo.getTime().getTime(), vo) == null) {
+                size.incrementAndGet();
+            } else {
+                merged.incrementAndGet();
+            }
+            return map;
+        });
+        if (size.get() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // the writer is being stopped, the value is written by the final flush
+                flushRequested.set(false);
+            }
+        }
+        return true;
+    }
+
+    public void countDropped() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Write the queued values of all tables
+     */
+    public void flush() {
+        flushRequested.set(false);
+        flushLock.lock();
+        try {
+            Set<String> tableNames = Set.copyOf(pendingValues.keySet());
+            if (tableNames.isEmpty()) {
+                return;
+            }
+            long timerStart = System.currentTimeMillis();
+            int count = 0;
+            try (WriteSession session = mapper.openWriteSession()) {
+                for (String tableName : tableNames) {
+                    count += writeTable(session, tableName);
+                }
+            }
+            logger.debug("JDBC::JdbcBatchWriter: flushed {} values of {} tables in {} ms, queue depth {}", count,
+                    tableNames.size(), System.currentTimeMillis() - timerStart, size.get());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write the queued values of a single table, e.g. before the table is queried
+     *
+     * @param tableName the table of the item
+     */
+    public void flush(String tableName) {
+        if (!pendingValues.containsKey(tableName) && !flushLock.isLocked()) {
+            return;
+        }
+        flushLock.lock();
+        try (WriteSession session = mapper.openWriteSession()) {
+            writeTable(session, tableName);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the writer and write all queued values
+     */
+    public void shutdown() {
+        ScheduledFuture<?> flushJob = this.flushJob;
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            this.flushJob = null;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("JDBC::JdbcBatchWriter: timeout waiting for the writer to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // there is no later flush, so failed values are retried right away
+        for (int i = 0; i < MAX_ATTEMPTS && size.get() > 0; i++) {
+            flush();
+        }
+        logger.debug("JDBC::JdbcBatchWriter: stopped {}", this);
+    }
+
+    // must be called while holding the flush lock
+    private int writeTable(WriteSession session, String tableName) {
+        TreeMap<Long, ItemVO> values = pendingValues.remove(tableName);
+        if (values == null || values.isEmpty()) {
+            return 0;
+        }
+        size.addAndGet(-values.size());
+        List<ItemVO> vos = new ArrayList<>(values.values());
+        for (int from = 0; from < vos.size(); from += batchSize) {
+            List<ItemVO> batch = vos.subList(from, Math.min(vos.size(), from + batchSize));
+            if (store(session, tableName, batch)) {
+                written.addAndGet(batch.size());
+                batch.forEach(attempts::remove);
+            } else if (batch.size() == 1) {
+                retryLater(tableName, batch.get(0));
+            } else {
+                logger.debug("JDBC::JdbcBatchWriter: batch of {} values for table '{}' failed, writing them one by one",
+                        batch.size(), tableName);
+                for (ItemVO vo : batch) {
+                    if (store(session, tableName, List.of(vo))) {
+                        written.incrementAndGet();
+                        attempts.remove(vo);
+                    } else {
+                        retryLater(tableName, vo);
+                    }
+                }
+            }
+        }
+        return vos.size();
+    }
+
+    private boolean store(WriteSession session, String tableName, List<ItemVO> vos) {
+        long start = System.currentTimeMillis();
+        try {
+            return mapper.storeItemValues(session, tableName, vos);
+        } catch (RuntimeException e) {
+            logger.debug("JDBC::JdbcBatchWriter: failed to write into table '{}': {}", tableName, e.getMessage());
+            return false;
+        } finally {
+            long writeTime = System.currentTimeMillis() - start;
+            batches.incrementAndGet();
+            lastWriteTime = writeTime;
+            maxWriteTime = Math.max(maxWriteTime, writeTime);
+            totalWriteTime.addAndGet(writeTime);
+        }
+    }
+
+    // must be called while holding the flush lock
+    private void retryLater(String tableName, ItemVO vo) {
+        int attempt = attempts.getOrDefault(vo, 0) + 1;
+        if (attempt >= MAX_ATTEMPTS) {
+            attempts.remove(vo);
+            failed.incrementAndGet();
+            logger.warn("JDBC::JdbcBatchWriter: failed to write value of {} into table '{}' {} times, discarding it",
+                    vo.getTime(), tableName, attempt);
+            return;
+        }
+        attempts.put(vo, attempt);
+        retried.incrementAndGet();
+        pendingValues.compute(tableName, (k, values) -> {
+            TreeMap<Long, ItemVO> map = values == null ? new TreeMap<>() : values;
+            // a newer value for the same time has been queued in the meantime
+            if (map.putIfAbsent(vo.getTime().getTime(), vo) == null) {
+                size.incrementAndGet();
+            } else {
+                attempts.remove(vo);
+            }
+            return map;
+        });
+    }
+
+    public int getQueueDepth() {
+        return size.get();
+    }
+
+    public long getMerged() {
+        return merged.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return the number of values queued again after a failed attempt
+     */
+    public long getRetried() {
+        return retried.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of executed JDBC batches, including the single values written after a failed batch
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    public long getMaxWriteTime() {
+        return maxWriteTime;
+    }
+
+    public long getAverageWriteTime() {
+        long count = batches.get();
+        return count == 0 ? 0 : totalWriteTime.get() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "JdbcBatchWriter [queueDepth=" + size + ", written=" + written + ", merged=" + merged + ", retried="
+                + retried + ", failed=" + failed + ", dropped=" + dropped + ", batches=" + batches + ", lastWriteTime="
+                + lastWriteTime + " ms, averageWriteTime=" + getAverageWriteTime() + " ms, maxWriteTime="
+                + maxWriteTime + " ms]";
+    }
+}
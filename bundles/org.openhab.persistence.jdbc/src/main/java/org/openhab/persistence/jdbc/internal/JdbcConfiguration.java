@@ -60,6 +60,12 @@ public class JdbcConfiguration {
 
     private int errReconnectThreshold = 0;
 
+    // batched writes, disabled if writeBatchSize is 0
+    private int writeBatchSize = 0;
+    private int writeBatchInterval = 1000;
+    private int writeQueueSize = 10000;
+    private JdbcBatchWriter.OverflowPolicy writeQueueOverflow = JdbcBatchWriter.OverflowPolicy.SYNC;
+
     public int timerCount = 0;
     public int time1000Statements = 0;
     public long timer1000 = 0;
@@ -173,6 +179,34 @@ public class JdbcConfiguration {
             logger.debug("JDBC::updateConfig: rebuildTableNames={}", rebuildTableNames);
         }
 
+        String wb = (String) configuration.get("writeBatchSize");
+        if (wb != null && !wb.isBlank() && isNumericPattern.matcher(wb).matches()) {
+            writeBatchSize = Integer.parseInt(wb);
+            logger.debug("JDBC::updateConfig: writeBatchSize={}", writeBatchSize);
+        }
+
+        String wi = (String) configuration.get("writeBatchInterval");
+        if (wi != null && !wi.isBlank() && isNumericPattern.matcher(wi).matches()) {
+            writeBatchInterval = Integer.parseInt(wi);
+            logger.debug("JDBC::updateConfig: writeBatchInterval={}", writeBatchInterval);
+        }
+
+        String wq = (String) configuration.get("writeQueueSize");
+        if (wq != null && !wq.isBlank() && isNumericPattern.matcher(wq).matches()) {
+            writeQueueSize = Integer.parseInt(wq);
+            logger.debug("JDBC::updateConfig: writeQueueSize={}", writeQueueSize);
+        }
+
+        String wo = (String) configuration.get("writeQueueOverflow");
+        if (wo != null && !wo.isBlank()) {
+            try {
+                writeQueueOverflow = JdbcBatchWriter.OverflowPolicy.valueOf(wo.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warn("JDBC::updateConfig: unknown writeQueueOverflow '{}', using '{}'", wo, writeQueueOverflow);
+            }
+            logger.debug("JDBC::updateConfig: writeQueueOverflow={}", writeQueueOverflow);
+        }
+
         // undocumented
         String ac = (String) configuration.get("maximumPoolSize");
         if (ac != null && !ac.isBlank()) {
@@ -358,6 +392,22 @@ public class JdbcConfiguration {
         return tableIdDigitCount;
     }
 
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public int getWriteBatchInterval() {
+        return writeBatchInterval;
+    }
+
+    public int getWriteQueueSize() {
+        return writeQueueSize;
+    }
+
+    public JdbcBatchWriter.OverflowPolicy getWriteQueueOverflow() {
+        return writeQueueOverflow;
+    }
+
     public JdbcBaseDAO getDBDAO() {
         return dBDAO;
     }
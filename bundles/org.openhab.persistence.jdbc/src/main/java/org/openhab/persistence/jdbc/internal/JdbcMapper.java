@@ -19,6 +19,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -29,6 +34,7 @@ import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceItemInfo;
 import org.openhab.core.types.State;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO.WriteSession;
 import org.openhab.persistence.jdbc.dto.ItemVO;
 import org.openhab.persistence.jdbc.dto.ItemsVO;
 import org.openhab.persistence.jdbc.dto.JdbcPersistenceItemInfo;
@@ -51,7 +57,13 @@ public class JdbcMapper {
     protected int errCnt;
     protected boolean initialized = false;
     protected JdbcConfiguration conf = null;
-    protected final Map<String, String> sqlTables = new HashMap<>();
+    protected final Map<String, String> sqlTables = new ConcurrentHashMap<>();
+    // items removed from the index whose table may still exist, only these are looked up in the database on a miss
+    private final Set<String> invalidatedItems = ConcurrentHashMap.newKeySet();
+    // tables that are currently being created, by item name
+    private final Map<String, CompletableFuture<@Nullable String>> tableCreations = new ConcurrentHashMap<>();
+    private volatile long indexLoadTime;
+    protected volatile @Nullable JdbcBatchWriter batchWriter;
     private long afterAccessMin = 10000;
     private long afterAccessMax = 0;
     private static final String ITEM_NAME_PATTERN = "[^a-zA-Z_0-9\\-]";
@@ -123,6 +135,16 @@ public class JdbcMapper {
         return vo;
     }
 
+    public @Nullable ItemsVO getItemIDTableName(String itemName) {
+        logger.debug("JDBC::getItemIDTableName");
+        long timerStart = System.currentTimeMillis();
+        ItemsVO vo = new ItemsVO();
+        vo.setItemname(itemName);
+        List<ItemsVO> vol = conf.getDBDAO().doGetItemIDTableName(vo);
+        logTime("getItemIDTableName", timerStart, System.currentTimeMillis());
+        return vol == null || vol.isEmpty() ? null : vol.get(0);
+    }
+
     public List<ItemsVO> getItemTables() {
         logger.debug("JDBC::getItemTables");
         long timerStart = System.currentTimeMillis();
@@ -158,6 +180,22 @@ public class JdbcMapper {
             logger.error("JDBC::store: Unable to store item '{}'.", item.getName());
             return item;
         }
+        JdbcBatchWriter batchWriter = this.batchWriter;
+        if (batchWriter != null) {
+            // the value is converted now, as the state of the item may already have changed when it is written
+            ZonedDateTime time = date == null ? ZonedDateTime.now() : date;
+            ItemVO vo = conf.getDBDAO().doPrepareItemValue(item, itemState, new ItemVO(tableName, null), time);
+            if (batchWriter.offer(tableName, vo)) {
+                return item;
+            }
+            if (conf.getWriteQueueOverflow() == JdbcBatchWriter.OverflowPolicy.DROP) {
+                batchWriter.countDropped();
+                logger.debug("JDBC::storeItemValue: write queue full, dropped value of item '{}'", item.getName());
+                return item;
+            }
+            // write synchronously, this slows down the caller until the queue has been drained
+            date = time;
+        }
         long timerStart = System.currentTimeMillis();
         if (date == null) {
             conf.getDBDAO().doStoreItemValue(item, itemState, new ItemVO(tableName, null));
@@ -169,12 +207,28 @@ public class JdbcMapper {
         return item;
     }
 
+    public WriteSession openWriteSession() {
+        return conf.getDBDAO().openWriteSession();
+    }
+
+    public boolean storeItemValues(WriteSession session, String tableName, List<ItemVO> vos) {
+        logger.debug("JDBC::storeItemValues: table={} rows={}", tableName, vos.size());
+        long timerStart = System.currentTimeMillis();
+        boolean success = conf.getDBDAO().doStoreItemValues(session, vos);
+        logTime("storeItemValues", timerStart, System.currentTimeMillis());
+        if (success) {
+            errCnt = 0;
+        }
+        return success;
+    }
+
     public List<HistoricItem> getHistItemFilterQuery(FilterCriteria filter, int numberDecimalcount, String table,
             Item item) {
         logger.debug(
                 "JDBC::getHistItemFilterQuery filter='{}' numberDecimalcount='{}' table='{}' item='{}' itemName='{}'",
                 (filter != null), numberDecimalcount, table, item, item.getName());
         if (table != null) {
+            flushPendingValues(table);
             long timerStart = System.currentTimeMillis();
             List<HistoricItem> result = conf.getDBDAO().doGetHistItemFilterQuery(item, filter, numberDecimalcount,
                     table, item.getName(), timeZoneProvider.getTimeZone());
@@ -187,11 +241,28 @@ public class JdbcMapper {
         return null;
     }
 
+    public boolean streamHistItemFilterQuery(FilterCriteria filter, int numberDecimalcount, String table, Item item,
+            long resolution, Consumer<HistoricItem> consumer) {
+        logger.debug("JDBC::streamHistItemFilterQuery table='{}' itemName='{}' resolution={}", table, item.getName(),
+                resolution);
+        flushPendingValues(table);
+        long timerStart = System.currentTimeMillis();
+        int count = conf.getDBDAO().doStreamHistItemFilterQuery(item, filter, numberDecimalcount, table,
+                item.getName(), timeZoneProvider.getTimeZone(), resolution, consumer);
+        logTime("streamHistItemFilterQuery", timerStart, System.currentTimeMillis());
+        if (count < 0) {
+            return false;
+        }
+        errCnt = 0;
+        return true;
+    }
+
     @SuppressWarnings("null")
     public boolean deleteItemValues(FilterCriteria filter, String table) {
         logger.debug("JDBC::deleteItemValues filter='{}' table='{}' itemName='{}'", (filter != null), table,
                 filter.getItemName());
         if (table != null) {
+            flushPendingValues(table);
             long timerStart = System.currentTimeMillis();
             conf.getDBDAO().doDeleteItemValues(filter, table, timeZoneProvider.getTimeZone());
             logTime("deleteItemValues", timerStart, System.currentTimeMillis());
@@ -203,6 +274,38 @@ public class JdbcMapper {
         }
     }
 
+    /****************
+     * BATCH WRITER *
+     ****************/
+    protected void startBatchWriter() {
+        stopBatchWriter();
+        if (conf.getWriteBatchSize() > 0) {
+            batchWriter = new JdbcBatchWriter(this, conf.getWriteBatchSize(), conf.getWriteBatchInterval(),
+                    conf.getWriteQueueSize());
+            logger.debug("JDBC::startBatchWriter: batched writes enabled, batchSize={}", conf.getWriteBatchSize());
+        }
+    }
+
+    protected void stopBatchWriter() {
+        JdbcBatchWriter batchWriter = this.batchWriter;
+        if (batchWriter != null) {
+            this.batchWriter = null;
+            batchWriter.shutdown();
+            logger.info("JDBC::stopBatchWriter: {}", batchWriter);
+        }
+    }
+
+    private void flushPendingValues(String table) {
+        JdbcBatchWriter batchWriter = this.batchWriter;
+        if (batchWriter != null) {
+            batchWriter.flush(table);
+        }
+    }
+
+    public @Nullable JdbcBatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+
     /***********************
      * DATABASE CONNECTION *
      ***********************/
@@ -270,17 +373,25 @@ public class JdbcMapper {
         } else {
             // Reset the error counter
             errCnt = 0;
+            // load the whole index at once, so that stores and queries do not need a lookup per item
+            long timerStart = System.currentTimeMillis();
+            sqlTables.clear();
+            invalidatedItems.clear();
             for (ItemsVO vo : getItemIDTableNames()) {
                 sqlTables.put(vo.getItemname(), getTableName(vo.getItemid(), vo.getItemname()));
             }
+            indexLoadTime = System.currentTimeMillis() - timerStart;
+            logTime("loadTableIndex", timerStart, System.currentTimeMillis());
+            logger.debug("JDBC::checkDBSchema: loaded {} item tables in {} ms", sqlTables.size(), indexLoadTime);
         }
     }
 
+    /**
+     * Returns the table of an item, creating it if the item has not been persisted before.
+     *
+     * Concurrent first stores of the same item wait for a single creation.
+     */
     protected String getTable(Item item) {
-        int rowId = 0;
-        ItemsVO isvo;
-        ItemVO ivo;
-
         String itemName = item.getName();
         String tableName = sqlTables.get(itemName);
 
@@ -289,6 +400,85 @@ public class JdbcMapper {
             return tableName;
         }
 
+        CompletableFuture<@Nullable String> creation = new CompletableFuture<>();
+        CompletableFuture<@Nullable String> running = tableCreations.putIfAbsent(itemName, creation);
+        if (running != null) {
+            logger.debug("JDBC::getTable: waiting for the table of item '{}' to be created", itemName);
+            try {
+                return running.join();
+            } catch (CompletionException | CancellationException e) {
+                logger.error("JDBC::getTable: Creating table for item '{}' failed: {}", itemName, e.getMessage());
+                return null;
+            }
+        }
+        try {
+            tableName = sqlTables.get(itemName);
+            if (tableName == null && invalidatedItems.contains(itemName)) {
+                tableName = findTable(itemName);
+            }
+            if (tableName == null) {
+                tableName = createTable(item);
+            }
+            creation.complete(tableName);
+            return tableName;
+        } catch (RuntimeException e) {
+            creation.completeExceptionally(e);
+            throw e;
+        } finally {
+            tableCreations.remove(itemName, creation);
+        }
+    }
+
+    /**
+     * Returns the table of an item that may have been persisted before, without creating it.
+     *
+     * The index holds all tables, so a miss only needs a database lookup if the item has been invalidated.
+     */
+    protected @Nullable String getTableIfExists(String itemName) {
+        String tableName = sqlTables.get(itemName);
+        if (tableName != null || !invalidatedItems.contains(itemName)) {
+            return tableName;
+        }
+        return findTable(itemName);
+    }
+
+    /**
+     * Removes an item from the index, e.g. when it has been removed from the item registry. The table is kept and
+     * will be looked up again if the item is persisted or queried later.
+     */
+    public void invalidateTable(String itemName) {
+        if (sqlTables.remove(itemName) != null) {
+            invalidatedItems.add(itemName);
+            logger.debug("JDBC::invalidateTable: removed item '{}' from the table index", itemName);
+        }
+    }
+
+    public long getIndexLoadTime() {
+        return indexLoadTime;
+    }
+
+    // looks up an item that has been invalidated, the result is known afterwards, whether the table exists or not
+    private @Nullable String findTable(String itemName) {
+        ItemsVO vo = getItemIDTableName(itemName);
+        if (vo == null) {
+            invalidatedItems.remove(itemName);
+            return null;
+        }
+        String tableName = getTableName(vo.getItemid(), vo.getItemname());
+        sqlTables.put(itemName, tableName);
+        invalidatedItems.remove(itemName);
+        logger.debug("JDBC::findTable: found table '{}' for item '{}'", tableName, itemName);
+        return tableName;
+    }
+
+    private @Nullable String createTable(Item item) {
+        int rowId = 0;
+        ItemsVO isvo;
+        ItemVO ivo;
+
+        String itemName = item.getName();
+        String tableName;
+
         logger.debug("JDBC::getTable: no table found for item '{}' in sqlTables", itemName);
 
         // Create a new entry in items table
@@ -317,6 +507,7 @@ public class JdbcMapper {
         logger.debug("JDBC::getTable: Table created for item '{}' with dataType {} in SQL database.", itemName,
                 dataType);
         sqlTables.put(itemName, tableName);
+        invalidatedItems.remove(itemName);
 
         // Check if the new entry is in the table list
         // If it's not in the list, then there was an error and we need to do
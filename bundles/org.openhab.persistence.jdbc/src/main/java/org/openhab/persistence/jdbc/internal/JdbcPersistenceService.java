@@ -12,15 +12,18 @@
  */
 package org.openhab.persistence.jdbc.internal;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.registry.RegistryChangeListener;
 import org.openhab.core.config.core.ConfigurableService;
 import org.openhab.core.i18n.TimeZoneProvider;
 import org.openhab.core.items.GroupItem;
@@ -66,6 +69,22 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
 
     private final ItemRegistry itemRegistry;
 
+    // drops removed items from the table index
+    private final RegistryChangeListener<Item> itemRegistryListener = new RegistryChangeListener<>() {
+        @Override
+        public void added(Item element) {
+        }
+
+        @Override
+        public void removed(Item element) {
+            invalidateTable(element.getName());
+        }
+
+        @Override
+        public void updated(Item oldElement, Item element) {
+        }
+    };
+
     @Activate
     public JdbcPersistenceService(final @Reference ItemRegistry itemRegistry,
             final @Reference TimeZoneProvider timeZoneProvider) {
@@ -87,6 +106,7 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
     public void activate(BundleContext bundleContext, Map<Object, Object> configuration) {
         logger.debug("JDBC::activate: persistence service activated");
         updateConfig(configuration);
+        itemRegistry.addRegistryChangeListener(itemRegistryListener);
     }
 
     /**
@@ -110,6 +130,8 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
     public void deactivate(final int reason) {
         logger.debug("JDBC::deactivate:  persistence bundle stopping. Disconnecting from database. reason={}", reason);
         // closeConnection();
+        itemRegistry.removeRegistryChangeListener(itemRegistryListener);
+        stopBatchWriter();
         initialized = false;
     }
 
@@ -182,31 +204,13 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
 
         // Get the item name from the filter
         // Also get the Item object so we can determine the type
-        Item item = null;
         String itemName = filter.getItemName();
-        logger.debug("JDBC::query: item is {}", itemName);
-        try {
-            item = itemRegistry.getItem(itemName);
-        } catch (ItemNotFoundException e1) {
-            logger.error("JDBC::query: unable to get item for itemName: '{}'. Ignore and give up!", itemName);
+        Item item = getQueryItem(itemName);
+        if (item == null) {
             return List.of();
         }
 
-        if (item instanceof GroupItem) {
-            // For Group Item is BaseItem needed to get correct Type of Value.
-            item = GroupItem.class.cast(item).getBaseItem();
-            logger.debug("JDBC::query: item is instanceof GroupItem '{}'", itemName);
-            if (item == null) {
-                logger.debug("JDBC::query: BaseItem of GroupItem is null. Ignore and give up!");
-                return List.of();
-            }
-            if (item instanceof GroupItem) {
-                logger.debug("JDBC::query: BaseItem of GroupItem is a GroupItem too. Ignore and give up!");
-                return List.of();
-            }
-        }
-
-        String table = sqlTables.get(itemName);
+        String table = getTableIfExists(itemName);
         if (table == null) {
             logger.debug("JDBC::query: unable to find table for item with name: '{}', no data in database.", itemName);
             return List.of();
@@ -224,12 +228,71 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
         return items;
     }
 
+    /**
+     * Queries the database and streams the result to the consumer, without holding all rows in memory.
+     *
+     * Numeric values are averaged in the database over buckets of the given resolution, if the database supports it.
+     * Paging of the filter is ignored when values are averaged. Unlike {@link #query(FilterCriteria)}, which always
+     * returns the stored values, this is meant for callers that only display the values, e.g. charts.
+     *
+     * @param filter the filter to apply to the query
+     * @param resolution the bucket size, {@link Duration#ZERO} to get all rows
+     * @param consumer receives the historic items in the order of the filter
+     * @return <code>false</code> if the query failed
+     */
+    public boolean query(FilterCriteria filter, Duration resolution, Consumer<HistoricItem> consumer) {
+        if (!checkDBAccessability()) {
+            logger.warn("JDBC::query: database not connected, query aborted for item '{}'", filter.getItemName());
+            return false;
+        }
+        String itemName = filter.getItemName();
+        Item item = getQueryItem(itemName);
+        if (item == null) {
+            return false;
+        }
+        String table = getTableIfExists(itemName);
+        if (table == null) {
+            logger.debug("JDBC::query: unable to find table for item with name: '{}', no data in database.", itemName);
+            return true;
+        }
+        return streamHistItemFilterQuery(filter, conf.getNumberDecimalcount(), table, item, resolution.getSeconds(),
+                consumer);
+    }
+
+    private @Nullable Item getQueryItem(@Nullable String itemName) {
+        Item item = null;
+        logger.debug("JDBC::query: item is {}", itemName);
+        try {
+            item = itemRegistry.getItem(itemName);
+        } catch (ItemNotFoundException e1) {
+            logger.error("JDBC::query: unable to get item for itemName: '{}'. Ignore and give up!", itemName);
+            return null;
+        }
+
+        if (item instanceof GroupItem) {
+            // For Group Item is BaseItem needed to get correct Type of Value.
+            item = GroupItem.class.cast(item).getBaseItem();
+            logger.debug("JDBC::query: item is instanceof GroupItem '{}'", itemName);
+            if (item == null) {
+                logger.debug("JDBC::query: BaseItem of GroupItem is null. Ignore and give up!");
+                return null;
+            }
+            if (item instanceof GroupItem) {
+                logger.debug("JDBC::query: BaseItem of GroupItem is a GroupItem too. Ignore and give up!");
+                return null;
+            }
+        }
+        return item;
+    }
+
     public void updateConfig(Map<Object, Object> configuration) {
         logger.debug("JDBC::updateConfig");
 
+        stopBatchWriter();
         conf = new JdbcConfiguration(configuration);
         if (conf.valid && checkDBAccessability()) {
             checkDBSchema();
+            startBatchWriter();
             // connection has been established ... initialization completed!
             initialized = true;
         } else {
@@ -259,7 +322,7 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
             throw new IllegalArgumentException("Item name must not be null");
         }
 
-        String table = sqlTables.get(itemName);
+        String table = getTableIfExists(itemName);
         if (table == null) {
             logger.debug("JDBC::remove: unable to find table for item with name: '{}', no data in database.", itemName);
             return false;
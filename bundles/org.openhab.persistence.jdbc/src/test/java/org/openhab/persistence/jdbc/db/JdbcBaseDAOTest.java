@@ -13,13 +13,25 @@
 package org.openhab.persistence.jdbc.db;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+
+import javax.sql.DataSource;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.junit.jupiter.api.BeforeEach;
@@ -53,6 +65,8 @@ import org.openhab.core.library.unit.SIUnits;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.types.State;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO.WriteSession;
+import org.openhab.persistence.jdbc.dto.ItemVO;
 
 /**
  * Tests the {@link JdbcBaseDAO}.
@@ -167,6 +181,43 @@ public class JdbcBaseDAOTest {
         assertThat(sql, is("SELECT time, value FROM " + DB_TABLE_NAME + " ORDER BY time DESC LIMIT 0,1"));
     }
 
+    @Test
+    public void testHistItemFilterDownsampleQueryProviderReturnsGroupedQueryDescendingOrder() {
+        String sql = jdbcBaseDAO.histItemFilterDownsampleQueryProvider(filter, 3, DB_TABLE_NAME, "NUMBERITEM",
+                UTC_ZONE_ID, 60);
+        assertThat(sql, is("SELECT MIN(time), ROUND(AVG(value),3) FROM " + DB_TABLE_NAME
+                + " GROUP BY FLOOR(UNIX_TIMESTAMP(time) / 60) ORDER BY 1 DESC"));
+    }
+
+    @Test
+    public void testHistItemFilterDownsampleQueryProviderWithStartAndEndDateReturnsGroupedQueryWithWhereClause() {
+        filter.setBeginDate(parseDateTimeString("2022-01-10T15:01:44"));
+        filter.setEndDate(parseDateTimeString("2022-01-15T15:01:44"));
+        filter.setOrdering(Ordering.ASCENDING);
+
+        String sql = jdbcBaseDAO.histItemFilterDownsampleQueryProvider(filter, 3, DB_TABLE_NAME, "DIMMERITEM",
+                UTC_ZONE_ID, 600);
+        assertThat(sql, is("SELECT MIN(time), AVG(value) FROM " + DB_TABLE_NAME + " WHERE TIME>'" //
+                + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getBeginDate()) + "'" //
+                + " AND TIME<'" + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getEndDate()) + "'" //
+                + " GROUP BY FLOOR(UNIX_TIMESTAMP(time) / 600) ORDER BY 1 ASC"));
+    }
+
+    @Test
+    public void testHistItemFilterDownsampleQueryProviderUsesTimeBucketForTimescaledb() {
+        String sql = new JdbcTimescaledbDAO().histItemFilterDownsampleQueryProvider(filter, 3, DB_TABLE_NAME,
+                "NUMBERITEM", UTC_ZONE_ID, 60);
+        assertThat(sql, is("SELECT time_bucket(INTERVAL '60 seconds', time), ROUND(CAST (AVG(value) AS numeric),3)"
+                + " FROM " + DB_TABLE_NAME + " GROUP BY time_bucket(INTERVAL '60 seconds', time) ORDER BY 1 DESC"));
+    }
+
+    @Test
+    public void testHistItemFilterDownsampleQueryProviderReturnsNullIfNotSupported() {
+        String sql = new JdbcDerbyDAO().histItemFilterDownsampleQueryProvider(filter, 3, DB_TABLE_NAME, "NUMBERITEM",
+                UTC_ZONE_ID, 60);
+        assertThat(sql, is(nullValue()));
+    }
+
     @Test
     public void testHistItemFilterDeleteProviderReturnsDeleteQueryWithoutWhereClause() {
         String sql = jdbcBaseDAO.histItemFilterDeleteProvider(filter, DB_TABLE_NAME, UTC_ZONE_ID);
@@ -216,6 +267,103 @@ public class JdbcBaseDAOTest {
                 + " AND TIME<'" + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getEndDate()) + "'"));
     }
 
+    @Test
+    public void testGetInsertItemValueSqlReturnsInsertWithTimePlaceholder() {
+        String sql = jdbcBaseDAO.getInsertItemValueSql(DB_TABLE_NAME, "DOUBLE");
+        assertThat(sql, is("INSERT INTO " + DB_TABLE_NAME
+                + " (TIME, VALUE) VALUES( ?, ? ) ON DUPLICATE KEY UPDATE VALUE= ?"));
+        assertThat(jdbcBaseDAO.insertItemValueParams(new java.sql.Timestamp(0), 7.3).length, is(3));
+    }
+
+    @Test
+    public void testGetInsertItemValueSqlIsCachedPerTable() {
+        String sql = jdbcBaseDAO.getInsertItemValueSql(DB_TABLE_NAME, "DOUBLE");
+        assertThat(jdbcBaseDAO.getInsertItemValueSql(DB_TABLE_NAME, "DOUBLE"), is(sameInstance(sql)));
+        assertThat(jdbcBaseDAO.getInsertItemValueSql("othertable", "DOUBLE").contains("othertable"), is(true));
+    }
+
+    @Test
+    public void testGetInsertItemValueSqlReplacesDbTypeForDialects() {
+        JdbcPostgresqlDAO postgresqlDAO = new JdbcPostgresqlDAO();
+        assertThat(postgresqlDAO.getInsertItemValueSql(DB_TABLE_NAME, "DOUBLE PRECISION"), is("INSERT INTO "
+                + DB_TABLE_NAME + " (TIME, VALUE) VALUES( ?, CAST( ? as DOUBLE PRECISION) )"));
+        assertThat(postgresqlDAO.insertItemValueParams(new java.sql.Timestamp(0), 7.3).length, is(2));
+
+        JdbcDerbyDAO derbyDAO = new JdbcDerbyDAO();
+        assertThat(derbyDAO.getInsertItemValueSql(DB_TABLE_NAME, "DOUBLE"),
+                is("INSERT INTO " + DB_TABLE_NAME.toUpperCase() + " (TIME, VALUE) VALUES( ?, CAST( ? as DOUBLE) )"));
+    }
+
+    @Test
+    public void testWriteSessionPreparesTheInsertStatementOnce() throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        try (WriteSession session = new WriteSession(dataSource)) {
+            assertThat(jdbcBaseDAO.doStoreItemValues(session, List.of(itemVO(1), itemVO(2))), is(true));
+            assertThat(jdbcBaseDAO.doStoreItemValues(session, List.of(itemVO(3))), is(true));
+        }
+
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(statement, times(3)).addBatch();
+        verify(statement, times(2)).executeBatch();
+        verify(statement).close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testWriteSessionPreparesTheInsertStatementAgainAfterAFailure() throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeBatch()).thenThrow(new SQLException("duplicate key")).thenReturn(new int[] { 1 });
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        try (WriteSession session = new WriteSession(dataSource)) {
+            assertThat(jdbcBaseDAO.doStoreItemValues(session, List.of(itemVO(1))), is(false));
+            assertThat(jdbcBaseDAO.doStoreItemValues(session, List.of(itemVO(1))), is(true));
+        }
+
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(2)).prepareStatement(anyString());
+        verify(connection).close();
+    }
+
+    @Test
+    public void testWriteSessionTakesANewConnectionAfterTheConnectionIsLost() throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeBatch()).thenThrow(new SQLException("connection reset")).thenReturn(new int[] { 1 });
+        Connection lostConnection = mock(Connection.class);
+        when(lostConnection.prepareStatement(anyString())).thenReturn(statement);
+        when(lostConnection.isValid(anyInt())).thenReturn(false);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(lostConnection, connection);
+
+        try (WriteSession session = new WriteSession(dataSource)) {
+            assertThat(jdbcBaseDAO.doStoreItemValues(session, List.of(itemVO(1))), is(false));
+            assertThat(jdbcBaseDAO.doStoreItemValues(session, List.of(itemVO(1))), is(true));
+        }
+
+        verify(lostConnection).close();
+        verify(connection).close();
+    }
+
+    private static ItemVO itemVO(long time) {
+        ItemVO vo = new ItemVO(DB_TABLE_NAME, null);
+        vo.setDbType("DOUBLE");
+        vo.setValue(7.3);
+        vo.setTime(new Date(time));
+        return vo;
+    }
+
     private ZonedDateTime parseDateTimeString(String dts) {
         return ZonedDateTime.of(LocalDateTime.parse(dts, DATE_PARSER), UTC_ZONE_ID);
     }
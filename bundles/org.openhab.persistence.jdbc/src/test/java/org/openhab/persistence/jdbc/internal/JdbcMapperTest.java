@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.i18n.TimeZoneProvider;
+import org.openhab.core.items.Item;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
+import org.openhab.persistence.jdbc.dto.ItemsVO;
+
+/**
+ * Tests the item table index of the {@link JdbcMapper}.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class JdbcMapperTest {
+
+    private final JdbcBaseDAO dao = mock(JdbcBaseDAO.class);
+    private final JdbcMapper mapper = new JdbcMapper(mock(TimeZoneProvider.class));
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @BeforeEach
+    public void setup() {
+        JdbcConfiguration conf = mock(JdbcConfiguration.class);
+        when(conf.getDBDAO()).thenReturn(dao);
+        when(conf.getTableNamePrefix()).thenReturn("item");
+        when(conf.getTableIdDigitCount()).thenReturn(4);
+        mapper.conf = conf;
+        when(dao.doGetItemIDTableNames(any())).thenReturn(List.of(itemsVO("Temperature", 1), itemsVO("Humidity", 2)));
+        mapper.checkDBSchema();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void indexedItemsAreNotLookedUp() {
+        assertEquals("item0001", mapper.getTableIfExists("Temperature"));
+        assertEquals("item0002", mapper.getTable(item("Humidity")));
+        verify(dao, never()).doGetItemIDTableName(any());
+    }
+
+    @Test
+    public void missingItemIsNotLookedUp() {
+        assertNull(mapper.getTableIfExists("Unknown"));
+        assertNull(mapper.getTableIfExists("Unknown"));
+        verify(dao, never()).doGetItemIDTableName(any());
+    }
+
+    @Test
+    public void invalidatedItemIsLookedUpOnce() {
+        when(dao.doGetItemIDTableName(any())).thenReturn(List.of(itemsVO("Temperature", 1)));
+        mapper.invalidateTable("Temperature");
+
+        assertEquals("item0001", mapper.getTableIfExists("Temperature"));
+        assertEquals("item0001", mapper.getTableIfExists("Temperature"));
+        verify(dao, times(1)).doGetItemIDTableName(any());
+    }
+
+    @Test
+    public void invalidatedItemWithoutTableIsLookedUpOnce() {
+        when(dao.doGetItemIDTableName(any())).thenReturn(List.of());
+        mapper.invalidateTable("Temperature");
+
+        assertNull(mapper.getTableIfExists("Temperature"));
+        assertNull(mapper.getTableIfExists("Temperature"));
+        verify(dao, times(1)).doGetItemIDTableName(any());
+    }
+
+    @Test
+    public void invalidatedItemKeepsItsTableWhenStoredAgain() {
+        when(dao.doGetItemIDTableName(any())).thenReturn(List.of(itemsVO("Temperature", 1)));
+        mapper.invalidateTable("Temperature");
+
+        assertEquals("item0001", mapper.getTable(item("Temperature")));
+        verify(dao, never()).doCreateNewEntryInItemsTable(any());
+    }
+
+    @Test
+    public void concurrentFirstStoresCreateOneTable() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(dao.getDataType(any())).thenReturn("DOUBLE");
+        when(dao.doCreateNewEntryInItemsTable(any())).thenAnswer(invocation -> {
+            creating.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 3L;
+        });
+
+        Item item = item("Pressure");
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> mapper.getTable(item)));
+        }
+        assertTrue(creating.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("item0003", result.get(5, TimeUnit.SECONDS));
+        }
+        verify(dao, times(1)).doCreateNewEntryInItemsTable(any());
+        verify(dao, times(1)).doCreateItemTable(any());
+        assertEquals("item0003", mapper.getTableIfExists("Pressure"));
+    }
+
+    @Test
+    public void failedCreationIsNotCached() {
+        when(dao.getDataType(any())).thenReturn("DOUBLE");
+        when(dao.doCreateNewEntryInItemsTable(any())).thenThrow(new IllegalStateException("connection lost"))
+                .thenReturn(3L);
+
+        Item item = item("Pressure");
+        assertThrows(IllegalStateException.class, () -> mapper.getTable(item));
+        assertEquals("item0003", mapper.getTable(item));
+    }
+
+    private static Item item(String name) {
+        Item item = mock(Item.class);
+        when(item.getName()).thenReturn(name);
+        return item;
+    }
+
+    private static ItemsVO itemsVO(String itemName, int itemId) {
+        ItemsVO vo = new ItemsVO();
+        vo.setItemname(itemName);
+        vo.setItemid(itemId);
+        return vo;
+    }
+}
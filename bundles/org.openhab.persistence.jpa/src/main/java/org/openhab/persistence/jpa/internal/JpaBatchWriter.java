@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jpa.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
+import org.openhab.persistence.jpa.internal.model.JpaPersistentItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link JpaBatchWriter} collects persistent items and writes them behind, in one transaction per flush window.
+ *
+ * The items are written when the flush interval has elapsed or as soon as the number of queued items reaches the
+ * batch size. Within a transaction the persistence context is flushed and cleared every batch size items, so that the
+ * provider can send the inserts as JDBC batches and the context doesn't grow. The writer keeps one
+ * {@link EntityManager} for all flushes, which is only used by one thread at a time.
+ *
+ * If a transaction fails, its items are written again one by one, so that a single bad item doesn't discard the
+ * whole window.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class JpaBatchWriter {
+    private final Logger logger = LoggerFactory.getLogger(JpaBatchWriter.class);
+
+    private final EntityManagerFactory emf;
+    private final int batchSize;
+
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("jpa-writer"));
+    private @Nullable ScheduledFuture<?> flushJob;
+
+    private final BlockingQueue<JpaPersistentItem> queue;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // only used while holding the lock of this writer
+    private @Nullable EntityManager em;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong transactions = new AtomicLong();
+    private volatile long lastFlushTime;
+    private volatile long maxFlushTime;
+
+    /**
+     * @param emf the factory of the entity manager
+     * @param batchSize the number of items after which the persistence context is flushed
+     * @param flushInterval the interval in milliseconds in which the queued items are written
+     * @param capacity the maximum number of queued items
+     */
+    public JpaBatchWriter(EntityManagerFactory emf, int batchSize, int flushInterval, int capacity) {
+        this.emf = emf;
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new LinkedBlockingQueue<>(Math.max(this.batchSize, capacity));
+        int interval = Math.max(10, flushInterval);
+        flushJob = scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        logger.debug("JPA batch writer: batchSize={} flushInterval={} ms capacity={}", this.batchSize, interval,
+                queue.remainingCapacity());
+    }
+
+    /**
+     * Add an item to the write queue
+     *
+     * @param item the item to persist
+     * @return <code>true</code> if the item was queued, <code>false</code> if the queue is full or the writer has been
+     *         stopped
+     */
+    public boolean offer(JpaPersistentItem item) {
+        if (scheduler.isShutdown() || !queue.offer(item)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        queued.incrementAndGet();
+        if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flush);
+        }
+        return true;
+    }
+
+    /**
+     * Write all queued items
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        List<JpaPersistentItem> items = new ArrayList<>();
+        queue.drainTo(items);
+        if (items.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        if (persist(items)) {
+            written.addAndGet(items.size());
+        } else {
+            logger.debug("JPA batch writer: transaction of {} items failed, writing them one by one", items.size());
+            for (JpaPersistentItem item : items) {
+                // the generated id of the failed transaction must not be reused
+                item.setId(null);
+                if (persist(List.of(item))) {
+                    written.incrementAndGet();
+                } else {
+                    logger.warn("JPA batch writer: failed to persist item '{}'", item.getName());
+                    failed.incrementAndGet();
+                }
+            }
+        }
+        long flushTime = System.currentTimeMillis() - start;
+        lastFlushTime = flushTime;
+        maxFlushTime = Math.max(maxFlushTime, flushTime);
+        logger.debug("JPA batch writer: flushed {} items in {} ms, queue depth {}", items.size(), flushTime,
+                queue.size());
+    }
+
+    /**
+     * Stop the writer and write all queued items
+     */
+    public void shutdown() {
+        ScheduledFuture<?> flushJob = this.flushJob;
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            this.flushJob = null;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("JPA batch writer: timeout waiting for the writer to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (this) {
+            closeEntityManager();
+        }
+        logger.debug("JPA batch writer stopped: {}", this);
+    }
+
+    // must be called while holding the lock of this writer
+    private boolean persist(List<JpaPersistentItem> items) {
+        EntityManager em = this.em;
+        if (em == null || !em.isOpen()) {
+            em = emf.createEntityManager();
+            this.em = em;
+        }
+        EntityTransaction transaction = em.getTransaction();
+        try {
+            transaction.begin();
+            int count = 0;
+            for (JpaPersistentItem item : items) {
+                em.persist(item);
+                if (++count % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            transaction.commit();
+            transactions.incrementAndGet();
+            em.clear();
+            return true;
+        } catch (RuntimeException e) {
+            logger.debug("JPA batch writer: transaction failed: {}", e.getMessage());
+            try {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+            } catch (RuntimeException rollbackException) {
+                logger.debug("JPA batch writer: rollback failed: {}", rollbackException.getMessage());
+            }
+            // the state of the persistence context is undefined after a failed transaction
+            closeEntityManager();
+            return false;
+        }
+    }
+
+    // must be called while holding the lock of this writer
+    private void closeEntityManager() {
+        EntityManager em = this.em;
+        if (em != null) {
+            try {
+                em.close();
+            } catch (RuntimeException e) {
+                logger.debug("JPA batch writer: failed to close the entity manager: {}", e.getMessage());
+            }
+            this.em = null;
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getTransactions() {
+        return transactions.get();
+    }
+
+    public long getLastFlushTime() {
+        return lastFlushTime;
+    }
+
+    public long getMaxFlushTime() {
+        return maxFlushTime;
+    }
+
+    @Override
+    public String toString() {
+        return "JpaBatchWriter [queueDepth=" + queue.size() + ", queued=" + queued + ", written=" + written
+                + ", transactions=" + transactions + ", failed=" + failed + ", rejected=" + rejected
+                + ", lastFlushTime=" + lastFlushTime + " ms, maxFlushTime=" + maxFlushTime + " ms]";
+    }
+}
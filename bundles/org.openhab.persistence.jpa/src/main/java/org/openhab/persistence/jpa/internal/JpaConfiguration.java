@@ -32,6 +32,10 @@ public class JpaConfiguration {
     private static final String CFG_USERNAME = "user";
     private static final String CFG_PASSWORD = "password";
     private static final String CFG_SYNCMAPPING = "syncmappings";
+    private static final String CFG_BATCH_SIZE = "batchSize";
+    private static final String CFG_FLUSH_INTERVAL = "flushInterval";
+
+    private static final int DEFAULT_FLUSH_INTERVAL = 1000;
 
     public static boolean isInitialized = false;
 
@@ -40,6 +44,8 @@ public class JpaConfiguration {
     public final String dbUserName;
     public final String dbPassword;
     public final String dbSyncMapping;
+    public final int batchSize;
+    public final int flushInterval;
 
     public JpaConfiguration(final Map<String, Object> properties) {
         logger.debug("Update config...");
@@ -77,7 +83,25 @@ public class JpaConfiguration {
         }
         dbSyncMapping = (String) properties.get(CFG_SYNCMAPPING);
 
+        batchSize = getIntValue(properties, CFG_BATCH_SIZE, 0);
+        logger.debug("batchSize: {}", batchSize);
+        flushInterval = getIntValue(properties, CFG_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL);
+        logger.debug("flushInterval: {}", flushInterval);
+
         isInitialized = true;
         logger.debug("Update config... done");
     }
+
+    private int getIntValue(Map<String, Object> properties, String key, int defaultValue) {
+        Object value = properties.get(key);
+        if (value == null || value.toString().isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value '{}' for {} in jpa.cfg, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
 }
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jpa.internal;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.persistence.jpa.internal.model.JpaPersistentItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link JpaPagedQuery} reads the result of a history query in pages, each with its own {@link EntityManager}.
+ *
+ * The rows are ordered by timestamp and id, and each page continues after the last row of the previous one (keyset
+ * paging), so that a page is read without skipping the rows before it and rows with the same timestamp are neither
+ * skipped nor returned twice. The first page is read when the query is created, the following ones while the result
+ * is iterated, so only one page of entities is held in memory.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+class JpaPagedQuery implements Iterable<HistoricItem> {
+    private final Logger logger = LoggerFactory.getLogger(JpaPagedQuery.class);
+
+    private static final String FETCH_BATCH_SIZE_HINT = "openjpa.FetchPlan.FetchBatchSize";
+
+    private final EntityManagerFactory emf;
+    private final Item item;
+    private final int pageSize;
+    private final String queryString;
+    private final String nextPageQueryString;
+    private final @Nullable Date beginDate;
+    private final @Nullable Date endDate;
+    // the number of rows of the filter page
+    private final int limit;
+    private final List<JpaPersistentItem> firstPage;
+
+    /**
+     * Creates the query and reads its first page
+     *
+     * @param emf the factory of the entity managers
+     * @param item the queried item
+     * @param filter the filter, only the rows of its page are returned
+     * @param pageSize the number of rows read per round trip
+     * @throws RuntimeException if the first page cannot be read
+     */
+    JpaPagedQuery(EntityManagerFactory emf, Item item, FilterCriteria filter, int pageSize) {
+        this.emf = emf;
+        this.item = item;
+        this.pageSize = Math.max(1, pageSize);
+
+        String sortOrder = filter.getOrdering() == Ordering.ASCENDING ? "ASC" : "DESC";
+        String comparison = filter.getOrdering() == Ordering.ASCENDING ? ">" : "<";
+        String queryString = "SELECT n FROM " + JpaPersistentItem.class.getSimpleName()
+                + " n WHERE n.realName = :itemName";
+        ZonedDateTime beginDate = filter.getBeginDate();
+        if (beginDate != null) {
+            queryString += " AND n.timestamp >= :beginDate";
+        }
+        ZonedDateTime endDate = filter.getEndDate();
+        if (endDate != null) {
+            queryString += " AND n.timestamp <= :endDate";
+        }
+        String orderBy = " ORDER BY n.timestamp " + sortOrder + ", n.id " + sortOrder;
+        this.queryString = queryString + orderBy;
+        this.nextPageQueryString = queryString + " AND (n.timestamp " + comparison
+                + " :lastTimestamp OR (n.timestamp = :lastTimestamp AND n.id " + comparison + " :lastId))" + orderBy;
+        this.beginDate = beginDate == null ? null : Date.from(beginDate.toInstant());
+        this.endDate = endDate == null ? null : Date.from(endDate.toInstant());
+        logger.debug("The query: {}", this.queryString);
+
+        long offset = (long) filter.getPageNumber() * filter.getPageSize();
+        if (offset > Integer.MAX_VALUE || filter.getPageSize() <= 0) {
+            limit = 0;
+            firstPage = List.of();
+        } else {
+            limit = filter.getPageSize();
+            firstPage = fetch(null, (int) offset, Math.min(this.pageSize, limit));
+        }
+    }
+
+    @Override
+    public Iterator<HistoricItem> iterator() {
+        return new PageIterator();
+    }
+
+    private List<JpaPersistentItem> fetch(@Nullable JpaPersistentItem last, int firstResult, int maxResults) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            // reads don't need a transaction
+            TypedQuery<JpaPersistentItem> query = em.createQuery(last == null ? queryString : nextPageQueryString,
+                    JpaPersistentItem.class);
+            query.setParameter("itemName", item.getName());
+            Date beginDate = this.beginDate;
+            if (beginDate != null) {
+                query.setParameter("beginDate", beginDate);
+            }
+            Date endDate = this.endDate;
+            if (endDate != null) {
+                query.setParameter("endDate", endDate);
+            }
+            if (last != null) {
+                query.setParameter("lastTimestamp", Date.from(last.getTimestamp().toInstant()));
+                query.setParameter("lastId", last.getId());
+            }
+            query.setFirstResult(firstResult);
+            query.setMaxResults(maxResults);
+            query.setHint(FETCH_BATCH_SIZE_HINT, maxResults);
+            // the entities must be loaded before the entity manager is closed
+            List<JpaPersistentItem> page = new ArrayList<>(query.getResultList());
+            logger.debug("Read page of {} rows for item '{}'", page.size(), item.getName());
+            return page;
+        } finally {
+            em.close();
+        }
+    }
+
+    private class PageIterator implements Iterator<HistoricItem> {
+        private List<JpaPersistentItem> page = firstPage;
+        private int requested = Math.min(pageSize, limit);
+        private int index;
+        private int returned;
+
+        @Override
+        public boolean hasNext() {
+            if (index < page.size()) {
+                return true;
+            }
+            // a short page is the last one
+            if (page.size() < requested || returned >= limit) {
+                return false;
+            }
+            requested = Math.min(pageSize, limit - returned);
+            try {
+                page = fetch(page.get(page.size() - 1), 0, requested);
+            } catch (RuntimeException e) {
+                logger.error("Error on querying database!", e);
+                page = List.of();
+            }
+            index = 0;
+            return !page.isEmpty();
+        }
+
+        @Override
+        public HistoricItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            returned++;
+            return JpaHistoricItem.fromPersistedItem(page.get(index++), item);
+        }
+    }
+}
@@ -23,7 +23,6 @@ import java.util.Set;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
-import javax.persistence.Query;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -31,7 +30,6 @@ import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.persistence.FilterCriteria;
-import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceItemInfo;
 import org.openhab.core.persistence.PersistenceService;
@@ -59,12 +57,18 @@ import org.slf4j.LoggerFactory;
 public class JpaPersistenceService implements QueryablePersistenceService {
     private final Logger logger = LoggerFactory.getLogger(JpaPersistenceService.class);
 
+    // number of rows fetched per query round trip
+    private static final int QUERY_PAGE_SIZE = 1000;
+    private static final int BATCH_QUEUE_CAPACITY = 10000;
+
     private final ItemRegistry itemRegistry;
 
     private @Nullable EntityManagerFactory emf = null;
 
     private @NonNullByDefault({}) JpaConfiguration config;
 
+    private @Nullable JpaBatchWriter batchWriter;
+
     @Activate
     public JpaPersistenceService(final @Reference ItemRegistry itemRegistry) {
         this.itemRegistry = itemRegistry;
@@ -94,9 +98,33 @@ public class JpaPersistenceService implements QueryablePersistenceService {
     @Deactivate
     public void deactivate() {
         logger.debug("Deactivating jpa persistence service");
+        JpaBatchWriter batchWriter;
+        synchronized (this) {
+            batchWriter = this.batchWriter;
+            this.batchWriter = null;
+        }
+        if (batchWriter != null) {
+            // write the queued items while the EntityManagerFactory is still open
+            batchWriter.shutdown();
+        }
         closeEntityManagerFactory();
     }
 
+    /**
+     * lazy loading like the EntityManagerFactory
+     *
+     * @return the writer if write-behind is configured, <code>null</code> otherwise
+     */
+    protected synchronized @Nullable JpaBatchWriter getBatchWriter() {
+        if (batchWriter == null && config.batchSize > 0) {
+            EntityManagerFactory emf = getEntityManagerFactory();
+            if (emf != null) {
+                batchWriter = new JpaBatchWriter(emf, config.batchSize, config.flushInterval, BATCH_QUEUE_CAPACITY);
+            }
+        }
+        return batchWriter;
+    }
+
     @Override
     public String getId() {
         return "jpa";
@@ -142,6 +170,13 @@ public class JpaPersistenceService implements QueryablePersistenceService {
         pItem.setRealName(item.getName());
         pItem.setTimestamp(new Date());
 
+        JpaBatchWriter batchWriter = getBatchWriter();
+        if (batchWriter != null && batchWriter.offer(pItem)) {
+            logger.debug("Queued item for write-behind");
+            return;
+        }
+
+        // no write-behind or its queue is full
         EntityManager em = getEntityManagerFactory().createEntityManager();
         try {
             logger.debug("Persisting item...");
@@ -176,65 +211,28 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 
         String itemName = filter.getItemName();
         Item item = getItemFromRegistry(itemName);
-
-        String sortOrder;
-        if (filter.getOrdering() == Ordering.ASCENDING) {
-            sortOrder = "ASC";
-        } else {
-            sortOrder = "DESC";
+        if (item == null) {
+            return Collections.emptyList();
         }
 
-        boolean hasBeginDate = false;
-        boolean hasEndDate = false;
-        String queryString = "SELECT n FROM " + JpaPersistentItem.class.getSimpleName()
-                + " n WHERE n.realName = :itemName";
-        if (filter.getBeginDate() != null) {
-            queryString += " AND n.timestamp >= :beginDate";
-            hasBeginDate = true;
+        // make sure the queued items are found
+        JpaBatchWriter batchWriter;
+        synchronized (this) {
+            batchWriter = this.batchWriter;
         }
-        if (filter.getEndDate() != null) {
-            queryString += " AND n.timestamp <= :endDate";
-            hasEndDate = true;
+        if (batchWriter != null) {
+            batchWriter.flush();
         }
-        queryString += " ORDER BY n.timestamp " + sortOrder;
 
-        logger.debug("The query: {}", queryString);
-
-        EntityManager em = getEntityManagerFactory().createEntityManager();
+        EntityManagerFactory emf = getEntityManagerFactory();
+        if (emf == null) {
+            return Collections.emptyList();
+        }
         try {
-            // In RESOURCE_LOCAL calls to EntityManager require a begin/commit
-            em.getTransaction().begin();
-
-            logger.debug("Creating query...");
-            Query query = em.createQuery(queryString);
-            query.setParameter("itemName", item.getName());
-            if (hasBeginDate) {
-                query.setParameter("beginDate", Date.from(filter.getBeginDate().toInstant()));
-            }
-            if (hasEndDate) {
-                query.setParameter("endDate", Date.from(filter.getEndDate().toInstant()));
-            }
-
-            query.setFirstResult(filter.getPageNumber() * filter.getPageSize());
-            query.setMaxResults(filter.getPageSize());
-            logger.debug("Creating query...done");
-
-            logger.debug("Retrieving result list...");
-            @SuppressWarnings("unchecked")
-            List<JpaPersistentItem> result = query.getResultList();
-            logger.debug("Retrieving result list...done");
-
-            List<HistoricItem> historicList = JpaHistoricItem.fromResultList(result, item);
-            logger.debug("{}", String.format("Convert to HistoricItem: %d", historicList.size()));
-
-            em.getTransaction().commit();
-
-            return historicList;
+            // only the first page is read here, the others while the result is iterated
+            return new JpaPagedQuery(emf, item, filter, QUERY_PAGE_SIZE);
         } catch (Exception e) {
             logger.error("Error on querying database!", e);
-            em.getTransaction().rollback();
-        } finally {
-            em.close();
         }
 
         return Collections.emptyList();
@@ -264,6 +262,10 @@ public class JpaPersistenceService implements QueryablePersistenceService {
             logger.warn("You are settings openjpa.jdbc.SynchronizeMappings, I hope you know what you're doing!");
             properties.put("openjpa.jdbc.SynchronizeMappings", config.dbSyncMapping);
         }
+        if (config.batchSize > 0) {
+            // let OpenJPA send the inserts of a write-behind flush as JDBC batches
+            properties.put("openjpa.jdbc.DBDictionary", "batchLimit=" + config.batchSize);
+        }
 
         EntityManagerFactory fac = Persistence.createEntityManagerFactory(getPersistenceUnitName(), properties);
         logger.debug("Creating EntityManagerFactory...done");
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jpa.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.PersistenceException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.persistence.jpa.internal.model.JpaPersistentItem;
+
+/**
+ * Tests the {@link JpaBatchWriter} against a stand-in for the entity manager.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class JpaBatchWriterTest {
+    // long enough that only the batch size or explicit flushes write
+    private static final int FLUSH_INTERVAL = 60000;
+
+    private final EntityManagerFactory emf = mock(EntityManagerFactory.class);
+    private final EntityManager em = mock(EntityManager.class);
+    private final EntityTransaction transaction = mock(EntityTransaction.class);
+    private final List<JpaBatchWriter> writers = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        when(emf.createEntityManager()).thenReturn(em);
+        when(em.getTransaction()).thenReturn(transaction);
+        when(em.isOpen()).thenReturn(true);
+        when(transaction.isActive()).thenReturn(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writers.forEach(JpaBatchWriter::shutdown);
+    }
+
+    @Test
+    public void itemsAreWrittenWhenTheBatchSizeIsReached() {
+        JpaBatchWriter writer = createWriter(3, FLUSH_INTERVAL);
+        writer.offer(item("a", 1));
+        writer.offer(item("a", 2));
+        verify(em, never()).persist(any());
+
+        writer.offer(item("a", 3));
+
+        waitFor(() -> writer.getWritten() == 3);
+        verify(em, times(3)).persist(any());
+        verify(transaction, times(1)).commit();
+        assertThat(writer.getTransactions(), is(1L));
+        assertThat(writer.getQueueDepth(), is(0));
+    }
+
+    @Test
+    public void itemsAreWrittenWhenTheFlushIntervalHasElapsed() {
+        JpaBatchWriter writer = createWriter(100, 50);
+        writer.offer(item("a", 1));
+
+        waitFor(() -> writer.getWritten() == 1);
+        verify(em).persist(any());
+        verify(transaction).commit();
+    }
+
+    @Test
+    public void failedTransactionIsRolledBackAndItsItemsAreWrittenOneByOne() {
+        JpaPersistentItem bad = item("bad", 2);
+        doThrow(new PersistenceException("value too long")).when(em).persist(bad);
+        JpaBatchWriter writer = createWriter(100, FLUSH_INTERVAL);
+        JpaPersistentItem first = item("a", 1);
+        // the id generated in the failed transaction
+        first.setId(42L);
+        writer.offer(first);
+        writer.offer(bad);
+        writer.offer(item("a", 3));
+
+        writer.flush();
+
+        // once for the whole window and once for the bad item
+        verify(transaction, times(2)).rollback();
+        verify(transaction, times(2)).commit();
+        // the entity manager is replaced after each failed transaction
+        verify(em, times(2)).close();
+        verify(emf, times(3)).createEntityManager();
+        assertThat(first.getId(), is(nullValue()));
+        assertThat(writer.getWritten(), is(2L));
+        assertThat(writer.getFailed(), is(1L));
+        assertThat(writer.getTransactions(), is(2L));
+    }
+
+    @Test
+    public void failedCommitIsRetriedOneByOne() {
+        doThrow(new PersistenceException("connection lost")).doNothing().when(transaction).commit();
+        JpaBatchWriter writer = createWriter(100, FLUSH_INTERVAL);
+        writer.offer(item("a", 1));
+        writer.offer(item("a", 2));
+
+        writer.flush();
+
+        verify(transaction).rollback();
+        verify(em, times(4)).persist(any());
+        assertThat(writer.getWritten(), is(2L));
+        assertThat(writer.getFailed(), is(0L));
+    }
+
+    @Test
+    public void queuedItemsAreWrittenOnShutdown() {
+        JpaBatchWriter writer = new JpaBatchWriter(emf, 100, FLUSH_INTERVAL, 1000);
+        writer.offer(item("a", 1));
+        writer.offer(item("a", 2));
+
+        writer.shutdown();
+
+        assertThat(writer.getWritten(), is(2L));
+        assertThat(writer.offer(item("a", 3)), is(false));
+        assertThat(writer.getRejected(), is(1L));
+        verify(em).close();
+    }
+
+    private JpaBatchWriter createWriter(int batchSize, int flushInterval) {
+        JpaBatchWriter writer = new JpaBatchWriter(emf, batchSize, flushInterval, 1000);
+        writers.add(writer);
+        return writer;
+    }
+
+    private static JpaPersistentItem item(String name, long time) {
+        JpaPersistentItem item = new JpaPersistentItem();
+        item.setName(name);
+        item.setRealName(name);
+        item.setValue(Long.toString(time));
+        item.setTimestamp(new Date(time));
+        return item;
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long end = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) {
+                throw new AssertionError("Condition not met within 5 s");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jpa.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.persistence.jpa.internal.model.JpaPersistentItem;
+
+/**
+ * Tests the {@link JpaPagedQuery} against an in-memory Derby database.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class JpaPagedQueryTest {
+    private static final String ITEM_NAME = "Temperature";
+    // smaller than the groups of rows with the same timestamp, so that pages end within a group
+    private static final int PAGE_SIZE = 2;
+    private static final int ROWS = 10;
+    private static final int ROWS_PER_TIMESTAMP = 3;
+
+    private static @TempDir @NonNullByDefault({}) Path tempDir;
+    private static @NonNullByDefault({}) EntityManagerFactory emf;
+
+    private final NumberItem item = new NumberItem(ITEM_NAME);
+
+    @BeforeAll
+    public static void setupDatabase() {
+        System.setProperty("derby.stream.error.file", tempDir.resolve("derby.log").toString());
+        emf = Persistence.createEntityManagerFactory("default",
+                Map.of("javax.persistence.jdbc.url", "jdbc:derby:memory:jpaPagedQueryTest;create=true", //
+                        "javax.persistence.jdbc.driver", "org.apache.derby.jdbc.EmbeddedDriver", //
+                        "javax.persistence.jdbc.user", "APP", //
+                        "javax.persistence.jdbc.password", "APP", //
+                        "openjpa.jdbc.SynchronizeMappings", "buildSchema(SchemaAction='add')"));
+    }
+
+    @AfterAll
+    public static void closeDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    public void setup() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM JpaPersistentItem n").executeUpdate();
+            for (int i = 0; i < ROWS; i++) {
+                em.persist(persistentItem(ITEM_NAME, i, timestamp(i)));
+            }
+            em.persist(persistentItem("Humidity", 100, timestamp(0)));
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    public void ascendingQueryReturnsEachRowOnce() {
+        assertThat(values(query(filter(Ordering.ASCENDING))), contains(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+    }
+
+    @Test
+    public void descendingQueryReturnsEachRowOnce() {
+        assertThat(values(query(filter(Ordering.DESCENDING))), contains(9, 8, 7, 6, 5, 4, 3, 2, 1, 0));
+    }
+
+    @Test
+    public void filterPageStartsAtItsOffset() {
+        FilterCriteria filter = filter(Ordering.ASCENDING);
+        filter.setPageNumber(1);
+        filter.setPageSize(4);
+
+        assertThat(values(query(filter)), contains(4, 5, 6, 7));
+    }
+
+    @Test
+    public void filterPageBeyondTheResultIsEmpty() {
+        FilterCriteria filter = filter(Ordering.ASCENDING);
+        filter.setPageNumber(3);
+        filter.setPageSize(4);
+
+        assertThat(values(query(filter)), is(empty()));
+    }
+
+    @Test
+    public void timeRangeIsApplied() {
+        FilterCriteria filter = filter(Ordering.ASCENDING);
+        filter.setBeginDate(ZonedDateTime.ofInstant(timestamp(3).toInstant(), ZoneId.systemDefault()));
+        filter.setEndDate(ZonedDateTime.ofInstant(timestamp(8).toInstant(), ZoneId.systemDefault()));
+
+        assertThat(values(query(filter)), contains(3, 4, 5, 6, 7, 8));
+    }
+
+    @Test
+    public void resultCanBeIteratedAgain() {
+        JpaPagedQuery query = query(filter(Ordering.DESCENDING));
+
+        assertThat(values(query), is(values(query)));
+    }
+
+    private JpaPagedQuery query(FilterCriteria filter) {
+        return new JpaPagedQuery(emf, item, filter, PAGE_SIZE);
+    }
+
+    private static FilterCriteria filter(Ordering ordering) {
+        FilterCriteria filter = new FilterCriteria();
+        filter.setItemName(ITEM_NAME);
+        filter.setOrdering(ordering);
+        return filter;
+    }
+
+    private static List<Integer> values(Iterable<HistoricItem> result) {
+        List<Integer> values = new ArrayList<>();
+        for (HistoricItem historicItem : result) {
+            values.add(((DecimalType) historicItem.getState()).intValue());
+        }
+        return values;
+    }
+
+    // rows are stored in groups with the same timestamp
+    private static Date timestamp(int row) {
+        return Date.from(Instant.ofEpochSecond(1_600_000_000L + row / ROWS_PER_TIMESTAMP));
+    }
+
+    private static JpaPersistentItem persistentItem(String name, int value, Date timestamp) {
+        JpaPersistentItem persistentItem = new JpaPersistentItem();
+        persistentItem.setName(name);
+        persistentItem.setRealName(name);
+        persistentItem.setValue(Integer.toString(value));
+        persistentItem.setTimestamp(timestamp);
+        return persistentItem;
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.TypeParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A compact binary codec for {@link MapDbItem}s.
+ *
+ * The common state types are written as their raw values, all other states as class name and full string like the
+ * {@link StateTypeAdapter} does. The item name is not part of the encoded value, it is the key of the map.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_GENERIC = 0;
+    private static final byte TYPE_DECIMAL = 1;
+    private static final byte TYPE_PERCENT = 2;
+    private static final byte TYPE_QUANTITY = 3;
+    private static final byte TYPE_ON_OFF = 4;
+    private static final byte TYPE_OPEN_CLOSED = 5;
+    private static final byte TYPE_STRING = 6;
+    private static final byte TYPE_HSB = 7;
+    private static final byte TYPE_DATE_TIME = 8;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MapDbItemCodec.class);
+
+    private MapDbItemCodec() {
+    }
+
+    /**
+     * Encode the state and timestamp of an item
+     *
+     * @param item the item to encode
+     * @return the encoded item
+     */
+    public static byte[] encode(MapDbItem item) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(item.getTimestamp().toInstant().toEpochMilli());
+            writeState(out, item.getState());
+        } catch (IOException e) {
+            // can't happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode an item
+     *
+     * @param name the name of the item
+     * @param data the encoded item
+     * @return the item or <code>null</code> if it can't be decoded
+     */
+    public static @Nullable MapDbItem decode(String name, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                LOGGER.warn("Couldn't decode '{}': unknown version {}", name, version);
+                return null;
+            }
+            Date timestamp = new Date(in.readLong());
+            State state = readState(in);
+            if (state == null) {
+                return null;
+            }
+            MapDbItem item = new MapDbItem();
+            item.setName(name);
+            item.setTimestamp(timestamp);
+            item.setState(state);
+            return item;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Couldn't decode '{}': {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeState(DataOutputStream out, State state) throws IOException {
+        // PercentType extends DecimalType and HSBType extends PercentType, so the subclasses are checked first
+        if (state instanceof HSBType) {
+            HSBType hsb = (HSBType) state;
+            out.writeByte(TYPE_HSB);
+            writeDecimal(out, hsb.getHue().toBigDecimal());
+            writeDecimal(out, hsb.getSaturation().toBigDecimal());
+            writeDecimal(out, hsb.getBrightness().toBigDecimal());
+        } else if (state instanceof PercentType) {
+            out.writeByte(TYPE_PERCENT);
+            writeDecimal(out, ((PercentType) state).toBigDecimal());
+        } else if (state instanceof DecimalType) {
+            out.writeByte(TYPE_DECIMAL);
+            writeDecimal(out, ((DecimalType) state).toBigDecimal());
+        } else if (state instanceof QuantityType) {
+            // the unit is kept in its string form, which is the only one that is guaranteed to be parseable
+            out.writeByte(TYPE_QUANTITY);
+            writeString(out, state.toFullString());
+        } else if (state instanceof OnOffType) {
+            out.writeByte(TYPE_ON_OFF);
+            out.writeBoolean(state == OnOffType.ON);
+        } else if (state instanceof OpenClosedType) {
+            out.writeByte(TYPE_OPEN_CLOSED);
+            out.writeBoolean(state == OpenClosedType.OPEN);
+        } else if (state instanceof StringType) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, state.toFullString());
+        } else if (state instanceof DateTimeType) {
+            ZonedDateTime dateTime = ((DateTimeType) state).getZonedDateTime();
+            out.writeByte(TYPE_DATE_TIME);
+            out.writeLong(dateTime.toEpochSecond());
+            out.writeInt(dateTime.getNano());
+            writeString(out, dateTime.getZone().getId());
+        } else {
+            out.writeByte(TYPE_GENERIC);
+            writeString(out, state.getClass().getName());
+            writeString(out, state.toFullString());
+        }
+    }
+
+    private static @Nullable State readState(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_HSB:
+                return new HSBType(new DecimalType(readDecimal(in)), new PercentType(readDecimal(in)),
+                        new PercentType(readDecimal(in)));
+            case TYPE_PERCENT:
+                return new PercentType(readDecimal(in));
+            case TYPE_DECIMAL:
+                return new DecimalType(readDecimal(in));
+            case TYPE_QUANTITY:
+                return new QuantityType<>(readString(in));
+            case TYPE_ON_OFF:
+                return in.readBoolean() ? OnOffType.ON : OnOffType.OFF;
+            case TYPE_OPEN_CLOSED:
+                return in.readBoolean() ? OpenClosedType.OPEN : OpenClosedType.CLOSED;
+            case TYPE_STRING:
+                return new StringType(readString(in));
+            case TYPE_DATE_TIME:
+                Instant instant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                return new DateTimeType(ZonedDateTime.ofInstant(instant, ZoneId.of(readString(in))));
+            case TYPE_GENERIC:
+                String typeName = readString(in);
+                String valueAsString = readString(in);
+                try {
+                    @SuppressWarnings("unchecked")
+                    Class<? extends State> valueType = (Class<? extends State>) Class.forName(typeName);
+                    return TypeParser.parseState(List.of(valueType), valueAsString);
+                } catch (ClassNotFoundException e) {
+                    LOGGER.warn("Couldn't decode state '{}': unknown type {}", valueAsString, typeName);
+                    return null;
+                }
+            default:
+                LOGGER.warn("Couldn't decode state: unknown type {}", type);
+                return null;
+        }
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeShort(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readUnsignedShort()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    // unlike writeUTF, strings longer than 64k are supported
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
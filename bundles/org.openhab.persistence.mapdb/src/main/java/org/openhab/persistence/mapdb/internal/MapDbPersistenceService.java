@@ -14,6 +14,7 @@ package org.openhab.persistence.mapdb.internal;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -22,18 +23,22 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.mapdb.BTreeKeySerializer;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
 import org.openhab.core.OpenHAB;
 import org.openhab.core.common.ThreadPoolManager;
+import org.openhab.core.config.core.ConfigurableService;
 import org.openhab.core.items.Item;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
@@ -43,14 +48,17 @@ import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.strategy.PersistenceStrategy;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
+import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 
 /**
  * This is the implementation of the MapDB {@link PersistenceService}. To learn more about MapDB please visit their
@@ -60,7 +68,9 @@ import com.google.gson.GsonBuilder;
  * @author Martin Kühl - Port to 3.x
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class, QueryablePersistenceService.class })
+@Component(service = { PersistenceService.class, QueryablePersistenceService.class }, configurationPid = "org.openhab.mapdb", //
+        property = Constants.SERVICE_PID + "=org.openhab.mapdb")
+@ConfigurableService(category = "persistence", label = "MapDB Persistence Service", description_uri = MapDbPersistenceService.CONFIG_URI)
 public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String SERVICE_ID = "mapdb";
@@ -68,22 +78,39 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
     private static final Path DB_DIR = new File(OpenHAB.getUserDataFolder(), "persistence").toPath().resolve("mapdb");
     private static final Path BACKUP_DIR = DB_DIR.resolve("backup");
     private static final String DB_FILE_NAME = "storage.mapdb";
+    private static final String ITEM_STATES_MAP = "itemStates";
+    // items were stored as JSON strings before, the map is kept so that previous versions can still read it
+    private static final String JSON_ITEM_STORE_MAP = "itemStore";
+
+    static final String CONFIG_URI = "persistence:mapdb";
+    private static final long DEFAULT_COMMIT_INTERVAL = 1000;
+    private static final int DEFAULT_COMMIT_WRITES = 500;
 
     private final Logger logger = LoggerFactory.getLogger(MapDbPersistenceService.class);
 
-    private final ExecutorService threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
+    // commits after a number of writes and after the interval both run on this pool
+    private final ScheduledExecutorService scheduler = ThreadPoolManager.getScheduledPool(getClass().getSimpleName());
+
+    private volatile long commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private volatile int commitWrites = DEFAULT_COMMIT_WRITES;
 
     /** holds the local instance of the MapDB database */
 
     private @NonNullByDefault({}) DB db;
-    private @NonNullByDefault({}) Map<String, String> map;
+    private @NonNullByDefault({}) Map<String, byte[]> map;
+
+    /** all stored items, so that queries don't have to read and decode the database */
+    private final Map<String, MapDbItem> items = new ConcurrentHashMap<>();
 
-    private transient Gson mapper = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
-            .create();
+    // writes since the last commit and whether a commit is already on its way
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicBoolean commitScheduled = new AtomicBoolean();
+    private final AtomicBoolean commitRequested = new AtomicBoolean();
 
     @Activate
-    public void activate() {
+    public void activate(Map<String, Object> config) {
         logger.debug("MapDB persistence service is being activated");
+        modified(config);
 
         try {
             Files.createDirectories(DB_DIR);
@@ -95,8 +122,7 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
         File dbFile = DB_DIR.resolve(DB_FILE_NAME).toFile();
         try {
-            db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
-            map = db.createTreeMap("itemStore").makeOrGet();
+            openDb(dbFile);
         } catch (RuntimeException re) {
             Throwable cause = re.getCause();
             if (cause instanceof ClassNotFoundException) {
@@ -128,20 +154,100 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
                     return;
                 }
 
-                db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
-                map = db.createTreeMap("itemStore").makeOrGet();
+                openDb(dbFile);
             } else {
                 logger.warn("Failed to create or open the MapDB: {}", re.getMessage());
                 logger.warn("MapDB persistence service activation has failed.");
+                return;
             }
         }
+        loadItems();
         logger.debug("MapDB persistence service is now activated");
     }
 
+    private void openDb(File dbFile) {
+        db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
+        boolean migrate = db.exists(JSON_ITEM_STORE_MAP) && !db.exists(ITEM_STATES_MAP);
+        map = db.createTreeMap(ITEM_STATES_MAP).keySerializer(BTreeKeySerializer.STRING)
+                .valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+        if (migrate) {
+            migrateJsonItemStore();
+        }
+    }
+
+    /**
+     * Convert the items stored as JSON by previous versions to the binary format
+     *
+     * This is done once, when the binary map doesn't exist yet. The JSON map is left unchanged, so that the states
+     * of the time of the migration can still be restored after a downgrade.
+     */
+    @SuppressWarnings("null")
+    private void migrateJsonItemStore() {
+        Gson mapper = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter()).create();
+        Map<String, String> jsonMap = db.getTreeMap(JSON_ITEM_STORE_MAP);
+        int count = 0;
+        for (Map.Entry<String, String> entry : jsonMap.entrySet()) {
+            MapDbItem item;
+            try {
+                item = mapper.fromJson(entry.getValue(), MapDbItem.class);
+            } catch (JsonParseException e) {
+                item = null;
+            }
+            if (item != null && item.isValid() && !map.containsKey(entry.getKey())) {
+                map.put(entry.getKey(), MapDbItemCodec.encode(item));
+                count++;
+            } else {
+                logger.debug("Skipped item '{}' while migrating the MapDB", entry.getKey());
+            }
+        }
+        db.commit();
+        logger.info("Migrated {} items of the MapDB to the binary format", count);
+    }
+
+    /**
+     * Read and decode all items in one pass, so that restoring the items on startup doesn't need any database access
+     */
+    private void loadItems() {
+        long start = System.currentTimeMillis();
+        items.clear();
+        for (Map.Entry<String, byte[]> entry : map.entrySet()) {
+            MapDbItem item = MapDbItemCodec.decode(entry.getKey(), entry.getValue());
+            if (item != null) {
+                items.put(entry.getKey(), item);
+            }
+        }
+        logger.debug("Loaded {} items from MapDB in {} ms", items.size(), System.currentTimeMillis() - start);
+    }
+
+    @Modified
+    public void modified(Map<String, Object> config) {
+        commitInterval = getConfig(config, "commitInterval", DEFAULT_COMMIT_INTERVAL);
+        commitWrites = (int) Math.min(Integer.MAX_VALUE, getConfig(config, "commitWrites", DEFAULT_COMMIT_WRITES));
+        logger.debug("MapDB commits at most every {} ms or after {} writes", commitInterval, commitWrites);
+    }
+
+    private long getConfig(Map<String, Object> config, String key, long defaultValue) {
+        Object value = config.get(key);
+        if (value == null || value.toString().isBlank()) {
+            return defaultValue;
+        }
+        try {
+            long parsed = new BigDecimal(value.toString().trim()).longValueExact();
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            // logged below
+        }
+        logger.warn("Invalid value '{}' for mapdb:{}, using {}", value, key, defaultValue);
+        return defaultValue;
+    }
+
     @Deactivate
     public void deactivate() {
         logger.debug("MapDB persistence service deactivated");
-        if (db != null) {
+        if (db != null && !db.isClosed()) {
+            commit();
             db.close();
         }
     }
@@ -158,8 +264,7 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
-        return map.values().stream().map(this::deserialize).flatMap(MapDbPersistenceService::streamOptional)
-                .collect(Collectors.<PersistenceItemInfo> toUnmodifiableSet());
+        return Set.<PersistenceItemInfo> copyOf(items.values());
     }
 
     @Override
@@ -182,47 +287,55 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         mItem.setName(localAlias);
         mItem.setState(state);
         mItem.setTimestamp(new Date());
-        String json = serialize(mItem);
-        map.put(localAlias, json);
-        commit();
+        map.put(localAlias, MapDbItemCodec.encode(mItem));
+        items.put(localAlias, mItem);
+        scheduleCommit();
         if (logger.isDebugEnabled()) {
-            logger.debug("Stored '{}' with state '{}' as '{}' in MapDB database", localAlias, state, json);
+            logger.debug("Stored '{}' with state '{}' in MapDB database", localAlias, state);
         }
     }
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
-        String json = map.get(filter.getItemName());
-        if (json == null) {
-            return List.of();
-        }
-        Optional<MapDbItem> item = deserialize(json);
-        return item.isPresent() ? List.of(item.get()) : List.of();
+        String itemName = filter.getItemName();
+        MapDbItem item = itemName == null ? null : items.get(itemName);
+        return item == null ? List.of() : List.of(item);
     }
 
-    private String serialize(MapDbItem item) {
-        return mapper.toJson(item);
-    }
-
-    @SuppressWarnings("null")
-    private Optional<MapDbItem> deserialize(String json) {
-        MapDbItem item = mapper.<MapDbItem> fromJson(json, MapDbItem.class);
-        if (item == null || !item.isValid()) {
-            logger.warn("Deserialized invalid item: {}", item);
-            return Optional.empty();
-        } else if (logger.isDebugEnabled()) {
-            logger.debug("Deserialized '{}' with state '{}' from '{}'", item.getName(), item.getState(), json);
+    /**
+     * Commit the stored items at most every <code>commitInterval</code> milliseconds or after
+     * <code>commitWrites</code> writes, instead of once per write. A value of 0 commits every write.
+     */
+    private void scheduleCommit() {
+        if (pendingWrites.incrementAndGet() >= commitWrites || commitInterval == 0) {
+            if (commitRequested.compareAndSet(false, true)) {
+                scheduler.submit(this::commit);
+            }
+        } else if (commitScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::commit, commitInterval, TimeUnit.MILLISECONDS);
         }
-
-        return Optional.of(item);
     }
 
-    private void commit() {
-        threadPool.submit(() -> db.commit());
+    /**
+     * @return the number of stored items which haven't been committed yet
+     */
+    public int getPendingWrites() {
+        return pendingWrites.get();
     }
 
-    private static <T> Stream<T> streamOptional(Optional<T> opt) {
-        return opt.isPresent() ? Stream.of(opt.get()) : Stream.empty();
+    private synchronized void commit() {
+        commitRequested.set(false);
+        commitScheduled.set(false);
+        int writes = pendingWrites.getAndSet(0);
+        if (writes == 0 || db == null || db.isClosed()) {
+            return;
+        }
+        try {
+            db.commit();
+            logger.trace("Committed {} writes to MapDB", writes);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to commit {} writes to MapDB: {}", writes, e.getMessage());
+        }
     }
 
     @Override
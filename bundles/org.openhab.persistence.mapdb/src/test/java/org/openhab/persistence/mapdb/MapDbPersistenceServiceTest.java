@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openhab.core.OpenHAB;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.persistence.mapdb.internal.MapDbPersistenceService;
+
+/**
+ * Tests that the {@link MapDbPersistenceService} commits the stored items.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbPersistenceServiceTest {
+
+    private static @TempDir @NonNullByDefault({}) Path userDataFolder;
+
+    private final MapDbPersistenceService service = new MapDbPersistenceService();
+
+    @BeforeAll
+    public static void setUserDataFolder() {
+        // the database folder is determined when the service class is loaded
+        System.setProperty(OpenHAB.USERDATA_DIR_PROG_ARGUMENT, userDataFolder.toString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.deactivate();
+        File[] files = userDataFolder.resolve("persistence").resolve("mapdb").toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void storesAreCommittedAfterTheInterval() throws InterruptedException {
+        service.activate(Map.of("commitInterval", "50", "commitWrites", "1000"));
+
+        store(service, "Temperature", 21);
+        assertEquals(1, service.getPendingWrites());
+
+        waitFor(() -> service.getPendingWrites() == 0);
+    }
+
+    @Test
+    public void storesAreCommittedAfterTheNumberOfWrites() throws InterruptedException {
+        service.activate(Map.of("commitInterval", "60000", "commitWrites", "3"));
+
+        store(service, "Temperature", 21);
+        store(service, "Humidity", 55);
+        Thread.sleep(100);
+        assertEquals(2, service.getPendingWrites());
+
+        store(service, "Pressure", 1013);
+        waitFor(() -> service.getPendingWrites() == 0);
+    }
+
+    @Test
+    public void commitIntervalOfZeroCommitsEveryStore() throws InterruptedException {
+        service.activate(Map.of("commitInterval", "0"));
+
+        store(service, "Temperature", 21);
+        waitFor(() -> service.getPendingWrites() == 0);
+    }
+
+    @Test
+    public void committedStoresAreRestoredByTheNextActivation() {
+        service.activate(Map.of("commitInterval", "60000"));
+        store(service, "Temperature", 21);
+        // pending stores are committed when the service is stopped
+        service.deactivate();
+
+        MapDbPersistenceService restarted = new MapDbPersistenceService();
+        restarted.activate(Map.of());
+        try {
+            FilterCriteria filter = new FilterCriteria();
+            filter.setItemName("Temperature");
+            Iterator<HistoricItem> result = restarted.query(filter).iterator();
+            assertTrue(result.hasNext());
+            assertEquals(new DecimalType(21), result.next().getState());
+        } finally {
+            restarted.deactivate();
+        }
+    }
+
+    private static void store(MapDbPersistenceService service, String itemName, int value) {
+        NumberItem item = new NumberItem(itemName);
+        item.setState(new DecimalType(value));
+        service.store(item);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < end, "Timeout waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mongodb.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * The {@link MongoDBBatchWriter} collects documents and inserts them asynchronously with one unordered bulk insert
+ * per collection.
+ *
+ * Documents are written when the configured interval has elapsed or as soon as the number of queued documents reaches
+ * the batch size. The inserts are unordered (continue on error), so a single rejected document doesn't prevent the
+ * others of the same batch from being written. The queue is bounded, {@link #offer(String, DBObject)} returns
+ * <code>false</code> if it is full and the caller has to write the document itself.
+ *
+ * If there is no connection or the insert fails before the server processed it, the documents are kept and inserted
+ * again before the new documents of the next flushes. The kept documents count against the capacity of the queue, so
+ * during a longer outage the queue fills up and the caller writes the documents itself, which fails visibly. As the
+ * documents have their id already, inserting them again doesn't create duplicates: a document that was inserted by
+ * the failed attempt is rejected as a duplicate key and counted as written.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class MongoDBBatchWriter {
+    private final Logger logger = LoggerFactory.getLogger(MongoDBBatchWriter.class);
+
+    // E11000 duplicate key error, the older codes are used for some unique indexes and by older servers
+    private static final Set<Integer> DUPLICATE_KEY_CODES = Set.of(11000, 11001, 12582);
+
+    private final Function<String, @Nullable DBCollection> collections;
+    private final int batchSize;
+    private final int capacity;
+
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("mongodb-writer"));
+    private @Nullable ScheduledFuture<?> flushJob;
+
+    private final BlockingQueue<PendingDocument> queue;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // documents that have to be inserted again, oldest first, only used while holding the monitor
+    private final ArrayDeque<PendingDocument> retryDocuments = new ArrayDeque<>();
+    private final AtomicInteger retryDepth = new AtomicInteger();
+    // set when the last insert failed because there was no connection
+    private volatile boolean unavailable;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalWriteTime = new AtomicLong();
+    private volatile int maxQueueDepth;
+    private volatile long lastWriteTime;
+    private volatile long maxWriteTime;
+    private volatile long maxQueueTime;
+
+    /**
+     * @param collections resolves a collection name to the collection, <code>null</code> if there is no connection
+     * @param batchSize the maximum number of documents of a bulk insert
+     * @param flushInterval the interval in milliseconds in which the queued documents are written
+     * @param capacity the maximum number of queued documents
+     */
+    public MongoDBBatchWriter(Function<String, @Nullable DBCollection> collections, int batchSize, int flushInterval,
+            int capacity) {
+        this.collections = collections;
+        this.batchSize = Math.max(1, batchSize);
+        this.capacity = Math.max(this.batchSize, capacity);
+        this.queue = new LinkedBlockingQueue<>(this.capacity);
+        int interval = Math.max(10, flushInterval);
+        flushJob = scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        logger.debug("MongoDB batch writer: batchSize={} flushInterval={} ms capacity={}", this.batchSize, interval,
+                queue.remainingCapacity());
+    }
+
+    /**
+     * Add a document to the write queue
+     *
+     * @param collectionName the collection the document is inserted into
+     * @param document the document
+     * @return <code>true</code> if the document was queued, <code>false</code> if the queue is full or the writer has
+     *         been stopped
+     */
+    public boolean offer(String collectionName, DBObject document) {
+        if (scheduler.isShutdown() || queue.size() + retryDepth.get() >= capacity
+                || !queue.offer(new PendingDocument(collectionName, document))) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        queued.incrementAndGet();
+        int depth = queue.size();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+        if (depth >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // the writer is being stopped, the document is written by the final flush
+                flushRequested.set(false);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write all queued documents
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        // the documents to retry are older than the queued ones
+        List<PendingDocument> pending = new ArrayList<>(retryDocuments);
+        retryDocuments.clear();
+        queue.drainTo(pending);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        // group by collection, keeping the order in which the documents were queued
+        Map<String, List<PendingDocument>> documents = new LinkedHashMap<>();
+        for (PendingDocument document : pending) {
+            documents.computeIfAbsent(document.collectionName, k -> new ArrayList<>()).add(document);
+            maxQueueTime = Math.max(maxQueueTime, now - document.queuedAt);
+        }
+        documents.forEach(this::insert);
+        retryDepth.set(retryDocuments.size());
+        logger.debug("MongoDB batch writer: flushed {} documents of {} collections, queue depth {}, retry depth {}",
+                pending.size(), documents.size(), queue.size(), retryDocuments.size());
+    }
+
+    /**
+     * Write the queued documents before a query, so that it finds the documents stored before.
+     *
+     * Nothing is written while there is no connection, the query then doesn't wait for the inserts to fail.
+     */
+    public void flushBeforeQuery() {
+        if (!unavailable) {
+            flush();
+        }
+    }
+
+    /**
+     * Stop the writer and write all queued documents
+     */
+    public void shutdown() {
+        ScheduledFuture<?> flushJob = this.flushJob;
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            this.flushJob = null;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("MongoDB batch writer: timeout waiting for the writer to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (this) {
+            if (!retryDocuments.isEmpty()) {
+                logger.warn("MongoDB batch writer: no connection, {} documents are lost", retryDocuments.size());
+                failed.addAndGet(retryDocuments.size());
+                retryDocuments.clear();
+                retryDepth.set(0);
+            }
+        }
+        logger.debug("MongoDB batch writer stopped: {}", this);
+    }
+
+    // must be called while holding the monitor
+    private void insert(String collectionName, List<PendingDocument> documents) {
+        DBCollection collection = collections.apply(collectionName);
+        if (collection == null) {
+            retry(collectionName, documents, "no connection");
+            return;
+        }
+        for (int from = 0; from < documents.size(); from += batchSize) {
+            List<PendingDocument> batch = documents.subList(from, Math.min(documents.size(), from + batchSize));
+            long start = System.currentTimeMillis();
+            try {
+                BulkWriteOperation operation = collection.initializeUnorderedBulkOperation();
+                batch.forEach(document -> operation.insert(document.document));
+                operation.execute();
+                unavailable = false;
+                batches.incrementAndGet();
+                written.addAndGet(batch.size());
+            } catch (BulkWriteException e) {
+                // the server processed the batch, with unordered inserts only the rejected documents are missing
+                unavailable = false;
+                batches.incrementAndGet();
+                int rejectedDocuments = countRejected(batch, e.getWriteErrors());
+                written.addAndGet(batch.size() - rejectedDocuments);
+                if (rejectedDocuments > 0) {
+                    failed.addAndGet(rejectedDocuments);
+                    logger.warn("MongoDB batch writer: {} of {} documents were rejected by collection '{}': {}",
+                            rejectedDocuments, batch.size(), collectionName, e.getMessage());
+                }
+                if (e.getWriteConcernError() != null) {
+                    logger.warn("MongoDB batch writer: the write concern of collection '{}' was not fulfilled: {}",
+                            collectionName, e.getWriteConcernError());
+                }
+            } catch (RuntimeException e) {
+                // e.g. the connection was lost, the documents can be inserted again
+                retry(collectionName, documents.subList(from, documents.size()), e.getMessage());
+                return;
+            }
+            long writeTime = System.currentTimeMillis() - start;
+            lastWriteTime = writeTime;
+            maxWriteTime = Math.max(maxWriteTime, writeTime);
+            totalWriteTime.addAndGet(writeTime);
+        }
+    }
+
+    /**
+     * Count the documents of a batch rejected by the server. A duplicate key of a document that is inserted again has
+     * been inserted by an earlier attempt, whose result was lost, it is not counted.
+     */
+    private int countRejected(List<PendingDocument> batch, List<BulkWriteError> errors) {
+        int rejectedDocuments = 0;
+        for (BulkWriteError error : errors) {
+            int index = error.getIndex();
+            if (index >= 0 && index < batch.size() && batch.get(index).retried
+                    && DUPLICATE_KEY_CODES.contains(error.getCode())) {
+                continue;
+            }
+            rejectedDocuments++;
+        }
+        return rejectedDocuments;
+    }
+
+    // must be called while holding the monitor
+    private void retry(String collectionName, List<PendingDocument> documents, @Nullable String reason) {
+        if (!unavailable) {
+            logger.warn("MongoDB batch writer: failed to insert {} documents into collection '{}', retrying later: {}",
+                    documents.size(), collectionName, reason);
+        }
+        unavailable = true;
+        documents.forEach(document -> document.retried = true);
+        retryDocuments.addAll(documents);
+        retried.addAndGet(documents.size());
+        // the queue may have been filled while the documents were written
+        int overflow = retryDocuments.size() + queue.size() - capacity;
+        if (overflow > 0) {
+            logger.warn("MongoDB batch writer: queue is full, {} documents are lost", overflow);
+            for (int i = 0; i < overflow && !retryDocuments.isEmpty(); i++) {
+                retryDocuments.removeFirst();
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of documents that have to be inserted again
+     */
+    public int getRetryDepth() {
+        return retryDepth.get();
+    }
+
+    /**
+     * @return the number of documents that have been kept for another insert
+     */
+    public long getRetried() {
+        return retried.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    public long getMaxWriteTime() {
+        return maxWriteTime;
+    }
+
+    public long getAverageWriteTime() {
+        long count = batches.get();
+        return count == 0 ? 0 : totalWriteTime.get() / count;
+    }
+
+    /**
+     * @return the longest time in milliseconds a document has been waiting in the queue
+     */
+    public long getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    @Override
+    public String toString() {
+        return "MongoDBBatchWriter [queueDepth=" + queue.size() + ", maxQueueDepth=" + maxQueueDepth + ", queued="
+                + queued + ", written=" + written + ", batches=" + batches + ", retried=" + retried + ", retryDepth="
+                + retryDepth + ", failed=" + failed + ", rejected=" + rejected + ", lastWriteTime=" + lastWriteTime
+                + " ms, averageWriteTime=" + getAverageWriteTime() + " ms, maxWriteTime=" + maxWriteTime
+                + " ms, maxQueueTime=" + maxQueueTime + " ms]";
+    }
+
+    private static class PendingDocument {
+        private final String collectionName;
+        private final DBObject document;
+        private final long queuedAt = System.currentTimeMillis();
+        // set when the document is inserted again, only used while holding the monitor of the writer
+        private boolean retried;
+
+        private PendingDocument(String collectionName, DBObject document) {
+            this.collectionName = collectionName;
+            this.document = document;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bson.types.ObjectId;
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -60,6 +61,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
@@ -83,6 +85,13 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
     private static final String FIELD_TIMESTAMP = "timestamp";
     private static final String FIELD_VALUE = "value";
 
+    // only the fields needed to create the historic items are fetched
+    private static final DBObject QUERY_PROJECTION = new BasicDBObject(FIELD_VALUE, 1).append(FIELD_TIMESTAMP, 1)
+            .append(FIELD_ID, 0);
+
+    private static final int DEFAULT_FLUSH_INTERVAL = 1000;
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+
     private final Logger logger = LoggerFactory.getLogger(MongoDBPersistenceService.class);
 
     private String url = "";
@@ -96,6 +105,11 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
 
     private @Nullable MongoClient cl;
 
+    private @Nullable MongoDBBatchWriter batchWriter;
+
+    // collections for which the (item, timestamp) index has been ensured on the current connection
+    private final Set<String> indexedCollections = ConcurrentHashMap.newKeySet();
+
     @Activate
     public MongoDBPersistenceService(final @Reference ItemRegistry itemRegistry) {
         this.itemRegistry = itemRegistry;
@@ -127,19 +141,70 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
         collection = dbCollection == null ? "" : dbCollection;
         collectionPerItem = dbCollection == null || dbCollection.isBlank();
 
-        if (!tryConnectToDatabase()) {
+        if (tryConnectToDatabase()) {
+            createIndexes();
+        } else {
             logger.warn("Failed to connect to MongoDB server. Trying to reconnect later.");
         }
 
+        int batchSize = getIntConfig(config, "batchSize", 0);
+        if (batchSize > 0) {
+            batchWriter = new MongoDBBatchWriter(this::getCollectionForWrite, batchSize,
+                    getIntConfig(config, "flushInterval", DEFAULT_FLUSH_INTERVAL),
+                    getIntConfig(config, "maxQueueSize", DEFAULT_MAX_QUEUE_SIZE));
+        }
+
         initialized = true;
     }
 
     @Deactivate
     public void deactivate(final int reason) {
         logger.debug("MongoDB persistence bundle stopping. Disconnecting from database.");
+        MongoDBBatchWriter batchWriter = this.batchWriter;
+        if (batchWriter != null) {
+            batchWriter.shutdown();
+            this.batchWriter = null;
+        }
         disconnectFromDatabase();
     }
 
+    private int getIntConfig(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value == null || value.toString().isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value '{}' for mongodb:{}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Makes sure the (item, timestamp) index exists for all collections written by this service, so that the
+     * time-range queries don't have to scan whole collections.
+     */
+    private void createIndexes() {
+        if (!collectionPerItem) {
+            connectToCollection(collection);
+            return;
+        }
+        MongoClient client = getDatabase();
+        if (client == null) {
+            return;
+        }
+        try {
+            for (String collectionName : client.getDB(db).getCollectionNames()) {
+                if (!collectionName.startsWith("system.")) {
+                    connectToCollection(collectionName);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to create the indexes of database {}: {}", db, e.getMessage());
+        }
+    }
+
     @Override
     public String getId() {
         return "mongodb";
@@ -192,11 +257,36 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
         obj.put(FIELD_REALNAME, realItemName);
         obj.put(FIELD_TIMESTAMP, new Date());
         obj.put(FIELD_VALUE, value);
+
+        MongoDBBatchWriter batchWriter = this.batchWriter;
+        if (batchWriter != null && batchWriter.offer(collectionName, obj)) {
+            logger.debug("MongoDB queued {}={}", name, value);
+            return;
+        }
+
+        // no batch writer or its queue is full
         collection.save(obj);
 
         logger.debug("MongoDB save {}={}", name, value);
     }
 
+    /**
+     * Resolves the collection for the batch writer, reconnecting if necessary
+     */
+    private @Nullable DBCollection getCollectionForWrite(String collectionName) {
+        if (!tryConnectToDatabase()) {
+            return null;
+        }
+        return connectToCollection(collectionName);
+    }
+
+    /**
+     * @return the batch writer, <code>null</code> if documents are written immediately
+     */
+    public @Nullable MongoDBBatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+
     private Object convertValue(State state) {
         Object value;
         if (state instanceof PercentType) {
@@ -296,11 +386,16 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
                 return null;
             }
 
-            DBCollection mongoCollection = db.getDB(this.db).getCollection(collectionName);
+            DB database = db.getDB(this.db);
+            DBCollection mongoCollection = database.getCollection(collectionName);
 
-            BasicDBObject idx = new BasicDBObject();
-            idx.append(FIELD_ITEM, 1).append(FIELD_TIMESTAMP, 1);
-            mongoCollection.createIndex(idx);
+            // creating an existing index is a no-op on the server, but still a round trip per call
+            if (!indexedCollections.contains(collectionName)) {
+                BasicDBObject idx = new BasicDBObject();
+                idx.append(FIELD_ITEM, 1).append(FIELD_TIMESTAMP, 1);
+                mongoCollection.createIndex(idx);
+                indexedCollections.add(collectionName);
+            }
 
             return mongoCollection;
         } catch (Exception e) {
@@ -318,6 +413,7 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
         }
 
         cl = null;
+        indexedCollections.clear();
     }
 
     @Override
@@ -330,6 +426,12 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
             return Collections.emptyList();
         }
 
+        // make sure queued documents are found
+        MongoDBBatchWriter batchWriter = this.batchWriter;
+        if (batchWriter != null) {
+            batchWriter.flushBeforeQuery();
+        }
+
         String realItemName = filter.getItemName();
         String collectionName = collectionPerItem ? realItemName : this.collection;
         @Nullable
@@ -381,7 +483,7 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
         logger.debug("Query: {}", query);
 
         Integer sortDir = (filter.getOrdering() == Ordering.ASCENDING) ? 1 : -1;
-        DBCursor cursor = collection.find(query).sort(new BasicDBObject(FIELD_TIMESTAMP, sortDir))
+        DBCursor cursor = collection.find(query, QUERY_PROJECTION).sort(new BasicDBObject(FIELD_TIMESTAMP, sortDir))
                 .skip(filter.getPageNumber() * filter.getPageSize()).limit(filter.getPageSize());
 
         while (cursor.hasNext()) {
@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mongodb.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+
+/**
+ * Tests the {@link MongoDBBatchWriter} against a stand-in for the collections of a local mongod
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class MongoDBBatchWriterTest {
+    // long enough that only explicit flushes write in these tests
+    private static final int FLUSH_INTERVAL = 60000;
+
+    private final List<MongoDBBatchWriter> writers = new ArrayList<>();
+    private final List<String> inserted = Collections.synchronizedList(new ArrayList<>());
+    // the values of the documents the stand-in rejects
+    private volatile Set<Integer> rejectedValues = Set.of();
+    private volatile int maxBatchSize;
+    private volatile boolean available = true;
+    // the documents are inserted, but the response is lost
+    private volatile boolean responseLost;
+    private volatile boolean connected = true;
+    private volatile int connectAttempts;
+    private volatile int insertAttempts;
+
+    @AfterEach
+    public void after() {
+        writers.forEach(MongoDBBatchWriter::shutdown);
+    }
+
+    @Test
+    public void documentsAreInsertedInUnorderedBatchesPerCollection() {
+        MongoDBBatchWriter writer = createWriter(3, 100);
+        offer(writer, "a", 0, 4);
+        offer(writer, "b", 4, 2);
+        writer.flush();
+
+        assertThat(inserted, contains("a:0", "a:1", "a:2", "a:3", "b:4", "b:5"));
+        assertThat(maxBatchSize, is(lessThanOrEqualTo(3)));
+        assertThat(writer.getWritten(), is(6L));
+        assertThat(writer.getQueueDepth(), is(0));
+    }
+
+    @Test
+    public void documentsAreInsertedAgainWhenTheConnectionIsBack() {
+        MongoDBBatchWriter writer = createWriter(10, 100);
+        available = false;
+        offer(writer, "a", 0, 3);
+        writer.flush();
+
+        connected = false;
+        offer(writer, "a", 3, 2);
+        writer.flush();
+
+        assertThat(inserted, is(empty()));
+        assertThat(writer.getRetryDepth(), is(5));
+        assertThat(writer.getFailed(), is(0L));
+
+        available = true;
+        connected = true;
+        offer(writer, "a", 5, 1);
+        writer.flush();
+
+        assertThat(inserted, contains("a:0", "a:1", "a:2", "a:3", "a:4", "a:5"));
+        assertThat(writer.getRetryDepth(), is(0));
+        assertThat(writer.getWritten(), is(6L));
+    }
+
+    @Test
+    public void onlyTheRejectedDocumentsOfABatchFail() {
+        MongoDBBatchWriter writer = createWriter(10, 100);
+        rejectedValues = Set.of(1);
+        offer(writer, "a", 0, 3);
+        writer.flush();
+        writer.flush();
+
+        assertThat(inserted, contains("a:0", "a:2"));
+        assertThat(writer.getFailed(), is(1L));
+        assertThat(writer.getWritten(), is(2L));
+        assertThat(writer.getRetryDepth(), is(0));
+        assertThat(insertAttempts, is(1));
+    }
+
+    @Test
+    public void duplicateKeysOfDocumentsInsertedAgainCountAsWritten() {
+        MongoDBBatchWriter writer = createWriter(10, 100);
+        responseLost = true;
+        offer(writer, "a", 0, 3);
+        writer.flush();
+        assertThat(writer.getRetryDepth(), is(3));
+
+        responseLost = false;
+        offer(writer, "a", 3, 1);
+        writer.flush();
+
+        assertThat(inserted, contains("a:0", "a:1", "a:2", "a:3"));
+        assertThat(writer.getWritten(), is(4L));
+        assertThat(writer.getFailed(), is(0L));
+        assertThat(writer.getRetryDepth(), is(0));
+    }
+
+    @Test
+    public void duplicateKeysOfNewDocumentsFail() {
+        MongoDBBatchWriter writer = createWriter(10, 100);
+        offer(writer, "a", 0, 1);
+        writer.flush();
+
+        offer(writer, "a", 0, 1);
+        writer.flush();
+
+        assertThat(writer.getWritten(), is(1L));
+        assertThat(writer.getFailed(), is(1L));
+    }
+
+    @Test
+    public void documentsToInsertAgainCountAgainstTheCapacity() {
+        MongoDBBatchWriter writer = createWriter(2, 4);
+        connected = false;
+        offer(writer, "a", 0, 3);
+        writer.flush();
+
+        assertThat(writer.offer("a", document(3)), is(true));
+        assertThat(writer.offer("a", document(4)), is(false));
+        assertThat(writer.getRejected(), is(1L));
+    }
+
+    @Test
+    public void queriesDoNotWaitWhileThereIsNoConnection() {
+        MongoDBBatchWriter writer = createWriter(10, 100);
+        connected = false;
+        offer(writer, "a", 0, 2);
+        writer.flushBeforeQuery();
+        int attempts = connectAttempts;
+
+        offer(writer, "a", 2, 1);
+        writer.flushBeforeQuery();
+
+        assertThat(connectAttempts, is(attempts));
+        assertThat(writer.getQueueDepth(), is(1));
+    }
+
+    @Test
+    public void documentsThatCannotBeInsertedAreLostOnShutdown() {
+        MongoDBBatchWriter writer = createWriter(10, 100);
+        connected = false;
+        offer(writer, "a", 0, 3);
+        writer.shutdown();
+        writers.remove(writer);
+
+        assertThat(writer.getFailed(), is(3L));
+        assertThat(writer.getRetryDepth(), is(0));
+    }
+
+    @Test
+    public void shutdownWritesTheQueuedDocumentsAndRejectsNewOnes() {
+        MongoDBBatchWriter writer = createWriter(10, 100);
+        offer(writer, "a", 0, 3);
+        writer.shutdown();
+        writers.remove(writer);
+
+        assertThat(inserted, hasSize(3));
+        assertThat(writer.offer("a", document(3)), is(false));
+        assertThat(writer.getRejected(), is(1L));
+    }
+
+    private MongoDBBatchWriter createWriter(int batchSize, int capacity) {
+        MongoDBBatchWriter writer = new MongoDBBatchWriter(this::getCollection, batchSize, FLUSH_INTERVAL, capacity);
+        writers.add(writer);
+        return writer;
+    }
+
+    private @Nullable DBCollection getCollection(String name) {
+        connectAttempts++;
+        if (!connected) {
+            return null;
+        }
+        DBCollection collection = mock(DBCollection.class);
+        when(collection.initializeUnorderedBulkOperation()).thenAnswer(invocation -> createBulkOperation(name));
+        return collection;
+    }
+
+    /**
+     * A stand-in for an unordered bulk insert: the documents without an error are inserted, a document with the value
+     * of a document inserted before is rejected as a duplicate key
+     */
+    private BulkWriteOperation createBulkOperation(String name) {
+        List<DBObject> batch = new ArrayList<>();
+        BulkWriteOperation operation = mock(BulkWriteOperation.class);
+        doAnswer(invocation -> batch.add(invocation.getArgument(0))).when(operation).insert(any(DBObject.class));
+        when(operation.execute()).thenAnswer(invocation -> {
+            insertAttempts++;
+            if (!available) {
+                throw new MongoException("connection refused");
+            }
+            maxBatchSize = Math.max(maxBatchSize, batch.size());
+            List<BulkWriteError> errors = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Object value = batch.get(i).get("value");
+                String document = name + ":" + value;
+                if (rejectedValues.contains(value)) {
+                    errors.add(writeError(121, i));
+                } else if (inserted.contains(document)) {
+                    errors.add(writeError(11000, i));
+                } else {
+                    inserted.add(document);
+                }
+            }
+            if (responseLost) {
+                throw new MongoException("connection reset");
+            }
+            if (!errors.isEmpty()) {
+                BulkWriteException exception = mock(BulkWriteException.class);
+                when(exception.getWriteErrors()).thenReturn(errors);
+                throw exception;
+            }
+            return null;
+        });
+        return operation;
+    }
+
+    private static BulkWriteError writeError(int code, int index) {
+        BulkWriteError error = mock(BulkWriteError.class);
+        when(error.getCode()).thenReturn(code);
+        when(error.getIndex()).thenReturn(index);
+        return error;
+    }
+
+    private static void offer(MongoDBBatchWriter writer, String collectionName, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            assertThat(writer.offer(collectionName, document(i)), is(true));
+        }
+    }
+
+    private static DBObject document(int i) {
+        return new BasicDBObject("value", i);
+    }
+}
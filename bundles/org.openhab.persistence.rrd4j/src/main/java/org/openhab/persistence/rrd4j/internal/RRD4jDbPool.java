@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.rrd4j.core.RrdDb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link RRD4jDbPool} keeps a bounded number of {@link RrdDb} handles open, so that subsequent stores and queries
+ * for the same item do not have to re-open the database file.
+ *
+ * Access to a database is guarded by a striped lock per item name, which allows unrelated items to be persisted in
+ * parallel. Callers must hold the lock returned by {@link #getLock(String)} while they use a handle obtained from the
+ * pool. When the pool is full, the least recently used handle whose lock is not held by another thread is closed.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jDbPool {
+
+    public static final int DEFAULT_CAPACITY = 200;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Logger logger = LoggerFactory.getLogger(RRD4jDbPool.class);
+
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+
+    // access ordered, guarded by "this"
+    private final LinkedHashMap<String, RrdDb> openDbs = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile int capacity = DEFAULT_CAPACITY;
+
+    public RRD4jDbPool() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Get the lock that guards the database of the given item
+     *
+     * @param name the item name (or alias)
+     * @return the lock for this item
+     */
+    public Lock getLock(String name) {
+        return locks[(name.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    /**
+     * Get an open database from the pool
+     *
+     * The caller must hold the lock for this item.
+     *
+     * @param name the item name (or alias)
+     * @return the open database or <code>null</code> if it is not pooled
+     */
+    public synchronized @Nullable RrdDb get(String name) {
+        RrdDb db = openDbs.get(name);
+        if (db != null && !db.isClosed()) {
+            hits.incrementAndGet();
+            return db;
+        }
+        openDbs.remove(name);
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Add a newly opened database to the pool, evicting the least recently used ones if the capacity is exceeded
+     *
+     * The caller must hold the lock for this item.
+     *
+     * @param name the item name (or alias)
+     * @param db the open database
+     */
+    public synchronized void put(String name, RrdDb db) {
+        RrdDb old = openDbs.put(name, db);
+        if (old != null && old != db) {
+            close(name, old);
+        }
+        if (openDbs.size() > capacity) {
+            evict(name);
+        }
+    }
+
+    /**
+     * Remove a database from the pool and close it
+     *
+     * The caller must hold the lock for this item.
+     *
+     * @param name the item name (or alias)
+     */
+    public synchronized void remove(String name) {
+        RrdDb db = openDbs.remove(name);
+        if (db != null) {
+            close(name, db);
+        }
+    }
+
+    /**
+     * Set the maximum number of open databases
+     *
+     * @param capacity the new capacity (at least 1)
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        if (openDbs.size() > this.capacity) {
+            evict(null);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Close all open databases
+     */
+    public void closeAll() {
+        List<String> names;
+        synchronized (this) {
+            names = new ArrayList<>(openDbs.keySet());
+        }
+        // the item lock must be acquired before the monitor, otherwise we could dead-lock with a concurrent store
+        for (String name : names) {
+            Lock lock = getLock(name);
+            lock.lock();
+            try {
+                remove(name);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public synchronized int getOpenCount() {
+        return openDbs.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    // must be called while holding the monitor
+    private void evict(@Nullable String keep) {
+        Iterator<Map.Entry<String, RrdDb>> iterator = openDbs.entrySet().iterator();
+        while (openDbs.size() > capacity && iterator.hasNext()) {
+            Map.Entry<String, RrdDb> entry = iterator.next();
+            String name = entry.getKey();
+            if (name.equals(keep)) {
+                continue;
+            }
+            // a database that is currently in use by another thread is skipped, it will be evicted later
+            Lock lock = getLock(name);
+            if (lock.tryLock()) {
+                try {
+                    iterator.remove();
+                    close(name, entry.getValue());
+                    evictions.incrementAndGet();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void close(String name, RrdDb db) {
+        try {
+            db.close();
+        } catch (IOException e) {
+            logger.debug("Error closing rrd4j database for '{}': {}", name, e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RRD4jDbPool [open=" + getOpenCount() + ", capacity=" + capacity + ", hits=" + hits + ", misses="
+                + misses + ", evictions=" + evictions + "]";
+    }
+}
@@ -18,8 +18,9 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -30,6 +31,7 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import javax.measure.Quantity;
 import javax.measure.Unit;
@@ -64,9 +66,11 @@ import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.strategy.PersistenceCronStrategy;
 import org.openhab.core.persistence.strategy.PersistenceStrategy;
 import org.openhab.core.types.State;
+import org.openhab.persistence.rrd4j.internal.RRD4jSampleQueue.PendingSample;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.rrd4j.ConsolFun;
@@ -89,18 +93,25 @@ import org.slf4j.LoggerFactory;
  * @author Karel Goderis - remove TimerThread dependency
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class,
-        QueryablePersistenceService.class }, configurationPid = "org.openhab.rrd4j", configurationPolicy = ConfigurationPolicy.OPTIONAL)
+@Component(service = { PersistenceService.class, QueryablePersistenceService.class,
+        RRD4jPersistenceService.class }, configurationPid = "org.openhab.rrd4j", //
+        configurationPolicy = ConfigurationPolicy.OPTIONAL)
 public class RRD4jPersistenceService implements QueryablePersistenceService {
 
     private static final String DEFAULT_OTHER = "default_other";
     private static final String DEFAULT_NUMERIC = "default_numeric";
     private static final String DEFAULT_QUANTIFIABLE = "default_quantifiable";
 
+    private static final String CONFIG_DB_POOL_SIZE = "dbPoolSize";
+    private static final String CONFIG_WRITE_QUEUE_SIZE = "writeQueueSize";
+    private static final String CONFIG_FLUSH_INTERVAL = "flushInterval";
+
+    private static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
     private static final Set<String> SUPPORTED_TYPES = Set.of(CoreItemFactory.SWITCH, CoreItemFactory.CONTACT,
             CoreItemFactory.DIMMER, CoreItemFactory.NUMBER, CoreItemFactory.ROLLERSHUTTER, CoreItemFactory.COLOR);
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(3,
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1,
             new NamedThreadFactory("RRD4j"));
 
     private final Map<String, RrdDefConfig> rrdDefs = new ConcurrentHashMap<>();
@@ -111,7 +122,11 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
 
     private final Logger logger = LoggerFactory.getLogger(RRD4jPersistenceService.class);
 
-    private final Map<String, ScheduledFuture<?>> scheduledJobs = new HashMap<>();
+    private final RRD4jDbPool dbPool = new RRD4jDbPool();
+
+    private final RRD4jSampleQueue sampleQueue = new RRD4jSampleQueue();
+
+    private @Nullable ScheduledFuture<?> flushJob;
 
     protected final ItemRegistry itemRegistry;
 
@@ -131,95 +146,161 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
     }
 
     @Override
-    public synchronized void store(final Item item, @Nullable final String alias) {
+    public void store(final Item item, @Nullable final String alias) {
         if (!isSupportedItemType(item)) {
             logger.trace("Ignoring item '{}' since its type {} is not supported", item.getName(), item.getType());
             return;
         }
         final String name = alias == null ? item.getName() : alias;
+        Double value = getValue(item);
+        if (value == null) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        if (!sampleQueue.offer(name, now, value)) {
+            // the queue is full, so we write the samples of this item ourselves
+            logger.trace("Write queue is full, storing '{}' directly", name);
+            Lock lock = dbPool.getLock(name);
+            lock.lock();
+            try {
+                writePendingSamples(name, new PendingSample(now, value));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private @Nullable Double getValue(Item item) {
+        Double value = null;
+
+        if (item instanceof NumberItem && item.getState() instanceof QuantityType) {
+            NumberItem nItem = (NumberItem) item;
+            QuantityType<?> qState = (QuantityType<?>) item.getState();
+            Unit<? extends Quantity<?>> unit = nItem.getUnit();
+            if (unit != null) {
+                QuantityType<?> convertedState = qState.toUnit(unit);
+                if (convertedState != null) {
+                    value = convertedState.doubleValue();
+                } else {
+                    logger.warn(
+                            "Failed to convert state '{}' to unit '{}'. Please check your item definition for correctness.",
+                            qState, unit);
+                }
+            } else {
+                value = qState.doubleValue();
+            }
+        } else {
+            DecimalType state = item.getStateAs(DecimalType.class);
+            if (state != null) {
+                value = state.toBigDecimal().doubleValue();
+            }
+        }
+        return value;
+    }
+
+    private void flushSampleQueue() {
+        for (String name : sampleQueue.getNames()) {
+            Lock lock = dbPool.getLock(name);
+            lock.lock();
+            try {
+                writePendingSamples(name, null);
+            } catch (RuntimeException e) {
+                logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write all queued samples of an item to its database
+     *
+     * The caller must hold the lock for this item.
+     *
+     * @param name the item name (or alias)
+     * @param additionalSample a sample that is newer than the queued ones and shall be written, too
+     */
+    private void writePendingSamples(String name, @Nullable PendingSample additionalSample) {
+        List<PendingSample> samples = sampleQueue.drain(name);
+        if (additionalSample != null) {
+            if (samples == null) {
+                samples = new ArrayList<>();
+            }
+            samples.add(additionalSample);
+        }
+        if (samples == null) {
+            return;
+        }
         RrdDb db = getDB(name);
-        if (db != null) {
-            ConsolFun function = getConsolidationFunction(db);
-            long now = System.currentTimeMillis() / 1000;
-            if (function != ConsolFun.AVERAGE) {
+        if (db == null) {
+            sampleQueue.countDropped(samples.size());
+            return;
+        }
+        writeSamples(db, name, samples);
+    }
+
+    private void writeSamples(RrdDb db, String name, List<PendingSample> samples) {
+        ConsolFun function = getConsolidationFunction(db);
+        long step;
+        long lastUpdate;
+        boolean isCounter;
+        try {
+            step = db.getHeader().getStep();
+            lastUpdate = db.getLastUpdateTime();
+            isCounter = db.getDatasource(DATASOURCE_STATE).getType() == DsType.COUNTER;
+        } catch (IOException e) {
+            logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
+            sampleQueue.countDropped(samples.size());
+            return;
+        }
+
+        for (int i = 0; i < samples.size(); i++) {
+            PendingSample pendingSample = samples.get(i);
+            boolean isLatest = i == samples.size() - 1;
+            if (!isLatest && samples.get(i + 1).time / step == pendingSample.time / step) {
+                // a newer sample for the same step follows, only the latest value is stored
+                sampleQueue.countMerged(1);
+                continue;
+            }
+            if (pendingSample.time <= lastUpdate) {
+                // rrd4j requires at least one second between updates
+                if (isLatest) {
+                    // we must not lose the latest value, so we store it one second later
+                    sampleQueue.requeue(name, new PendingSample(lastUpdate + 1, pendingSample.value));
+                } else {
+                    sampleQueue.countDropped(1);
+                }
+                continue;
+            }
+            if (function != ConsolFun.AVERAGE && pendingSample.time - 1 > lastUpdate) {
                 try {
                     // we store the last value again, so that the value change
                     // in the database is not interpolated, but
                     // happens right at this spot
-                    if (now - 1 > db.getLastUpdateTime()) {
-                        // only do it if there is not already a value
-                        double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
-                        if (!Double.isNaN(lastValue)) {
-                            Sample sample = db.createSample();
-                            sample.setTime(now - 1);
-                            sample.setValue(DATASOURCE_STATE, lastValue);
-                            sample.update();
-                            logger.debug("Stored '{}' as value '{}' in rrd4j database (again)", name, lastValue);
-                        }
+                    double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+                    if (!Double.isNaN(lastValue)) {
+                        Sample sample = db.createSample(pendingSample.time - 1);
+                        sample.setValue(DATASOURCE_STATE, lastValue);
+                        sample.update();
+                        logger.debug("Stored '{}' as value '{}' in rrd4j database (again)", name, lastValue);
                     }
-                } catch (IOException e) {
+                } catch (IOException | IllegalArgumentException e) {
                     logger.debug("Error storing last value (again): {}", e.getMessage());
                 }
             }
             try {
-                Sample sample = db.createSample();
-                sample.setTime(now);
-
-                Double value = null;
-
-                if (item instanceof NumberItem && item.getState() instanceof QuantityType) {
-                    NumberItem nItem = (NumberItem) item;
-                    QuantityType<?> qState = (QuantityType<?>) item.getState();
-                    Unit<? extends Quantity<?>> unit = nItem.getUnit();
-                    if (unit != null) {
-                        QuantityType<?> convertedState = qState.toUnit(unit);
-                        if (convertedState != null) {
-                            value = convertedState.doubleValue();
-                        } else {
-                            logger.warn(
-                                    "Failed to convert state '{}' to unit '{}'. Please check your item definition for correctness.",
-                                    qState, unit);
-                        }
-                    } else {
-                        value = qState.doubleValue();
-                    }
-                } else {
-                    DecimalType state = item.getStateAs(DecimalType.class);
-                    if (state != null) {
-                        value = state.toBigDecimal().doubleValue();
-                    }
-                }
-                if (value != null) {
-                    if (db.getDatasource(DATASOURCE_STATE).getType() == DsType.COUNTER) { // counter values must be
-                                                                                          // adjusted by stepsize
-                        value = value * db.getRrdDef().getStep();
-                    }
-                    sample.setValue(DATASOURCE_STATE, value);
-                    sample.update();
-                    logger.debug("Stored '{}' as value '{}' in rrd4j database", name, value);
-                }
-            } catch (IllegalArgumentException e) {
-                String message = e.getMessage();
-                if (message != null && message.contains("at least one second step is required")) {
-                    // we try to store the value one second later
-                    ScheduledFuture<?> job = scheduledJobs.get(name);
-                    if (job != null) {
-                        job.cancel(true);
-                        scheduledJobs.remove(name);
-                    }
-                    job = scheduler.schedule(() -> store(item, name), 1, TimeUnit.SECONDS);
-                    scheduledJobs.put(name, job);
-                } else {
-                    logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
-                }
-            } catch (Exception e) {
+                // counter values must be adjusted by stepsize
+                double value = isCounter ? pendingSample.value * step : pendingSample.value;
+                Sample sample = db.createSample(pendingSample.time);
+                sample.setValue(DATASOURCE_STATE, value);
+                sample.update();
+                lastUpdate = pendingSample.time;
+                sampleQueue.countWritten(1);
+                logger.debug("Stored '{}' as value '{}' in rrd4j database", name, value);
+            } catch (IOException | IllegalArgumentException e) {
+                sampleQueue.countDropped(1);
                 logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
             }
-            try {
-                db.close();
-            } catch (IOException e) {
-                logger.debug("Error closing rrd4j database: {}", e.getMessage());
-            }
         }
     }
 
@@ -232,12 +313,6 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
     public Iterable<HistoricItem> query(FilterCriteria filter) {
         String itemName = filter.getItemName();
 
-        RrdDb db = getDB(itemName);
-        if (db == null) {
-            logger.debug("Could not find item '{}' in rrd4j database", itemName);
-            return List.of();
-        }
-
         Item item = null;
         Unit<?> unit = null;
         try {
@@ -251,6 +326,24 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
             logger.debug("Could not find item '{}' in registry", itemName);
         }
 
+        Lock lock = dbPool.getLock(itemName);
+        lock.lock();
+        try {
+            // make sure that queued samples are included in the result
+            writePendingSamples(itemName, null);
+            RrdDb db = getDB(itemName);
+            if (db == null) {
+                logger.debug("Could not find item '{}' in rrd4j database", itemName);
+                return List.of();
+            }
+            return query(db, filter, itemName, item, unit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<HistoricItem> query(RrdDb db, FilterCriteria filter, String itemName, @Nullable Item item,
+            @Nullable Unit<?> unit) {
         long start = 0L;
         long end = filter.getEndDate() == null ? System.currentTimeMillis() / 1000
                 : filter.getEndDate().toInstant().getEpochSecond();
@@ -308,19 +401,70 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    /**
+     * Fetch the data of several items in one pass
+     *
+     * The data is fetched from the archive that best matches the requested resolution. Items without a database are
+     * not contained in the result.
+     *
+     * @param itemNames the names of the items
+     * @param start the start time in seconds
+     * @param end the end time in seconds
+     * @param resolution the requested resolution in seconds
+     * @return the fetched data, in the order of the given item names
+     */
+    public Map<String, FetchData> fetch(Collection<String> itemNames, long start, long end, long resolution) {
+        Map<String, FetchData> result = new LinkedHashMap<>();
+        for (String itemName : itemNames) {
+            Lock lock = dbPool.getLock(itemName);
+            lock.lock();
+            try {
+                writePendingSamples(itemName, null);
+                RrdDb db = getDB(itemName, false);
+                if (db == null) {
+                    logger.debug("Could not find item '{}' in rrd4j database", itemName);
+                    continue;
+                }
+                FetchRequest request = db.createFetchRequest(getConsolidationFunction(db), start, end, resolution);
+                request.setFilter(DATASOURCE_STATE);
+                result.put(itemName, request.fetchData());
+            } catch (IOException e) {
+                logger.warn("Could not query rrd4j database for item '{}': {}", itemName, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+        return result;
+    }
+
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
         return Set.of();
     }
 
-    protected synchronized @Nullable RrdDb getDB(String alias) {
-        RrdDb db = null;
+    /**
+     * Get the (pooled) database for an item
+     *
+     * The caller must hold the lock for this item and must not close the returned database.
+     *
+     * @param alias the item name or alias
+     * @return the open database or <code>null</code> if it could not be opened or created
+     */
+    protected @Nullable RrdDb getDB(String alias) {
+        return getDB(alias, true);
+    }
+
+    private @Nullable RrdDb getDB(String alias, boolean create) {
+        RrdDb db = dbPool.get(alias);
+        if (db != null) {
+            return db;
+        }
         File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
         try {
             if (file.exists()) {
                 // recreate the RrdDb instance from the file
                 db = RrdDb.of(file.getAbsolutePath());
-            } else {
+            } else if (create) {
                 File folder = new File(DB_FOLDER);
                 if (!folder.exists()) {
                     folder.mkdirs();
@@ -341,6 +485,9 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
             // this happens if the system is shut down
             logger.debug("Could not create rrd4j database file '{}': {}", file.getAbsolutePath(), e.getMessage());
         }
+        if (db != null) {
+            dbPool.put(alias, db);
+        }
         return db;
     }
 
@@ -443,6 +590,19 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         modified(config);
     }
 
+    @Deactivate
+    protected void deactivate() {
+        ScheduledFuture<?> flushJob = this.flushJob;
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            this.flushJob = null;
+        }
+        scheduler.shutdown();
+        flushSampleQueue();
+        logger.debug("Closing rrd4j databases: {}, {}", dbPool, sampleQueue);
+        dbPool.closeAll();
+    }
+
     @Modified
     protected void modified(final Map<String, Object> config) {
         // clean existing definitions
@@ -487,6 +647,17 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         defaultOther.addArchives("LAST,0.5,1,720:LAST,0.5,12,10080:LAST,0.5,180,35040:LAST,0.5,2880,21900");
         rrdDefs.put(DEFAULT_OTHER, defaultOther);
 
+        dbPool.setCapacity(getIntOption(config, CONFIG_DB_POOL_SIZE, RRD4jDbPool.DEFAULT_CAPACITY));
+        sampleQueue.setCapacity(getIntOption(config, CONFIG_WRITE_QUEUE_SIZE, RRD4jSampleQueue.DEFAULT_CAPACITY));
+
+        ScheduledFuture<?> flushJob = this.flushJob;
+        if (flushJob != null) {
+            flushJob.cancel(false);
+        }
+        int flushInterval = Math.max(100, getIntOption(config, CONFIG_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL));
+        this.flushJob = scheduler.scheduleWithFixedDelay(this::flushSampleQueue, flushInterval, flushInterval,
+                TimeUnit.MILLISECONDS);
+
         if (config.isEmpty()) {
             logger.debug("using default configuration only");
             return;
@@ -501,6 +672,12 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
                 continue;
             }
 
+            if (key.equals(CONFIG_DB_POOL_SIZE) || key.equals(CONFIG_WRITE_QUEUE_SIZE)
+                    || key.equals(CONFIG_FLUSH_INTERVAL)) {
+                // service options are handled above
+                continue;
+            }
+
             String[] subkeys = key.split("\\.");
             if (subkeys.length != 2) {
                 logger.debug("config '{}' should have the format 'name.configkey'", key);
@@ -552,6 +729,18 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    private int getIntOption(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring illegal value for '{}': {}", key, value);
+            }
+        }
+        return defaultValue;
+    }
+
     private class RrdArchiveDef {
         public @Nullable ConsolFun fcn;
         public double xff;
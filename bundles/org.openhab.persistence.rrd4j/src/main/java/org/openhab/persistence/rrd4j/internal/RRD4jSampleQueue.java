@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link RRD4jSampleQueue} collects samples that have not yet been written to the databases.
+ *
+ * Samples for the same item within the same second are coalesced, so that only the last value is kept. The queue is
+ * bounded, {@link #offer(String, long, double)} returns <code>false</code> if it is full and the caller has to write
+ * the samples of the item itself.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jSampleQueue {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final Map<String, List<PendingSample>> pendingSamples = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    private volatile int capacity = DEFAULT_CAPACITY;
+
+    /**
+     * A single sample waiting to be written
+     */
+    public static class PendingSample {
+        public final long time;
+        public final double value;
+
+        public PendingSample(long time, double value) {
+            this.time = time;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Add a sample to the queue
+     *
+     * @param name the item name (or alias)
+     * @param time the sample time in seconds
+     * @param value the sample value
+     * @return <code>true</code> if the sample was queued, <code>false</code> if the queue is full
+     */
+    public boolean offer(String name, long time, double value) {
+        if (size.get() >= capacity) {
+            return false;
+        }
+        pendingSamples.compute(name, (k, samples) -> {
+            List<PendingSample> list = samples == null ? new ArrayList<>() : samples;
+            int last = list.size() - 1;
+            if (last >= 0 && list.get(last).time >= time) {
+                // same second, only keep the latest value
+                list.set(last, new PendingSample(list.get(last).time, value));
+                merged.incrementAndGet();
+            } else {
+                list.add(new PendingSample(time, value));
+                size.incrementAndGet();
+            }
+            return list;
+        });
+        return true;
+    }
+
+    /**
+     * Put back a sample that could not be written yet
+     *
+     * The sample is discarded if a newer sample for the same item has been queued in the meantime.
+     *
+     * @param name the item name (or alias)
+     * @param sample the sample
+     */
+    public void requeue(String name, PendingSample sample) {
+        pendingSamples.compute(name, (k, samples) -> {
+            if (samples != null) {
+                merged.incrementAndGet();
+                return samples;
+            }
+            size.incrementAndGet();
+            List<PendingSample> list = new ArrayList<>();
+            list.add(sample);
+            return list;
+        });
+    }
+
+    /**
+     * Remove and return all queued samples of an item
+     *
+     * @param name the item name (or alias)
+     * @return the samples in chronological order or <code>null</code> if there are none
+     */
+    public @Nullable List<PendingSample> drain(String name) {
+        List<PendingSample> samples = pendingSamples.remove(name);
+        if (samples != null) {
+            size.addAndGet(-samples.size());
+        }
+        return samples;
+    }
+
+    /**
+     * Get the names of all items with queued samples
+     *
+     * @return a snapshot of the item names
+     */
+    public Set<String> getNames() {
+        return Set.copyOf(pendingSamples.keySet());
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void countMerged(int count) {
+        merged.addAndGet(count);
+    }
+
+    public void countDropped(int count) {
+        dropped.addAndGet(count);
+    }
+
+    public void countWritten(int count) {
+        written.addAndGet(count);
+    }
+
+    public long getMerged() {
+        return merged.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RRD4jSampleQueue [size=" + size + ", capacity=" + capacity + ", written=" + written + ", merged="
+                + merged + ", dropped=" + dropped + "]";
+    }
+}
@@ -17,12 +17,14 @@ import static java.util.Map.entry;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.imageio.ImageIO;
@@ -48,8 +50,7 @@ import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.http.HttpService;
 import org.osgi.service.http.NamespaceException;
-import org.rrd4j.ConsolFun;
-import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.FetchData;
 import org.rrd4j.graph.RrdGraph;
 import org.rrd4j.graph.RrdGraphConstants.FontTag;
 import org.rrd4j.graph.RrdGraphDef;
@@ -106,13 +107,16 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     private final HttpService httpService;
     private final ItemUIRegistry itemUIRegistry;
     private final TimeZoneProvider timeZoneProvider;
+    private final RRD4jPersistenceService persistenceService;
 
     @Activate
     public RRD4jChartServlet(final @Reference HttpService httpService, final @Reference ItemUIRegistry itemUIRegistry,
-            final @Reference TimeZoneProvider timeZoneProvider) {
+            final @Reference TimeZoneProvider timeZoneProvider,
+            final @Reference RRD4jPersistenceService persistenceService) {
         this.httpService = httpService;
         this.itemUIRegistry = itemUIRegistry;
         this.timeZoneProvider = timeZoneProvider;
+        this.persistenceService = persistenceService;
     }
 
     @Activate
@@ -180,29 +184,21 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
      * @param graphDef the graph definition to fill
      * @param item the item to add a line for
      * @param counter defines the number of the datasource and is used to determine the line color
+     * @param fetchData the data of the item
      */
-    protected void addLine(RrdGraphDef graphDef, Item item, int counter) {
+    protected void addLine(RrdGraphDef graphDef, Item item, int counter, FetchData fetchData) {
         Color color = LINECOLORS[counter % LINECOLORS.length];
         String label = itemUIRegistry.getLabel(item.getName());
-        String rrdName = RRD4jPersistenceService.DB_FOLDER + File.separator + item.getName() + ".rrd";
-        ConsolFun consolFun;
         if (label != null && label.contains("[") && label.contains("]")) {
             label = label.substring(0, label.indexOf('['));
         }
-        try {
-            RrdDb db = RrdDb.of(rrdName);
-            consolFun = db.getRrdDef().getArcDefs()[0].getConsolFun();
-            db.close();
-        } catch (IOException e) {
-            consolFun = ConsolFun.MAX;
-        }
+        // the fetched data is passed to the graph directly, so that it does not open the database file again
+        graphDef.datasource(Integer.toString(counter), "state", fetchData);
         if (item instanceof NumberItem) {
             // we only draw a line
-            graphDef.datasource(Integer.toString(counter), rrdName, "state", consolFun); // RRD4jService.getConsolidationFunction(item));
             graphDef.line(Integer.toString(counter), color, label, 2);
         } else {
             // we draw a line and fill the area beneath it with a transparent color
-            graphDef.datasource(Integer.toString(counter), rrdName, "state", consolFun); // RRD4jService.getConsolidationFunction(item));
             Color areaColor = AREACOLORS[counter % LINECOLORS.length];
 
             graphDef.area(Integer.toString(counter), areaColor);
@@ -249,14 +245,13 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
         graphDef.setFont(FontTag.TITLE, new Font("SansSerif", Font.PLAIN, 15));
         graphDef.setFont(FontTag.DEFAULT, new Font("SansSerif", Font.PLAIN, 11));
 
-        int seriesCounter = 0;
+        List<Item> chartItems = new ArrayList<>();
 
         // Loop through all the items
         if (items != null) {
             String[] itemNames = items.split(",");
             for (String itemName : itemNames) {
-                Item item = itemUIRegistry.getItem(itemName);
-                addLine(graphDef, item, seriesCounter++);
+                chartItems.add(itemUIRegistry.getItem(itemName));
             }
         }
 
@@ -267,15 +262,30 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
                 Item item = itemUIRegistry.getItem(groupName);
                 if (item instanceof GroupItem) {
                     GroupItem groupItem = (GroupItem) item;
-                    for (Item member : groupItem.getMembers()) {
-                        addLine(graphDef, member, seriesCounter++);
-                    }
+                    chartItems.addAll(groupItem.getMembers());
                 } else {
                     throw new ItemNotFoundException("Item '" + item.getName() + "' defined in groups is not a group.");
                 }
             }
         }
 
+        // fetch the data of all items in one pass, at the resolution of the chart
+        Map<String, Item> itemsByName = new LinkedHashMap<>();
+        chartItems.forEach(item -> itemsByName.putIfAbsent(item.getName(), item));
+        long start = startTime.toEpochSecond();
+        long end = endTime.toEpochSecond();
+        long resolution = Math.max(1, (end - start) / Math.max(1, width));
+        Map<String, FetchData> fetchData = persistenceService.fetch(itemsByName.keySet(), start, end, resolution);
+
+        int seriesCounter = 0;
+        for (Item item : chartItems) {
+            FetchData data = fetchData.get(item.getName());
+            if (data != null) {
+                addLine(graphDef, item, seriesCounter, data);
+            }
+            seriesCounter++;
+        }
+
         // Write the chart as a PNG image
         try {
             RrdGraph graph = new RrdGraph(graphDef);
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rrd4j.ConsolFun;
+import org.rrd4j.DsType;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdDef;
+
+/**
+ * Tests for {@link RRD4jDbPool}
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jDbPoolTest {
+
+    private @TempDir @NonNullByDefault({}) Path tempDir;
+
+    private final RRD4jDbPool pool = new RRD4jDbPool();
+
+    private RrdDb open(String name) throws IOException {
+        RrdDef rrdDef = new RrdDef(tempDir.resolve(name + ".rrd").toString(), 60);
+        rrdDef.addDatasource("state", DsType.GAUGE, 120, Double.NaN, Double.NaN);
+        rrdDef.addArchive(ConsolFun.AVERAGE, 0.5, 1, 10);
+        return RrdDb.of(rrdDef);
+    }
+
+    @Test
+    public void openDatabaseIsReused() throws IOException {
+        assertNull(pool.get("item"));
+        assertEquals(1, pool.getMisses());
+
+        RrdDb db = open("item");
+        pool.put("item", db);
+
+        assertSame(db, pool.get("item"));
+        assertSame(db, pool.get("item"));
+        assertEquals(2, pool.getHits());
+        assertEquals(1, pool.getOpenCount());
+        assertFalse(db.isClosed());
+    }
+
+    @Test
+    public void closedDatabaseIsNotReturned() throws IOException {
+        RrdDb db = open("item");
+        pool.put("item", db);
+        db.close();
+
+        assertNull(pool.get("item"));
+        assertEquals(0, pool.getOpenCount());
+    }
+
+    @Test
+    public void replacedDatabaseIsClosed() throws IOException {
+        RrdDb first = open("item");
+        pool.put("item", first);
+        RrdDb second = RrdDb.of(first.getPath());
+        pool.put("item", second);
+
+        assertTrue(first.isClosed());
+        assertSame(second, pool.get("item"));
+    }
+
+    @Test
+    public void leastRecentlyUsedDatabaseIsClosedWhenFull() throws IOException {
+        pool.setCapacity(2);
+        RrdDb db1 = open("item1");
+        RrdDb db2 = open("item2");
+        RrdDb db3 = open("item3");
+        pool.put("item1", db1);
+        pool.put("item2", db2);
+        // item1 is now used more recently than item2
+        pool.get("item1");
+        pool.put("item3", db3);
+
+        assertEquals(2, pool.getOpenCount());
+        assertEquals(1, pool.getEvictions());
+        assertTrue(db2.isClosed());
+        assertSame(db1, pool.get("item1"));
+        assertSame(db3, pool.get("item3"));
+    }
+
+    @Test
+    public void databaseInUseIsNotEvicted() throws Exception {
+        pool.setCapacity(1);
+        RrdDb db1 = open("item1");
+        pool.put("item1", db1);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread user = new Thread(() -> {
+            Lock lock = pool.getLock("item1");
+            lock.lock();
+            try {
+                locked.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        user.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        RrdDb db2 = open("item2");
+        pool.put("item2", db2);
+        // item1 is locked by another thread, so the pool temporarily exceeds its capacity
+        assertFalse(db1.isClosed());
+        assertEquals(2, pool.getOpenCount());
+
+        release.countDown();
+        user.join();
+
+        RrdDb db3 = open("item3");
+        pool.put("item3", db3);
+        assertTrue(db1.isClosed());
+        assertTrue(db2.isClosed());
+        assertEquals(1, pool.getOpenCount());
+    }
+
+    @Test
+    public void reducedCapacityClosesDatabases() throws IOException {
+        RrdDb db1 = open("item1");
+        RrdDb db2 = open("item2");
+        pool.put("item1", db1);
+        pool.put("item2", db2);
+
+        pool.setCapacity(1);
+
+        assertEquals(1, pool.getOpenCount());
+        assertTrue(db1.isClosed());
+        assertFalse(db2.isClosed());
+    }
+
+    @Test
+    public void removeAndCloseAllCloseDatabases() throws IOException {
+        RrdDb db1 = open("item1");
+        RrdDb db2 = open("item2");
+        RrdDb db3 = open("item3");
+        pool.put("item1", db1);
+        pool.put("item2", db2);
+        pool.put("item3", db3);
+
+        pool.remove("item1");
+        assertTrue(db1.isClosed());
+        assertEquals(2, pool.getOpenCount());
+
+        pool.closeAll();
+        assertTrue(db2.isClosed());
+        assertTrue(db3.isClosed());
+        assertEquals(0, pool.getOpenCount());
+        assertNull(pool.get("item2"));
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openhab.core.OpenHAB;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.rrd4j.core.FetchData;
+
+/**
+ * Tests the bulk fetch of {@link RRD4jPersistenceService} through the pooled databases
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jPersistenceServiceTest {
+
+    private static @TempDir @NonNullByDefault({}) Path userDataFolder;
+
+    private final ItemRegistry itemRegistry = mock(ItemRegistry.class);
+    private @NonNullByDefault({}) RRD4jPersistenceService service;
+
+    @BeforeAll
+    public static void setUserDataFolder() {
+        // the database folder is determined when the service class is loaded
+        System.setProperty(OpenHAB.USERDATA_DIR_PROG_ARGUMENT, userDataFolder.toString());
+    }
+
+    @BeforeEach
+    public void setup() {
+        service = new RRD4jPersistenceService(itemRegistry);
+        service.activate(Map.of());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.deactivate();
+        File[] files = new File(RRD4jPersistenceService.DB_FOLDER).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void fetchReturnsTheDataOfSeveralItemsInOrder() throws Exception {
+        store("Temperature", 21);
+        store("Humidity", 55);
+        store("Pressure", 1013);
+
+        long now = System.currentTimeMillis() / 1000;
+        Map<String, FetchData> result = service.fetch(List.of("Pressure", "Temperature", "Humidity"), now - 3600,
+                now, 60);
+
+        assertEquals(List.of("Pressure", "Temperature", "Humidity"), List.copyOf(result.keySet()));
+        // the queued samples are written before the data is fetched
+        assertEquals(1013, lastValue(result.get("Pressure")));
+        assertEquals(21, lastValue(result.get("Temperature")));
+        assertEquals(55, lastValue(result.get("Humidity")));
+    }
+
+    @Test
+    public void fetchUsesThePooledDatabases() throws Exception {
+        store("Temperature", 21);
+        store("Humidity", 55);
+
+        long now = System.currentTimeMillis() / 1000;
+        Map<String, FetchData> first = service.fetch(List.of("Temperature", "Humidity"), now - 3600, now, 60);
+        Map<String, FetchData> second = service.fetch(List.of("Temperature", "Humidity"), now - 3600, now, 60);
+
+        for (String itemName : List.of("Temperature", "Humidity")) {
+            FetchData firstData = first.get(itemName);
+            FetchData secondData = second.get(itemName);
+            assertNotNull(firstData);
+            assertNotNull(secondData);
+            assertSame(firstData.getRequest().getParentDb(), secondData.getRequest().getParentDb());
+            assertFalse(firstData.getRequest().getParentDb().isClosed());
+        }
+    }
+
+    @Test
+    public void fetchSkipsItemsWithoutDatabase() throws Exception {
+        store("Temperature", 21);
+
+        long now = System.currentTimeMillis() / 1000;
+        Map<String, FetchData> result = service.fetch(List.of("Unknown", "Temperature"), now - 3600, now, 60);
+
+        assertEquals(List.of("Temperature"), List.copyOf(result.keySet()));
+        // fetching doesn't create databases
+        assertFalse(new File(RRD4jPersistenceService.DB_FOLDER, "Unknown.rrd").exists());
+    }
+
+    private void store(String itemName, int value) throws ItemNotFoundException {
+        NumberItem item = new NumberItem(itemName);
+        item.setState(new DecimalType(value));
+        when(itemRegistry.getItem(itemName)).thenReturn(item);
+        service.store(item);
+    }
+
+    private static double lastValue(@Nullable FetchData data) throws IOException {
+        assertNotNull(data);
+        return data.getRequest().getParentDb().getLastDatasourceValue("state");
+    }
+}
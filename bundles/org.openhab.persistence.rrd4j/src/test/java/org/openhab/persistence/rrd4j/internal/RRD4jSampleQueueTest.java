@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.openhab.persistence.rrd4j.internal.RRD4jSampleQueue.PendingSample;
+
+/**
+ * Tests for {@link RRD4jSampleQueue}
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jSampleQueueTest {
+
+    private final RRD4jSampleQueue queue = new RRD4jSampleQueue();
+
+    @Test
+    public void samplesOfTheSameSecondAreCoalesced() {
+        assertTrue(queue.offer("item", 100, 1.0));
+        assertTrue(queue.offer("item", 100, 2.0));
+        assertTrue(queue.offer("item", 100, 3.0));
+
+        assertEquals(1, queue.size());
+        assertEquals(2, queue.getMerged());
+
+        List<PendingSample> samples = Objects.requireNonNull(queue.drain("item"));
+        assertEquals(1, samples.size());
+        assertEquals(100, samples.get(0).time);
+        assertEquals(3.0, samples.get(0).value, 0.0);
+    }
+
+    @Test
+    public void samplesOfDifferentSecondsAndItemsAreKept() {
+        queue.offer("item1", 100, 1.0);
+        queue.offer("item1", 101, 2.0);
+        queue.offer("item2", 100, 3.0);
+
+        assertEquals(3, queue.size());
+        assertEquals(Set.of("item1", "item2"), queue.getNames());
+
+        List<PendingSample> samples = Objects.requireNonNull(queue.drain("item1"));
+        assertEquals(2, samples.size());
+        assertEquals(100, samples.get(0).time);
+        assertEquals(101, samples.get(1).time);
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void fullQueueRejectsSamples() {
+        queue.setCapacity(2);
+        assertTrue(queue.offer("item1", 100, 1.0));
+        assertTrue(queue.offer("item2", 100, 2.0));
+
+        assertFalse(queue.offer("item3", 100, 3.0));
+        assertFalse(queue.offer("item1", 101, 4.0));
+        assertEquals(2, queue.size());
+        assertNull(queue.drain("item3"));
+
+        // draining an item makes room again
+        queue.drain("item1");
+        assertTrue(queue.offer("item3", 100, 3.0));
+    }
+
+    @Test
+    public void drainEmptiesTheQueue() {
+        queue.offer("item1", 100, 1.0);
+        queue.offer("item2", 100, 2.0);
+
+        for (String name : queue.getNames()) {
+            assertNotNull(queue.drain(name));
+        }
+
+        assertEquals(0, queue.size());
+        assertTrue(queue.getNames().isEmpty());
+        assertNull(queue.drain("item1"));
+    }
+
+    @Test
+    public void requeuedSampleIsDiscardedIfNewerSamplesArePending() {
+        queue.requeue("item1", new PendingSample(100, 1.0));
+        assertEquals(1, queue.size());
+
+        queue.offer("item2", 101, 2.0);
+        queue.requeue("item2", new PendingSample(100, 3.0));
+
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.getMerged());
+        List<PendingSample> samples = Objects.requireNonNull(queue.drain("item2"));
+        assertEquals(1, samples.size());
+        assertEquals(2.0, samples.get(0).value, 0.0);
+    }
+}
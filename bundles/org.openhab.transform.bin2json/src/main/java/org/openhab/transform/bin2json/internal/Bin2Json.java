@@ -12,8 +12,10 @@
  */
 package org.openhab.transform.bin2json.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.LocalDateTime;
 
@@ -66,6 +68,10 @@ import com.igormaznitsa.jbbp.model.JBBPFieldUShort;
  * json.toString() = {"a":3,"b":-6,"c":255}
  * </pre>
  *
+ * <p>
+ * The parser rule is compiled once, a {@link Bin2Json} instance can be used for any number of conversions and by
+ * several threads at the same time.
+ *
  * @author Pauli Anttila - Initial contribution
  *
  */
@@ -120,6 +126,24 @@ public class Bin2Json {
         }
     }
 
+    /**
+     * Convert the remaining bytes of a {@link ByteBuffer} to JSON object. The position of the buffer is not changed.
+     *
+     * @param buffer Data in byte buffer format.
+     * @return Gson {@link JsonObject}
+     * @throws ConversionException
+     */
+    public JsonObject convert(ByteBuffer buffer) throws ConversionException {
+        if (buffer.hasArray()) {
+            // parse the backing array in place instead of copying it
+            return convert(new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    buffer.remaining()));
+        }
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return convert(data);
+    }
+
     /**
      * Convert data from {@link InputStream} to JSON object.
      *
@@ -12,6 +12,10 @@
  */
 package org.openhab.transform.bin2json.internal;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.transform.TransformationException;
@@ -24,14 +28,27 @@ import org.slf4j.LoggerFactory;
  * The implementation of {@link TransformationService} which transforms the
  * hexa string formatted binary data by Binary Block Parser syntax to JSON format.
  *
+ * The compiled parsers of the most recently used syntaxes are cached.
+ *
  * @author Pauli Anttila - Initial contribution
  */
 @NonNullByDefault
 @Component(property = { "openhab.transform=BIN2JSON" })
 public class Bin2JsonTransformationService implements TransformationService {
 
+    static final int MAX_CACHED_PARSERS = 64;
+
     private Logger logger = LoggerFactory.getLogger(Bin2JsonTransformationService.class);
 
+    private final Map<String, Bin2Json> parsers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, Bin2Json> eldest) {
+            return size() > MAX_CACHED_PARSERS;
+        }
+    });
+
     /**
      * Transforms the input <code>source</code> by Java Binary Block Parser syntax.
      *
@@ -46,7 +63,7 @@ public class Bin2JsonTransformationService implements TransformationService {
         String result = "";
 
         try {
-            result = String.valueOf(new Bin2Json(syntax).convert(source));
+            result = String.valueOf(getParser(syntax).convert(source));
             logger.debug("transformation resulted '{}'", result);
             return result;
         } catch (ConversionException e) {
@@ -56,4 +73,14 @@ public class Bin2JsonTransformationService implements TransformationService {
                     result);
         }
     }
+
+    private Bin2Json getParser(String syntax) throws ConversionException {
+        Bin2Json parser = parsers.get(syntax);
+        if (parser == null) {
+            // an invalid syntax throws and is not cached
+            parser = new Bin2Json(syntax);
+            parsers.put(syntax, parser);
+        }
+        return parser;
+    }
 }
@@ -17,14 +17,16 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.time.Duration;
-import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.script.Bindings;
 import javax.script.Compilable;
 import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
@@ -32,14 +34,20 @@ import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
-import org.openhab.core.cache.ExpiringCacheMap;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.transform.TransformationException;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Simple cache for compiled JavaScript files.
+ * Pool of JavaScript engines with caches for compiled JavaScript files and inline scripts.
+ *
+ * A {@link CompiledScript} is bound to the engine that compiled it and an engine must not evaluate scripts of
+ * several threads at the same time. So every engine has its own caches and a transformation borrows an engine from
+ * the pool for the duration of the evaluation. At most {@link #MAX_ENGINES} engines are created, further
+ * transformations wait for an engine to be returned.
  *
  * @author Thomas Kordelle - Initial contribution
  * @author Thomas Kordelle - pre compiled scripts
@@ -48,86 +56,167 @@ import org.slf4j.LoggerFactory;
 @Component(service = JavaScriptEngineManager.class)
 public class JavaScriptEngineManager {
 
+    static final int MAX_ENGINES = Math.max(2, Runtime.getRuntime().availableProcessors());
+    static final int MAX_CACHED_INLINE_SCRIPTS = 64;
+
     private final Logger logger = LoggerFactory.getLogger(JavaScriptEngineManager.class);
     private final ScriptEngineManager manager = new ScriptEngineManager();
-    /* keep memory foot print low. max 2 concurrent threads are estimated */
-    private final Map<String, CompiledScript> compiledScriptMap = new ConcurrentHashMap<>(4, 0.5f, 2);
-    private final ExpiringCacheMap<String, CompiledScript> cacheForInlineScripts = new ExpiringCacheMap<>(
-            Duration.ofDays(1));
+
+    private final BlockingDeque<PooledEngine> idleEngines = new LinkedBlockingDeque<>();
+    private final List<PooledEngine> engines = new CopyOnWriteArrayList<>();
+    private final AtomicInteger engineCount = new AtomicInteger();
+
+    @Deactivate
+    public void deactivate() {
+        idleEngines.clear();
+        engines.clear();
+        engineCount.set(0);
+    }
 
     /**
-     * Get a pre compiled script {@link CompiledScript} from cache. If it is not in the cache, then load it from
-     * storage and put a pre compiled version into the cache.
+     * Evaluate a JavaScript file. If it is not in the cache of the engine, then load it from storage and put a pre
+     * compiled version into the cache.
      *
      * @param filename name of the JavaScript file to load
-     * @return a pre compiled script {@link CompiledScript}
-     * @throws TransformationException if compile of JavaScript failed
+     * @param variables the variables to pass to the script
+     * @return the result of the script
+     * @throws TransformationException if compile or execution of JavaScript failed
      */
-    protected CompiledScript getCompiledScriptByFilename(final String filename) throws TransformationException {
-        synchronized (compiledScriptMap) {
-            CompiledScript compiledScript = compiledScriptMap.get(filename);
-            if (compiledScript != null) {
-                logger.debug("Loading JavaScript {} from cache.", filename);
-                return compiledScript;
-            } else {
-                final String path = TransformationScriptWatcher.TRANSFORM_FOLDER + File.separator + filename;
-                logger.debug("Loading script {} from storage ", path);
-                try (final Reader reader = new InputStreamReader(new FileInputStream(path))) {
-                    final ScriptEngine engine = manager.getEngineByName("javascript");
-                    final CompiledScript cScript = ((Compilable) engine).compile(reader);
-                    logger.debug("Putting compiled JavaScript {} to cache.", cScript);
-                    compiledScriptMap.put(filename, cScript);
-                    return cScript;
-                } catch (IOException | ScriptException e) {
-                    throw new TransformationException("An error occurred while loading JavaScript. " + e.getMessage(),
-                            e);
-                }
-            }
+    protected @Nullable Object evalScriptFile(final String filename, final Map<String, String> variables)
+            throws TransformationException {
+        PooledEngine engine = borrowEngine();
+        try {
+            return eval(engine.getCompiledScriptByFilename(filename), variables);
+        } finally {
+            idleEngines.offerFirst(engine);
         }
     }
 
     /**
-     * Get a pre compiled script {@link CompiledScript} from cache. If it is not in the cache, then compile
-     * it and put a pre compiled version into the cache.
+     * Evaluate an inline script. If it is not in the cache of the engine, then compile it and put a pre compiled
+     * version into the cache.
      *
-     * @param script JavaScript which should be returned as a pre compiled
-     * @return a pre compiled script {@link CompiledScript}
-     * @throws TransformationException if compile of JavaScript failed
+     * @param script JavaScript to evaluate
+     * @param variables the variables to pass to the script
+     * @return the result of the script
+     * @throws TransformationException if compile or execution of JavaScript failed
      */
-    protected CompiledScript getCompiledScriptByInlineScript(final String script) throws TransformationException {
-        synchronized (cacheForInlineScripts) {
-            try {
-                final String hash = calcHash(script);
-                final CompiledScript compiledScript = cacheForInlineScripts.get(hash);
-                if (compiledScript != null) {
-                    logger.debug("Loading JavaScript from cache.");
-                    return compiledScript;
-                } else {
-                    logger.debug("Compiling script {}", script);
-                    final ScriptEngine engine = manager.getEngineByName("javascript");
-                    final CompiledScript cScript = ((Compilable) engine).compile(script);
-                    cacheForInlineScripts.put(hash, () -> cScript);
-                    return cScript;
-                }
-            } catch (ScriptException | NoSuchAlgorithmException e) {
-                throw new TransformationException("An error occurred while compiling JavaScript. " + e.getMessage(), e);
-            }
+    protected @Nullable Object evalInlineScript(final String script, final Map<String, String> variables)
+            throws TransformationException {
+        PooledEngine engine = borrowEngine();
+        try {
+            return eval(engine.getCompiledScriptByInlineScript(script), variables);
+        } finally {
+            idleEngines.offerFirst(engine);
         }
     }
 
     /**
-     * remove a pre compiled script from cache.
+     * remove a pre compiled script from the caches of all engines.
      *
      * @param fileName name of the script file to remove
      */
     protected void removeFromCache(String fileName) {
         logger.debug("Removing JavaScript {} from cache.", fileName);
-        compiledScriptMap.remove(fileName);
+        engines.forEach(engine -> engine.compiledScriptMap.remove(fileName));
+    }
+
+    private @Nullable Object eval(CompiledScript compiledScript, Map<String, String> variables)
+            throws TransformationException {
+        try {
+            final Bindings bindings = compiledScript.getEngine().createBindings();
+            bindings.putAll(variables);
+            return compiledScript.eval(bindings);
+        } catch (ScriptException e) {
+            throw new TransformationException("An error occurred while executing script. " + e.getMessage(), e);
+        }
+    }
+
+    private PooledEngine borrowEngine() throws TransformationException {
+        PooledEngine engine = idleEngines.pollFirst();
+        if (engine != null) {
+            return engine;
+        }
+        if (engineCount.incrementAndGet() <= MAX_ENGINES) {
+            try {
+                engine = new PooledEngine(createEngine());
+            } catch (TransformationException e) {
+                engineCount.decrementAndGet();
+                throw e;
+            }
+            engines.add(engine);
+            logger.debug("Created JavaScript engine {} of {}.", engines.size(), MAX_ENGINES);
+            return engine;
+        }
+        engineCount.decrementAndGet();
+        try {
+            return idleEngines.takeFirst();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransformationException("Interrupted while waiting for a JavaScript engine.", e);
+        }
+    }
+
+    private ScriptEngine createEngine() throws TransformationException {
+        final ScriptEngine engine = manager.getEngineByName("javascript");
+        if (engine == null) {
+            throw new TransformationException("No JavaScript engine available.");
+        }
+        return engine;
     }
 
-    private String calcHash(final String script) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] hash = digest.digest(script.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(hash);
+    /**
+     * An engine with its compiled scripts, used by one thread at a time
+     */
+    private class PooledEngine {
+        private final ScriptEngine engine;
+        // entries are removed by the file watcher while the engine is in use
+        private final Map<String, CompiledScript> compiledScriptMap = new ConcurrentHashMap<>();
+        private final Map<String, CompiledScript> cacheForInlineScripts = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.@Nullable Entry<String, CompiledScript> eldest) {
+                return size() > MAX_CACHED_INLINE_SCRIPTS;
+            }
+        };
+
+        private PooledEngine(ScriptEngine engine) {
+            this.engine = engine;
+        }
+
+        private CompiledScript getCompiledScriptByFilename(final String filename) throws TransformationException {
+            CompiledScript compiledScript = compiledScriptMap.get(filename);
+            if (compiledScript != null) {
+                logger.debug("Loading JavaScript {} from cache.", filename);
+                return compiledScript;
+            }
+            final String path = TransformationScriptWatcher.TRANSFORM_FOLDER + File.separator + filename;
+            logger.debug("Loading script {} from storage ", path);
+            try (final Reader reader = new InputStreamReader(new FileInputStream(path))) {
+                final CompiledScript cScript = ((Compilable) engine).compile(reader);
+                logger.debug("Putting compiled JavaScript {} to cache.", cScript);
+                compiledScriptMap.put(filename, cScript);
+                return cScript;
+            } catch (IOException | ScriptException e) {
+                throw new TransformationException("An error occurred while loading JavaScript. " + e.getMessage(), e);
+            }
+        }
+
+        private CompiledScript getCompiledScriptByInlineScript(final String script) throws TransformationException {
+            CompiledScript compiledScript = cacheForInlineScripts.get(script);
+            if (compiledScript != null) {
+                logger.debug("Loading JavaScript from cache.");
+                return compiledScript;
+            }
+            logger.debug("Compiling script {}", script);
+            try {
+                final CompiledScript cScript = ((Compilable) engine).compile(script);
+                cacheForInlineScripts.put(script, cScript);
+                return cScript;
+            } catch (ScriptException e) {
+                throw new TransformationException("An error occurred while compiling JavaScript. " + e.getMessage(), e);
+            }
+        }
     }
 }
@@ -19,17 +19,12 @@ import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import javax.script.Bindings;
-import javax.script.CompiledScript;
-import javax.script.ScriptException;
-
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.config.core.ConfigOptionProvider;
@@ -88,45 +83,39 @@ public class JavaScriptTransformationService implements TransformationService, C
         final long startTime = System.currentTimeMillis();
         logger.debug("about to transform '{}' by the JavaScript '{}'", source, filenameOrInlineScript);
 
-        Map<String, String> vars = Collections.emptyMap();
+        Map<String, String> bindings = new LinkedHashMap<>();
+        bindings.put(SCRIPT_DATA_WORD, source);
         String result = "";
 
-        CompiledScript cScript;
-
-        if (filenameOrInlineScript.startsWith("|")) {
-            // inline java script
-            cScript = manager.getCompiledScriptByInlineScript(filenameOrInlineScript.substring(1));
-        } else {
-            String filename = filenameOrInlineScript;
-
-            if (filename.contains("?")) {
-                String[] parts = filename.split("\\?");
-                if (parts.length > 2) {
-                    throw new TransformationException("Questionmark should be defined only once in the filename");
-                }
-                filename = parts[0];
-                try {
-                    vars = splitQuery(parts[1]);
-                } catch (IllegalArgumentException e) {
-                    throw new TransformationException("Illegal filename syntax");
-                }
-                if (isReservedWordUsed(vars)) {
-                    throw new TransformationException(
-                            "'" + SCRIPT_DATA_WORD + "' word is reserved and can't be used in additional parameters");
+        try {
+            if (filenameOrInlineScript.startsWith("|")) {
+                // inline java script
+                result = String.valueOf(manager.evalInlineScript(filenameOrInlineScript.substring(1), bindings));
+            } else {
+                String filename = filenameOrInlineScript;
+
+                if (filename.contains("?")) {
+                    String[] parts = filename.split("\\?");
+                    if (parts.length > 2) {
+                        throw new TransformationException("Questionmark should be defined only once in the filename");
+                    }
+                    filename = parts[0];
+                    Map<String, String> vars;
+                    try {
+                        vars = splitQuery(parts[1]);
+                    } catch (IllegalArgumentException e) {
+                        throw new TransformationException("Illegal filename syntax");
+                    }
+                    if (isReservedWordUsed(vars)) {
+                        throw new TransformationException("'" + SCRIPT_DATA_WORD
+                                + "' word is reserved and can't be used in additional parameters");
+                    }
+                    bindings.putAll(vars);
                 }
-            }
 
-            cScript = manager.getCompiledScriptByFilename(filename);
-        }
-
-        try {
-            final Bindings bindings = cScript.getEngine().createBindings();
-            bindings.put(SCRIPT_DATA_WORD, source);
-            vars.forEach((k, v) -> bindings.put(k, v));
-            result = String.valueOf(cScript.eval(bindings));
+                result = String.valueOf(manager.evalScriptFile(filename, bindings));
+            }
             return result;
-        } catch (ScriptException e) {
-            throw new TransformationException("An error occurred while executing script. " + e.getMessage(), e);
         } finally {
             logger.trace("JavaScript execution elapsed {} ms. Result: {}", System.currentTimeMillis() - startTime,
                     result);
@@ -20,7 +20,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
@@ -190,4 +195,36 @@ public class JavaScriptTransformationServiceTest {
         String transformedResponse = processor.transform(SCRIPT, DATA);
         assertEquals("ab?d&f", transformedResponse);
     }
+
+    @Test
+    public void testConcurrentTransformations() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(JavaScriptEngineManager.MAX_ENGINES * 2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < JavaScriptEngineManager.MAX_ENGINES * 2; thread++) {
+                final int data = thread * 100;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        assertEquals(data + "!", processor.transform("| input + '!'", String.valueOf(data)));
+                        assertEquals(String.valueOf(data + 11),
+                                processor.transform("sum.js?a=10&b=1", String.valueOf(data)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInlineScriptCacheIsBounded() throws Exception {
+        for (int i = 0; i <= JavaScriptEngineManager.MAX_CACHED_INLINE_SCRIPTS; i++) {
+            assertEquals("100-" + i, processor.transform("| input + '-' + " + i, "100"));
+        }
+        assertEquals("100-0", processor.transform("| input + '-' + 0", "100"));
+    }
 }
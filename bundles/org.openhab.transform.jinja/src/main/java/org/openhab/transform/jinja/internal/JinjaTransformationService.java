@@ -14,11 +14,15 @@ package org.openhab.transform.jinja.internal;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -32,12 +36,22 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hubspot.jinjava.Jinjava;
 import com.hubspot.jinjava.JinjavaConfig;
+import com.hubspot.jinjava.interpret.Context;
 import com.hubspot.jinjava.interpret.FatalTemplateErrorsException;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.interpret.TemplateError;
+import com.hubspot.jinjava.interpret.TemplateError.ErrorType;
+import com.hubspot.jinjava.tree.Node;
 
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by Jinja2 Expressions.
  *
+ * <p>
+ * The parsed node trees of the most recently used templates are cached, rendering does not modify them. The input is
+ * only parsed as JSON if the template refers to <code>value_json</code>, and the converted JSON of the last input is
+ * reused by the following transformations of the same input.
+ *
  * @author Jochen Klein - Initial contribution
  *
  */
@@ -45,10 +59,29 @@ import com.hubspot.jinjava.interpret.FatalTemplateErrorsException;
 @Component(property = { "openhab.transform=JINJA" })
 public class JinjaTransformationService implements TransformationService {
 
+    static final int MAX_CACHED_TEMPLATES = 128;
+
+    private static final String VALUE = "value";
+    private static final String VALUE_JSON = "value_json";
+
     private final Logger logger = LoggerFactory.getLogger(JinjaTransformationService.class);
 
     private final JinjavaConfig config = JinjavaConfig.newBuilder().withFailOnUnknownTokens(true).build();
     private final Jinjava jinjava = new Jinjava(config);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, ParsedTemplate> templates = Collections
+            .synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.@Nullable Entry<String, ParsedTemplate> eldest) {
+                    return size() > MAX_CACHED_TEMPLATES;
+                }
+            });
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private volatile @Nullable ConvertedJson lastJson;
 
     /**
      * Transforms the input <code>value</code> by Jinja template.
@@ -64,18 +97,31 @@ public class JinjaTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", value, template);
 
-        bindings.put("value", value);
+        bindings.put(VALUE, value);
 
+        JinjavaInterpreter interpreter = new JinjavaInterpreter(jinjava,
+                new Context(jinjava.getGlobalContext(), bindings, config.getDisabled()), config);
+        JinjavaInterpreter.pushCurrent(interpreter);
         try {
-            JsonNode tree = new ObjectMapper().readTree(value);
-            bindings.put("value_json", toObject(tree));
-        } catch (IOException e) {
-            // ok, then value_json is null...
+            ParsedTemplate parsedTemplate = parse(interpreter, template);
+            if (parsedTemplate.usesJson) {
+                ConvertedJson json = convertJson(value);
+                if (json != null) {
+                    interpreter.getContext().put(VALUE_JSON, json.object);
+                }
+            }
+            transformationResult = interpreter.render(parsedTemplate.root, true);
+        } catch (RuntimeException e) {
+            throw new TransformationException("An error occurred while transformation. " + e.getMessage(), e);
+        } finally {
+            JinjavaInterpreter.popCurrent();
+            jinjava.getGlobalContext().reset();
         }
 
-        try {
-            transformationResult = jinjava.render(template, bindings);
-        } catch (FatalTemplateErrorsException e) {
+        List<TemplateError> fatalErrors = interpreter.getErrorsCopy().stream()
+                .filter(error -> error.getSeverity() == ErrorType.FATAL).collect(Collectors.toList());
+        if (!fatalErrors.isEmpty()) {
+            FatalTemplateErrorsException e = new FatalTemplateErrorsException(template, fatalErrors);
             throw new TransformationException("An error occurred while transformation. " + e.getMessage(), e);
         }
 
@@ -84,6 +130,58 @@ public class JinjaTransformationService implements TransformationService {
         return transformationResult;
     }
 
+    /**
+     * @return the number of transformations that used an already parsed template
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * @return the number of transformations that had to parse their template
+     */
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * @return the number of cached templates
+     */
+    public int getCacheSize() {
+        return templates.size();
+    }
+
+    private ParsedTemplate parse(JinjavaInterpreter interpreter, String template) {
+        ParsedTemplate parsedTemplate = templates.get(template);
+        if (parsedTemplate != null) {
+            cacheHits.incrementAndGet();
+            return parsedTemplate;
+        }
+        cacheMisses.incrementAndGet();
+        parsedTemplate = new ParsedTemplate(interpreter.parse(template), template.contains(VALUE_JSON));
+        // a template with syntax errors is parsed again, so that its errors are reported every time
+        if (interpreter.getErrorsCopy().isEmpty()) {
+            templates.put(template, parsedTemplate);
+        }
+        return parsedTemplate;
+    }
+
+    private @Nullable ConvertedJson convertJson(String value) {
+        ConvertedJson json = lastJson;
+        if (json != null && json.value.equals(value)) {
+            return json;
+        }
+        try {
+            JsonNode tree = objectMapper.readTree(value);
+            json = new ConvertedJson(value, toObject(tree));
+            lastJson = json;
+            return json;
+        } catch (IOException e) {
+            // ok, then value_json is null...
+            return null;
+        }
+    }
+
     private static @Nullable Object toObject(JsonNode node) {
         switch (node.getNodeType()) {
             case ARRAY: {
@@ -91,7 +189,8 @@ public class JinjaTransformationService implements TransformationService {
                 for (JsonNode el : node) {
                     result.add(toObject(el));
                 }
-                return result;
+                // the converted JSON is shared by transformations of the same input
+                return Collections.unmodifiableList(result);
             }
             case NUMBER:
                 return node.decimalValue();
@@ -102,7 +201,7 @@ public class JinjaTransformationService implements TransformationService {
                     Entry<String, JsonNode> field = it.next();
                     result.put(field.getKey(), toObject(field.getValue()));
                 }
-                return result;
+                return Collections.unmodifiableMap(result);
             }
             case STRING:
                 return node.asText();
@@ -113,4 +212,24 @@ public class JinjaTransformationService implements TransformationService {
                 return null;
         }
     }
+
+    private static class ParsedTemplate {
+        private final Node root;
+        private final boolean usesJson;
+
+        private ParsedTemplate(Node root, boolean usesJson) {
+            this.root = root;
+            this.usesJson = usesJson;
+        }
+    }
+
+    private static class ConvertedJson {
+        private final String value;
+        private final @Nullable Object object;
+
+        private ConvertedJson(String value, @Nullable Object object) {
+            this.value = value;
+            this.object = object;
+        }
+    }
 }
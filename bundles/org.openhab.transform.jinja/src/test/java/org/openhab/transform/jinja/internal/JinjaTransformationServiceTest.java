@@ -115,4 +115,35 @@ public class JinjaTransformationServiceTest {
         // then map key is defined
         assertEquals("true", transformedResponse);
     }
+
+    @Test
+    public void testParsedTemplatesAreCached() throws TransformationException {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i),
+                    processor.transform("{{ value_json.counter }}", "{\"counter\": " + i + "}"));
+            assertEquals("Hello " + i + "!", processor.transform("Hello {{ value }}!", String.valueOf(i)));
+        }
+
+        assertEquals(2, processor.getCacheMisses());
+        assertEquals(4, processor.getCacheHits());
+        assertEquals(2, processor.getCacheSize());
+    }
+
+    @Test
+    public void testTemplateErrorIsReportedEveryTime() {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(TransformationException.class,
+                    () -> processor.transform("Hello {{{ value_json.string }}!", "{\"string\": \"world\"}"));
+        }
+    }
+
+    @Test
+    public void testSameInputWithSeveralTemplates() throws TransformationException {
+        String json = "{\"temperature\": 21.5, \"humidity\": 40, \"state\": \"ON\"}";
+
+        assertEquals("21.5", processor.transform("{{ value_json.temperature }}", json));
+        assertEquals("40", processor.transform("{{ value_json.humidity }}", json));
+        assertEquals("ON", processor.transform("{{ value_json.state }}", json));
+        assertEquals("OFF", processor.transform("{{ value_json.state }}", "{\"state\": \"OFF\"}"));
+    }
 }
@@ -12,7 +12,10 @@
  */
 package org.openhab.transform.jsonpath.internal;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -24,6 +27,7 @@ import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
@@ -33,6 +37,11 @@ import com.jayway.jsonpath.PathNotFoundException;
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by JSonPath Expressions.
  *
+ * <p>
+ * Things usually apply several expressions to the same payload, so the most recently parsed documents and the
+ * compiled expressions are cached. Both are only read after they have been created, so they can be shared between
+ * threads.
+ *
  * @author Gaël L'hopital
  * @author Sebastian Janzen
  *
@@ -41,8 +50,14 @@ import com.jayway.jsonpath.PathNotFoundException;
 @Component(property = { "openhab.transform=JSONPATH" })
 public class JSonPathTransformationService implements TransformationService {
 
+    static final int MAX_CACHED_DOCUMENTS = 16;
+    static final int MAX_CACHED_PATHS = 200;
+
     private final Logger logger = LoggerFactory.getLogger(JSonPathTransformationService.class);
 
+    private final Map<String, DocumentContext> documents = createCache(MAX_CACHED_DOCUMENTS);
+    private final Map<String, JsonPath> paths = createCache(MAX_CACHED_PATHS);
+
     /**
      * Transforms the input <code>source</code> by JSonPath expression.
      *
@@ -60,7 +75,7 @@ public class JSonPathTransformationService implements TransformationService {
         logger.debug("about to transform '{}' by the function '{}'", source, jsonPathExpression);
 
         try {
-            Object transformationResult = JsonPath.read(source, jsonPathExpression);
+            Object transformationResult = parse(source).read(compile(jsonPathExpression));
             logger.debug("transformation resulted in '{}'", transformationResult);
             if (transformationResult == null) {
                 return null;
@@ -76,6 +91,36 @@ public class JSonPathTransformationService implements TransformationService {
         }
     }
 
+    private DocumentContext parse(String source) {
+        DocumentContext document = documents.get(source);
+        if (document == null) {
+            // an invalid document throws and is not cached
+            document = JsonPath.parse(source);
+            documents.put(source, document);
+        }
+        return document;
+    }
+
+    private JsonPath compile(String jsonPathExpression) {
+        JsonPath path = paths.get(jsonPathExpression);
+        if (path == null) {
+            path = JsonPath.compile(jsonPathExpression);
+            paths.put(jsonPathExpression, path);
+        }
+        return path;
+    }
+
+    private static <V> Map<String, V> createCache(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.@Nullable Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
     private String flattenList(List<?> list) {
         if (list.size() == 1) {
             return list.get(0).toString();
@@ -127,4 +127,29 @@ public class JSonPathTransformationServiceTest {
         String transformedResponse = processor.transform("$.data", json);
         assertEquals(list, transformedResponse);
     }
+
+    @Test
+    public void testSeveralPathsOnSamePayload() throws TransformationException {
+        final String json = "{\"relays\":[{\"ison\":true}],\"meters\":[{\"power\":12.5}],\"temperature\":41.2}";
+        for (int i = 0; i < 2; i++) {
+            assertEquals("true", processor.transform("$.relays[0].ison", json));
+            assertEquals("12.5", processor.transform("$.meters[0].power", json));
+            assertEquals("41.2", processor.transform("$.temperature", json));
+        }
+    }
+
+    @Test
+    public void testChangedPayload() throws TransformationException {
+        for (int i = 0; i < JSonPathTransformationService.MAX_CACHED_DOCUMENTS + 2; i++) {
+            assertEquals(String.valueOf(i), processor.transform("$.value", "{\"value\":" + i + "}"));
+        }
+        assertEquals("0", processor.transform("$.value", "{\"value\":0}"));
+    }
+
+    @Test
+    public void testInvalidJsonIsNotCached() throws TransformationException {
+        assertThrows(TransformationException.class, () -> processor.transform("$.id", "{\"id\":"));
+        assertThrows(TransformationException.class, () -> processor.transform("$.id", "{\"id\":"));
+        assertEquals("1", processor.transform("$.id", "{\"id\":1}"));
+    }
 }
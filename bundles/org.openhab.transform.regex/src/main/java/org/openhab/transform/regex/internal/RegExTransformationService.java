@@ -12,6 +12,10 @@
  */
 package org.openhab.transform.regex.internal;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,16 +34,33 @@ import org.slf4j.LoggerFactory;
  * <p>
  * <b>Note:</b> the given Regular Expression must contain exactly one group!
  *
+ * <p>
+ * The compiled form of the most recently used expressions is cached, so the patterns are only compiled once.
+ *
  * @author Thomas.Eichstaedt-Engelen
  */
 @NonNullByDefault
 @Component(property = { "openhab.transform=REGEX" })
 public class RegExTransformationService implements TransformationService {
 
+    static final int MAX_CACHED_EXPRESSIONS = 256;
+
     private final Logger logger = LoggerFactory.getLogger(RegExTransformationService.class);
 
     private static final Pattern SUBSTR_PATTERN = Pattern.compile("^s/(.*?[^\\\\])/(.*?[^\\\\])/(.*)$");
 
+    private final Map<String, CompiledExpression> expressions = Collections
+            .synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.@Nullable Entry<String, CompiledExpression> eldest) {
+                    return size() > MAX_CACHED_EXPRESSIONS;
+                }
+            });
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
     @Override
     public @Nullable String transform(String regExpression, String source) throws TransformationException {
         if (regExpression == null || source == null) {
@@ -48,25 +69,19 @@ public class RegExTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, regExpression);
 
-        String result = "";
+        CompiledExpression expression = compile(regExpression);
+        // trim() returns the source itself if there is nothing to remove
+        String trimmedSource = source.trim();
 
-        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
-        if (substMatcher.matches()) {
+        Pattern substitutionPattern = expression.substitutionPattern;
+        if (substitutionPattern != null) {
             logger.debug("Using substitution form of regex transformation");
-            String regex = substMatcher.group(1);
-            String substitution = substMatcher.group(2);
-            String options = substMatcher.group(3);
-            if (options.equals("g")) {
-                result = source.trim().replaceAll(regex, substitution);
-            } else {
-                result = source.trim().replaceFirst(regex, substitution);
-            }
-            if (result != null) {
-                return result;
-            }
+            Matcher substMatcher = substitutionPattern.matcher(trimmedSource);
+            return expression.global ? substMatcher.replaceAll(expression.substitution)
+                    : substMatcher.replaceFirst(expression.substitution);
         }
 
-        Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+        Matcher matcher = expression.pattern.matcher(trimmedSource);
         if (!matcher.matches()) {
             logger.debug(
                     "the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation",
@@ -75,6 +90,7 @@ public class RegExTransformationService implements TransformationService {
         }
         matcher.reset();
 
+        String result = "";
         while (matcher.find()) {
             if (matcher.groupCount() == 0) {
                 logger.info(
@@ -94,4 +110,62 @@ public class RegExTransformationService implements TransformationService {
 
         return result;
     }
+
+    /**
+     * @return the number of transformations that used an already compiled expression
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * @return the number of transformations that had to compile their expression
+     */
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    private CompiledExpression compile(String regExpression) {
+        CompiledExpression expression = expressions.get(regExpression);
+        if (expression != null) {
+            cacheHits.incrementAndGet();
+            return expression;
+        }
+        cacheMisses.incrementAndGet();
+
+        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
+        if (substMatcher.matches()) {
+            expression = new CompiledExpression(Pattern.compile(substMatcher.group(1)), substMatcher.group(2),
+                    substMatcher.group(3).equals("g"));
+        } else {
+            expression = new CompiledExpression(Pattern.compile("^" + regExpression + "$", Pattern.DOTALL));
+        }
+        expressions.put(regExpression, expression);
+        return expression;
+    }
+
+    /**
+     * The compiled form of an expression, either a substitution of the form <code>s/regex/substitution/g</code> or a
+     * pattern whose first group is extracted
+     */
+    private static class CompiledExpression {
+        private final Pattern pattern;
+        private final @Nullable Pattern substitutionPattern;
+        private final String substitution;
+        private final boolean global;
+
+        private CompiledExpression(Pattern pattern) {
+            this.pattern = pattern;
+            this.substitutionPattern = null;
+            this.substitution = "";
+            this.global = false;
+        }
+
+        private CompiledExpression(Pattern substitutionPattern, String substitution, boolean global) {
+            this.pattern = substitutionPattern;
+            this.substitutionPattern = substitutionPattern;
+            this.substitution = substitution;
+            this.global = global;
+        }
+    }
 }
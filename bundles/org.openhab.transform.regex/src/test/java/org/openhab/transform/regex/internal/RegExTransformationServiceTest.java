@@ -75,4 +75,28 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("varX=12 varY=54 ", transformedResponse);
     }
+
+    @Test
+    public void testCompiledExpressionsAreCached() throws TransformationException {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("SetMode(" + i + ")",
+                    processor.transform("s/^OP:(.*?),ARG:(.*)$/$1($2)/", "OP:SetMode,ARG:" + i));
+            assertEquals(String.valueOf(i), processor.transform("value=(.*)", " value=" + i + " "));
+        }
+
+        assertEquals(2, processor.getCacheMisses());
+        assertEquals(4, processor.getCacheHits());
+    }
+
+    @Test
+    public void testCacheIsBounded() throws TransformationException {
+        for (int i = 0; i <= RegExTransformationService.MAX_CACHED_EXPRESSIONS; i++) {
+            assertEquals("x", processor.transform("(x)" + i, "x" + i));
+        }
+        // the first expression has been evicted
+        assertEquals("x", processor.transform("(x)0", "x0"));
+
+        assertEquals(RegExTransformationService.MAX_CACHED_EXPRESSIONS + 2, processor.getCacheMisses());
+        assertEquals(0, processor.getCacheHits());
+    }
 }
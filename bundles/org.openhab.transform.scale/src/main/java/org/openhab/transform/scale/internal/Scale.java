@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.scale.internal;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A loaded scale file, compiled for fast lookups.
+ *
+ * The limits of all ranges split the numbers into elementary intervals: the limits themselves and the open intervals
+ * between them. Every range either contains an elementary interval completely or not at all, so the label of the
+ * first matching range in file order is computed once per interval. A lookup is then a binary search over the
+ * sorted limits.
+ *
+ * The format is split at its <code>%value%</code> and <code>%label%</code> placeholders, so that the result is built
+ * without regular expressions.
+ *
+ * @author openHAB Team - Initial contribution
+ */
+@NonNullByDefault
+class Scale {
+    private static final String FORMAT_VALUE = "%value%";
+    private static final String FORMAT_LABEL = "%label%";
+
+    /** the distinct limits of all ranges in ascending order */
+    private final BigDecimal[] limits;
+    /**
+     * the label of each elementary interval: index 2i+1 is the limit i, index 2i is the open interval below it and the
+     * last index the open interval above the highest limit
+     */
+    private final @Nullable String[] labels;
+    private final @Nullable String nonNumericLabel;
+
+    /** the literal parts of the format, one more than there are placeholders */
+    private final String[] formatLiterals;
+    /** for each placeholder, <code>true</code> if it is <code>%value%</code> and <code>false</code> if it is a label */
+    private final boolean[] formatValues;
+
+    /**
+     * @param ranges the ranges with their labels, in the order of the file
+     * @param nonNumericLabel the label of non numeric input, <code>null</code> if it's not defined
+     * @param format the format of the result
+     */
+    Scale(Map<Range, String> ranges, @Nullable String nonNumericLabel, String format) {
+        this.nonNumericLabel = nonNumericLabel;
+
+        TreeSet<BigDecimal> sortedLimits = new TreeSet<>();
+        for (Range range : ranges.keySet()) {
+            if (range.min != null) {
+                sortedLimits.add(range.min);
+            }
+            if (range.max != null) {
+                sortedLimits.add(range.max);
+            }
+        }
+        limits = sortedLimits.toArray(new BigDecimal[0]);
+
+        labels = new String[2 * limits.length + 1];
+        for (int i = 0; i < labels.length; i++) {
+            BigDecimal value = representative(i);
+            for (Map.Entry<Range, String> entry : ranges.entrySet()) {
+                if (entry.getKey().contains(value)) {
+                    labels[i] = entry.getValue();
+                    break;
+                }
+            }
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Boolean> values = new ArrayList<>();
+        int start = 0;
+        while (true) {
+            int valueIndex = format.indexOf(FORMAT_VALUE, start);
+            int labelIndex = format.indexOf(FORMAT_LABEL, start);
+            int index = valueIndex < 0 ? labelIndex
+                    : labelIndex < 0 ? valueIndex : Math.min(valueIndex, labelIndex);
+            if (index < 0) {
+                break;
+            }
+            literals.add(format.substring(start, index));
+            values.add(index == valueIndex);
+            // both placeholders have the same length
+            start = index + FORMAT_VALUE.length();
+        }
+        literals.add(format.substring(start));
+        formatLiterals = literals.toArray(new String[0]);
+        formatValues = new boolean[values.size()];
+        for (int i = 0; i < formatValues.length; i++) {
+            formatValues[i] = values.get(i);
+        }
+    }
+
+    /**
+     * @param value the value to look up
+     * @return the label of the first range containing the value, <code>null</code> if there is none
+     */
+    @Nullable
+    String getLabel(BigDecimal value) {
+        int index = Arrays.binarySearch(limits, value);
+        return labels[index >= 0 ? 2 * index + 1 : 2 * (-index - 1)];
+    }
+
+    @Nullable
+    String getNonNumericLabel() {
+        return nonNumericLabel;
+    }
+
+    /**
+     * @param source the input of the transformation
+     * @param label the label of the range matching the input
+     * @return the formatted result
+     */
+    String format(String source, String label) {
+        if (formatValues.length == 0) {
+            return formatLiterals[0];
+        } else if (formatValues.length == 1 && formatLiterals[0].isEmpty() && formatLiterals[1].isEmpty()) {
+            return formatValues[0] ? source : label;
+        }
+        StringBuilder result = new StringBuilder(formatLiterals[0]);
+        for (int i = 0; i < formatValues.length; i++) {
+            result.append(formatValues[i] ? source : label).append(formatLiterals[i + 1]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return a value within the elementary interval with the given index
+     */
+    private BigDecimal representative(int index) {
+        if (limits.length == 0) {
+            return BigDecimal.ZERO;
+        } else if (index % 2 == 1) {
+            return limits[index / 2];
+        } else if (index == 0) {
+            return limits[0].subtract(BigDecimal.ONE);
+        } else if (index == labels.length - 1) {
+            return limits[limits.length - 1].add(BigDecimal.ONE);
+        } else {
+            // the division by two is always exact
+            return limits[index / 2 - 1].add(limits[index / 2]).divide(BigDecimal.valueOf(2));
+        }
+    }
+}
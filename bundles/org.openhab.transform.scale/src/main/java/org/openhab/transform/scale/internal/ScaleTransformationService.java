@@ -51,7 +51,7 @@ import org.slf4j.LoggerFactory;
  */
 @Component(service = { TransformationService.class, ConfigOptionProvider.class }, property = {
         "openhab.transform=SCALE" })
-public class ScaleTransformationService extends AbstractFileTransformationService<Map<Range, String>>
+public class ScaleTransformationService extends AbstractFileTransformationService<Scale>
         implements ConfigOptionProvider {
 
     private final Logger logger = LoggerFactory.getLogger(ScaleTransformationService.class);
@@ -65,12 +65,8 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
 
     private static final String NON_NUMBER = "NaN";
     private static final String FORMAT = "format";
-    private static final String FORMAT_VALUE = "%value%";
     private static final String FORMAT_LABEL = "%label%";
 
-    /** Inaccessible range used to store presentation format ]0..0[ */
-    private static final Range FORMAT_RANGE = Range.range(BigDecimal.ZERO, false, BigDecimal.ZERO, false);
-
     /**
      * The implementation of {@link OrderedProperties} that let access
      * properties in the same order than presented in the source file
@@ -107,23 +103,22 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
      * The method transforms the input <code>source</code> by matching searching
      * the range where it fits i.e. [min..max]=value or ]min..max]=value
      *
-     * @param properties the list of properties defining all the available ranges
+     * @param scale the compiled scale defining all the available ranges
      * @param source the input to transform
      * @return the transformed result or null if the transformation couldn't be completed for any reason.
      */
     @Override
-    protected @Nullable String internalTransform(Map<Range, String> data, String source)
-            throws TransformationException {
+    protected @Nullable String internalTransform(Scale scale, String source) throws TransformationException {
         try {
             final BigDecimal value = new BigDecimal(source);
-            return formatResult(data, source, value);
+            return formatResult(scale, source, value);
         } catch (NumberFormatException e) {
             // Scale can only be used with numeric inputs, so lets try to see if ever its a valid quantity type
             try {
                 final QuantityType<?> quantity = new QuantityType<>(source);
-                return formatResult(data, source, quantity.toBigDecimal());
+                return formatResult(scale, source, quantity.toBigDecimal());
             } catch (IllegalArgumentException e2) {
-                String nonNumeric = data.get(null);
+                String nonNumeric = scale.getNonNumericLabel();
                 if (nonNumeric != null) {
                     return nonNumeric;
                 } else {
@@ -134,25 +129,20 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
         }
     }
 
-    private String formatResult(Map<Range, String> data, String source, final BigDecimal value)
-            throws TransformationException {
-        String format = data.get(FORMAT_RANGE);
-        String result = getScaleResult(data, source, value);
-        return format.replaceAll(FORMAT_VALUE, source).replaceAll(FORMAT_LABEL, result);
-    }
-
-    private String getScaleResult(Map<Range, String> data, String source, final BigDecimal value)
-            throws TransformationException {
-        return data.entrySet().stream().filter(entry -> entry.getKey() != null && entry.getKey().contains(value))
-                .findFirst().map(Map.Entry::getValue)
-                .orElseThrow(() -> new TransformationException("No matching range for '" + source + "'"));
+    private String formatResult(Scale scale, String source, final BigDecimal value) throws TransformationException {
+        String label = scale.getLabel(value);
+        if (label == null) {
+            throw new TransformationException("No matching range for '" + source + "'");
+        }
+        return scale.format(source, label);
     }
 
     @Override
-    protected Map<Range, String> internalLoadTransform(String filename) throws TransformationException {
+    protected Scale internalLoadTransform(String filename) throws TransformationException {
         try (FileReader reader = new FileReader(filename)) {
-            final Map<Range, String> data = new LinkedHashMap<>();
-            data.put(FORMAT_RANGE, FORMAT_LABEL);
+            final Map<Range, String> ranges = new LinkedHashMap<>();
+            String nonNumeric = null;
+            String format = FORMAT_LABEL;
             final OrderedProperties properties = new OrderedProperties();
             properties.load(reader);
 
@@ -172,15 +162,15 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
                         final BigDecimal highValue = highLimit.isEmpty() ? null : new BigDecimal(highLimit);
                         final Range range = Range.range(lowValue, lowerInclusive, highValue, upperInclusive);
 
-                        data.put(range, value);
+                        ranges.put(range, value);
                     } catch (NumberFormatException ex) {
                         throw new TransformationException("Error parsing bounds: " + lowLimit + ".." + highLimit);
                     }
                 } else {
                     if (NON_NUMBER.equals(entry)) {
-                        data.put(null, value);
+                        nonNumeric = value;
                     } else if (FORMAT.equals(entry)) {
-                        data.put(FORMAT_RANGE, value);
+                        format = value;
                     } else {
                         logger.warn("Scale transform file '{}' does not comply with syntax for entry : '{}', '{}'",
                                 filename, entry, value);
@@ -188,7 +178,7 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
                 }
             }
 
-            return data;
+            return new Scale(ranges, nonNumeric, format);
         } catch (final IOException ex) {
             throw new TransformationException("An error occurred while opening file.", ex);
         }
@@ -153,4 +153,30 @@ public class ScaleTransformServiceTest {
         String transformedResponse = processor.transform(existingscale, source);
         assertEquals("", transformedResponse);
     }
+
+    @Test
+    public void testManyBands() throws TransformationException {
+        String existingscale = "scale/winddirection.scale";
+
+        assertEquals("N", processor.transform(existingscale, "0"));
+        assertEquals("N", processor.transform(existingscale, "11.2"));
+        assertEquals("NNE", processor.transform(existingscale, "11.25"));
+        assertEquals("E", processor.transform(existingscale, "90"));
+        assertEquals("SSW", processor.transform(existingscale, "213.7"));
+        assertEquals("SW", processor.transform(existingscale, "213.750"));
+        assertEquals("NNW", processor.transform(existingscale, "348.7"));
+        assertEquals("N", processor.transform(existingscale, "360"));
+        // the overlapping range at the end of the file is never matched
+        assertEquals("N", processor.transform(existingscale, "359.9"));
+        assertEquals("", processor.transform(existingscale, "360.1"));
+        assertEquals("", processor.transform(existingscale, "-0.1"));
+    }
+
+    @Test
+    public void testFormatIsNotARegularExpression() throws TransformationException {
+        String existingscale = "scale/price.scale";
+
+        assertEquals("$ cheap (0.15 EUR)", processor.transform(existingscale, "0.15"));
+        assertEquals("$$ expensive (0.20 EUR)", processor.transform(existingscale, "0.20"));
+    }
 }
@@ -12,13 +12,22 @@
  */
 package org.openhab.transform.xpath.internal;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -30,31 +39,103 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XPath Expressions.
  *
+ * <p>
+ * Neither {@link DocumentBuilder}s nor compiled {@link XPathExpression}s are thread-safe, so they are kept in
+ * evaluators that are borrowed from a pool for the duration of a call. Each evaluator caches the most recently used
+ * compiled expressions.
+ *
  * @author Thomas.Eichstaedt-Engelen
  */
 @NonNullByDefault
 @Component(property = { "openhab.transform=XPATH" })
 public class XPathTransformationService implements TransformationService {
 
+    static final int MAX_CACHED_EXPRESSIONS = 100;
+    static final int MAX_IDLE_EVALUATORS = 8;
+
     private final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+    private final Deque<Evaluator> idleEvaluators = new ConcurrentLinkedDeque<>();
+    // the factories are not thread-safe, they are only used while holding the lock of this service
+    private @Nullable DocumentBuilderFactory domFactory;
+    private @Nullable XPathFactory xpathFactory;
+
     @Override
     public @Nullable String transform(String xpathExpression, String source) throws TransformationException {
         if (xpathExpression == null || source == null) {
             throw new TransformationException("the given parameters 'xpath' and 'source' must not be null");
         }
 
-        logger.debug("about to transform '{}' by the function '{}'", source, xpathExpression);
+        return transformAll(List.of(xpathExpression), source).get(0);
+    }
+
+    /**
+     * Transforms the source by several XPath expressions, parsing the source only once
+     *
+     * @param xpathExpressions the expressions
+     * @param source the XML document
+     * @return the results in the order of the expressions
+     * @throws TransformationException if the source can't be parsed or an expression is invalid
+     */
+    public List<String> transformAll(List<String> xpathExpressions, String source) throws TransformationException {
+        logger.debug("about to transform '{}' by the functions '{}'", source, xpathExpressions);
+
+        Evaluator evaluator = borrowEvaluator();
+        boolean reusable = false;
+        try {
+            Document doc = evaluator.parse(source);
+
+            List<String> results = new ArrayList<>(xpathExpressions.size());
+            for (String xpathExpression : xpathExpressions) {
+                results.add((String) evaluator.compile(xpathExpression).evaluate(doc, XPathConstants.STRING));
+            }
+            reusable = true;
+
+            logger.debug("transformation resulted in '{}'", results);
 
-        StringReader stringReader = null;
+            return results;
+        } catch (XPathExpressionException e) {
+            // the evaluator is not affected by an invalid expression
+            reusable = true;
+            throw new TransformationException("transformation throws exceptions", e);
+        } catch (Exception e) {
+            throw new TransformationException("transformation throws exceptions", e);
+        } finally {
+            if (reusable) {
+                returnEvaluator(evaluator);
+            }
+        }
+    }
 
+    private Evaluator borrowEvaluator() throws TransformationException {
+        Evaluator evaluator = idleEvaluators.pollFirst();
+        if (evaluator != null) {
+            return evaluator;
+        }
         try {
-            DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+            return createEvaluator();
+        } catch (ParserConfigurationException e) {
+            throw new TransformationException("transformation throws exceptions", e);
+        }
+    }
+
+    private void returnEvaluator(Evaluator evaluator) {
+        evaluator.reset();
+        if (idleEvaluators.size() < MAX_IDLE_EVALUATORS) {
+            idleEvaluators.offerFirst(evaluator);
+        }
+    }
+
+    private synchronized Evaluator createEvaluator() throws ParserConfigurationException {
+        DocumentBuilderFactory domFactory = this.domFactory;
+        if (domFactory == null) {
+            domFactory = DocumentBuilderFactory.newInstance();
             // see https://cheatsheetseries.owasp.org/cheatsheets/XML_External_Entity_Prevention_Cheat_Sheet.html
             domFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
             domFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
@@ -63,28 +144,56 @@ public class XPathTransformationService implements TransformationService {
             domFactory.setExpandEntityReferences(false);
             domFactory.setNamespaceAware(true);
             domFactory.setValidating(false);
-            DocumentBuilder builder = domFactory.newDocumentBuilder();
-
-            stringReader = new StringReader(source);
-            InputSource inputSource = new InputSource(stringReader);
-            inputSource.setEncoding("UTF-8");
+            this.domFactory = domFactory;
+        }
+        XPathFactory xpathFactory = this.xpathFactory;
+        if (xpathFactory == null) {
+            xpathFactory = XPathFactory.newInstance();
+            this.xpathFactory = xpathFactory;
+        }
+        return new Evaluator(domFactory.newDocumentBuilder(), xpathFactory.newXPath());
+    }
 
-            Document doc = builder.parse(inputSource);
+    /**
+     * A document builder and XPath with a cache of compiled expressions, used by one thread at a time
+     */
+    private static class Evaluator {
+        private final DocumentBuilder builder;
+        private final XPath xpath;
+        private final Map<String, XPathExpression> expressions = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
 
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression expr = xpath.compile(xpathExpression);
+            @Override
+            protected boolean removeEldestEntry(Map.@Nullable Entry<String, XPathExpression> eldest) {
+                return size() > MAX_CACHED_EXPRESSIONS;
+            }
+        };
 
-            String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+        private Evaluator(DocumentBuilder builder, XPath xpath) {
+            this.builder = builder;
+            this.xpath = xpath;
+        }
 
-            logger.debug("transformation resulted in '{}'", transformationResult);
+        private Document parse(String source) throws SAXException, IOException {
+            try (StringReader stringReader = new StringReader(source)) {
+                InputSource inputSource = new InputSource(stringReader);
+                inputSource.setEncoding("UTF-8");
+                return builder.parse(inputSource);
+            }
+        }
 
-            return transformationResult;
-        } catch (Exception e) {
-            throw new TransformationException("transformation throws exceptions", e);
-        } finally {
-            if (stringReader != null) {
-                stringReader.close();
+        private XPathExpression compile(String xpathExpression) throws XPathExpressionException {
+            XPathExpression expression = expressions.get(xpathExpression);
+            if (expression == null) {
+                expression = xpath.compile(xpathExpression);
+                expressions.put(xpathExpression, expression);
             }
+            return expression;
+        }
+
+        private void reset() {
+            builder.reset();
+            xpath.reset();
         }
     }
 }
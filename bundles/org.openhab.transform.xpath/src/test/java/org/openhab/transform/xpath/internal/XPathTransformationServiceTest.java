@@ -14,6 +14,8 @@ package org.openhab.transform.xpath.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openhab.core.transform.TransformationException;
@@ -38,4 +40,40 @@ public class XPathTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("8", transformedResponse);
     }
+
+    @Test
+    public void testTransformAllParsesOnce() throws TransformationException {
+        List<String> transformedResponses = processor.transformAll(
+                List.of("//current_conditions/temp_c/@data", "//current_conditions/temp_f/@data", "//city/@data"),
+                source);
+
+        assertEquals(List.of("8", "46", "Krefeld, North Rhine-Westphalia"), transformedResponses);
+    }
+
+    @Test
+    public void testCachedExpressionOnDifferentDocuments() throws TransformationException {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), processor.transform("/value/@data", "<value data=\"" + i + "\"/>"));
+        }
+    }
+
+    @Test
+    public void testInvalidExpression() {
+        assertThrows(TransformationException.class, () -> processor.transform("//current_conditions[", source));
+    }
+
+    @Test
+    public void testInvalidDocumentDoesNotAffectLaterTransformations() throws TransformationException {
+        assertThrows(TransformationException.class,
+                () -> processor.transform("//current_conditions/temp_c/@data", "<xml_api_reply>"));
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+    }
+
+    @Test
+    public void testExternalEntitiesAreNotResolved() throws TransformationException {
+        String document = "<?xml version=\"1.0\"?><!DOCTYPE value [<!ENTITY ext SYSTEM \"file:///etc/hostname\">]>"
+                + "<value>&ext;</value>";
+
+        assertEquals("", processor.transform("/value", document));
+    }
 }
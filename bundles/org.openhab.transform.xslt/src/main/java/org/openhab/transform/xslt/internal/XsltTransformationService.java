@@ -16,15 +16,17 @@ import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
 
+import javax.xml.transform.Result;
 import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
-import org.openhab.core.OpenHAB;
+import org.openhab.core.transform.AbstractFileTransformationService;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.osgi.service.component.annotations.Component;
@@ -35,14 +37,21 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XSLT.
  *
+ * <p>
+ * The stylesheets are compiled to {@link Templates} once and cached until the file changes, every transformation
+ * only creates a new transformer from them.
+ *
  * @author Thomas.Eichstaedt-Engelen
  */
 @NonNullByDefault
-@Component(property = { "openhab.transform=XSLT" })
-public class XsltTransformationService implements TransformationService {
+@Component(service = TransformationService.class, property = { "openhab.transform=XSLT" })
+public class XsltTransformationService extends AbstractFileTransformationService<Templates> {
 
     private final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
 
+    // a TransformerFactory is not thread-safe, it is only used while holding its lock
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
     /**
      * Transforms the input <code>source</code> by XSLT.
      *
@@ -50,46 +59,51 @@ public class XsltTransformationService implements TransformationService {
      * is stored under the 'configurations/transform' folder. To organize the
      * various transformations one should use subfolders.
      *
-     * @param filename the name of the file which contains the XSLT transformation rule.
-     *            The name may contain subfoldernames as well
+     * @param templates the compiled XSLT transformation rule
      * @param source the input to transform
      */
     @Override
-    public @Nullable String transform(String filename, String source) throws TransformationException {
-        if (filename == null || source == null) {
-            throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
-        }
-
-        Source xsl = null;
-
-        try {
-            String path = OpenHAB.getConfigFolder() + File.separator + TransformationService.TRANSFORM_FOLDER_NAME
-                    + File.separator + filename;
-            xsl = new StreamSource(new File(path));
-        } catch (Exception e) {
-            String message = "opening file '" + filename + "' throws exception";
-
-            logger.error("{}", message, e);
-            throw new TransformationException(message, e);
-        }
-
-        logger.debug("about to transform '{}' by the function '{}'", source, xsl);
+    protected @Nullable String internalTransform(Templates templates, String source) throws TransformationException {
+        logger.debug("about to transform '{}'", source);
 
-        StringReader xml = new StringReader(source);
         StringWriter out = new StringWriter();
+        transform(templates, new StreamSource(new StringReader(source)), new StreamResult(out));
+        String result = out.toString();
 
-        Transformer transformer;
+        logger.debug("transformation resulted in '{}'", result);
 
+        return result;
+    }
+
+    /**
+     * Transforms the <code>source</code> into the <code>result</code> without converting them from or to strings,
+     * which is preferable for large documents.
+     *
+     * @param templates the compiled XSLT transformation rule
+     * @param source the input to transform
+     * @param result the output of the transformation
+     */
+    void transform(Templates templates, Source source, Result result) throws TransformationException {
         try {
-            transformer = TransformerFactory.newInstance().newTransformer(xsl);
-            transformer.transform(new StreamSource(xml), new StreamResult(out));
-        } catch (Exception e) {
+            templates.newTransformer().transform(source, result);
+        } catch (TransformerException e) {
             logger.error("transformation throws exception", e);
             throw new TransformationException("transformation throws exception", e);
         }
+    }
 
-        logger.debug("transformation resulted in '{}'", out.toString());
+    @Override
+    protected Templates internalLoadTransform(String filename) throws TransformationException {
+        logger.debug("compiling stylesheet '{}'", filename);
+        try {
+            synchronized (transformerFactory) {
+                return transformerFactory.newTemplates(new StreamSource(new File(filename)));
+            }
+        } catch (TransformerException e) {
+            String message = "compiling file '" + filename + "' throws exception";
 
-        return out.toString();
+            logger.error("{}", message, e);
+            throw new TransformationException(message, e);
+        }
     }
 }
@@ -14,28 +14,150 @@ package org.openhab.transform.xslt.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
 import org.openhab.core.transform.TransformationException;
+import org.osgi.framework.BundleContext;
 
 /**
  * @author Thomas.Eichstaedt-Engelen
  */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.WARN)
 public class XsltTransformationServiceTest extends AbstractTransformationServiceTest {
 
-    private XsltTransformationService processor;
+    private static final String FILENAME = "http/google_weather.xsl";
+    private static final String BASE_FOLDER = "target";
+    private static final String SRC_FOLDER = "conf";
+    private static final String CONFIG_FOLDER = BASE_FOLDER + File.separator + SRC_FOLDER;
+
+    private @Mock BundleContext bundleContext;
+
+    private TestableXsltTransformationService processor;
+
+    private class TestableXsltTransformationService extends XsltTransformationService {
+        @Override
+        protected String getSourcePath() {
+            return BASE_FOLDER + File.separator + super.getSourcePath();
+        }
+
+        @Override
+        protected Locale getLocale() {
+            return Locale.US;
+        }
+
+        @Override
+        public void activate(BundleContext context) {
+            super.activate(context);
+        }
+
+        @Override
+        public void deactivate() {
+            super.deactivate();
+        }
+    }
 
     @BeforeEach
-    public void init() {
-        processor = new XsltTransformationService();
+    public void init() throws IOException {
+        processor = new TestableXsltTransformationService();
+        processor.activate(bundleContext);
+        copyDirectory(Path.of(SRC_FOLDER), Path.of(CONFIG_FOLDER));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        processor.deactivate();
+
+        try (Stream<Path> walk = Files.walk(Path.of(CONFIG_FOLDER))) {
+            walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
     }
 
     @Test
     public void testTransformByXSLT() throws TransformationException {
         // method under test
-        String transformedResponse = processor.transform("http/google_weather.xsl", source);
+        String transformedResponse = processor.transform(FILENAME, source);
 
         // Asserts
         assertEquals("8", transformedResponse);
     }
+
+    @Test
+    public void testChangedStylesheetIsRecompiled() throws Exception {
+        assertEquals("8", processor.transform(FILENAME, source));
+
+        Path stylesheet = Path.of(CONFIG_FOLDER, "transform", FILENAME);
+        Files.writeString(stylesheet, Files.readString(stylesheet).replace("temp_c", "temp_f"));
+
+        waitForAssert(() -> {
+            assertEquals("46", processor.transform(FILENAME, source));
+            return null;
+        }, 10000, 100);
+    }
+
+    @Test
+    public void testMissingStylesheet() {
+        assertThrows(TransformationException.class, () -> processor.transform("http/missing.xsl", source));
+    }
+
+    @Test
+    public void testTransformStreams() throws Exception {
+        Templates templates = TransformerFactory.newInstance()
+                .newTemplates(new StreamSource(new File(SRC_FOLDER + "/transform/" + FILENAME)));
+
+        for (int i = 0; i < 2; i++) {
+            StringWriter out = new StringWriter();
+            processor.transform(templates, new StreamSource(new StringReader(source)), new StreamResult(out));
+            assertEquals("8", out.toString());
+        }
+    }
+
+    private void copyDirectory(Path from, Path to) throws IOException {
+        try (Stream<Path> walk = Files.walk(from)) {
+            for (Path fromPath : (Iterable<Path>) walk::iterator) {
+                Path toPath = to.resolve(from.relativize(fromPath).toString());
+                if (Files.isDirectory(fromPath)) {
+                    Files.createDirectories(toPath);
+                } else {
+                    Files.copy(fromPath, toPath);
+                }
+            }
+        }
+    }
+
+    protected void waitForAssert(Callable<Void> assertion, int timeout, int sleepTime) throws Exception {
+        int waitingTime = 0;
+        while (waitingTime < timeout) {
+            try {
+                assertion.call();
+                return;
+            } catch (AssertionError error) {
+                waitingTime += sleepTime;
+                Thread.sleep(sleepTime);
+            }
+        }
+        assertion.call();
+    }
 }